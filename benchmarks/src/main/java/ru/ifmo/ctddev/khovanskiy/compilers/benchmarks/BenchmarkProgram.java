@@ -0,0 +1,89 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.benchmarks;
+
+import lombok.Getter;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.AST;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ExternalFunctions;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Pointer;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Symbol;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.parser.LanguageLexer;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.parser.LanguageParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/**
+ * The benchmarked program with its input
+ * <p>
+ * The programs are loaded from the directory of system property {@code benchmarks.programs},
+ * for example {@code compiler-tests/performance}, or from the bundled resources.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Getter
+public class BenchmarkProgram {
+    public static final String PROGRAMS_PROPERTY = "benchmarks.programs";
+
+    private final String name;
+    private final String source;
+    private final String input;
+
+    private BenchmarkProgram(final String name, final String source, final String input) {
+        this.name = name;
+        this.source = source;
+        this.input = input;
+    }
+
+    public static BenchmarkProgram load(final String name) throws IOException {
+        final String directory = System.getProperty(PROGRAMS_PROPERTY);
+        if (directory != null) {
+            final Path expr = Paths.get(directory, name + ".expr");
+            final Path input = Paths.get(directory, name + ".input");
+            return new BenchmarkProgram(name, read(Files.newInputStream(expr)), Files.exists(input) ? read(Files.newInputStream(input)) : "");
+        }
+        final InputStream expr = BenchmarkProgram.class.getResourceAsStream("/programs/" + name + ".expr");
+        if (expr == null) {
+            throw new IllegalStateException(String.format("Program \"%s\" is not found", name));
+        }
+        final InputStream input = BenchmarkProgram.class.getResourceAsStream("/programs/" + name + ".input");
+        return new BenchmarkProgram(name, read(expr), input != null ? read(input) : "");
+    }
+
+    public AST.CompilationUnit parse() {
+        final LanguageLexer lexer = new LanguageLexer(new ANTLRInputStream(source));
+        return new LanguageParser(new CommonTokenStream(lexer)).compilationUnit().ast;
+    }
+
+    /**
+     * Defines the external functions that read the input of program
+     *
+     * @param writer the output of program
+     * @return the symbols of external functions
+     * @since 1.1.0
+     */
+    public Map<Pointer, Symbol> defineExternals(final Writer writer) {
+        return ExternalFunctions.define(new StringReader(input), writer);
+    }
+
+    private static String read(final InputStream inputStream) throws IOException {
+        try (InputStream in = inputStream) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int length;
+            while ((length = in.read(buffer)) != -1) {
+                out.write(buffer, 0, length);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
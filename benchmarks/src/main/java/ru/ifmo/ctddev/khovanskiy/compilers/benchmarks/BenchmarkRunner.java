@@ -0,0 +1,25 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runner of the benchmarks with the allocation profiling
+ * <p>
+ * The arguments are the usual JMH ones, for example {@code PhaseBenchmark -p program=loops}.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class BenchmarkRunner {
+    public static void main(final String[] args) throws Exception {
+        final Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,96 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.AST;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.closure.ClosureEvaluator;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ASTEvaluator;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.EvaluatorContext;
+import ru.ifmo.ctddev.khovanskiy.compilers.jvm.JVMEvaluator;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.compiler.VMCompiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.evaluator.LinkedVMEvaluator;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.evaluator.VMEvaluator;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.TypeInferencer;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the evaluators running in the JVM
+ * <p>
+ * The program is parsed and compiled once, every invocation evaluates it with the fresh input and output.
+ * The JVM engine generates the bytecode at every invocation, because the external functions are bound at compilation.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EngineBenchmark {
+    @Param({"loops", "recursion", "arrays", "strings"})
+    public String program;
+
+    private BenchmarkProgram benchmarkProgram;
+
+    private AST.CompilationUnit ast;
+
+    private VMProgram vmProgram;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        benchmarkProgram = BenchmarkProgram.load(program);
+        ast = benchmarkProgram.parse();
+        vmProgram = new VMCompiler().compile(ast, new TypeInferencer().inference(ast));
+    }
+
+    @Benchmark
+    public String ast() {
+        final StringWriter writer = new StringWriter();
+        new ASTEvaluator().visitCompilationUnit(ast, new EvaluatorContext(benchmarkProgram.defineExternals(writer)));
+        return writer.toString();
+    }
+
+    @Benchmark
+    public String closure() {
+        final StringWriter writer = new StringWriter();
+        new ClosureEvaluator().evaluate(ast, benchmarkProgram.defineExternals(writer));
+        return writer.toString();
+    }
+
+    @Benchmark
+    public String vm() {
+        final StringWriter writer = new StringWriter();
+        new VMEvaluator().evaluate(vmProgram, benchmarkProgram.defineExternals(writer));
+        return writer.toString();
+    }
+
+    @Benchmark
+    public String linkedVm() {
+        final StringWriter writer = new StringWriter();
+        new LinkedVMEvaluator().evaluate(vmProgram, benchmarkProgram.defineExternals(writer));
+        return writer.toString();
+    }
+
+    @Benchmark
+    public String jvm() {
+        final StringWriter writer = new StringWriter();
+        new JVMEvaluator().evaluate(vmProgram, benchmarkProgram.defineExternals(writer));
+        return writer.toString();
+    }
+}
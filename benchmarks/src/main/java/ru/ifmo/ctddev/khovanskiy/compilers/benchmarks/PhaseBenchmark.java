@@ -0,0 +1,101 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.AST;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.compiler.VMCompiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.TypeContext;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.TypeInferencer;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.optimizer.VMOptimizer;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86Program;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler.X86Compiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.printer.X86Printer;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.printer.X86PrinterContext;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the compilation phases
+ * <p>
+ * Every phase takes the result of the previous phases prepared once, the optimization phase compiles
+ * the virtual machine code too, because the optimizer changes the program.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PhaseBenchmark {
+    @Param({"loops", "recursion", "arrays", "strings"})
+    public String program;
+
+    private BenchmarkProgram benchmarkProgram;
+
+    private AST.CompilationUnit ast;
+
+    private TypeContext typeContext;
+
+    private VMProgram vmProgram;
+
+    private X86Program x86Program;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        benchmarkProgram = BenchmarkProgram.load(program);
+        ast = benchmarkProgram.parse();
+        typeContext = new TypeInferencer().inference(ast);
+        vmProgram = new VMCompiler().compile(ast, typeContext);
+        x86Program = new X86Compiler().compile(vmProgram);
+    }
+
+    @Benchmark
+    public AST.CompilationUnit parse() {
+        return benchmarkProgram.parse();
+    }
+
+    @Benchmark
+    public TypeContext inference() {
+        return new TypeInferencer().inference(ast);
+    }
+
+    @Benchmark
+    public VMProgram vmCompile() {
+        return new VMCompiler().compile(ast, typeContext);
+    }
+
+    @Benchmark
+    public VMProgram vmOptimize() {
+        final VMProgram program = new VMCompiler().compile(ast, typeContext);
+        VMOptimizer.forLevel(2).optimize(program);
+        return program;
+    }
+
+    @Benchmark
+    public X86Program x86Compile() {
+        return new X86Compiler().compile(vmProgram);
+    }
+
+    @Benchmark
+    public String print() throws Exception {
+        final StringWriter writer = new StringWriter();
+        new X86Printer().visitProgram(x86Program, new X86PrinterContext(writer));
+        return writer.toString();
+    }
+}
@@ -0,0 +1,111 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.ifmo.ctddev.khovanskiy.compilers.SystemService;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.AST;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.compiler.VMCompiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.TypeInferencer;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86Program;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler.X86Compiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.printer.X86Printer;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.printer.X86PrinterContext;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark of the compiled x86 executable
+ * <p>
+ * The executable is built once by {@code runtime/compile.sh} from the directory of system property
+ * {@code benchmarks.runtime}, every invocation runs the process with the input of program.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class X86Benchmark {
+    public static final String RUNTIME_PROPERTY = "benchmarks.runtime";
+
+    @Param({"loops", "recursion", "arrays", "strings"})
+    public String program;
+
+    private Path directory;
+
+    private File executable;
+
+    private File input;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final BenchmarkProgram benchmarkProgram = BenchmarkProgram.load(program);
+        final AST.CompilationUnit ast = benchmarkProgram.parse();
+        final VMProgram vmProgram = new VMCompiler().compile(ast, new TypeInferencer().inference(ast));
+        final X86Program x86Program = new X86Compiler().compile(vmProgram);
+
+        directory = Files.createTempDirectory("x86-benchmark");
+        executable = directory.resolve(program).toFile();
+        try (Writer writer = new BufferedWriter(Files.newBufferedWriter(directory.resolve(program + ".s")))) {
+            new X86Printer().visitProgram(x86Program, new X86PrinterContext(writer));
+        }
+        input = directory.resolve(program + ".input").toFile();
+        Files.write(input.toPath(), benchmarkProgram.getInput().getBytes(StandardCharsets.UTF_8));
+
+        final String runtime = System.getProperty(RUNTIME_PROPERTY, "../runtime");
+        if (!new SystemService().execute(runtime + "/compile.sh " + runtime + " " + executable.getPath()) || !executable.exists()) {
+            throw new IllegalStateException(String.format("Program \"%s\" is not compiled with runtime \"%s\"", program, runtime));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public String x86() throws Exception {
+        final Process process = new ProcessBuilder(executable.getPath())
+                .redirectInput(input)
+                .redirectErrorStream(true)
+                .start();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream in = process.getInputStream()) {
+            final byte[] buffer = new byte[8192];
+            int length;
+            while ((length = in.read(buffer)) != -1) {
+                output.write(buffer, 0, length);
+            }
+        }
+        process.waitFor();
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -13,10 +13,51 @@
 #define BOXED_TYPE 1
 #define DEFAULT_TYPE UNBOXED_TYPE
 
+#define pool struct _pool
+#define table struct _table
+
+#define POOL_CHUNKS 24
+#define POOL_FIRST_CHUNK 1024
+
+#define SMALL_STEP 16
+#define SMALL_LIMIT 512
+#define SMALL_CLASSES (SMALL_LIMIT / SMALL_STEP)
+#define SIZE_CLASSES (SMALL_CLASSES + 24)
+#define ARENA_SIZE 65536
+
+#ifndef GC_THRESHOLD
+#define GC_THRESHOLD 1024
+#endif
+
+#ifndef GC_HOLDER_LIMIT
+#define GC_HOLDER_LIMIT 65536
+#endif
+
+#ifndef GC_HEAP_LIMIT
+#define GC_HEAP_LIMIT 1048576
+#endif
+
+#define GC_PROTECTED 8
+
+#define FLAG_ZCT 1
+#define FLAG_BUFFERED 2
+#define FLAG_ROOT 4
+#define FLAG_DEAD 8
+#define FLAG_FREE 16
+#define COLOR_MASK 96
+#define BLACK 0
+#define GRAY 32
+#define WHITE 64
+#define PURPLE 96
+#define FLAG_MARK 128
+
 struct _meta_info {
     int count;
     int life;
     int type;
+    int flags;
+    int size_class;
+    int* data;
 };
 
 struct _reference {
@@ -24,6 +65,242 @@ struct _reference {
     int* data;
 };
 
+/*
+ * The blocks of the same size, the free blocks are linked through their last word.
+ * The chunks are never returned, so a stale pointer to the block is always readable.
+ */
+struct _pool {
+    int size;
+    char* free;
+    char* next;
+    char* limit;
+    int chunks;
+    char* starts[POOL_CHUNKS];
+    char* ends[POOL_CHUNKS];
+    char* marks[POOL_CHUNKS];
+};
+
+struct _table {
+    meta_info** items;
+    int size;
+    int capacity;
+};
+
+pool holders = {.size = sizeof(reference)};
+
+/*
+ * The meta of array is the header of block and the data follows it. The sizes are multiples of the step
+ * up to the limit and powers of two above it, the free blocks of every size are linked through their first word of data.
+ * The blocks are never returned either, the meta of freed block keeps its flags.
+ */
+meta_info* free_blocks[SIZE_CLASSES + 1];
+char* arena_next = 0;
+char* arena_limit = 0;
+
+/*
+ * The deferred reference counting does not count the stores into the variables of functions,
+ * the arrays without counted references are kept in the zero count table until the stack is scanned.
+ * The holders of variables and temporary variables are not released by the compiled code either,
+ * so the holders that are not found from the stack are returned to the pool by the same scan.
+ */
+int gc_deferred = 0;
+int* gc_stack_base = 0;
+int gc_threshold = GC_THRESHOLD;
+int gc_holders = 0;
+int gc_holder_limit = GC_HOLDER_LIMIT;
+table gc_zct = {0, 0, 0};
+table gc_candidates = {0, 0, 0};
+table gc_roots = {0, 0, 0};
+
+/*
+ * The mark-sweep collection does not track the stores at all. The compiled code records the stack positions
+ * of references for every call site in the gc_maps section: the return address, the count and the offsets from
+ * the frame pointer. The collector walks the frames and marks the arrays reachable from the positions of maps.
+ */
+extern int __start_gc_maps[] __attribute__((weak));
+extern int __stop_gc_maps[] __attribute__((weak));
+
+int gc_tracing = 0;
+int gc_allocated = 0;
+int gc_heap_limit = GC_HEAP_LIMIT;
+int** gc_maps = 0;
+int gc_maps_count = 0;
+table gc_blocks = {0, 0, 0};
+table gc_gray = {0, 0, 0};
+reference* gc_protected[GC_PROTECTED];
+int gc_protected_count = 0;
+
+void* pool_alloc(pool* p) {
+    if (p->free != 0) {
+        char* block = p->free;
+        p->free = *(char**) (block + p->size - sizeof(char*));
+        return block;
+    }
+    if (p->next == p->limit) {
+        int size = (POOL_FIRST_CHUNK << p->chunks) * p->size;
+        p->next = malloc(size);
+        p->limit = p->next + size;
+        p->starts[p->chunks] = p->next;
+        p->ends[p->chunks] = p->limit;
+        p->chunks++;
+    }
+    char* block = p->next;
+    p->next += p->size;
+    return block;
+}
+
+void pool_free(pool* p, void* block) {
+    *(char**) ((char*) block + p->size - sizeof(char*)) = p->free;
+    p->free = block;
+}
+
+int pool_contains(pool* p, char* pointer) {
+    for (int i = 0; i < p->chunks; ++i) {
+        char* end = i == p->chunks - 1 ? p->next : p->ends[i];
+        if (pointer >= p->starts[i] && pointer < end) {
+            return (pointer - p->starts[i]) % p->size == 0;
+        }
+    }
+    return 0;
+}
+
+/*
+ * Marks the block, the marks of every chunk are allocated on the first collection.
+ * The pointer that is not the start of allocated block is not marked, as in pool_contains.
+ */
+int pool_mark(pool* p, char* pointer) {
+    for (int i = 0; i < p->chunks; ++i) {
+        char* end = i == p->chunks - 1 ? p->next : p->ends[i];
+        if (pointer < p->starts[i] || pointer >= end) {
+            continue;
+        }
+        if ((pointer - p->starts[i]) % p->size != 0) {
+            return 0;
+        }
+        int count = (p->ends[i] - p->starts[i]) / p->size;
+        if (p->marks[i] == 0) {
+            p->marks[i] = calloc(count, 1);
+        }
+        int index = (pointer - p->starts[i]) / p->size;
+        if (p->marks[i][index]) {
+            return 0;
+        }
+        p->marks[i][index] = 1;
+        return 1;
+    }
+    return 0;
+}
+
+/*
+ * Frees every block that is not marked, the free list is built again, and clears the marks
+ */
+int pool_sweep(pool* p, void (*clear)(void*)) {
+    int live = 0;
+    p->free = 0;
+    for (int i = 0; i < p->chunks; ++i) {
+        char* end = i == p->chunks - 1 ? p->next : p->ends[i];
+        for (char* block = p->starts[i]; block < end; block += p->size) {
+            int index = (block - p->starts[i]) / p->size;
+            if (p->marks[i] != 0 && p->marks[i][index]) {
+                p->marks[i][index] = 0;
+                live += p->size;
+                continue;
+            }
+            clear(block);
+            pool_free(p, block);
+        }
+    }
+    return live;
+}
+
+int find_size_class(int size) {
+    if (size <= SMALL_LIMIT) {
+        return (size + SMALL_STEP - 1) / SMALL_STEP;
+    }
+    int index = SMALL_CLASSES + 1;
+    for (int limit = 2 * SMALL_LIMIT; limit < size; limit *= 2) {
+        index++;
+    }
+    return index;
+}
+
+int class_size(int size_class) {
+    return size_class <= SMALL_CLASSES ? size_class * SMALL_STEP : SMALL_LIMIT << (size_class - SMALL_CLASSES);
+}
+
+meta_info* block_alloc(int size) {
+    int size_class = find_size_class(sizeof(meta_info) + size);
+    meta_info* meta = free_blocks[size_class];
+    if (meta != 0) {
+        free_blocks[size_class] = *(meta_info**) (meta + 1);
+    } else {
+        int block_size = class_size(size_class);
+        if (block_size > ARENA_SIZE / 4) {
+            meta = malloc(block_size);
+        } else {
+            if (arena_next + block_size > arena_limit) {
+                // the rest of previous arena is lost
+                arena_next = malloc(ARENA_SIZE);
+                arena_limit = arena_next + ARENA_SIZE;
+            }
+            meta = (meta_info*) arena_next;
+            arena_next += block_size;
+        }
+    }
+    meta->size_class = size_class;
+    meta->data = (int*) (meta + 1);
+    return meta;
+}
+
+void table_add(table* t, meta_info* meta) {
+    if (t->size == t->capacity) {
+        int capacity = t->capacity == 0 ? GC_THRESHOLD : 2 * t->capacity;
+        meta_info** items = malloc(capacity * sizeof(meta_info*));
+        for (int i = 0; i < t->size; ++i) {
+            items[i] = t->items[i];
+        }
+        if (t->items != 0) {
+            free(t->items);
+        }
+        t->items = items;
+        t->capacity = capacity;
+    }
+    t->items[t->size++] = meta;
+}
+
+void holder_free(reference* ref) {
+    ref->meta = 0;
+    pool_free(&holders, ref);
+}
+
+void gc_clear_holder(void* block) {
+    ((reference*) block)->meta = 0;
+}
+
+/*
+ * Frees the block of array with its data
+ */
+void meta_free(meta_info* meta) {
+    meta->flags = FLAG_FREE;
+    *(meta_info**) (meta + 1) = free_blocks[meta->size_class];
+    free_blocks[meta->size_class] = meta;
+}
+
+void gc_collect();
+
+void gc_mark_sweep();
+
+/*
+ * Keeps the argument of runtime function alive while the function allocates the memory
+ */
+void gc_protect(reference* ref) {
+    gc_protected[gc_protected_count++] = ref;
+}
+
+void gc_unprotect(int count) {
+    gc_protected_count -= count;
+}
+
 int read() {
     int a;
     printf("> ");
@@ -35,9 +312,21 @@ void write(int value) {
     printf("%d\n", value);
 }
 
+/*
+ * Stops the program that accesses the element out of the array, the compiled code compares the index with data[0]
+ */
+void bounds_error(int index, int length) {
+    fprintf(stderr, "Index %d out of bounds for length %d\n", index, length);
+    exit(1);
+}
+
 reference* init_reference() {
     logger_debug("Init reference\n");
-    reference* ref = malloc(sizeof(reference));
+    if (gc_deferred && ++gc_holders >= gc_holder_limit) {
+        gc_collect();
+    }
+    gc_allocated += sizeof(reference);
+    reference* ref = pool_alloc(&holders);
     ref->meta = 0;
     ref->data = 0;
     return ref;
@@ -45,15 +334,30 @@ reference* init_reference() {
 
 reference* new_reference(int size) {
     logger_debug("New reference allocates %d bytes\n", size);
-    reference* ref = malloc(sizeof(reference));
-    ref->meta = malloc(sizeof(meta_info));
+    if (gc_deferred && (++gc_holders >= gc_holder_limit || gc_zct.size + gc_candidates.size >= gc_threshold)) {
+        gc_collect();
+    }
+    if (gc_tracing && gc_allocated >= gc_heap_limit) {
+        gc_mark_sweep();
+    }
+    reference* ref = pool_alloc(&holders);
+    ref->meta = block_alloc(size);
+    if (gc_tracing) {
+        gc_allocated += sizeof(reference) + class_size(ref->meta->size_class);
+        table_add(&gc_blocks, ref->meta);
+    }
     ref->meta->count = 0;
+    ref->meta->life = 0;
     ref->meta->type = DEFAULT_TYPE;
-    ref->data = malloc(size);
+    ref->meta->flags = BLACK;
+    ref->data = ref->meta->data;
     ref->data[0] = size / sizeof(int) - 1;
     return ref;
 }
 
+/*
+ * Assigns the reference to the variable, the null source clears the variable
+ */
 reference* gc_assign(reference* source, reference* destination) {
     logger_debug("gc_assign\n");
     if (source == destination) {
@@ -62,10 +366,14 @@ reference* gc_assign(reference* source, reference* destination) {
     if (destination->meta != 0) {
         destination->meta->count--;
         if (destination->meta->count <= 0) {
-            free(destination->meta);
-            free(destination->data);
+            meta_free(destination->meta);
         }
     }
+    if (source == 0) {
+        destination->meta = 0;
+        destination->data = 0;
+        return destination;
+    }
     destination->meta = source->meta;
     destination->data = source->data;
 //    logger_debug("before gc_assign [count = %d]\n", destination->meta->count);
@@ -97,9 +405,7 @@ void gc_release_data(int type, int* data) {
         for (int i = 0; i < size; ++i) {
             gc_release((reference*) data[ARRAY_OFFSET + i]);
         }
-        return;
     }
-    free(data);
 }
 
 reference* gc_release(reference* ref) {
@@ -111,9 +417,9 @@ reference* gc_release(reference* ref) {
     if (ref->meta->count == 0) {
         if (ref->meta->life == 0) {
             logger_debug("Free reference\n");
-            free(ref->meta);
             gc_release_data(ref->meta->type, ref->data);
-            free(ref);
+            meta_free(ref->meta);
+            holder_free(ref);
             return 0;
         }
         ref->meta->life--;
@@ -122,6 +428,410 @@ reference* gc_release(reference* ref) {
     return ref;
 }
 
+void gc_init(int* base) {
+    logger_debug("Deferred reference counting up to the stack base %d\n", (int) base);
+    gc_deferred = 1;
+    gc_stack_base = base;
+}
+
+/*
+ * Puts the array without counted references to the zero count table
+ */
+void gc_defer(meta_info* meta) {
+    if ((meta->flags & FLAG_ZCT) == 0) {
+        meta->flags |= FLAG_ZCT;
+        table_add(&gc_zct, meta);
+    }
+}
+
+void gc_decrement(meta_info* meta) {
+    meta->count--;
+    if (meta->count == 0) {
+        gc_defer(meta);
+        return;
+    }
+    if (meta->type == BOXED_TYPE) {
+        // the rest of references may be the cycle
+        meta->flags = (meta->flags & ~COLOR_MASK) | PURPLE;
+        if ((meta->flags & FLAG_BUFFERED) == 0) {
+            meta->flags |= FLAG_BUFFERED;
+            table_add(&gc_candidates, meta);
+        }
+    }
+}
+
+/*
+ * Stores the reference into the variable of function without counting it, the null source clears the variable
+ */
+reference* gc_store_root(reference* source, reference* destination) {
+    if (source == 0) {
+        destination->meta = 0;
+        destination->data = 0;
+        return destination;
+    }
+    destination->meta = source->meta;
+    destination->data = source->data;
+    if (source->meta != 0 && source->meta->count == 0) {
+        gc_defer(source->meta);
+    }
+    return destination;
+}
+
+/*
+ * Stores the counted reference, the array that has lost the last counted reference is not freed until the stack is scanned
+ */
+reference* gc_store(reference* source, reference* destination) {
+    if (source == destination) {
+        return destination;
+    }
+    meta_info* old = destination->meta;
+    meta_info* meta = source != 0 ? source->meta : 0;
+    if (meta != 0) {
+        meta->count++;
+        meta->flags &= ~COLOR_MASK;
+    }
+    destination->meta = meta;
+    destination->data = source != 0 ? source->data : 0;
+    // the not counted reference of variable may be passed as the argument
+    if (old != 0 && old->count > 0) {
+        gc_decrement(old);
+    }
+    return destination;
+}
+
+meta_info* gc_child(meta_info* meta, int index) {
+    reference* element = (reference*) meta->data[ARRAY_OFFSET + index];
+    if (element == 0 || element->meta == 0 || (element->meta->flags & (FLAG_DEAD | FLAG_FREE)) != 0) {
+        return 0;
+    }
+    return element->meta;
+}
+
+int gc_children(meta_info* meta) {
+    return meta->type == BOXED_TYPE && meta->data != 0 ? meta->data[0] : 0;
+}
+
+void gc_free_meta(meta_info* meta) {
+    // the tables keep the pointer until they are scanned
+    if ((meta->flags & (FLAG_ZCT | FLAG_BUFFERED)) != 0) {
+        meta->flags |= FLAG_DEAD;
+        return;
+    }
+    meta_free(meta);
+}
+
+void gc_free(meta_info* meta) {
+    logger_debug("Free array of %d elements\n", meta->data[0]);
+    int size = gc_children(meta);
+    for (int i = 0; i < size; ++i) {
+        meta_info* child = gc_child(meta, i);
+        if (child != 0 && child->count > 0) {
+            gc_decrement(child);
+        }
+    }
+    // the data is freed with the meta
+    meta->data = 0;
+    gc_free_meta(meta);
+}
+
+/*
+ * Marks the arrays of the holders found on the stack, the registers are saved to the stack at first.
+ * Any word may be the holder, so the arrays are kept by the integers that look like the holders.
+ */
+void gc_mark_roots() {
+    int registers[3];
+    __asm__ volatile ("movl %%ebx, %0\n\tmovl %%esi, %1\n\tmovl %%edi, %2"
+            : "=m" (registers[0]), "=m" (registers[1]), "=m" (registers[2]));
+    for (int* word = registers; word <= gc_stack_base; ++word) {
+        if (!pool_contains(&holders, (char*) *word)) {
+            continue;
+        }
+        meta_info* meta = ((reference*) *word)->meta;
+        if (meta != 0 && (meta->flags & (FLAG_ROOT | FLAG_FREE)) == 0) {
+            meta->flags |= FLAG_ROOT;
+            table_add(&gc_roots, meta);
+        }
+    }
+}
+
+void gc_scan_zct() {
+    int kept = 0;
+    // the freed arrays append their elements to the table
+    for (int i = 0; i < gc_zct.size; ++i) {
+        meta_info* meta = gc_zct.items[i];
+        if ((meta->flags & FLAG_DEAD) != 0) {
+            meta->flags &= ~FLAG_ZCT;
+            gc_free_meta(meta);
+        } else if (meta->count == 0 && (meta->flags & FLAG_ROOT) != 0) {
+            gc_zct.items[kept++] = meta;
+        } else {
+            meta->flags &= ~FLAG_ZCT;
+            if (meta->count == 0) {
+                gc_free(meta);
+            }
+        }
+    }
+    gc_zct.size = kept;
+}
+
+void gc_mark_gray(meta_info* meta) {
+    if ((meta->flags & COLOR_MASK) == GRAY) {
+        return;
+    }
+    meta->flags = (meta->flags & ~COLOR_MASK) | GRAY;
+    int size = gc_children(meta);
+    for (int i = 0; i < size; ++i) {
+        meta_info* child = gc_child(meta, i);
+        if (child != 0) {
+            child->count--;
+            gc_mark_gray(child);
+        }
+    }
+}
+
+void gc_scan_black(meta_info* meta) {
+    meta->flags &= ~COLOR_MASK;
+    if (meta->count == 0) {
+        // the array is referenced by the stack only
+        gc_defer(meta);
+    }
+    int size = gc_children(meta);
+    for (int i = 0; i < size; ++i) {
+        meta_info* child = gc_child(meta, i);
+        if (child != 0) {
+            child->count++;
+            if ((child->flags & COLOR_MASK) != BLACK) {
+                gc_scan_black(child);
+            }
+        }
+    }
+}
+
+void gc_scan(meta_info* meta) {
+    if ((meta->flags & COLOR_MASK) != GRAY) {
+        return;
+    }
+    if (meta->count > 0 || (meta->flags & FLAG_ROOT) != 0) {
+        gc_scan_black(meta);
+        return;
+    }
+    meta->flags = (meta->flags & ~COLOR_MASK) | WHITE;
+    int size = gc_children(meta);
+    for (int i = 0; i < size; ++i) {
+        meta_info* child = gc_child(meta, i);
+        if (child != 0) {
+            gc_scan(child);
+        }
+    }
+}
+
+void gc_collect_white(meta_info* meta) {
+    if ((meta->flags & COLOR_MASK) != WHITE || (meta->flags & FLAG_BUFFERED) != 0) {
+        return;
+    }
+    meta->flags &= ~COLOR_MASK;
+    int size = gc_children(meta);
+    for (int i = 0; i < size; ++i) {
+        meta_info* child = gc_child(meta, i);
+        if (child != 0) {
+            gc_collect_white(child);
+        }
+    }
+    logger_debug("Free cyclic array of %d elements\n", meta->data[0]);
+    // the data is freed with the meta
+    meta->data = 0;
+    gc_free_meta(meta);
+}
+
+/*
+ * Collects the cycles by trial deletion: the references inside the subgraphs of candidates are subtracted,
+ * the arrays that keep the counted or stack references restore their subgraphs and the rest is freed
+ */
+void gc_collect_cycles() {
+    int kept = 0;
+    for (int i = 0; i < gc_candidates.size; ++i) {
+        meta_info* meta = gc_candidates.items[i];
+        if ((meta->flags & FLAG_DEAD) == 0 && (meta->flags & COLOR_MASK) == PURPLE && meta->count > 0) {
+            gc_mark_gray(meta);
+            gc_candidates.items[kept++] = meta;
+            continue;
+        }
+        meta->flags &= ~FLAG_BUFFERED;
+        if ((meta->flags & FLAG_DEAD) != 0) {
+            gc_free_meta(meta);
+        } else if (meta->count == 0) {
+            gc_defer(meta);
+        }
+    }
+    for (int i = 0; i < kept; ++i) {
+        gc_scan(gc_candidates.items[i]);
+    }
+    for (int i = 0; i < kept; ++i) {
+        meta_info* meta = gc_candidates.items[i];
+        meta->flags &= ~FLAG_BUFFERED;
+        gc_collect_white(meta);
+    }
+    gc_candidates.size = 0;
+}
+
+/*
+ * Marks the holder and the holders of elements of its array, the arrays themselves are not marked
+ */
+void gc_keep_holder(reference* ref) {
+    if (pool_mark(&holders, (char*) ref) && ref->meta != 0 && (ref->meta->flags & FLAG_FREE) == 0) {
+        table_add(&gc_gray, ref->meta);
+    }
+}
+
+/*
+ * Returns the holders to the pool unless they are found on the stack or they are the elements of arrays that are
+ * not freed yet: the arrays kept by the stack and the arrays of zero count table that are freed by the next scan.
+ * Any word may be the holder as in gc_mark_roots, the elements of freed arrays are not kept.
+ */
+int gc_sweep_holders() {
+    int registers[3];
+    __asm__ volatile ("movl %%ebx, %0\n\tmovl %%esi, %1\n\tmovl %%edi, %2"
+            : "=m" (registers[0]), "=m" (registers[1]), "=m" (registers[2]));
+    for (int* word = registers; word <= gc_stack_base; ++word) {
+        gc_keep_holder((reference*) *word);
+    }
+    for (int i = 0; i < gc_protected_count; ++i) {
+        gc_keep_holder(gc_protected[i]);
+    }
+    for (int i = 0; i < gc_zct.size; ++i) {
+        table_add(&gc_gray, gc_zct.items[i]);
+    }
+    while (gc_gray.size > 0) {
+        meta_info* meta = gc_gray.items[--gc_gray.size];
+        int size = gc_children(meta);
+        for (int i = 0; i < size; ++i) {
+            gc_keep_holder((reference*) meta->data[ARRAY_OFFSET + i]);
+        }
+    }
+    return pool_sweep(&holders, gc_clear_holder) / sizeof(reference);
+}
+
+void gc_collect() {
+    logger_debug("Collect %d arrays of zero count table and %d candidates of cycles\n", gc_zct.size, gc_candidates.size);
+    gc_mark_roots();
+    gc_scan_zct();
+    gc_collect_cycles();
+    for (int i = 0; i < gc_roots.size; ++i) {
+        gc_roots.items[i]->flags &= ~FLAG_ROOT;
+    }
+    gc_roots.size = 0;
+    // the arrays kept by the stack are not scanned again until the table is doubled
+    gc_threshold = 2 * gc_zct.size > GC_THRESHOLD ? 2 * gc_zct.size : GC_THRESHOLD;
+    // the pool is not swept again until the live holders are allocated once again
+    if (gc_holders >= gc_holder_limit) {
+        int live = gc_sweep_holders();
+        gc_holders = 0;
+        gc_holder_limit = live > GC_HOLDER_LIMIT ? live : GC_HOLDER_LIMIT;
+    }
+}
+
+int gc_compare_maps(const void* lhs, const void* rhs) {
+    unsigned int left = (unsigned int) (*(int**) lhs)[0];
+    unsigned int right = (unsigned int) (*(int**) rhs)[0];
+    return left < right ? -1 : (left > right ? 1 : 0);
+}
+
+void gc_init_mark_sweep(int* base) {
+    logger_debug("Mark-sweep collection up to the stack base %d\n", (int) base);
+    gc_tracing = 1;
+    gc_stack_base = base;
+    for (int* map = __start_gc_maps; map < __stop_gc_maps; map += 2 + map[1]) {
+        gc_maps_count++;
+    }
+    gc_maps = malloc((gc_maps_count + 1) * sizeof(int*));
+    int count = 0;
+    for (int* map = __start_gc_maps; map < __stop_gc_maps; map += 2 + map[1]) {
+        gc_maps[count++] = map;
+    }
+    qsort(gc_maps, gc_maps_count, sizeof(int*), gc_compare_maps);
+}
+
+int* gc_find_map(int address) {
+    int left = 0;
+    int right = gc_maps_count - 1;
+    while (left <= right) {
+        int middle = (left + right) / 2;
+        unsigned int current = (unsigned int) gc_maps[middle][0];
+        if (current == (unsigned int) address) {
+            return gc_maps[middle];
+        }
+        if (current < (unsigned int) address) {
+            left = middle + 1;
+        } else {
+            right = middle - 1;
+        }
+    }
+    return 0;
+}
+
+void gc_mark_holder(reference* ref) {
+    if (ref == 0 || !pool_mark(&holders, (char*) ref)) {
+        return;
+    }
+    meta_info* meta = ref->meta;
+    if (meta == 0 || (meta->flags & FLAG_MARK) != 0) {
+        return;
+    }
+    meta->flags |= FLAG_MARK;
+    if (meta->type == BOXED_TYPE) {
+        table_add(&gc_gray, meta);
+    }
+}
+
+/*
+ * Marks the positions of stack maps in every frame of compiled code, the frames of runtime have no maps
+ */
+void gc_mark_frames() {
+    int* frame = __builtin_frame_address(0);
+    while (frame != 0 && frame != gc_stack_base) {
+        int* caller = (int*) frame[0];
+        int* map = gc_find_map(frame[1]);
+        if (map != 0) {
+            for (int i = 0; i < map[1]; ++i) {
+                gc_mark_holder(*(reference**) ((char*) caller + map[2 + i]));
+            }
+        }
+        frame = caller;
+    }
+}
+
+void gc_mark_sweep() {
+    logger_debug("Mark-sweep collection of %d arrays\n", gc_blocks.size);
+    gc_mark_frames();
+    for (int i = 0; i < gc_protected_count; ++i) {
+        gc_mark_holder(gc_protected[i]);
+    }
+    while (gc_gray.size > 0) {
+        meta_info* meta = gc_gray.items[--gc_gray.size];
+        int size = meta->data[0];
+        for (int i = 0; i < size; ++i) {
+            gc_mark_holder((reference*) meta->data[ARRAY_OFFSET + i]);
+        }
+    }
+    int live = 0;
+    int kept = 0;
+    for (int i = 0; i < gc_blocks.size; ++i) {
+        meta_info* meta = gc_blocks.items[i];
+        if ((meta->flags & FLAG_MARK) == 0) {
+            meta_free(meta);
+            continue;
+        }
+        meta->flags &= ~FLAG_MARK;
+        live += class_size(meta->size_class);
+        gc_blocks.items[kept++] = meta;
+    }
+    gc_blocks.size = kept;
+    live += pool_sweep(&holders, gc_clear_holder);
+    // the next collection starts when the live memory is allocated once again
+    gc_allocated = 0;
+    gc_heap_limit = live > GC_HEAP_LIMIT ? live : GC_HEAP_LIMIT;
+}
+
 int strlen(reference* string) {
     return string->data[0];
 }
@@ -136,7 +846,9 @@ int strset(reference* string, int index, int character) {
 }
 
 reference* strsub(reference* string, int offset, int count) {
+    gc_protect(string);
     reference* subString = new_reference((count + 1) * sizeof(int));
+    gc_unprotect(1);
     subString->data[0] = count;
     for (int i = 0; i < count; ++i) {
         subString->data[ARRAY_OFFSET + i] = string->data[ARRAY_OFFSET + i + offset];
@@ -146,7 +858,9 @@ reference* strsub(reference* string, int offset, int count) {
 
 reference* strdup(reference* string) {
     int size = string->data[0];
+    gc_protect(string);
     reference* copy = new_reference((size + 1) * sizeof(int));
+    gc_unprotect(1);
     copy->data[0] = size;
     for (int i = 0; i< size; ++i) {
         copy->data[ARRAY_OFFSET + i] = string->data[ARRAY_OFFSET + i];
@@ -158,7 +872,10 @@ reference* strcat(reference* lhs, reference* rhs) {
     int lhsSize = lhs->data[0];
     int rhsSize = rhs->data[0];
     int size = lhsSize + rhsSize;
+    gc_protect(lhs);
+    gc_protect(rhs);
     reference* string = new_reference((size + 1) * sizeof(int));
+    gc_unprotect(2);
     string->data[0] = size;
     for (int i = 0; i < lhsSize; ++i) {
         string->data[ARRAY_OFFSET + i] = lhs->data[ARRAY_OFFSET + i];
@@ -214,13 +931,18 @@ int arrlen(reference* array) {
 }
 
 reference* Arrmake(int size, reference* defaultValue) {
-
+    // the holders of elements are allocated without the collection
+    gc_protect(defaultValue);
     reference* array = new_reference((size + 1) * sizeof(reference*));
+    gc_unprotect(1);
     array->meta->type = BOXED_TYPE;
     array->data[0] = size;
     for (int i = 0; i < size; ++i) {
         if (defaultValue == 0) {
             array->data[ARRAY_OFFSET + i] = (int) init_reference();
+        } else if (gc_deferred) {
+            // every element is the counted reference of its own
+            array->data[ARRAY_OFFSET + i] = (int) gc_store(defaultValue, init_reference());
         } else {
             array->data[ARRAY_OFFSET + i] = (int) defaultValue;
         }
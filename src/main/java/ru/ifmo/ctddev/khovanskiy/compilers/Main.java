@@ -7,9 +7,41 @@ import org.apache.commons.cli.*;
 import ru.ifmo.ctddev.khovanskiy.compilers.ast.AST;
 import ru.ifmo.ctddev.khovanskiy.compilers.ast.parser.LanguageLexer;
 import ru.ifmo.ctddev.khovanskiy.compilers.ast.parser.LanguageParser;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ExternalFunctions;
 import ru.ifmo.ctddev.khovanskiy.compilers.ast.printer.ASTPrinter;
+import ru.ifmo.ctddev.khovanskiy.compilers.cache.ArtifactCache;
+import ru.ifmo.ctddev.khovanskiy.compilers.incremental.IncrementalCompiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.profiler.PhaseProfiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.profiler.PhaseReportPrinter;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.bytecode.BytecodeReader;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.bytecode.BytecodeWriter;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.compiler.VMCompiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.evaluator.LinkedVMEvaluator;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.evaluator.VMEvaluator;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.TypeContext;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.TypeInferencer;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.optimizer.VMOptimizer;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.printer.PrinterContext;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.printer.VMPrinter;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler.GarbageCollector;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler.X86Compiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler.X86CompilerOptions;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler.X86Emitter;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.optimizer.PeepholeOptimizer;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * @author Victor Khovanskiy
@@ -17,6 +49,31 @@ import java.io.*;
  */
 @Slf4j
 public class Main {
+    /**
+     * The pool that compiles the functions in parallel or {@code null} to compile them serially
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * The peephole rules that are not applied
+     */
+    private List<String> disabledRules = Collections.emptyList();
+
+    /**
+     * The memory management of references in the compiled code
+     */
+    private GarbageCollector collector = GarbageCollector.REFERENCE_COUNTING;
+
+    /**
+     * The indices of elements are checked against the lengths of arrays in the compiled code
+     */
+    private boolean boundsChecked = true;
+
+    /**
+     * The bytecode is executed by {@link VMEvaluator} instead of {@link LinkedVMEvaluator}
+     */
+    private boolean visitor;
+
     public static void main(String[] args) {
         new Main().run(args);
     }
@@ -25,6 +82,19 @@ public class Main {
         Options options = new Options()
                 .addOption(Option.builder("i").longOpt("interpreter").desc("Run AST interpreter").build())
                 .addOption(Option.builder("s").longOpt("stack").desc("Run Virtual Machine").build())
+                .addOption(Option.builder("b").longOpt("bytecode").hasArg().argName("output").desc("Compile to Virtual Machine bytecode file").build())
+                .addOption(Option.builder("e").longOpt("execute").hasArg().argName("bytecode").desc("Execute Virtual Machine bytecode file").build())
+                .addOption(Option.builder().longOpt("visitor").desc("Execute Virtual Machine bytecode by visiting the commands instead of the linked opcodes").build())
+                .addOption(Option.builder("c").longOpt("compile").hasArg().argName("output").desc("Compile to X86 executable, the assembly is written to <output>.s").build())
+                .addOption(Option.builder("O").longOpt("optimize").hasArg().argName("level").desc("Optimization level of Virtual Machine code: 0, 1 or 2, the peephole optimization of X86 code is enabled from the level 1, the small functions are inlined at the level 2").build())
+                .addOption(Option.builder().longOpt("disable-rules").hasArg().argName("rules").desc("Comma separated peephole rules of X86 code that are not applied").build())
+                .addOption(Option.builder().longOpt("cache").hasArg().optionalArg(true).argName("directory").desc("Reuse the compiled artifacts of unchanged sources, the default directory is ~/.cache/compilers").build())
+                .addOption(Option.builder().longOpt("incremental").desc("Compile only the changed functions and reuse the cached code of other ones").build())
+                .addOption(Option.builder().longOpt("cache-size").hasArg().argName("megabytes").desc("Maximum size of cache, the least recently used artifacts are evicted").build())
+                .addOption(Option.builder().longOpt("gc").hasArg().argName("mode").desc("Memory management of references in X86 code: rc, deferred or mark-sweep, the incremental compilation always uses rc").build())
+                .addOption(Option.builder().longOpt("unchecked").desc("Do not check the indices of array elements in X86 code, the incremental compilation always checks them").build())
+                .addOption(Option.builder("j").longOpt("jobs").hasArg().argName("threads").desc("Generate code of functions in parallel, the output is the same as the serial one").build())
+                .addOption(Option.builder().longOpt("time-phases").hasArg().optionalArg(true).argName("format").desc("Print time of compilation phases to stderr as table or json").build())
                 .addOption(Option.builder("h").longOpt("help").desc("Show help").build());
         try {
             DefaultParser defaultParser = new DefaultParser();
@@ -33,11 +103,57 @@ public class Main {
                 showHelp(options);
                 return;
             }
+            final PhaseProfiler profiler = commandLine.hasOption("time-phases") ? new PhaseProfiler() : PhaseProfiler.disabled();
             try (final Reader reader = new BufferedReader(new InputStreamReader(System.in));
                  final Writer writer = new BufferedWriter(new OutputStreamWriter(System.out))) {
+                final int level = Integer.parseInt(commandLine.getOptionValue("O", "0"));
+                if (commandLine.hasOption("disable-rules")) {
+                    disabledRules = Arrays.asList(commandLine.getOptionValue("disable-rules").split(","));
+                }
+                if (commandLine.hasOption("gc")) {
+                    collector = GarbageCollector.forOption(commandLine.getOptionValue("gc"));
+                }
+                boundsChecked = !commandLine.hasOption("unchecked");
+                visitor = commandLine.hasOption("visitor");
+                if (commandLine.hasOption("j")) {
+                    pool = new ForkJoinPool(Integer.parseInt(commandLine.getOptionValue("j")));
+                }
+                final boolean incremental = commandLine.hasOption("incremental");
+                final ArtifactCache cache = commandLine.hasOption("cache") || incremental ? createCache(commandLine) : null;
                 if (commandLine.hasOption("i")) {
                     runInterpreter(reader, writer);
                 }
+                if (commandLine.hasOption("s")) {
+                    if (incremental) {
+                        runIncrementalVirtualMachine(reader, writer, level, profiler, cache);
+                    } else if (cache != null) {
+                        runVirtualMachine(readSource(reader), writer, level, profiler, cache);
+                    } else {
+                        runVirtualMachine(reader, writer, level, profiler);
+                    }
+                }
+                if (commandLine.hasOption("b")) {
+                    runBytecodeCompiler(reader, commandLine.getOptionValue("b"), level, profiler);
+                }
+                if (commandLine.hasOption("e")) {
+                    runBytecode(commandLine.getOptionValue("e"), reader, writer, profiler);
+                }
+                if (commandLine.hasOption("c")) {
+                    if (incremental) {
+                        runIncrementalCompiler(reader, commandLine.getOptionValue("c"), level, profiler, cache);
+                    } else if (cache != null) {
+                        runCompiler(readSource(reader), commandLine.getOptionValue("c"), level, profiler, cache);
+                    } else {
+                        runCompiler(reader, commandLine.getOptionValue("c"), level, profiler);
+                    }
+                }
+            } finally {
+                if (pool != null) {
+                    pool.shutdown();
+                }
+                if (profiler.isEnabled()) {
+                    printPhases(profiler, commandLine.getOptionValue("time-phases", "table"));
+                }
             }
         } catch (ParseException e) {
             showHelp(options);
@@ -54,6 +170,202 @@ public class Main {
         astPrinter.print(ast, writer);
     }
 
+    protected void runVirtualMachine(Reader reader, Writer writer, int level, PhaseProfiler profiler) throws Exception {
+        VMProgram vmProgram = compileVirtualMachine(reader, level, profiler);
+        new VMPrinter().visitProgram(vmProgram, new PrinterContext(writer));
+    }
+
+    protected void runVirtualMachine(String source, Writer writer, int level, PhaseProfiler profiler, ArtifactCache cache) throws Exception {
+        String key = ArtifactCache.key(source, ArtifactCache.compilerVersion(), "vm", Integer.toString(level));
+        PhaseProfiler.Measurement measurement = profiler.start("cache");
+        Path path = cache.get(key, "program.vmb");
+        VMProgram vmProgram = path != null ? new BytecodeReader().load(path) : null;
+        measurement.stop();
+        if (vmProgram == null) {
+            vmProgram = compileVirtualMachine(new StringReader(source), level, profiler);
+            ByteArrayOutputStream bytecode = new ByteArrayOutputStream();
+            new BytecodeWriter().write(vmProgram, bytecode);
+            cache.put(key, "program.vmb", bytecode.toByteArray());
+        }
+        new VMPrinter().visitProgram(vmProgram, new PrinterContext(writer));
+    }
+
+    protected void runIncrementalVirtualMachine(Reader reader, Writer writer, int level, PhaseProfiler profiler, ArtifactCache cache) throws Exception {
+        IncrementalCompiler compiler = new IncrementalCompiler(cache, level, profiler);
+        VMProgram vmProgram = compileIncrementally(compiler, reader, profiler);
+        new VMPrinter().visitProgram(vmProgram, new PrinterContext(writer));
+    }
+
+    protected void runIncrementalCompiler(Reader reader, String output, int level, PhaseProfiler profiler, ArtifactCache cache) throws Exception {
+        PeepholeOptimizer optimizer = createPeepholeOptimizer(level);
+        IncrementalCompiler compiler = new IncrementalCompiler(cache, level, profiler, optimizer);
+        VMProgram vmProgram = compileIncrementally(compiler, reader, profiler);
+
+        PhaseProfiler.Measurement measurement = profiler.start("x86");
+        try (Writer asmWriter = new BufferedWriter(new FileWriter(output + ".s"))) {
+            compiler.print(vmProgram, asmWriter);
+        }
+        measurement.stop(new File(output + ".s").length(), "bytes");
+        if (optimizer != null) {
+            optimizer.logHitCounts();
+        }
+
+        measurement = profiler.start("gcc");
+        boolean compiled = new SystemService().execute("./runtime/compile.sh ./runtime " + output);
+        measurement.stop();
+        if (!compiled) {
+            throw new IllegalStateException(String.format("Assembly \"%s.s\" is not compiled", output));
+        }
+    }
+
+    private VMProgram compileIncrementally(IncrementalCompiler compiler, Reader reader, PhaseProfiler profiler) throws Exception {
+        AST.CompilationUnit ast = parse(reader, profiler);
+
+        PhaseProfiler.Measurement measurement = profiler.start("inference");
+        TypeContext typeContext = new TypeInferencer().inference(ast);
+        measurement.stop();
+
+        measurement = profiler.start("vm");
+        VMProgram vmProgram = compiler.compile(ast, typeContext);
+        measurement.stop(compiler.getCompiledFunctions(), "compiled functions");
+        log.info("{} functions are compiled, {} functions are reused", compiler.getCompiledFunctions(), compiler.getReusedFunctions());
+        return vmProgram;
+    }
+
+    protected void runBytecodeCompiler(Reader reader, String output, int level, PhaseProfiler profiler) throws Exception {
+        VMProgram vmProgram = compileVirtualMachine(reader, level, profiler);
+
+        PhaseProfiler.Measurement measurement = profiler.start("bytecode");
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(output))) {
+            new BytecodeWriter().write(vmProgram, outputStream);
+        }
+        measurement.stop(new File(output).length(), "bytes");
+    }
+
+    protected void runBytecode(String bytecode, Reader reader, Writer writer, PhaseProfiler profiler) throws Exception {
+        PhaseProfiler.Measurement measurement = profiler.start("load");
+        VMProgram vmProgram = new BytecodeReader().load(Paths.get(bytecode));
+        measurement.stop(countCommands(vmProgram), "commands");
+
+        measurement = profiler.start("evaluate");
+        if (visitor) {
+            new VMEvaluator().evaluate(vmProgram, ExternalFunctions.define(reader, writer));
+        } else {
+            new LinkedVMEvaluator().evaluate(vmProgram, ExternalFunctions.define(reader, writer));
+        }
+        measurement.stop();
+    }
+
+    protected void runCompiler(String source, String output, int level, PhaseProfiler profiler, ArtifactCache cache) throws Exception {
+        // the executable is linked with the runtime, so it is compiled again once the runtime is changed
+        String runtime = new String(Files.readAllBytes(Paths.get("./runtime/runtime.c")), StandardCharsets.UTF_8);
+        String key = ArtifactCache.key(source, ArtifactCache.compilerVersion(), "x86", Integer.toString(level), String.join(",", disabledRules), collector.getOption(), boundsChecked ? "checked" : "unchecked", runtime);
+        Path assembly = Paths.get(output + ".s");
+        Path executable = Paths.get(output);
+        PhaseProfiler.Measurement measurement = profiler.start("cache");
+        boolean found = cache.copy(key, "program.s", assembly) && cache.copy(key, "program", executable);
+        measurement.stop();
+        if (!found) {
+            runCompiler(new StringReader(source), output, level, profiler);
+            cache.put(key, "program.s", assembly);
+            cache.put(key, "program", executable);
+        }
+    }
+
+    protected void runCompiler(Reader reader, String output, int level, PhaseProfiler profiler) throws Exception {
+        VMProgram vmProgram = compileVirtualMachine(reader, level, profiler);
+
+        // every function is printed as soon as it is compiled, so the whole program is never kept in memory
+        PeepholeOptimizer optimizer = createPeepholeOptimizer(level);
+        PhaseProfiler.Measurement measurement = profiler.start("x86");
+        try (FileChannel channel = FileChannel.open(Paths.get(output + ".s"), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            new X86Emitter(new X86Compiler(new X86CompilerOptions().profiler(profiler).optimizer(optimizer).collector(collector).boundsChecked(boundsChecked)), pool).emit(vmProgram, channel);
+        }
+        measurement.stop(new File(output + ".s").length(), "bytes");
+        if (optimizer != null) {
+            optimizer.logHitCounts();
+        }
+
+        measurement = profiler.start("gcc");
+        boolean compiled = new SystemService().execute("./runtime/compile.sh ./runtime " + output);
+        measurement.stop();
+        if (!compiled) {
+            throw new IllegalStateException(String.format("Assembly \"%s.s\" is not compiled", output));
+        }
+    }
+
+    protected VMProgram compileVirtualMachine(Reader reader, int level, PhaseProfiler profiler) throws Exception {
+        AST.CompilationUnit ast = parse(reader, profiler);
+
+        PhaseProfiler.Measurement measurement = profiler.start("inference");
+        TypeContext typeContext = new TypeInferencer().inference(ast);
+        measurement.stop();
+
+        measurement = profiler.start("vm");
+        VMProgram vmProgram = new VMCompiler(profiler, pool).compile(ast, typeContext);
+        measurement.stop(countCommands(vmProgram), "commands");
+
+        if (level > 0) {
+            measurement = profiler.start("optimize");
+            VMOptimizer.forLevel(level).optimize(vmProgram);
+            measurement.stop(countCommands(vmProgram), "commands");
+        }
+        return vmProgram;
+    }
+
+    protected PeepholeOptimizer createPeepholeOptimizer(int level) {
+        if (level == 0) {
+            return null;
+        }
+        return PeepholeOptimizer.withDefaultRules().disable(disabledRules);
+    }
+
+    protected AST.CompilationUnit parse(Reader reader, PhaseProfiler profiler) throws IOException {
+        PhaseProfiler.Measurement measurement = profiler.start("parse");
+        ANTLRInputStream input = new ANTLRInputStream(reader);
+        CommonTokenStream tokenStream = new CommonTokenStream(new LanguageLexer(input));
+        AST.CompilationUnit ast = new LanguageParser(tokenStream).compilationUnit().ast;
+        measurement.stop(tokenStream.size(), "tokens");
+        return ast;
+    }
+
+    protected void printPhases(PhaseProfiler profiler, String format) throws IOException {
+        Writer writer = new OutputStreamWriter(System.err);
+        if (format.equals("json")) {
+            new PhaseReportPrinter().printJson(profiler.getRecords(), writer);
+        } else if (format.equals("table")) {
+            new PhaseReportPrinter().printTable(profiler.getRecords(), writer);
+        } else {
+            throw new IllegalArgumentException(String.format("Unknown format \"%s\" of phases report", format));
+        }
+    }
+
+    protected ArtifactCache createCache(CommandLine commandLine) {
+        String directory = commandLine.getOptionValue("cache", Paths.get(System.getProperty("user.home"), ".cache", "compilers").toString());
+        long maxSize = commandLine.hasOption("cache-size")
+                ? Long.parseLong(commandLine.getOptionValue("cache-size")) * 1024 * 1024
+                : ArtifactCache.DEFAULT_MAX_SIZE;
+        return new ArtifactCache(Paths.get(directory), maxSize);
+    }
+
+    private static String readSource(Reader reader) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        char[] buffer = new char[8192];
+        int length;
+        while ((length = reader.read(buffer)) != -1) {
+            builder.append(buffer, 0, length);
+        }
+        return builder.toString();
+    }
+
+    private static int countCommands(VMProgram vmProgram) {
+        int count = 0;
+        for (VMFunction function : vmProgram.getFunctions()) {
+            count += function.getCommands().size();
+        }
+        return count;
+    }
+
     protected void showHelp(final Options options) {
         HelpFormatter formatter = new HelpFormatter();
         formatter.printHelp("X86-GAS Compiler", options);
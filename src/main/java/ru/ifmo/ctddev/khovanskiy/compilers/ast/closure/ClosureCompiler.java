@@ -0,0 +1,500 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.ast.closure;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.AST;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ArrayValue;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ExternalFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.FunctionPointer;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.IntArrayValue;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.NullPointer;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Pointer;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ReferenceArrayValue;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Symbol;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.visitor.AbstractASTVisitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Abstract syntax tree compiler to the tree of closures
+ * <p>
+ * Every node is visited only once, the result of visit is stored in the context
+ * as {@link ClosureCompilerContext#getExpression()} or {@link ClosureCompilerContext#getStatement()}.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class ClosureCompiler extends AbstractASTVisitor<ClosureCompilerContext> {
+    /**
+     * Compiles the program
+     *
+     * @param ast     the ast of program
+     * @param symbols the external symbols
+     * @return the main function
+     * @since 1.1.0
+     */
+    public ClosureFunction compile(final AST.CompilationUnit ast, final Map<Pointer, Symbol> symbols) {
+        final ClosureCompilerContext context = new ClosureCompilerContext(symbols);
+        visitCompilationUnit(ast, context);
+        return context.getFunctions().get("main");
+    }
+
+    @Override
+    public void visitCompilationUnit(final AST.CompilationUnit compilationUnit, final ClosureCompilerContext context) {
+        final List<AST.SingleStatement> statements = compilationUnit.getCompoundStatement().getStatements();
+        final List<AST.FunctionDefinition> functions = statements.stream()
+                .filter(AST.FunctionDefinition.class::isInstance)
+                .map(AST.FunctionDefinition.class::cast)
+                .collect(Collectors.toList());
+        final List<AST.SingleStatement> mainStatements = statements.stream().filter(s -> !AST.FunctionDefinition.class.isInstance(s))
+                .collect(Collectors.toList());
+        functions.add(new AST.FunctionDefinition("main", Collections.emptyList(), new AST.CompoundStatement(mainStatements)));
+        // all functions are registered before compilation, so calls can be bound to them
+        for (final AST.FunctionDefinition f : functions) {
+            final ClosureFunction function = new ClosureFunction(f.getName(), f.getVariables().size());
+            if (context.getFunctions().put(f.getName(), function) != null) {
+                throw new IllegalStateException(String.format("Function \"%s\" is already defined", f.getName()));
+            }
+        }
+        for (final AST.FunctionDefinition f : functions) {
+            visitFunctionDefinition(f, context);
+        }
+    }
+
+    @Override
+    public void visitFunctionDefinition(final AST.FunctionDefinition functionDefinition, final ClosureCompilerContext context) {
+        final ClosureFunction function = context.getFunctions().get(functionDefinition.getName());
+        context.beginFunction(functionDefinition.getVariables().stream()
+                .map(AST.VariableDefinition::getName)
+                .collect(Collectors.toList()));
+        function.setBody(compileStatement(functionDefinition.getCompoundStatement(), context));
+        function.setSlotsCount(context.getSlots().size());
+    }
+
+    @Override
+    public void visitVariableDefinition(final AST.VariableDefinition variableDefinition, final ClosureCompilerContext context) {
+        context.getSlot(variableDefinition.getName());
+        context.setStatement(null);
+    }
+
+    @Override
+    public void visitCompoundStatement(final AST.CompoundStatement compoundStatement, final ClosureCompilerContext context) {
+        final List<StatementNode> list = new ArrayList<>();
+        for (final AST.SingleStatement singleStatement : compoundStatement.getStatements()) {
+            final StatementNode node = compileStatement(singleStatement, context);
+            if (node != null) {
+                list.add(node);
+            }
+        }
+        if (list.size() == 1) {
+            context.setStatement(list.get(0));
+            return;
+        }
+        final StatementNode[] nodes = list.toArray(new StatementNode[0]);
+        context.setStatement(slots -> {
+            for (final StatementNode node : nodes) {
+                final Object result = node.execute(slots);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void visitAssignmentStatement(final AST.AssignmentStatement assignmentStatement, final ClosureCompilerContext context) {
+        final AST.MemoryAccessExpression memoryAccess = assignmentStatement.getMemoryAccess();
+        if (memoryAccess instanceof AST.VariableAccessExpression) {
+            final int slot = context.getSlot(((AST.VariableAccessExpression) memoryAccess).getName());
+            final ExpressionNode value = compileExpression(assignmentStatement.getExpression(), context);
+            context.setStatement(slots -> {
+                slots[slot] = value.evaluate(slots);
+                return null;
+            });
+            return;
+        }
+        if (memoryAccess instanceof AST.ArrayAccessExpression) {
+            final AST.ArrayAccessExpression arrayAccess = (AST.ArrayAccessExpression) memoryAccess;
+            final ExpressionNode array = compileExpression(arrayAccess.getPointer(), context);
+            final ExpressionNode index = compileExpression(arrayAccess.getExpression(), context);
+            final ExpressionNode value = compileExpression(assignmentStatement.getExpression(), context);
+            context.setStatement(slots -> {
+                final ArrayValue arrayValue = (ArrayValue) array.evaluate(slots);
+                final int i = index.evaluateInt(slots);
+                if (arrayValue instanceof IntArrayValue) {
+                    ((IntArrayValue) arrayValue).setInt(i, value.evaluateInt(slots));
+                } else {
+                    arrayValue.set(i, value.evaluate(slots));
+                }
+                return null;
+            });
+            return;
+        }
+        throw new IllegalStateException("Unknown memory access type: " + memoryAccess.getClass());
+    }
+
+    @Override
+    public void visitExpressionStatement(final AST.ExpressionStatement expressionStatement, final ClosureCompilerContext context) {
+        final ExpressionNode expression = compileExpression(expressionStatement.getExpression(), context);
+        context.setStatement(slots -> {
+            expression.evaluate(slots);
+            return null;
+        });
+    }
+
+    @Override
+    public void visitIfStatement(final AST.IfStatement ifStatement, final ClosureCompilerContext context) {
+        final List<ExpressionNode> conditionList = new ArrayList<>();
+        final List<StatementNode> branchList = new ArrayList<>();
+        StatementNode otherwise = null;
+        for (final AST.IfCase ifCase : ifStatement.getCases()) {
+            final StatementNode branch = compileStatement(ifCase.getCompoundStatement(), context);
+            if (ifCase.getCondition() == null) {
+                // else
+                otherwise = branch;
+                break;
+            }
+            conditionList.add(compileExpression(ifCase.getCondition(), context));
+            branchList.add(branch);
+        }
+        final ExpressionNode[] conditions = conditionList.toArray(new ExpressionNode[0]);
+        final StatementNode[] branches = branchList.toArray(new StatementNode[0]);
+        final StatementNode elseBranch = otherwise;
+        context.setStatement(slots -> {
+            for (int i = 0; i < conditions.length; ++i) {
+                if (conditions[i].evaluateInt(slots) != 0) {
+                    return branches[i].execute(slots);
+                }
+            }
+            return elseBranch == null ? null : elseBranch.execute(slots);
+        });
+    }
+
+    @Override
+    public void visitGotoStatement(final AST.GotoStatement gotoStatement, final ClosureCompilerContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void visitLabelStatement(final AST.LabelStatement labelStatement, final ClosureCompilerContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void visitContinueStatement(final AST.ContinueStatement continueStatement, final ClosureCompilerContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void visitBreakStatement(final AST.BreakStatement breakStatement, final ClosureCompilerContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void visitReturnStatement(final AST.ReturnStatement returnStatement, final ClosureCompilerContext context) {
+        if (returnStatement.getExpression() == null) {
+            context.setStatement(slots -> StatementNode.VOID);
+            return;
+        }
+        final ExpressionNode expression = compileExpression(returnStatement.getExpression(), context);
+        context.setStatement(slots -> {
+            final Object result = expression.evaluate(slots);
+            return result == null ? StatementNode.VOID : result;
+        });
+    }
+
+    @Override
+    public void visitSkipStatement(final AST.SkipStatement skipStatement, final ClosureCompilerContext context) {
+        context.setStatement(slots -> null);
+    }
+
+    @Override
+    public void visitWhileStatement(final AST.WhileStatement whileStatement, final ClosureCompilerContext context) {
+        final ExpressionNode condition = compileExpression(whileStatement.getCondition(), context);
+        final StatementNode body = compileStatement(whileStatement.getCompoundStatement(), context);
+        context.setStatement(slots -> {
+            while (condition.evaluateInt(slots) != 0) {
+                final Object result = body.execute(slots);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void visitRepeatStatement(final AST.RepeatStatement repeatStatement, final ClosureCompilerContext context) {
+        final StatementNode body = compileStatement(repeatStatement.getCompoundStatement(), context);
+        final ExpressionNode condition = compileExpression(repeatStatement.getCondition(), context);
+        context.setStatement(slots -> {
+            do {
+                final Object result = body.execute(slots);
+                if (result != null) {
+                    return result;
+                }
+            } while (condition.evaluateInt(slots) == 0);
+            return null;
+        });
+    }
+
+    @Override
+    public void visitForStatement(final AST.ForStatement forStatement, final ClosureCompilerContext context) {
+        final StatementNode init = forStatement.getInit() == null ? null : compileStatement(forStatement.getInit(), context);
+        final ExpressionNode condition = forStatement.getCondition() == null ? null : compileExpression(forStatement.getCondition(), context);
+        final StatementNode loop = forStatement.getLoop() == null ? null : compileStatement(forStatement.getLoop(), context);
+        final StatementNode body = compileStatement(forStatement.getCompoundStatement(), context);
+        context.setStatement(slots -> {
+            if (init != null) {
+                init.execute(slots);
+            }
+            while (condition == null || condition.evaluateInt(slots) != 0) {
+                final Object result = body.execute(slots);
+                if (result != null) {
+                    return result;
+                }
+                if (loop != null) {
+                    loop.execute(slots);
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void visitFunctionCall(final AST.FunctionCall functionCall, final ClosureCompilerContext context) {
+        final String name = functionCall.getName();
+        final ExpressionNode[] arguments = new ExpressionNode[functionCall.getArguments().size()];
+        for (int i = 0; i < arguments.length; ++i) {
+            arguments[i] = compileExpression(functionCall.getArguments().get(i), context);
+        }
+        final ClosureFunction function = context.getFunctions().get(name);
+        if (function != null) {
+            if (function.getArgumentsCount() != arguments.length) {
+                throw new IllegalStateException(String.format("Function \"%s\" expects %d arguments, but %d are passed", name, function.getArgumentsCount(), arguments.length));
+            }
+            context.setExpression(slots -> {
+                final Object[] frame = new Object[function.getSlotsCount()];
+                for (int i = 0; i < arguments.length; ++i) {
+                    frame[i] = arguments[i].evaluate(slots);
+                }
+                return function.invoke(frame);
+            });
+            return;
+        }
+        final Symbol symbol = context.getSymbols().get(new FunctionPointer(name));
+        if (symbol != null && symbol.getValue() instanceof ExternalFunction) {
+            final ExternalFunction external = (ExternalFunction) symbol.getValue();
+            context.setExpression(slots -> {
+                final Object[] args = new Object[arguments.length];
+                for (int i = 0; i < arguments.length; ++i) {
+                    args[i] = arguments[i].evaluate(slots);
+                }
+                return external.evaluate(args);
+            });
+            return;
+        }
+        context.setExpression(slots -> {
+            throw new IllegalStateException(String.format("Function \"%s\" is not defined", name));
+        });
+    }
+
+    @Override
+    public void visitArrayCreation(final AST.ArrayCreationExpression arrayCreationExpression, final ClosureCompilerContext context) {
+        final ExpressionNode[] arguments = new ExpressionNode[arrayCreationExpression.getArguments().size()];
+        for (int i = 0; i < arguments.length; ++i) {
+            arguments[i] = compileExpression(arrayCreationExpression.getArguments().get(i), context);
+        }
+        context.setExpression(slots -> {
+            final Object[] elements = new Object[arguments.length];
+            boolean integers = elements.length > 0;
+            for (int i = 0; i < elements.length; ++i) {
+                elements[i] = arguments[i].evaluate(slots);
+                integers &= elements[i] instanceof Integer;
+            }
+            if (!integers) {
+                return new ReferenceArrayValue(elements);
+            }
+            final IntArrayValue array = new IntArrayValue(elements.length);
+            for (int i = 0; i < elements.length; ++i) {
+                array.setInt(i, (int) elements[i]);
+            }
+            return array;
+        });
+    }
+
+    @Override
+    public void visitVariableAccessForRead(final AST.VariableAccessExpression variableAccessExpression, final ClosureCompilerContext context) {
+        final String name = variableAccessExpression.getName();
+        if ("true".equals(name)) {
+            context.setExpression(constant(1));
+        } else if ("false".equals(name)) {
+            context.setExpression(constant(0));
+        } else {
+            final int slot = context.getSlot(name);
+            context.setExpression(slots -> slots[slot]);
+        }
+    }
+
+    @Override
+    public void visitArrayAccessForRead(final AST.ArrayAccessExpression arrayAccessExpression, final ClosureCompilerContext context) {
+        final ExpressionNode array = compileExpression(arrayAccessExpression.getPointer(), context);
+        final ExpressionNode index = compileExpression(arrayAccessExpression.getExpression(), context);
+        context.setExpression(new ExpressionNode() {
+            @Override
+            public Object evaluate(final Object[] slots) {
+                final ArrayValue arrayValue = (ArrayValue) array.evaluate(slots);
+                return arrayValue.get(index.evaluateInt(slots));
+            }
+
+            @Override
+            public int evaluateInt(final Object[] slots) {
+                final ArrayValue arrayValue = (ArrayValue) array.evaluate(slots);
+                final int i = index.evaluateInt(slots);
+                if (arrayValue instanceof IntArrayValue) {
+                    return ((IntArrayValue) arrayValue).getInt(i);
+                }
+                return (int) arrayValue.get(i);
+            }
+        });
+    }
+
+    @Override
+    public void visitVariableAccessForWrite(final AST.VariableAccessExpression variableAccessExpression, final ClosureCompilerContext context) {
+        visitVariableAccessForRead(variableAccessExpression, context);
+    }
+
+    @Override
+    public void visitArrayAccessForWrite(final AST.ArrayAccessExpression arrayAccessExpression, final ClosureCompilerContext context) {
+        visitArrayAccessForRead(arrayAccessExpression, context);
+    }
+
+    @Override
+    public void visitIntegerLiteral(final AST.IntegerLiteral integerLiteral, final ClosureCompilerContext context) {
+        context.setExpression(constant(integerLiteral.getValue()));
+    }
+
+    @Override
+    public void visitCharacterLiteral(final AST.CharacterLiteral characterLiteral, final ClosureCompilerContext context) {
+        context.setExpression(constant(characterLiteral.getValue()));
+    }
+
+    @Override
+    public void visitStringLiteral(final AST.StringLiteral stringLiteral, final ClosureCompilerContext context) {
+        final String string = stringLiteral.getValue();
+        context.setExpression(slots -> IntArrayValue.of(string));
+    }
+
+    @Override
+    public void visitNullLiteral(final AST.NullLiteral nullLiteral, final ClosureCompilerContext context) {
+        context.setExpression(slots -> new NullPointer());
+    }
+
+    @Override
+    public void visitUnaryExpression(final AST.UnaryExpression unaryExpression, final ClosureCompilerContext context) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void visitBinaryExpression(final AST.BinaryExpression binaryExpression, final ClosureCompilerContext context) {
+        final ExpressionNode left = compileExpression(binaryExpression.getLeft(), context);
+        final ExpressionNode right = compileExpression(binaryExpression.getRight(), context);
+        final IntExpressionNode node;
+        switch (binaryExpression.getOperator()) {
+            case "*":
+                node = slots -> left.evaluateInt(slots) * right.evaluateInt(slots);
+                break;
+            case "/":
+                node = slots -> left.evaluateInt(slots) / right.evaluateInt(slots);
+                break;
+            case "%":
+                node = slots -> left.evaluateInt(slots) % right.evaluateInt(slots);
+                break;
+            case "+":
+                node = slots -> left.evaluateInt(slots) + right.evaluateInt(slots);
+                break;
+            case "-":
+                node = slots -> left.evaluateInt(slots) - right.evaluateInt(slots);
+                break;
+            case "&":
+                node = slots -> left.evaluateInt(slots) & right.evaluateInt(slots);
+                break;
+            case "^":
+                node = slots -> left.evaluateInt(slots) ^ right.evaluateInt(slots);
+                break;
+            case "|":
+                node = slots -> left.evaluateInt(slots) | right.evaluateInt(slots);
+                break;
+            // both operands of logical operators are always evaluated
+            case "&&":
+                node = slots -> left.evaluateInt(slots) != 0 & right.evaluateInt(slots) != 0 ? 1 : 0;
+                break;
+            case "!!":
+            case "||":
+                node = slots -> left.evaluateInt(slots) != 0 | right.evaluateInt(slots) != 0 ? 1 : 0;
+                break;
+            case ">":
+                node = slots -> left.evaluateInt(slots) > right.evaluateInt(slots) ? 1 : 0;
+                break;
+            case "<":
+                node = slots -> left.evaluateInt(slots) < right.evaluateInt(slots) ? 1 : 0;
+                break;
+            case "<=":
+                node = slots -> left.evaluateInt(slots) <= right.evaluateInt(slots) ? 1 : 0;
+                break;
+            case ">=":
+                node = slots -> left.evaluateInt(slots) >= right.evaluateInt(slots) ? 1 : 0;
+                break;
+            case "==":
+                node = slots -> Objects.equals(left.evaluate(slots), right.evaluate(slots)) ? 1 : 0;
+                break;
+            case "!=":
+                node = slots -> !Objects.equals(left.evaluate(slots), right.evaluate(slots)) ? 1 : 0;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown binary operator");
+        }
+        context.setExpression(node);
+    }
+
+    private ExpressionNode compileExpression(final AST.Expression expression, final ClosureCompilerContext context) {
+        visitExpression(expression, context);
+        return context.getExpression();
+    }
+
+    private StatementNode compileStatement(final AST.CompoundStatement compoundStatement, final ClosureCompilerContext context) {
+        visitCompoundStatement(compoundStatement, context);
+        return context.getStatement();
+    }
+
+    private StatementNode compileStatement(final AST.SingleStatement singleStatement, final ClosureCompilerContext context) {
+        visitSingleStatement(singleStatement, context);
+        return context.getStatement();
+    }
+
+    /**
+     * Creates the node of constant, the value is boxed only once
+     *
+     * @param value the value
+     * @return the node
+     * @since 1.1.0
+     */
+    private static ExpressionNode constant(final int value) {
+        final Integer boxed = value;
+        return new ExpressionNode() {
+            @Override
+            public Object evaluate(final Object[] slots) {
+                return boxed;
+            }
+
+            @Override
+            public int evaluateInt(final Object[] slots) {
+                return value;
+            }
+        };
+    }
+}
@@ -0,0 +1,58 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.ast.closure;
+
+import lombok.Getter;
+import lombok.Setter;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Pointer;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Symbol;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The closure compiler context
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Getter
+@Setter
+public class ClosureCompilerContext {
+    private final Map<Pointer, Symbol> symbols;
+
+    private final Map<String, ClosureFunction> functions = new HashMap<>();
+
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    private ExpressionNode expression;
+
+    private StatementNode statement;
+
+    public ClosureCompilerContext(final Map<Pointer, Symbol> symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * Starts the new function, the arguments take the first slots
+     *
+     * @param arguments the names of arguments
+     * @since 1.1.0
+     */
+    public void beginFunction(final List<String> arguments) {
+        slots.clear();
+        for (final String argument : arguments) {
+            getSlot(argument);
+        }
+    }
+
+    /**
+     * Gets the slot of the variable, allocates the new one at first usage
+     *
+     * @param name the variable name
+     * @return the slot
+     * @since 1.1.0
+     */
+    public int getSlot(final String name) {
+        return slots.computeIfAbsent(name, k -> slots.size());
+    }
+}
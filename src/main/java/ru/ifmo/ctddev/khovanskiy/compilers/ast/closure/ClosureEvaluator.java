@@ -0,0 +1,23 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.ast.closure;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.AST;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Pointer;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Symbol;
+
+import java.util.Map;
+
+/**
+ * Evaluator of the abstract syntax tree compiled to closures
+ * <p>
+ * Unlike {@link ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ASTEvaluator} it visits every node only once,
+ * variables are bound to frame slots and calls are bound to functions before the execution.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class ClosureEvaluator {
+    public void evaluate(final AST.CompilationUnit ast, final Map<Pointer, Symbol> symbols) {
+        final ClosureFunction main = new ClosureCompiler().compile(ast, symbols);
+        main.invoke(new Object[main.getSlotsCount()]);
+    }
+}
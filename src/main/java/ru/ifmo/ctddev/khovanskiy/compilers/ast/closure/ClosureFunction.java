@@ -0,0 +1,39 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.ast.closure;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The compiled user function
+ * <p>
+ * The body is set after the compilation of all functions, so the calls are bound to the function object
+ * even for the recursive functions and the functions defined later.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Getter
+@Setter
+public class ClosureFunction {
+    private final String name;
+    private final int argumentsCount;
+    private int slotsCount;
+    private StatementNode body;
+
+    public ClosureFunction(final String name, final int argumentsCount) {
+        this.name = name;
+        this.argumentsCount = argumentsCount;
+    }
+
+    /**
+     * Invokes the function
+     *
+     * @param slots the new frame, the arguments are at the first slots
+     * @return the return value or {@code null} if the function does not return any value
+     * @since 1.1.0
+     */
+    public Object invoke(final Object[] slots) {
+        final Object result = body.execute(slots);
+        return result == StatementNode.VOID ? null : result;
+    }
+}
@@ -0,0 +1,30 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.ast.closure;
+
+/**
+ * The compiled expression
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@FunctionalInterface
+public interface ExpressionNode {
+    /**
+     * Evaluates the expression
+     *
+     * @param slots the slots of the current frame
+     * @return the value
+     * @since 1.1.0
+     */
+    Object evaluate(Object[] slots);
+
+    /**
+     * Evaluates the expression that is known to be integer, the nodes of integer operations do not box the result
+     *
+     * @param slots the slots of the current frame
+     * @return the value
+     * @since 1.1.0
+     */
+    default int evaluateInt(Object[] slots) {
+        return (int) evaluate(slots);
+    }
+}
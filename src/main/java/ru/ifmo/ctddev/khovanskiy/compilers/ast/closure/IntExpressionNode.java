@@ -0,0 +1,18 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.ast.closure;
+
+/**
+ * The compiled expression of integer type
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@FunctionalInterface
+public interface IntExpressionNode extends ExpressionNode {
+    @Override
+    int evaluateInt(Object[] slots);
+
+    @Override
+    default Object evaluate(Object[] slots) {
+        return evaluateInt(slots);
+    }
+}
@@ -0,0 +1,24 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.ast.closure;
+
+/**
+ * The compiled statement
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@FunctionalInterface
+public interface StatementNode {
+    /**
+     * The result of return statement without value
+     */
+    Object VOID = new Object();
+
+    /**
+     * Executes the statement
+     *
+     * @param slots the slots of the current frame
+     * @return {@code null} if the execution continues, otherwise the return value of function or {@link #VOID}
+     * @since 1.1.0
+     */
+    Object execute(Object[] slots);
+}
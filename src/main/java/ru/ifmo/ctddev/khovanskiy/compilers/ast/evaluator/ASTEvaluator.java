@@ -3,7 +3,6 @@ package ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator;
 import ru.ifmo.ctddev.khovanskiy.compilers.ast.AST;
 import ru.ifmo.ctddev.khovanskiy.compilers.ast.visitor.AbstractASTVisitor;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Function;
@@ -94,6 +93,73 @@ public class ASTEvaluator extends AbstractASTVisitor<EvaluatorContext> {
         return result;
     }
 
+    /**
+     * Evaluates the binary expression of integers without boxing them
+     *
+     * @param operator the operator
+     * @param lo       the left operand
+     * @param ro       the right operand
+     * @return the result
+     * @since 1.1.0
+     */
+    public static int evaluateBinaryExpression(String operator, int lo, int ro) {
+        int result;
+        switch (operator) {
+            case "*":
+                result = lo * ro;
+                break;
+            case "/":
+                result = lo / ro;
+                break;
+            case "%":
+                result = lo % ro;
+                break;
+            case "+":
+                result = lo + ro;
+                break;
+            case "-":
+                result = lo - ro;
+                break;
+            case "&":
+                result = lo & ro;
+                break;
+            case "^":
+                result = lo ^ ro;
+                break;
+            case "|":
+                result = lo | ro;
+                break;
+            case "&&":
+                result = lo != 0 && ro != 0 ? 1 : 0;
+                break;
+            case "!!":
+            case "||":
+                result = lo != 0 || ro != 0 ? 1 : 0;
+                break;
+            case ">":
+                result = lo > ro ? 1 : 0;
+                break;
+            case "<":
+                result = lo < ro ? 1 : 0;
+                break;
+            case "<=":
+                result = lo <= ro ? 1 : 0;
+                break;
+            case ">=":
+                result = lo >= ro ? 1 : 0;
+                break;
+            case "==":
+                result = lo == ro ? 1 : 0;
+                break;
+            case "!=":
+                result = lo != ro ? 1 : 0;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown binary operator");
+        }
+        return result;
+    }
+
     @Override
     public void visitVariableAccessForWrite(AST.VariableAccessExpression variableAccessExpression, EvaluatorContext context) {
         final VariablePointer pointer = new VariablePointer(variableAccessExpression.getName());
@@ -247,10 +313,21 @@ public class ASTEvaluator extends AbstractASTVisitor<EvaluatorContext> {
 
     @Override
     public void visitArrayCreation(AST.ArrayCreationExpression arrayCreationExpression, EvaluatorContext context) {
-        List<Object> arr = new ArrayList<>(arrayCreationExpression.getArguments().size());
-        for (int i = 0; i < arrayCreationExpression.getArguments().size(); ++i) {
+        final Object[] elements = new Object[arrayCreationExpression.getArguments().size()];
+        boolean integers = elements.length > 0;
+        for (int i = 0; i < elements.length; ++i) {
             visitExpression(arrayCreationExpression.getArguments().get(i), context);
-            arr.add(context.getResult(Object.class).getValue());
+            elements[i] = context.getResult(Object.class).getValue();
+            integers &= elements[i] instanceof Integer;
+        }
+        final ArrayValue arr;
+        if (integers) {
+            arr = new IntArrayValue(elements.length);
+            for (int i = 0; i < elements.length; ++i) {
+                arr.set(i, elements[i]);
+            }
+        } else {
+            arr = new ReferenceArrayValue(elements);
         }
         context.setResult(new Symbol<>(arr));
     }
@@ -269,7 +346,7 @@ public class ASTEvaluator extends AbstractASTVisitor<EvaluatorContext> {
         visitExpression(arrayAccessExpression.getExpression(), context);
         final int index = context.getResult(Integer.class).getValue();
         visitMemoryAccessForRead(arrayAccessExpression.getPointer(), context);
-        final List array = context.getResult(List.class).getValue();
+        final ArrayValue array = context.getResult(ArrayValue.class).getValue();
         context.setResult(new Symbol<>(array.get(index)));
     }
 
@@ -286,13 +363,7 @@ public class ASTEvaluator extends AbstractASTVisitor<EvaluatorContext> {
 
     @Override
     public void visitStringLiteral(AST.StringLiteral stringLiteral, EvaluatorContext context) {
-        final String string = stringLiteral.getValue();
-        final int length = string.length();
-        final List<Integer> array = new ArrayList<>(length);
-        for (int i = 0; i < length; ++i) {
-            array.add((int) string.charAt(i));
-        }
-        context.setResult(new Symbol<>(array));
+        context.setResult(new Symbol<>(IntArrayValue.of(stringLiteral.getValue())));
     }
 
     @Override
@@ -353,8 +424,8 @@ public class ASTEvaluator extends AbstractASTVisitor<EvaluatorContext> {
             context.update(pointer, oldSymbol -> {
                 final Symbol newSymbol = callback.apply(oldSymbol);
                 if (oldSymbol != null && newSymbol != null) {
-                    Class<?> oldClass = oldSymbol.getValue().getClass();
-                    Class<?> newClass = newSymbol.getValue().getClass();
+                    Class<?> oldClass = getValueClass(oldSymbol.getValue());
+                    Class<?> newClass = getValueClass(newSymbol.getValue());
                     if (!oldClass.equals(newClass)) {
                         throw new IllegalStateException(String.format("Types of \"%s\" are not equal: %s != %s", pointer, oldClass, newClass));
                     }
@@ -365,10 +436,21 @@ public class ASTEvaluator extends AbstractASTVisitor<EvaluatorContext> {
             ArrayPointer pointer1 = ((ArrayPointer) pointer);
             setValue(pointer1.getPointer(), oldSymbol -> {
                 final Symbol newSymbol = callback.apply(oldSymbol);
-                final List oldValue = List.class.cast(oldSymbol.getValue());
+                final ArrayValue oldValue = ArrayValue.class.cast(oldSymbol.getValue());
                 oldValue.set(pointer1.getIndex(), newSymbol.getValue());
                 return new Symbol<>(oldValue);
             }, context);
         }
     }
+
+    /**
+     * Gets the class of value to check the assignment, all kinds of arrays are treated as the same class
+     *
+     * @param value the value
+     * @return the class
+     * @since 1.1.0
+     */
+    private static Class<?> getValueClass(final Object value) {
+        return value instanceof ArrayValue ? ArrayValue.class : value.getClass();
+    }
 }
@@ -0,0 +1,74 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator;
+
+import java.util.Objects;
+
+/**
+ * The array value of the interpreters
+ * <p>
+ * Integer and character arrays are backed by {@code int[]}, see {@link IntArrayValue},
+ * arrays of references are backed by {@code Object[]}, see {@link ReferenceArrayValue}.
+ * Arrays are equal if they have equal elements, whatever the storage is.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public abstract class ArrayValue extends Pointer {
+    public abstract int length();
+
+    /**
+     * Gets the element, integers are boxed
+     *
+     * @param index the element index
+     * @return the element
+     * @since 1.1.0
+     */
+    public abstract Object get(int index);
+
+    /**
+     * Sets the element of unknown kind
+     *
+     * @param index the element index
+     * @param value the element
+     * @since 1.1.0
+     */
+    public abstract void set(int index, Object value);
+
+    /**
+     * Creates the copy of the elements range
+     *
+     * @param from the initial index, inclusive
+     * @param to   the final index, exclusive
+     * @return the new array of the same kind
+     * @since 1.1.0
+     */
+    public abstract ArrayValue copyOfRange(int from, int to);
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ArrayValue)) {
+            return false;
+        }
+        final ArrayValue other = (ArrayValue) obj;
+        if (length() != other.length()) {
+            return false;
+        }
+        for (int i = 0; i < length(); ++i) {
+            if (!Objects.equals(get(i), other.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < length(); ++i) {
+            result = 31 * result + Objects.hashCode(get(i));
+        }
+        return result;
+    }
+}
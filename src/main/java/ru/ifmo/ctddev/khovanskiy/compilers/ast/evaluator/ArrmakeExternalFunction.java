@@ -1,7 +1,6 @@
 package ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 public class ArrmakeExternalFunction extends ExternalFunction {
     @Override
@@ -11,10 +10,8 @@ public class ArrmakeExternalFunction extends ExternalFunction {
         assert args[1] != null && Integer.class.isInstance(args[1]);
         int length = (int) args[0];
         int defaultValue = (int) args[1];
-        List<Object> arr = new ArrayList<>(length);
-        for (int i = 0; i < length; ++i) {
-            arr.add(defaultValue);
-        }
-        return arr;
+        int[] arr = new int[length];
+        Arrays.fill(arr, defaultValue);
+        return new IntArrayValue(arr);
     }
 }
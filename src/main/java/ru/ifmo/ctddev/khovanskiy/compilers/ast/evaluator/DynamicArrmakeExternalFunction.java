@@ -1,7 +1,6 @@
 package ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 public class DynamicArrmakeExternalFunction extends ExternalFunction {
     @Override
@@ -11,10 +10,8 @@ public class DynamicArrmakeExternalFunction extends ExternalFunction {
         assert args[1] == null || Pointer.class.isInstance(args[1]);
         int length = (int) args[0];
         Pointer defaultValue = (Pointer) args[1];
-        List<Pointer> arr = new ArrayList<>(length);
-        for (int i = 0; i < length; ++i) {
-            arr.add(defaultValue);
-        }
-        return arr;
+        Object[] arr = new Object[length];
+        Arrays.fill(arr, defaultValue);
+        return new ReferenceArrayValue(arr);
     }
 }
@@ -0,0 +1,49 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The standard library of external functions for the evaluators
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public final class ExternalFunctions {
+    private ExternalFunctions() {
+    }
+
+    /**
+     * Defines the symbols of external functions and base aliases
+     *
+     * @param reader the input of {@code read}
+     * @param writer the output of {@code read} prompts and {@code write}
+     * @return the symbols
+     * @since 1.1.0
+     */
+    public static Map<Pointer, Symbol> define(final Reader reader, final Writer writer) {
+        final Map<Pointer, Symbol> externals = new HashMap<>();
+        // base aliases
+        externals.put(new VariablePointer("true"), new Symbol<>(1));
+        externals.put(new VariablePointer("false"), new Symbol<>(0));
+        // io
+        externals.put(new FunctionPointer("read"), new Symbol<>(new ReadExternalFunction(reader, writer)));
+        externals.put(new FunctionPointer("write"), new Symbol<>(new WriteExternalFunction(writer)));
+        // strings
+        externals.put(new FunctionPointer("strlen"), new Symbol<>(new StrlenExternalFunction()));
+        externals.put(new FunctionPointer("strget"), new Symbol<>(new StrgetExternalFunction()));
+        externals.put(new FunctionPointer("strset"), new Symbol<>(new StrsetExternalFunction()));
+        externals.put(new FunctionPointer("strsub"), new Symbol<>(new StrsubExternalFunction()));
+        externals.put(new FunctionPointer("strdup"), new Symbol<>(new StrdupExternalFunction()));
+        externals.put(new FunctionPointer("strcat"), new Symbol<>(new StrcatExternalFunction()));
+        externals.put(new FunctionPointer("strcmp"), new Symbol<>(new StrcmpExternalFunction()));
+        externals.put(new FunctionPointer("strmake"), new Symbol<>(new StrmakeExternalFunction()));
+        // arrays
+        externals.put(new FunctionPointer("arrlen"), new Symbol<>(new ArrlenExternalFunction()));
+        externals.put(new FunctionPointer("arrmake"), new Symbol<>(new ArrmakeExternalFunction()));
+        externals.put(new FunctionPointer("Arrmake"), new Symbol<>(new DynamicArrmakeExternalFunction()));
+        return externals;
+    }
+}
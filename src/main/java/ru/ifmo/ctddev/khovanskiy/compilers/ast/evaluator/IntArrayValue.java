@@ -0,0 +1,85 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * The array of integers or characters
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Getter
+public class IntArrayValue extends ArrayValue {
+    private final int[] data;
+
+    public IntArrayValue(final int length) {
+        this(new int[length]);
+    }
+
+    public IntArrayValue(final int[] data) {
+        this.data = data;
+    }
+
+    /**
+     * Creates the array of characters of the string
+     *
+     * @param string the string
+     * @return the array
+     * @since 1.1.0
+     */
+    public static IntArrayValue of(final String string) {
+        final int[] data = new int[string.length()];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = string.charAt(i);
+        }
+        return new IntArrayValue(data);
+    }
+
+    public int getInt(final int index) {
+        return data[index];
+    }
+
+    public void setInt(final int index, final int value) {
+        data[index] = value;
+    }
+
+    @Override
+    public int length() {
+        return data.length;
+    }
+
+    @Override
+    public Object get(final int index) {
+        return data[index];
+    }
+
+    @Override
+    public void set(final int index, final Object value) {
+        data[index] = value instanceof Character ? (char) value : (int) value;
+    }
+
+    @Override
+    public IntArrayValue copyOfRange(final int from, final int to) {
+        return new IntArrayValue(Arrays.copyOfRange(data, from, to));
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj instanceof IntArrayValue) {
+            return Arrays.equals(data, ((IntArrayValue) obj).data);
+        }
+        return super.equals(obj);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(data);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(data);
+    }
+}
@@ -0,0 +1,62 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * The array of references: arrays, strings and {@link NullPointer}
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Getter
+public class ReferenceArrayValue extends ArrayValue {
+    private final Object[] data;
+
+    public ReferenceArrayValue(final int length) {
+        this(new Object[length]);
+    }
+
+    public ReferenceArrayValue(final Object[] data) {
+        this.data = data;
+    }
+
+    @Override
+    public int length() {
+        return data.length;
+    }
+
+    @Override
+    public Object get(final int index) {
+        return data[index];
+    }
+
+    @Override
+    public void set(final int index, final Object value) {
+        data[index] = value;
+    }
+
+    @Override
+    public ReferenceArrayValue copyOfRange(final int from, final int to) {
+        return new ReferenceArrayValue(Arrays.copyOfRange(data, from, to));
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj instanceof ReferenceArrayValue) {
+            return Arrays.equals(data, ((ReferenceArrayValue) obj).data);
+        }
+        return super.equals(obj);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(data);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(data);
+    }
+}
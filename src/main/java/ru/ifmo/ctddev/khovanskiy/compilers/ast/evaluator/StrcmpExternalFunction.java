@@ -1,24 +1,22 @@
 package ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator;
 
-import java.util.List;
-
 public class StrcmpExternalFunction extends ExternalFunction {
     @Override
     public Object evaluate(Object... args) {
         assert args.length == 2;
-        assert args[0] != null && List.class.isInstance(args[0]);
-        assert args[1] != null && List.class.isInstance(args[1]);
-        List lhs = (List) args[0];
-        List rhs = (List) args[1];
-        int lim = Math.min(lhs.size(), rhs.size());
+        assert args[0] != null && IntArrayValue.class.isInstance(args[0]);
+        assert args[1] != null && IntArrayValue.class.isInstance(args[1]);
+        int[] lhs = ((IntArrayValue) args[0]).getData();
+        int[] rhs = ((IntArrayValue) args[1]).getData();
+        int lim = Math.min(lhs.length, rhs.length);
         int k = 0;
         while (k < lim) {
-            if (lhs.get(k) != rhs.get(k)) {
-                return cmp((int) lhs.get(k), (int) rhs.get(k));
+            if (lhs[k] != rhs[k]) {
+                return cmp(lhs[k], rhs[k]);
             }
             k++;
         }
-        return cmp(lhs.size(), rhs.size());
+        return cmp(lhs.length, rhs.length);
     }
 
     @SuppressWarnings("UseCompareMethod")
@@ -0,0 +1,316 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.cache;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Persistent content-addressed cache of the compiled artifacts
+ * <p>
+ * Every entry is the directory named by the key that keeps the artifacts of one compilation,
+ * for example the virtual machine code, the assembly and the executable. The modification time of entry
+ * is its last access time, so when the cache exceeds its size the least recently used entries are removed.
+ * <p>
+ * The sizes of entries are read from the disk once, then the cache keeps them in the order of accesses,
+ * so the artifact is put without the scan of the whole directory.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Slf4j
+@Getter
+public class ArtifactCache {
+    public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+    private static volatile String compilerVersion;
+
+    private final Path directory;
+
+    private final long maxSize;
+
+    private long lastAccessTime;
+
+    /**
+     * The sizes of entries from the least recently used one, {@code null} until the cache is read
+     */
+    private Map<String, Long> entries;
+
+    private long totalSize;
+
+    /**
+     * @param directory the directory of cache
+     * @param maxSize   the maximum size of all artifacts in bytes
+     * @since 1.1.0
+     */
+    public ArtifactCache(final Path directory, final long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Computes the key of artifacts
+     *
+     * @param parts the source, the compiler version and the options of compilation
+     * @return the hex string of SHA-256 hash
+     * @since 1.1.0
+     */
+    public static String key(final String... parts) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (final String part : parts) {
+                final byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+                // the length separates the parts, so ("ab", "c") and ("a", "bc") have different keys
+                digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) ':');
+                digest.update(bytes);
+            }
+            final StringBuilder builder = new StringBuilder();
+            for (final byte b : digest.digest()) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Gets the version of compiler that is the part of every key
+     * <p>
+     * The development build has no version in its manifest, so the modification time of its classes is used.
+     *
+     * @return the version of compiler
+     * @since 1.1.0
+     */
+    public static String compilerVersion() {
+        if (compilerVersion == null) {
+            compilerVersion = findCompilerVersion();
+        }
+        return compilerVersion;
+    }
+
+    private static String findCompilerVersion() {
+        final String version = ArtifactCache.class.getPackage().getImplementationVersion();
+        if (version != null) {
+            return version;
+        }
+        try {
+            final File location = new File(ArtifactCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            final File classFile = new File(location, ArtifactCache.class.getName().replace('.', File.separatorChar) + ".class");
+            return "dev-" + (location.isFile() ? location.lastModified() : classFile.lastModified());
+        } catch (Exception e) {
+            return "dev";
+        }
+    }
+
+    /**
+     * Gets the artifact and marks its entry as recently used
+     *
+     * @param key      the key of entry
+     * @param artifact the name of artifact
+     * @return the path of artifact or {@code null} if there is no such artifact
+     * @throws IOException if the entry can not be accessed
+     * @since 1.1.0
+     */
+    public Path get(final String key, final String artifact) throws IOException {
+        final Path entry = directory.resolve(key);
+        final Path path = entry.resolve(artifact);
+        if (!Files.isRegularFile(path)) {
+            log.info("Artifact \"{}\" of entry {} is missed", artifact, key);
+            return null;
+        }
+        touch(entry);
+        getEntries().get(key);
+        log.info("Artifact \"{}\" of entry {} is found", artifact, key);
+        return path;
+    }
+
+    /**
+     * Copies the artifact from the cache
+     *
+     * @param key      the key of entry
+     * @param artifact the name of artifact
+     * @param target   the destination file
+     * @return {@code true} if the artifact is copied
+     * @throws IOException if the artifact can not be copied
+     * @since 1.1.0
+     */
+    public boolean copy(final String key, final String artifact, final Path target) throws IOException {
+        final Path path = get(key, artifact);
+        if (path == null) {
+            return false;
+        }
+        Files.copy(path, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        return true;
+    }
+
+    /**
+     * Puts the copy of file to the cache
+     *
+     * @param key      the key of entry
+     * @param artifact the name of artifact
+     * @param source   the file
+     * @return the path of artifact in the cache
+     * @throws IOException if the artifact can not be written
+     * @since 1.1.0
+     */
+    public Path put(final String key, final String artifact, final Path source) throws IOException {
+        final Path entry = Files.createDirectories(directory.resolve(key));
+        final Path temporary = Files.createTempFile(entry, artifact, ".tmp");
+        Files.copy(source, temporary, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        return commit(key, artifact, entry, temporary);
+    }
+
+    /**
+     * Puts the content to the cache
+     *
+     * @param key      the key of entry
+     * @param artifact the name of artifact
+     * @param content  the content of artifact
+     * @return the path of artifact in the cache
+     * @throws IOException if the artifact can not be written
+     * @since 1.1.0
+     */
+    public Path put(final String key, final String artifact, final byte[] content) throws IOException {
+        final Path entry = Files.createDirectories(directory.resolve(key));
+        final Path temporary = Files.createTempFile(entry, artifact, ".tmp");
+        Files.write(temporary, content);
+        return commit(key, artifact, entry, temporary);
+    }
+
+    /**
+     * Computes the size of all artifacts
+     *
+     * @return the size in bytes
+     * @throws IOException if the cache can not be read
+     * @since 1.1.0
+     */
+    public long size() throws IOException {
+        long size = 0;
+        for (final Entry entry : listEntries()) {
+            size += entry.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * Removes the least recently used entries until the cache fits its maximum size
+     *
+     * @param retainedKey the key of entry that is never removed
+     * @throws IOException if the cache can not be read
+     * @since 1.1.0
+     */
+    public void evict(final String retainedKey) throws IOException {
+        final Iterator<Map.Entry<String, Long>> iterator = getEntries().entrySet().iterator();
+        while (totalSize > maxSize && iterator.hasNext()) {
+            final Map.Entry<String, Long> entry = iterator.next();
+            if (entry.getKey().equals(retainedKey)) {
+                continue;
+            }
+            delete(directory.resolve(entry.getKey()));
+            iterator.remove();
+            totalSize -= entry.getValue();
+            log.info("Entry {} of {} bytes is evicted", entry.getKey(), entry.getValue());
+        }
+    }
+
+    private Path commit(final String key, final String artifact, final Path entry, final Path temporary) throws IOException {
+        final Path path = entry.resolve(artifact);
+        final Map<String, Long> entries = getEntries();
+        final long replacedSize = Files.isRegularFile(path) ? Files.size(path) : 0;
+        final long artifactSize = Files.size(temporary);
+        // the concurrent compilations see either the whole artifact or nothing
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        touch(entry);
+        entries.put(key, entries.getOrDefault(key, 0L) + artifactSize - replacedSize);
+        totalSize += artifactSize - replacedSize;
+        if (totalSize > maxSize) {
+            evict(key);
+        }
+        return path;
+    }
+
+    private Map<String, Long> getEntries() throws IOException {
+        if (entries == null) {
+            final List<Entry> list = listEntries();
+            list.sort(Comparator.comparingLong(Entry::getAccessTime).thenComparing(entry -> entry.getPath().getFileName().toString()));
+            // the map in the access order, so its first entry is the least recently used one
+            entries = new LinkedHashMap<>(16, 0.75f, true);
+            totalSize = 0;
+            for (final Entry entry : list) {
+                entries.put(entry.getPath().getFileName().toString(), entry.getSize());
+                totalSize += entry.getSize();
+            }
+        }
+        return entries;
+    }
+
+    private void touch(final Path entry) throws IOException {
+        // the time is increased within the process, so the order of accesses is kept by the coarse file system clock
+        lastAccessTime = Math.max(System.currentTimeMillis(), lastAccessTime + 1);
+        Files.setLastModifiedTime(entry, FileTime.fromMillis(lastAccessTime));
+    }
+
+    private List<Entry> listEntries() throws IOException {
+        final List<Entry> entries = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return entries;
+        }
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (final Path path : (Iterable<Path>) paths::iterator) {
+                if (!Files.isDirectory(path)) {
+                    continue;
+                }
+                long size = 0;
+                try (Stream<Path> artifacts = Files.list(path)) {
+                    for (final Path artifact : (Iterable<Path>) artifacts::iterator) {
+                        // the artifact that is being written is counted once it is committed
+                        if (!artifact.getFileName().toString().endsWith(".tmp")) {
+                            size += Files.size(artifact);
+                        }
+                    }
+                }
+                entries.add(new Entry(path, size, Files.getLastModifiedTime(path).toMillis()));
+            }
+        }
+        return entries;
+    }
+
+    private static void delete(final Path entry) throws IOException {
+        try (Stream<Path> artifacts = Files.list(entry)) {
+            for (final Path artifact : (Iterable<Path>) artifacts::iterator) {
+                Files.deleteIfExists(artifact);
+            }
+        }
+        Files.deleteIfExists(entry);
+    }
+
+    @Getter
+    private static class Entry {
+        private final Path path;
+        private final long size;
+        private final long accessTime;
+
+        Entry(final Path path, final long size, final long accessTime) {
+            this.path = path;
+            this.size = size;
+            this.accessTime = accessTime;
+        }
+    }
+}
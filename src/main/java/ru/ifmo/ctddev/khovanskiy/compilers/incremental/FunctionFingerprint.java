@@ -0,0 +1,78 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.incremental;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.AST;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.printer.ASTPrinter;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.printer.ASTPrinterContext;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.TypeContext;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.ConcreteType;
+
+import java.io.StringWriter;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Fingerprint of the function that determines its compiled code
+ * <p>
+ * The fingerprint consists of the printed function, the inferred types of its variables and the signatures
+ * of the called functions, so the function is compiled again if its body, its types or the return types
+ * of its callees are changed.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public final class FunctionFingerprint {
+    private FunctionFingerprint() {
+    }
+
+    /**
+     * Computes the fingerprint
+     *
+     * @param functionDefinition the function
+     * @param typeContext        the types of program
+     * @return the fingerprint
+     * @since 1.1.0
+     */
+    public static String of(final AST.FunctionDefinition functionDefinition, final TypeContext typeContext) {
+        final StringWriter writer = new StringWriter();
+        final Set<String> callees = new TreeSet<>();
+        new CalleesPrinter(callees).visitFunctionDefinition(functionDefinition, new ASTPrinterContext(writer));
+        final StringBuilder builder = new StringBuilder(writer.toString());
+        builder.append("\n");
+        appendSignature(builder, typeContext.getScopeByName(functionDefinition.getName()), true);
+        for (final String callee : callees) {
+            builder.append(callee).append(": ");
+            appendSignature(builder, typeContext.getScopeByName(callee), false);
+        }
+        return builder.toString();
+    }
+
+    private static void appendSignature(final StringBuilder builder, final TypeContext.Scope scope, final boolean variables) {
+        if (variables) {
+            for (final ConcreteType type : scope.getVariableTypes()) {
+                builder.append(getName(type)).append(" ");
+            }
+        }
+        builder.append("-> ").append(getName(scope.getReturnType())).append("\n");
+    }
+
+    private static String getName(final ConcreteType type) {
+        return type != null ? type.getClass().getSimpleName() : "null";
+    }
+
+    /**
+     * Printer that collects the names of called functions
+     */
+    private static class CalleesPrinter extends ASTPrinter {
+        private final Set<String> callees;
+
+        CalleesPrinter(final Set<String> callees) {
+            this.callees = callees;
+        }
+
+        @Override
+        public void visitFunctionCall(final AST.FunctionCall functionCall, final ASTPrinterContext context) {
+            callees.add(functionCall.getName());
+            super.visitFunctionCall(functionCall, context);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.incremental;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.AST;
+import ru.ifmo.ctddev.khovanskiy.compilers.cache.ArtifactCache;
+import ru.ifmo.ctddev.khovanskiy.compilers.profiler.PhaseProfiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.bytecode.BytecodeReader;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.bytecode.BytecodeWriter;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.compiler.VMCompiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.compiler.VMCompilerContext;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.TypeContext;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.optimizer.VMOptimizer;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86Program;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler.X86Compiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler.X86CompilerOptions;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.optimizer.PeepholeOptimizer;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.printer.X86Printer;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.printer.X86PrinterContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiler that reuses the code of unchanged functions
+ * <p>
+ * The types are inferred for the whole program, because they flow through the calls. Then every function
+ * is looked up in the cache by its {@link FunctionFingerprint}, the virtual machine code and the assembly
+ * of found functions are reused and the other functions are compiled and put to the cache. The function with
+ * inlined callees keeps its assembly by the fingerprints of its own and of the callees, so it is compiled
+ * again if any inlined body is changed.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Slf4j
+@Getter
+public class IncrementalCompiler {
+    private static final String VM_ARTIFACT = "function.vmb";
+
+    private static final String X86_ARTIFACT = "function.s";
+
+    private final ArtifactCache cache;
+
+    private final int level;
+
+    private final PhaseProfiler profiler;
+
+    private final PeepholeOptimizer optimizer;
+
+    private final Map<VMFunction, String> fingerprints = new IdentityHashMap<>();
+
+    private int compiledFunctions;
+
+    private int reusedFunctions;
+
+    /**
+     * @param cache    the cache of compiled functions
+     * @param level    the optimization level of virtual machine code
+     * @param profiler the profiler of compilation of every function
+     * @since 1.1.0
+     */
+    public IncrementalCompiler(final ArtifactCache cache, final int level, final PhaseProfiler profiler) {
+        this(cache, level, profiler, level > 0 ? PeepholeOptimizer.withDefaultRules() : null);
+    }
+
+    /**
+     * @param cache     the cache of compiled functions
+     * @param level     the optimization level of virtual machine code
+     * @param profiler  the profiler of compilation of every function
+     * @param optimizer the peephole optimizer of assembly or {@code null}
+     * @since 1.1.0
+     */
+    public IncrementalCompiler(final ArtifactCache cache, final int level, final PhaseProfiler profiler, final PeepholeOptimizer optimizer) {
+        this.cache = cache;
+        this.level = level;
+        this.profiler = profiler;
+        this.optimizer = optimizer;
+    }
+
+    /**
+     * Compiles the changed functions to the virtual machine code
+     *
+     * @param ast         the ast of program
+     * @param typeContext the type context of program
+     * @return the program
+     * @throws Exception if the cache fails
+     * @since 1.1.0
+     */
+    public VMProgram compile(final AST.CompilationUnit ast, final TypeContext typeContext) throws Exception {
+        final VMCompiler compiler = new VMCompiler(profiler);
+        final VMCompilerContext context = new VMCompilerContext(typeContext);
+        final List<VMFunction> functions = new ArrayList<>();
+        for (final AST.FunctionDefinition definition : VMCompiler.getFunctions(ast)) {
+            final String fingerprint = ArtifactCache.key(FunctionFingerprint.of(definition, typeContext),
+                    ArtifactCache.compilerVersion(), Integer.toString(level),
+                    optimizer != null ? String.join(",", optimizer.getEnabledRules()) : "");
+            final Path path = cache.get(fingerprint, VM_ARTIFACT);
+            final VMFunction function;
+            if (path != null) {
+                function = new BytecodeReader().load(path).getFunctions().get(0);
+                ++reusedFunctions;
+                log.info("Function \"{}\" is not changed", definition.getName());
+            } else {
+                compiler.visitFunctionDefinition(definition, context);
+                final List<VMFunction> compiled = context.getVmProgram().getFunctions();
+                function = compiled.get(compiled.size() - 1);
+                if (level > 0) {
+                    VMOptimizer.forLevel(level).optimize(function);
+                }
+                final ByteArrayOutputStream bytecode = new ByteArrayOutputStream();
+                new BytecodeWriter().write(new VMProgram(Collections.singletonList(function)), bytecode);
+                cache.put(fingerprint, VM_ARTIFACT, bytecode.toByteArray());
+                ++compiledFunctions;
+                log.info("Function \"{}\" is compiled", definition.getName());
+            }
+            fingerprints.put(function, fingerprint);
+            functions.add(function);
+        }
+        final VMProgram vmProgram = new VMProgram(functions);
+        if (level > 0) {
+            final VMOptimizer vmOptimizer = VMOptimizer.forLevel(level);
+            final Map<VMFunction, Set<VMFunction>> inlined = vmOptimizer.inline(vmProgram);
+            final Map<VMFunction, String> inlinedFingerprints = new IdentityHashMap<>();
+            for (final VMFunction caller : inlined.keySet()) {
+                vmOptimizer.optimize(caller);
+                getInlinedFingerprint(caller, inlined, inlinedFingerprints);
+            }
+            fingerprints.putAll(inlinedFingerprints);
+        }
+        return vmProgram;
+    }
+
+    private String getInlinedFingerprint(final VMFunction function, final Map<VMFunction, Set<VMFunction>> inlined, final Map<VMFunction, String> inlinedFingerprints) {
+        final Set<VMFunction> callees = inlined.get(function);
+        if (callees == null) {
+            return fingerprints.get(function);
+        }
+        String fingerprint = inlinedFingerprints.get(function);
+        if (fingerprint == null) {
+            final List<String> parts = new ArrayList<>();
+            parts.add(fingerprints.get(function));
+            final List<VMFunction> sorted = new ArrayList<>(callees);
+            sorted.sort(Comparator.comparing(VMFunction::getName));
+            for (final VMFunction callee : sorted) {
+                // the callees are inlined only after their own callees, so the recursion is finite
+                parts.add(getInlinedFingerprint(callee, inlined, inlinedFingerprints));
+            }
+            fingerprint = ArtifactCache.key(parts.toArray(new String[0]));
+            inlinedFingerprints.put(function, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Prints the assembly of program, the assembly of functions compiled by this compiler is cached
+     *
+     * @param vmProgram the program
+     * @param writer    the output
+     * @throws Exception if the cache or the output fails
+     * @since 1.1.0
+     */
+    public void print(final VMProgram vmProgram, final Writer writer) throws Exception {
+        final X86Printer printer = new X86Printer();
+        final X86PrinterContext context = new X86PrinterContext(writer);
+        printer.printHeader(context);
+        for (final VMFunction function : vmProgram.getFunctions()) {
+            final String fingerprint = fingerprints.get(function);
+            final Path path = fingerprint != null ? cache.get(fingerprint, X86_ARTIFACT) : null;
+            if (path != null) {
+                writer.write(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+                continue;
+            }
+            final X86Program x86Program = new X86Compiler(new X86CompilerOptions().profiler(profiler).optimizer(optimizer)).compile(new VMProgram(Collections.singletonList(function)));
+            final StringWriter assembly = new StringWriter();
+            final X86PrinterContext functionContext = new X86PrinterContext(assembly);
+            for (final X86 command : x86Program.getCommands()) {
+                printer.visitCommand(command, functionContext);
+            }
+            if (fingerprint != null) {
+                cache.put(fingerprint, X86_ARTIFACT, assembly.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            writer.write(assembly.toString());
+        }
+        context.flush();
+    }
+}
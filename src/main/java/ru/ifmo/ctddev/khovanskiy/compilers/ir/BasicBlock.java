@@ -0,0 +1,53 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.ir;
+
+import lombok.Getter;
+import lombok.Setter;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The basic block of function
+ * <p>
+ * The block starts with the optional label, only the last command of block may be a jump or a return.
+ * The label itself is not kept in {@link #commands}.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Getter
+public class BasicBlock {
+    private final int index;
+    @Setter
+    private String label;
+    private final List<VM> commands = new ArrayList<>();
+    private final List<Phi> phis = new ArrayList<>();
+    private final List<BasicBlock> successors = new ArrayList<>();
+    private final List<BasicBlock> predecessors = new ArrayList<>();
+
+    public BasicBlock(final int index, final String label) {
+        this.index = index;
+        this.label = label;
+    }
+
+    /**
+     * Gets the last command of block
+     *
+     * @return the command or {@code null} if the block is empty
+     * @since 1.1.0
+     */
+    public VM getTerminator() {
+        return commands.isEmpty() ? null : commands.get(commands.size() - 1);
+    }
+
+    public void addSuccessor(final BasicBlock successor) {
+        successors.add(successor);
+        successor.getPredecessors().add(this);
+    }
+
+    @Override
+    public String toString() {
+        return "B" + index + (label != null ? "(" + label + ")" : "");
+    }
+}
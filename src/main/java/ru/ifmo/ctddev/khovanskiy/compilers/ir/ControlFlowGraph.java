@@ -0,0 +1,48 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.ir;
+
+import lombok.Getter;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.ConcreteType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The control flow graph of function
+ * <p>
+ * The blocks are kept in the order of the original code, so the block without a jump at the end
+ * falls through to the next one. The types of slots are copied, because the SSA form adds new slots.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Getter
+public class ControlFlowGraph {
+    private final String name;
+    private final int argumentsCount;
+    private final List<ConcreteType> types;
+    private final ConcreteType returnType;
+    private final List<BasicBlock> blocks = new ArrayList<>();
+
+    public ControlFlowGraph(final String name, final int argumentsCount, final List<ConcreteType> types, final ConcreteType returnType) {
+        this.name = name;
+        this.argumentsCount = argumentsCount;
+        this.types = new ArrayList<>(types);
+        this.returnType = returnType;
+    }
+
+    public BasicBlock getEntry() {
+        return blocks.get(0);
+    }
+
+    /**
+     * Allocates the new slot of the same type as the slot of variable
+     *
+     * @param variable the variable slot
+     * @return the new slot
+     * @since 1.1.0
+     */
+    public int addSlot(final int variable) {
+        types.add(types.get(variable));
+        return types.size() - 1;
+    }
+}
@@ -0,0 +1,112 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.ir;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builder of the control flow graph from the virtual machine code
+ * <p>
+ * The code is split before every label and after every jump and return.
+ * The blocks unreachable from the entry are dropped.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class ControlFlowGraphBuilder {
+    public ControlFlowGraph build(final VMFunction function) {
+        final List<BasicBlock> blocks = split(function);
+        final Map<String, BasicBlock> labels = new HashMap<>();
+        for (final BasicBlock block : blocks) {
+            if (block.getLabel() != null && labels.put(block.getLabel(), block) != null) {
+                throw new IllegalStateException(String.format("Function \"%s\": label \"%s\" is duplicated", function.getName(), block.getLabel()));
+            }
+        }
+        for (int i = 0; i < blocks.size(); ++i) {
+            final BasicBlock block = blocks.get(i);
+            final VM terminator = block.getTerminator();
+            final String target = getTarget(terminator);
+            if (target != null) {
+                final BasicBlock successor = labels.get(target);
+                if (successor == null) {
+                    throw new IllegalStateException(String.format("Function \"%s\": unknown position of label \"%s\"", function.getName(), target));
+                }
+                block.addSuccessor(successor);
+            }
+            final boolean fallsThrough = !(terminator instanceof VM.Goto) && !(terminator instanceof VM.AbstractReturn);
+            if (fallsThrough && i + 1 < blocks.size()) {
+                block.addSuccessor(blocks.get(i + 1));
+            }
+        }
+
+        final Set<BasicBlock> reachable = findReachable(blocks.get(0));
+        final ControlFlowGraph graph = new ControlFlowGraph(function.getName(), function.getArgumentsCount(), function.getTypes(), function.getReturnType());
+        for (final BasicBlock block : blocks) {
+            if (reachable.contains(block)) {
+                block.getPredecessors().retainAll(reachable);
+                graph.getBlocks().add(block);
+            }
+        }
+        return graph;
+    }
+
+    private static List<BasicBlock> split(final VMFunction function) {
+        final List<BasicBlock> blocks = new ArrayList<>();
+        BasicBlock current = new BasicBlock(0, null);
+        blocks.add(current);
+        for (final VM command : function.getCommands()) {
+            if (command instanceof VM.Label) {
+                final String label = ((VM.Label) command).getName();
+                if (current.getCommands().isEmpty() && current.getLabel() == null && current.getIndex() > 0) {
+                    current.setLabel(label);
+                } else {
+                    current = new BasicBlock(blocks.size(), label);
+                    blocks.add(current);
+                }
+                continue;
+            }
+            current.getCommands().add(command);
+            if (getTarget(command) != null || command instanceof VM.AbstractReturn) {
+                current = new BasicBlock(blocks.size(), null);
+                blocks.add(current);
+            }
+        }
+        return blocks;
+    }
+
+    private static Set<BasicBlock> findReachable(final BasicBlock entry) {
+        final Set<BasicBlock> reachable = new HashSet<>();
+        final Deque<BasicBlock> queue = new ArrayDeque<>();
+        reachable.add(entry);
+        queue.add(entry);
+        while (!queue.isEmpty()) {
+            for (final BasicBlock successor : queue.poll().getSuccessors()) {
+                if (reachable.add(successor)) {
+                    queue.add(successor);
+                }
+            }
+        }
+        return reachable;
+    }
+
+    static String getTarget(final VM command) {
+        if (command instanceof VM.Goto) {
+            return ((VM.Goto) command).getLabel();
+        }
+        if (command instanceof VM.IfTrue) {
+            return ((VM.IfTrue) command).getLabel();
+        }
+        if (command instanceof VM.IfFalse) {
+            return ((VM.IfFalse) command).getLabel();
+        }
+        return null;
+    }
+}
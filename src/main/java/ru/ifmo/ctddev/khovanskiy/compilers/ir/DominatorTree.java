@@ -0,0 +1,153 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.ir;
+
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The dominator tree and the dominance frontiers of the control flow graph
+ *
+ * @author Victor Khovanskiy
+ * @see <a href="https://www.cs.rice.edu/~keith/EMBED/dom.pdf">A Simple, Fast Dominance Algorithm</a>
+ * @since 1.1.0
+ */
+@Getter
+public class DominatorTree {
+    private final List<BasicBlock> reversePostOrder;
+    private final Map<BasicBlock, BasicBlock> immediateDominators = new HashMap<>();
+    private final Map<BasicBlock, List<BasicBlock>> children = new HashMap<>();
+    private final Map<BasicBlock, Set<BasicBlock>> frontiers = new HashMap<>();
+
+    public DominatorTree(final ControlFlowGraph graph) {
+        this.reversePostOrder = computeReversePostOrder(graph.getEntry());
+        final Map<BasicBlock, Integer> order = new HashMap<>();
+        for (int i = 0; i < reversePostOrder.size(); ++i) {
+            order.put(reversePostOrder.get(i), i);
+            children.put(reversePostOrder.get(i), new ArrayList<>());
+            frontiers.put(reversePostOrder.get(i), new LinkedHashSet<>());
+        }
+
+        final BasicBlock entry = graph.getEntry();
+        immediateDominators.put(entry, entry);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (final BasicBlock block : reversePostOrder) {
+                if (block == entry) {
+                    continue;
+                }
+                BasicBlock dominator = null;
+                for (final BasicBlock predecessor : block.getPredecessors()) {
+                    if (!immediateDominators.containsKey(predecessor)) {
+                        continue;
+                    }
+                    dominator = dominator == null ? predecessor : intersect(predecessor, dominator, order);
+                }
+                if (dominator != immediateDominators.get(block)) {
+                    immediateDominators.put(block, dominator);
+                    changed = true;
+                }
+            }
+        }
+
+        for (final BasicBlock block : reversePostOrder) {
+            if (block != entry) {
+                children.get(immediateDominators.get(block)).add(block);
+            }
+            final Set<BasicBlock> predecessors = new HashSet<>(block.getPredecessors());
+            if (predecessors.size() < 2) {
+                continue;
+            }
+            for (final BasicBlock predecessor : predecessors) {
+                BasicBlock runner = predecessor;
+                while (runner != immediateDominators.get(block)) {
+                    frontiers.get(runner).add(block);
+                    runner = immediateDominators.get(runner);
+                }
+            }
+        }
+    }
+
+    public BasicBlock getImmediateDominator(final BasicBlock block) {
+        return immediateDominators.get(block);
+    }
+
+    public List<BasicBlock> getChildren(final BasicBlock block) {
+        return children.getOrDefault(block, Collections.emptyList());
+    }
+
+    public Set<BasicBlock> getFrontier(final BasicBlock block) {
+        return frontiers.getOrDefault(block, Collections.emptySet());
+    }
+
+    /**
+     * Checks if every path from the entry to the block goes through the dominator
+     *
+     * @param dominator the dominator
+     * @param block     the block
+     * @return {@code true} if the block is dominated, every block dominates itself
+     * @since 1.1.0
+     */
+    public boolean dominates(final BasicBlock dominator, final BasicBlock block) {
+        BasicBlock current = block;
+        while (true) {
+            if (current == dominator) {
+                return true;
+            }
+            final BasicBlock next = immediateDominators.get(current);
+            if (next == null || next == current) {
+                return false;
+            }
+            current = next;
+        }
+    }
+
+    private BasicBlock intersect(final BasicBlock first, final BasicBlock second, final Map<BasicBlock, Integer> order) {
+        BasicBlock left = first;
+        BasicBlock right = second;
+        while (left != right) {
+            while (order.get(left) > order.get(right)) {
+                left = immediateDominators.get(left);
+            }
+            while (order.get(right) > order.get(left)) {
+                right = immediateDominators.get(right);
+            }
+        }
+        return left;
+    }
+
+    private static List<BasicBlock> computeReversePostOrder(final BasicBlock entry) {
+        final List<BasicBlock> postOrder = new ArrayList<>();
+        final Set<BasicBlock> visited = new HashSet<>();
+        final Deque<Iterator<BasicBlock>> iterators = new ArrayDeque<>();
+        final Deque<BasicBlock> path = new ArrayDeque<>();
+        visited.add(entry);
+        path.push(entry);
+        iterators.push(entry.getSuccessors().iterator());
+        while (!path.isEmpty()) {
+            final Iterator<BasicBlock> iterator = iterators.peek();
+            if (iterator.hasNext()) {
+                final BasicBlock successor = iterator.next();
+                if (visited.add(successor)) {
+                    path.push(successor);
+                    iterators.push(successor.getSuccessors().iterator());
+                }
+            } else {
+                postOrder.add(path.pop());
+                iterators.pop();
+            }
+        }
+        Collections.reverse(postOrder);
+        return postOrder;
+    }
+}
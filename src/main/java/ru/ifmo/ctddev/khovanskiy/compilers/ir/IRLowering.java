@@ -0,0 +1,157 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.ir;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86Program;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler.X86Compiler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lowering of the control flow graphs back to the virtual machine code
+ * <p>
+ * The phi functions are replaced by the copies at the end of predecessors. All the copies of one edge are done
+ * in parallel: the values are loaded on the operand stack first and then stored in the reverse order.
+ * The critical edge gets the new block for its copies.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class IRLowering {
+    public VMProgram toVM(final List<ControlFlowGraph> graphs) {
+        final List<VMFunction> functions = new ArrayList<>();
+        for (final ControlFlowGraph graph : graphs) {
+            functions.add(toVM(graph));
+        }
+        return new VMProgram(functions);
+    }
+
+    public X86Program toX86(final List<ControlFlowGraph> graphs) {
+        return new X86Compiler().compile(toVM(graphs));
+    }
+
+    public VMFunction toVM(final ControlFlowGraph graph) {
+        final List<List<VM>> order = new ArrayList<>();
+        final List<List<VM>> tail = new ArrayList<>();
+        final List<BasicBlock> blocks = graph.getBlocks();
+        final Map<BasicBlock, List<VM>> bodies = new HashMap<>();
+        final Map<BasicBlock, List<VM>> fallthroughEdges = new HashMap<>();
+        for (final BasicBlock block : blocks) {
+            final List<VM> body = new ArrayList<>();
+            if (block.getLabel() != null) {
+                body.add(new VM.Label(block.getLabel()));
+            }
+            body.addAll(block.getCommands());
+            bodies.put(block, body);
+        }
+
+        int edges = 0;
+        for (final BasicBlock block : blocks) {
+            if (block.getPhis().isEmpty()) {
+                continue;
+            }
+            for (final BasicBlock predecessor : new LinkedHashSet<>(block.getPredecessors())) {
+                final List<VM> copies = getCopies(block, predecessor);
+                if (copies.isEmpty()) {
+                    continue;
+                }
+                final List<VM> body = bodies.get(predecessor);
+                final VM terminator = predecessor.getTerminator();
+                final String target = ControlFlowGraphBuilder.getTarget(terminator);
+                if (new LinkedHashSet<>(predecessor.getSuccessors()).size() == 1) {
+                    if (target != null) {
+                        body.addAll(body.size() - 1, copies);
+                    } else {
+                        body.addAll(copies);
+                    }
+                    continue;
+                }
+                if (block.getLabel() == null) {
+                    throw new IllegalStateException(String.format("Function \"%s\": block %s has several predecessors, but no label", graph.getName(), block));
+                }
+                if (block.getLabel().equals(target)) {
+                    final String label = graph.getName() + "_edge" + edges++;
+                    body.set(body.size() - 1, retarget(terminator, label));
+                    final List<VM> edge = new ArrayList<>();
+                    edge.add(new VM.Label(label));
+                    edge.addAll(copies);
+                    edge.add(new VM.Goto(block.getLabel()));
+                    tail.add(edge);
+                } else {
+                    fallthroughEdges.put(predecessor, copies);
+                }
+            }
+        }
+
+        for (final BasicBlock block : blocks) {
+            order.add(bodies.get(block));
+            if (fallthroughEdges.containsKey(block)) {
+                order.add(fallthroughEdges.get(block));
+            }
+        }
+        if (!tail.isEmpty()) {
+            final BasicBlock last = blocks.get(blocks.size() - 1);
+            if (!isTerminal(last.getTerminator())) {
+                // the main function has no return, so the execution jumps over the edge blocks to the end
+                final String end = graph.getName() + "_end";
+                order.add(Collections.singletonList(new VM.Goto(end)));
+                order.addAll(tail);
+                order.add(Collections.singletonList(new VM.Label(end)));
+            } else {
+                order.addAll(tail);
+            }
+        }
+
+        final VMFunction function = new VMFunction(graph.getName(), graph.getArgumentsCount(), graph.getTypes(), graph.getReturnType());
+        for (final List<VM> commands : order) {
+            function.getCommands().addAll(commands);
+        }
+        return function;
+    }
+
+    private static List<VM> getCopies(final BasicBlock block, final BasicBlock predecessor) {
+        final List<Phi> phis = new ArrayList<>();
+        for (final Phi phi : block.getPhis()) {
+            final Integer operand = phi.getOperands().get(predecessor);
+            if (operand == null) {
+                throw new IllegalStateException(String.format("Phi %s has no operand for %s", phi, predecessor));
+            }
+            if (operand != Phi.UNDEFINED && operand != phi.getTarget()) {
+                phis.add(phi);
+            }
+        }
+        final List<VM> copies = new ArrayList<>();
+        for (final Phi phi : phis) {
+            final int operand = phi.getOperands().get(predecessor);
+            copies.add(phi.isReference() ? new VM.ALoad(operand) : new VM.ILoad(operand));
+        }
+        for (int i = phis.size() - 1; i >= 0; --i) {
+            final Phi phi = phis.get(i);
+            copies.add(phi.isReference() ? new VM.AStore(phi.getTarget()) : new VM.IStore(phi.getTarget()));
+        }
+        return copies;
+    }
+
+    private static boolean isTerminal(final VM command) {
+        return command instanceof VM.Goto || command instanceof VM.AbstractReturn;
+    }
+
+    private static VM retarget(final VM command, final String label) {
+        if (command instanceof VM.Goto) {
+            return new VM.Goto(label);
+        }
+        if (command instanceof VM.IfTrue) {
+            return new VM.IfTrue(label);
+        }
+        if (command instanceof VM.IfFalse) {
+            return new VM.IfFalse(label);
+        }
+        throw new IllegalArgumentException(String.format("Command %s is not a jump", command));
+    }
+}
@@ -0,0 +1,36 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.ir;
+
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The phi function at the beginning of basic block
+ * <p>
+ * The target slot gets the value of the operand slot of the predecessor the control came from.
+ * The operand is {@link #UNDEFINED} if the variable is not assigned on the path from that predecessor.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Getter
+public class Phi {
+    public static final int UNDEFINED = -1;
+
+    private final int variable;
+    private final int target;
+    private final boolean reference;
+    private final Map<BasicBlock, Integer> operands = new LinkedHashMap<>();
+
+    public Phi(final int variable, final int target, final boolean reference) {
+        this.variable = variable;
+        this.target = target;
+        this.reference = reference;
+    }
+
+    @Override
+    public String toString() {
+        return "v" + target + " = phi(v" + variable + ")" + operands;
+    }
+}
@@ -0,0 +1,139 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.ir;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Converter of the control flow graph to the static single assignment form
+ * <p>
+ * Every store gets the new slot, the phi functions are placed at the iterated dominance frontiers of stores
+ * of the variables that are live across blocks. The value of variable before any store is its original slot,
+ * so the arguments keep their slots.
+ *
+ * @author Victor Khovanskiy
+ * @see <a href="https://dl.acm.org/citation.cfm?id=115320">Efficiently computing static single assignment form and the control dependence graph</a>
+ * @since 1.1.0
+ */
+public class SSABuilder {
+    /**
+     * Converts the graph in place
+     *
+     * @param graph the control flow graph
+     * @return the dominator tree of graph
+     * @since 1.1.0
+     */
+    public DominatorTree convert(final ControlFlowGraph graph) {
+        final DominatorTree tree = new DominatorTree(graph);
+        final Map<Integer, Boolean> references = new HashMap<>();
+        final Map<Integer, Set<BasicBlock>> definitions = new HashMap<>();
+        final Set<Integer> globals = new HashSet<>();
+        for (final BasicBlock block : graph.getBlocks()) {
+            final Set<Integer> killed = new HashSet<>();
+            for (final VM command : block.getCommands()) {
+                final int loaded = getLoaded(command);
+                if (loaded >= 0) {
+                    references.put(loaded, command instanceof VM.ALoad);
+                    if (!killed.contains(loaded)) {
+                        globals.add(loaded);
+                    }
+                }
+                final int stored = getStored(command);
+                if (stored >= 0) {
+                    references.put(stored, command instanceof VM.AStore);
+                    killed.add(stored);
+                    definitions.computeIfAbsent(stored, k -> new LinkedHashSet<>()).add(block);
+                }
+            }
+        }
+
+        for (final int variable : globals) {
+            final Set<BasicBlock> blocks = definitions.getOrDefault(variable, new LinkedHashSet<>());
+            final Set<BasicBlock> placed = new HashSet<>();
+            final Deque<BasicBlock> worklist = new ArrayDeque<>(blocks);
+            while (!worklist.isEmpty()) {
+                for (final BasicBlock frontier : tree.getFrontier(worklist.poll())) {
+                    if (placed.add(frontier)) {
+                        frontier.getPhis().add(new Phi(variable, graph.addSlot(variable), references.get(variable)));
+                        if (!blocks.contains(frontier)) {
+                            worklist.add(frontier);
+                        }
+                    }
+                }
+            }
+        }
+
+        rename(graph.getEntry(), graph, tree, new HashMap<>());
+        return tree;
+    }
+
+    private void rename(final BasicBlock block, final ControlFlowGraph graph, final DominatorTree tree, final Map<Integer, Deque<Integer>> versions) {
+        final List<Integer> pushed = new ArrayList<>();
+        for (final Phi phi : block.getPhis()) {
+            versions.computeIfAbsent(phi.getVariable(), k -> new ArrayDeque<>()).push(phi.getTarget());
+            pushed.add(phi.getVariable());
+        }
+        final List<VM> commands = block.getCommands();
+        for (int i = 0; i < commands.size(); ++i) {
+            final VM command = commands.get(i);
+            final int loaded = getLoaded(command);
+            if (loaded >= 0) {
+                final int version = getVersion(loaded, versions);
+                commands.set(i, command instanceof VM.ALoad ? new VM.ALoad(version) : new VM.ILoad(version));
+            }
+            final int stored = getStored(command);
+            if (stored >= 0) {
+                final int version = graph.addSlot(stored);
+                versions.computeIfAbsent(stored, k -> new ArrayDeque<>()).push(version);
+                pushed.add(stored);
+                commands.set(i, command instanceof VM.AStore ? new VM.AStore(version) : new VM.IStore(version));
+            }
+        }
+        for (final BasicBlock successor : block.getSuccessors()) {
+            for (final Phi phi : successor.getPhis()) {
+                final int variable = phi.getVariable();
+                final int version = getVersion(variable, versions);
+                phi.getOperands().put(block, version == variable && variable >= graph.getArgumentsCount() ? Phi.UNDEFINED : version);
+            }
+        }
+        for (final BasicBlock child : tree.getChildren(block)) {
+            rename(child, graph, tree, versions);
+        }
+        for (final int variable : pushed) {
+            versions.get(variable).pop();
+        }
+    }
+
+    private static int getVersion(final int variable, final Map<Integer, Deque<Integer>> versions) {
+        final Deque<Integer> stack = versions.get(variable);
+        return stack == null || stack.isEmpty() ? variable : stack.peek();
+    }
+
+    static int getLoaded(final VM command) {
+        if (command instanceof VM.ILoad) {
+            return ((VM.ILoad) command).getName();
+        }
+        if (command instanceof VM.ALoad) {
+            return ((VM.ALoad) command).getName();
+        }
+        return -1;
+    }
+
+    static int getStored(final VM command) {
+        if (command instanceof VM.IStore) {
+            return ((VM.IStore) command).getName();
+        }
+        if (command instanceof VM.AStore) {
+            return ((VM.AStore) command).getName();
+        }
+        return -1;
+    }
+}
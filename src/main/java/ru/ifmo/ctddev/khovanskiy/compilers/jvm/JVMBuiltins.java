@@ -0,0 +1,167 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.jvm;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ArrayValue;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.IntArrayValue;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.NullPointer;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ReferenceArrayValue;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Static helpers called by the generated code
+ * <p>
+ * The helpers work on the same values as the interpreters, so the programs share the external functions with them.
+ * Built-in external functions are replaced by the helpers of the same semantic, that do not box integers.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public final class JVMBuiltins {
+    private JVMBuiltins() {
+    }
+
+    public static Object newNull() {
+        return new NullPointer();
+    }
+
+    public static Object newIntArray(final int length) {
+        return new IntArrayValue(length);
+    }
+
+    public static Object newReferenceArray(final int length) {
+        return new ReferenceArrayValue(length);
+    }
+
+    public static int iaload(final Object array, final int index) {
+        if (array instanceof IntArrayValue) {
+            return ((IntArrayValue) array).getInt(index);
+        }
+        return (Integer) ((ArrayValue) array).get(index);
+    }
+
+    public static Object aaload(final Object array, final int index) {
+        return ((ArrayValue) array).get(index);
+    }
+
+    public static void iastore(final Object array, final int index, final int value) {
+        if (array instanceof IntArrayValue) {
+            ((IntArrayValue) array).setInt(index, value);
+        } else {
+            ((ArrayValue) array).set(index, value);
+        }
+    }
+
+    public static void aastore(final Object array, final int index, final Object value) {
+        ((ArrayValue) array).set(index, value);
+    }
+
+    public static int equal(final Object left, final Object right) {
+        return Objects.equals(left, right) ? 1 : 0;
+    }
+
+    public static int cmpeq(final int left, final int right) {
+        return left == right ? 1 : 0;
+    }
+
+    public static int cmpne(final int left, final int right) {
+        return left != right ? 1 : 0;
+    }
+
+    public static int cmpgt(final int left, final int right) {
+        return left > right ? 1 : 0;
+    }
+
+    public static int cmpge(final int left, final int right) {
+        return left >= right ? 1 : 0;
+    }
+
+    public static int cmplt(final int left, final int right) {
+        return left < right ? 1 : 0;
+    }
+
+    public static int cmple(final int left, final int right) {
+        return left <= right ? 1 : 0;
+    }
+
+    public static int land(final int left, final int right) {
+        return left != 0 && right != 0 ? 1 : 0;
+    }
+
+    public static int lor(final int left, final int right) {
+        return left != 0 || right != 0 ? 1 : 0;
+    }
+
+    public static int arrlen(final Object array) {
+        return ((ArrayValue) array).length();
+    }
+
+    public static Object arrmake(final int length, final int value) {
+        final int[] data = new int[length];
+        Arrays.fill(data, value);
+        return new IntArrayValue(data);
+    }
+
+    public static Object dynamicArrmake(final int length, final Object value) {
+        final Object[] data = new Object[length];
+        Arrays.fill(data, value);
+        return new ReferenceArrayValue(data);
+    }
+
+    public static int strlen(final Object string) {
+        return ((ArrayValue) string).length();
+    }
+
+    public static int strget(final Object string, final int index) {
+        return ((IntArrayValue) string).getInt(index);
+    }
+
+    /**
+     * Sets the character of string, like {@link ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.StrsetExternalFunction}
+     * it returns nothing
+     *
+     * @param string    the string
+     * @param index     the character index
+     * @param character the character
+     * @since 1.1.0
+     */
+    public static void strset(final Object string, final int index, final int character) {
+        ((IntArrayValue) string).setInt(index, character);
+    }
+
+    public static Object strsub(final Object string, final int lower, final int length) {
+        return ((ArrayValue) string).copyOfRange(lower, lower + length);
+    }
+
+    public static Object strdup(final Object string) {
+        final ArrayValue array = (ArrayValue) string;
+        return array.copyOfRange(0, array.length());
+    }
+
+    public static Object strcat(final Object left, final Object right) {
+        final int[] lhs = ((IntArrayValue) left).getData();
+        final int[] rhs = ((IntArrayValue) right).getData();
+        final int[] result = new int[lhs.length + rhs.length];
+        System.arraycopy(lhs, 0, result, 0, lhs.length);
+        System.arraycopy(rhs, 0, result, lhs.length, rhs.length);
+        return new IntArrayValue(result);
+    }
+
+    public static int strcmp(final Object left, final Object right) {
+        final int[] lhs = ((IntArrayValue) left).getData();
+        final int[] rhs = ((IntArrayValue) right).getData();
+        final int limit = Math.min(lhs.length, rhs.length);
+        for (int i = 0; i < limit; ++i) {
+            if (lhs[i] != rhs[i]) {
+                return Integer.compare(lhs[i], rhs[i]);
+            }
+        }
+        return Integer.compare(lhs.length, rhs.length);
+    }
+
+    public static Object strmake(final int length, final int character) {
+        final int[] data = new int[length];
+        Arrays.fill(data, character);
+        return new IntArrayValue(data);
+    }
+}
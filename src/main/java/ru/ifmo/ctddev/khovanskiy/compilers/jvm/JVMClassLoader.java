@@ -0,0 +1,27 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.jvm;
+
+/**
+ * Class loader of the generated programs
+ * <p>
+ * Every program is defined by its own loader, so the class is unloaded together with the loader.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class JVMClassLoader extends ClassLoader {
+    public JVMClassLoader() {
+        super(JVMClassLoader.class.getClassLoader());
+    }
+
+    /**
+     * Defines the class of the program
+     *
+     * @param program the program
+     * @return the defined class
+     * @since 1.1.0
+     */
+    public Class<?> define(final JVMProgram program) {
+        final byte[] bytecode = program.getBytecode();
+        return defineClass(program.getClassName().replace('/', '.'), bytecode, 0, bytecode.length);
+    }
+}
@@ -0,0 +1,593 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.jvm;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import ru.ifmo.ctddev.khovanskiy.compilers.Compiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ArrlenExternalFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ArrmakeExternalFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.DynamicArrmakeExternalFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ExternalFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Pointer;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.StrcatExternalFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.StrcmpExternalFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.StrdupExternalFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.StrgetExternalFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.StrlenExternalFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.StrmakeExternalFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.StrsetExternalFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.StrsubExternalFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Symbol;
+import ru.ifmo.ctddev.khovanskiy.compilers.jvm.JVMCompilerContext.Kind;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.CharacterType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.ConcreteType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.IntegerType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.NumberType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.VoidType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.visitor.AbstractVMVisitor;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiler of the virtual machine code to the JVM class
+ * <p>
+ * Every function is compiled to the static method, integers and characters are passed as {@code int},
+ * other values are passed as {@link Object}. The values are boxed and unboxed only where the kind of value
+ * expected by the command differs from the kind of value on the stack.
+ * <p>
+ * The virtual machine does not pop the results of calls used as statements, so the leaked values are dropped
+ * before every label and jump to keep the operand stack empty at the merge points.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class JVMCompiler extends AbstractVMVisitor<JVMCompilerContext> implements Compiler<VMProgram, JVMProgram> {
+    public static final String DEFAULT_CLASS_NAME = "Program";
+
+    private static final String BUILTINS = Type.getInternalName(JVMBuiltins.class);
+    private static final String OBJECT = Type.getInternalName(Object.class);
+    private static final String INTEGER = Type.getInternalName(Integer.class);
+    private static final String EXTERNAL_FUNCTION = Type.getInternalName(ExternalFunction.class);
+
+    private static final Map<Class<? extends ExternalFunction>, String> BUILTIN_EXTERNALS = new HashMap<>();
+
+    static {
+        BUILTIN_EXTERNALS.put(ArrlenExternalFunction.class, "arrlen");
+        BUILTIN_EXTERNALS.put(ArrmakeExternalFunction.class, "arrmake");
+        BUILTIN_EXTERNALS.put(DynamicArrmakeExternalFunction.class, "dynamicArrmake");
+        BUILTIN_EXTERNALS.put(StrlenExternalFunction.class, "strlen");
+        BUILTIN_EXTERNALS.put(StrgetExternalFunction.class, "strget");
+        BUILTIN_EXTERNALS.put(StrsetExternalFunction.class, "strset");
+        BUILTIN_EXTERNALS.put(StrsubExternalFunction.class, "strsub");
+        BUILTIN_EXTERNALS.put(StrdupExternalFunction.class, "strdup");
+        BUILTIN_EXTERNALS.put(StrcatExternalFunction.class, "strcat");
+        BUILTIN_EXTERNALS.put(StrcmpExternalFunction.class, "strcmp");
+        BUILTIN_EXTERNALS.put(StrmakeExternalFunction.class, "strmake");
+    }
+
+    private final Map<Pointer, Symbol> symbols;
+    private final String className;
+
+    public JVMCompiler(final Map<Pointer, Symbol> symbols) {
+        this(symbols, DEFAULT_CLASS_NAME);
+    }
+
+    public JVMCompiler(final Map<Pointer, Symbol> symbols, final String className) {
+        this.symbols = symbols;
+        this.className = className;
+    }
+
+    @Override
+    public JVMProgram compile(final VMProgram vmProgram) {
+        final ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+            @Override
+            protected String getCommonSuperClass(final String type1, final String type2) {
+                // all references are declared as objects, so there is no need to load the classes
+                return OBJECT;
+            }
+        };
+        classWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, className, null, OBJECT, null);
+        classWriter.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, JVMProgram.EXTERNALS_FIELD, "[L" + EXTERNAL_FUNCTION + ";", null, null).visitEnd();
+        final JVMCompilerContext context = new JVMCompilerContext(className, classWriter, symbols);
+        visitProgram(vmProgram, context);
+        classWriter.visitEnd();
+        final List<ExternalFunction> externals = context.getExternals();
+        return new JVMProgram(className, classWriter.toByteArray(), externals.toArray(new ExternalFunction[0]));
+    }
+
+    @Override
+    public void visitProgram(final VMProgram vmProgram, final JVMCompilerContext context) {
+        for (final VMFunction function : vmProgram.getFunctions()) {
+            if (context.getFunctions().put(function.getName(), function) != null) {
+                throw new IllegalStateException(String.format("Function \"%s\" is duplicated", function.getName()));
+            }
+        }
+        if (!context.getFunctions().containsKey("main")) {
+            throw new IllegalStateException("Function \"main\" is not found");
+        }
+        super.visitProgram(vmProgram, context);
+    }
+
+    @Override
+    public void visitFunction(final VMFunction function, final JVMCompilerContext context) {
+        int maxSlot = function.getArgumentsCount() - 1;
+        for (final VM command : function.getCommands()) {
+            if (command instanceof VM.IStore) {
+                maxSlot = Math.max(maxSlot, ((VM.IStore) command).getName());
+            } else if (command instanceof VM.AStore) {
+                maxSlot = Math.max(maxSlot, ((VM.AStore) command).getName());
+            } else if (command instanceof VM.ILoad) {
+                maxSlot = Math.max(maxSlot, ((VM.ILoad) command).getName());
+            } else if (command instanceof VM.ALoad) {
+                maxSlot = Math.max(maxSlot, ((VM.ALoad) command).getName());
+            }
+        }
+        final Kind[] localKinds = new Kind[maxSlot + 1];
+        for (int i = 0; i < localKinds.length; ++i) {
+            localKinds[i] = i < function.getTypes().size() ? getKind(function.getTypes().get(i)) : Kind.REF;
+        }
+
+        final MethodVisitor method = context.getClassWriter().visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, function.getName(), getDescriptor(function), null, null);
+        method.visitCode();
+        context.beginFunction(function, method, localKinds);
+        for (int i = function.getArgumentsCount(); i < localKinds.length; ++i) {
+            // the verifier requires the local variables to be assigned before any read
+            pushDefault(localKinds[i], context);
+            context.pop();
+            store(i, localKinds[i], method);
+        }
+        for (final VM command : function.getCommands()) {
+            // the code after jumps and returns is unreachable until the next label
+            if (context.isReachable() || command instanceof VM.Label) {
+                visitCommand(command, context);
+            }
+        }
+        if (context.isReachable()) {
+            // falling off the end of function is the same as return without value
+            emitDefaultReturn(context);
+        }
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+    }
+
+    @Override
+    public void visitDup(final VM.Dup command, final JVMCompilerContext context) {
+        context.getMethod().visitInsn(Opcodes.DUP);
+        context.push(context.peek(0));
+    }
+
+    @Override
+    public void visitIStore(final VM.IStore command, final JVMCompilerContext context) {
+        storeLocal(command.getName(), context);
+    }
+
+    @Override
+    public void visitAStore(final VM.AStore command, final JVMCompilerContext context) {
+        storeLocal(command.getName(), context);
+    }
+
+    @Override
+    public void visitIAStore(final VM.IAStore command, final JVMCompilerContext context) {
+        storeElement(context);
+    }
+
+    @Override
+    public void visitAAStore(final VM.AAStore command, final JVMCompilerContext context) {
+        storeElement(context);
+    }
+
+    @Override
+    public void visitILoad(final VM.ILoad command, final JVMCompilerContext context) {
+        loadLocal(command.getName(), context);
+    }
+
+    @Override
+    public void visitALoad(final VM.ALoad command, final JVMCompilerContext context) {
+        loadLocal(command.getName(), context);
+    }
+
+    @Override
+    public void visitIALoad(final VM.IALoad command, final JVMCompilerContext context) {
+        coerce(0, Kind.INT, context);
+        coerce(1, Kind.REF, context);
+        invokeBuiltin("iaload", Kind.INT, 2, context);
+    }
+
+    @Override
+    public void visitAALoad(final VM.AALoad command, final JVMCompilerContext context) {
+        coerce(0, Kind.INT, context);
+        coerce(1, Kind.REF, context);
+        invokeBuiltin("aaload", Kind.REF, 2, context);
+    }
+
+    @Override
+    public void visitLabel(final VM.Label command, final JVMCompilerContext context) {
+        if (context.isReachable()) {
+            dropStack(context);
+        }
+        context.getMethod().visitLabel(context.getLabel(command.getName()));
+        context.setReachable(true);
+        context.getStack().clear();
+    }
+
+    @Override
+    public void visitBinOp(final VM.BinOp command, final JVMCompilerContext context) {
+        final String operator = command.getOperator();
+        if ((operator.equals("==") || operator.equals("!=")) && (context.peek(0) == Kind.REF || context.peek(1) == Kind.REF)) {
+            coerce(0, Kind.REF, context);
+            coerce(1, Kind.REF, context);
+            invokeBuiltin("equal", Kind.INT, 2, context);
+            if (operator.equals("!=")) {
+                context.getMethod().visitInsn(Opcodes.ICONST_1);
+                context.getMethod().visitInsn(Opcodes.IXOR);
+            }
+            return;
+        }
+        coerce(0, Kind.INT, context);
+        coerce(1, Kind.INT, context);
+        final MethodVisitor method = context.getMethod();
+        switch (operator) {
+            case "+":
+                method.visitInsn(Opcodes.IADD);
+                break;
+            case "-":
+                method.visitInsn(Opcodes.ISUB);
+                break;
+            case "*":
+                method.visitInsn(Opcodes.IMUL);
+                break;
+            case "/":
+                method.visitInsn(Opcodes.IDIV);
+                break;
+            case "%":
+                method.visitInsn(Opcodes.IREM);
+                break;
+            case "&":
+                method.visitInsn(Opcodes.IAND);
+                break;
+            case "^":
+                method.visitInsn(Opcodes.IXOR);
+                break;
+            case "|":
+                method.visitInsn(Opcodes.IOR);
+                break;
+            case "&&":
+                invokeBuiltin("land", Kind.INT, 2, context);
+                return;
+            case "!!":
+            case "||":
+                invokeBuiltin("lor", Kind.INT, 2, context);
+                return;
+            case ">":
+                invokeBuiltin("cmpgt", Kind.INT, 2, context);
+                return;
+            case ">=":
+                invokeBuiltin("cmpge", Kind.INT, 2, context);
+                return;
+            case "<":
+                invokeBuiltin("cmplt", Kind.INT, 2, context);
+                return;
+            case "<=":
+                invokeBuiltin("cmple", Kind.INT, 2, context);
+                return;
+            case "==":
+                invokeBuiltin("cmpeq", Kind.INT, 2, context);
+                return;
+            case "!=":
+                invokeBuiltin("cmpne", Kind.INT, 2, context);
+                return;
+            default:
+                throw new IllegalStateException(String.format("Unknown binary operator \"%s\"", operator));
+        }
+        context.pop();
+        context.pop();
+        context.push(Kind.INT);
+    }
+
+    @Override
+    public void visitAConstNull(final VM.AConstNull command, final JVMCompilerContext context) {
+        invokeBuiltin("newNull", Kind.REF, 0, context);
+    }
+
+    @Override
+    public void visitIConst(final VM.IConst command, final JVMCompilerContext context) {
+        pushInt(command.getValue(), context.getMethod());
+        context.push(Kind.INT);
+    }
+
+    @Override
+    public void visitInvokeStatic(final VM.InvokeStatic command, final JVMCompilerContext context) {
+        final String name = command.getName();
+        final int argumentsCount = command.getArgumentsCount();
+        final ExternalFunction external = context.getExternal(name);
+        if (external != null) {
+            final String helper = BUILTIN_EXTERNALS.get(external.getClass());
+            if (helper != null) {
+                invokeBuiltinExternal(helper, argumentsCount, context);
+            } else {
+                invokeExternal(command, context);
+            }
+            return;
+        }
+        final VMFunction callee = context.getFunctions().get(name);
+        if (callee == null) {
+            throw new IllegalStateException(String.format("Function \"%s\" is not defined", name));
+        }
+        if (callee.getArgumentsCount() != argumentsCount) {
+            throw new IllegalStateException(String.format("Function \"%s\" expects %d arguments, but %d are passed", name, callee.getArgumentsCount(), argumentsCount));
+        }
+        for (int i = 0; i < argumentsCount; ++i) {
+            coerce(argumentsCount - 1 - i, getKind(callee.getTypes().get(i)), context);
+        }
+        context.getMethod().visitMethodInsn(Opcodes.INVOKESTATIC, context.getClassName(), name, getDescriptor(callee), false);
+        for (int i = 0; i < argumentsCount; ++i) {
+            context.pop();
+        }
+        if (!isVoid(callee.getReturnType())) {
+            context.push(getKind(callee.getReturnType()));
+        }
+    }
+
+    @Override
+    public void visitReturn(final VM.Return command, final JVMCompilerContext context) {
+        emitDefaultReturn(context);
+    }
+
+    @Override
+    public void visitIReturn(final VM.IReturn command, final JVMCompilerContext context) {
+        emitReturn(context);
+    }
+
+    @Override
+    public void visitAReturn(final VM.AReturn command, final JVMCompilerContext context) {
+        emitReturn(context);
+    }
+
+    @Override
+    public void visitGoto(final VM.Goto command, final JVMCompilerContext context) {
+        dropStack(context);
+        context.getMethod().visitJumpInsn(Opcodes.GOTO, context.getLabel(command.getLabel()));
+        context.setReachable(false);
+    }
+
+    @Override
+    public void visitIfTrue(final VM.IfTrue command, final JVMCompilerContext context) {
+        emitCondition(context);
+        context.getMethod().visitJumpInsn(Opcodes.IFNE, context.getLabel(command.getLabel()));
+    }
+
+    @Override
+    public void visitIfFalse(final VM.IfFalse command, final JVMCompilerContext context) {
+        emitCondition(context);
+        context.getMethod().visitJumpInsn(Opcodes.IFEQ, context.getLabel(command.getLabel()));
+    }
+
+    @Override
+    public void visitNewArray(final VM.NewArray command, final JVMCompilerContext context) {
+        coerce(0, Kind.INT, context);
+        final boolean primitive = command.getElementType().equals(IntegerType.INSTANCE) || command.getElementType().equals(CharacterType.INSTANCE);
+        invokeBuiltin(primitive ? "newIntArray" : "newReferenceArray", Kind.REF, 1, context);
+    }
+
+    @Override
+    public void visitUnknown(final VM command, final JVMCompilerContext context) {
+        throw new UnsupportedOperationException(command.toString());
+    }
+
+    private void loadLocal(final int slot, final JVMCompilerContext context) {
+        final Kind kind = context.getLocalKinds()[slot];
+        context.getMethod().visitVarInsn(kind == Kind.INT ? Opcodes.ILOAD : Opcodes.ALOAD, slot);
+        context.push(kind);
+    }
+
+    private void storeLocal(final int slot, final JVMCompilerContext context) {
+        final Kind kind = context.getLocalKinds()[slot];
+        coerce(0, kind, context);
+        store(slot, kind, context.getMethod());
+        context.pop();
+    }
+
+    private void storeElement(final JVMCompilerContext context) {
+        coerce(1, Kind.INT, context);
+        coerce(2, Kind.REF, context);
+        if (context.peek(0) == Kind.INT) {
+            invokeBuiltin("iastore", null, 3, context);
+        } else {
+            invokeBuiltin("aastore", null, 3, context);
+        }
+    }
+
+    /**
+     * Drops the leaked values and leaves the condition of jump on the top of stack
+     */
+    private void emitCondition(final JVMCompilerContext context) {
+        coerce(0, Kind.INT, context);
+        final MethodVisitor method = context.getMethod();
+        if (context.getStack().size() > 1) {
+            final int temporary = context.getTemporary(0);
+            method.visitVarInsn(Opcodes.ISTORE, temporary);
+            context.pop();
+            dropStack(context);
+            method.visitVarInsn(Opcodes.ILOAD, temporary);
+            context.push(Kind.INT);
+        }
+        context.pop();
+    }
+
+    private void emitReturn(final JVMCompilerContext context) {
+        final ConcreteType returnType = context.getFunction().getReturnType();
+        final MethodVisitor method = context.getMethod();
+        if (isVoid(returnType)) {
+            method.visitInsn(Opcodes.RETURN);
+        } else {
+            final Kind kind = getKind(returnType);
+            coerce(0, kind, context);
+            method.visitInsn(kind == Kind.INT ? Opcodes.IRETURN : Opcodes.ARETURN);
+        }
+        context.getStack().clear();
+        context.setReachable(false);
+    }
+
+    private void emitDefaultReturn(final JVMCompilerContext context) {
+        final ConcreteType returnType = context.getFunction().getReturnType();
+        if (!isVoid(returnType)) {
+            pushDefault(getKind(returnType), context);
+        }
+        emitReturn(context);
+    }
+
+    private void invokeBuiltinExternal(final String helper, final int argumentsCount, final JVMCompilerContext context) {
+        final Method method = getBuiltin(helper);
+        final Class<?>[] parameterTypes = method.getParameterTypes();
+        if (parameterTypes.length != argumentsCount) {
+            throw new IllegalStateException(String.format("Function \"%s\" expects %d arguments, but %d are passed", helper, parameterTypes.length, argumentsCount));
+        }
+        for (int i = 0; i < argumentsCount; ++i) {
+            coerce(argumentsCount - 1 - i, parameterTypes[i] == int.class ? Kind.INT : Kind.REF, context);
+        }
+        final Class<?> returnType = method.getReturnType();
+        invokeBuiltin(helper, returnType == void.class ? null : returnType == int.class ? Kind.INT : Kind.REF, argumentsCount, context);
+    }
+
+    /**
+     * Calls the external function through the array of externals, the arguments are boxed
+     */
+    private void invokeExternal(final VM.InvokeStatic command, final JVMCompilerContext context) {
+        final int argumentsCount = command.getArgumentsCount();
+        final int index = context.getExternalIndex(command.getName());
+        final MethodVisitor method = context.getMethod();
+        for (int i = argumentsCount - 1; i >= 0; --i) {
+            coerce(0, Kind.REF, context);
+            method.visitVarInsn(Opcodes.ASTORE, context.getTemporary(i));
+            context.pop();
+        }
+        method.visitFieldInsn(Opcodes.GETSTATIC, context.getClassName(), JVMProgram.EXTERNALS_FIELD, "[L" + EXTERNAL_FUNCTION + ";");
+        pushInt(index, method);
+        method.visitInsn(Opcodes.AALOAD);
+        pushInt(argumentsCount, method);
+        method.visitTypeInsn(Opcodes.ANEWARRAY, OBJECT);
+        for (int i = 0; i < argumentsCount; ++i) {
+            method.visitInsn(Opcodes.DUP);
+            pushInt(i, method);
+            method.visitVarInsn(Opcodes.ALOAD, context.getTemporary(i));
+            method.visitInsn(Opcodes.AASTORE);
+        }
+        method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, EXTERNAL_FUNCTION, "evaluate", "([Ljava/lang/Object;)Ljava/lang/Object;", false);
+        if (isVoid(command.getReturnType())) {
+            method.visitInsn(Opcodes.POP);
+        } else {
+            context.push(Kind.REF);
+        }
+    }
+
+    /**
+     * Calls the static helper of {@link JVMBuiltins} which operands are already coerced
+     */
+    private void invokeBuiltin(final String helper, final Kind result, final int argumentsCount, final JVMCompilerContext context) {
+        final String descriptor = Type.getMethodDescriptor(getBuiltin(helper));
+        context.getMethod().visitMethodInsn(Opcodes.INVOKESTATIC, BUILTINS, helper, descriptor, false);
+        for (int i = 0; i < argumentsCount; ++i) {
+            context.pop();
+        }
+        if (result != null) {
+            context.push(result);
+        }
+    }
+
+    /**
+     * Converts the value at the depth of stack to the kind, the values above it are spilled to the temporaries
+     */
+    private void coerce(final int depth, final Kind kind, final JVMCompilerContext context) {
+        if (context.peek(depth) == kind) {
+            return;
+        }
+        final MethodVisitor method = context.getMethod();
+        for (int i = 0; i < depth; ++i) {
+            store(context.getTemporary(i), context.peek(i), method);
+        }
+        if (kind == Kind.REF) {
+            method.visitMethodInsn(Opcodes.INVOKESTATIC, INTEGER, "valueOf", "(I)Ljava/lang/Integer;", false);
+        } else {
+            method.visitTypeInsn(Opcodes.CHECKCAST, INTEGER);
+            method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, INTEGER, "intValue", "()I", false);
+        }
+        for (int i = depth - 1; i >= 0; --i) {
+            load(context.getTemporary(i), context.peek(i), method);
+        }
+        context.replace(depth, kind);
+    }
+
+    private void dropStack(final JVMCompilerContext context) {
+        while (!context.getStack().isEmpty()) {
+            context.getMethod().visitInsn(Opcodes.POP);
+            context.pop();
+        }
+    }
+
+    private void pushDefault(final Kind kind, final JVMCompilerContext context) {
+        if (kind == Kind.INT) {
+            context.getMethod().visitInsn(Opcodes.ICONST_0);
+            context.push(Kind.INT);
+        } else {
+            invokeBuiltin("newNull", Kind.REF, 0, context);
+        }
+    }
+
+    private static void pushInt(final int value, final MethodVisitor method) {
+        if (value >= -1 && value <= 5) {
+            method.visitInsn(Opcodes.ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            method.visitIntInsn(Opcodes.BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            method.visitIntInsn(Opcodes.SIPUSH, value);
+        } else {
+            method.visitLdcInsn(value);
+        }
+    }
+
+    private static void store(final int local, final Kind kind, final MethodVisitor method) {
+        method.visitVarInsn(kind == Kind.INT ? Opcodes.ISTORE : Opcodes.ASTORE, local);
+    }
+
+    private static void load(final int local, final Kind kind, final MethodVisitor method) {
+        method.visitVarInsn(kind == Kind.INT ? Opcodes.ILOAD : Opcodes.ALOAD, local);
+    }
+
+    private static Method getBuiltin(final String name) {
+        for (final Method method : JVMBuiltins.class.getMethods()) {
+            if (method.getName().equals(name)) {
+                return method;
+            }
+        }
+        throw new IllegalStateException(String.format("Builtin \"%s\" is not found", name));
+    }
+
+    private static String getDescriptor(final VMFunction function) {
+        final StringBuilder descriptor = new StringBuilder("(");
+        for (int i = 0; i < function.getArgumentsCount(); ++i) {
+            descriptor.append(getKind(function.getTypes().get(i)) == Kind.INT ? "I" : "Ljava/lang/Object;");
+        }
+        descriptor.append(')');
+        if (isVoid(function.getReturnType())) {
+            descriptor.append('V');
+        } else {
+            descriptor.append(getKind(function.getReturnType()) == Kind.INT ? "I" : "Ljava/lang/Object;");
+        }
+        return descriptor.toString();
+    }
+
+    private static Kind getKind(final ConcreteType type) {
+        return type instanceof NumberType || type instanceof CharacterType ? Kind.INT : Kind.REF;
+    }
+
+    private static boolean isVoid(final ConcreteType type) {
+        return VoidType.INSTANCE.equals(type);
+    }
+}
@@ -0,0 +1,149 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.jvm;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ExternalFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.FunctionPointer;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Pointer;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Symbol;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The JVM compiler context
+ * <p>
+ * The compiler simulates the operand stack to know which values are unboxed integers and which are references.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Getter
+public class JVMCompilerContext {
+    /**
+     * The kind of value on the operand stack or in the local variable
+     *
+     * @since 1.1.0
+     */
+    public enum Kind {
+        INT,
+        REF
+    }
+
+    private final String className;
+
+    private final ClassWriter classWriter;
+
+    private final Map<Pointer, Symbol> symbols;
+
+    private final Map<String, VMFunction> functions = new HashMap<>();
+
+    private final Map<String, Integer> externalIndexes = new HashMap<>();
+
+    private final List<ExternalFunction> externals = new ArrayList<>();
+
+    private final Map<String, Label> labels = new HashMap<>();
+
+    private final List<Kind> stack = new ArrayList<>();
+
+    private MethodVisitor method;
+
+    private VMFunction function;
+
+    private Kind[] localKinds;
+
+    private int temporariesStart;
+
+    @Setter
+    private boolean reachable;
+
+    public JVMCompilerContext(final String className, final ClassWriter classWriter, final Map<Pointer, Symbol> symbols) {
+        this.className = className;
+        this.classWriter = classWriter;
+        this.symbols = symbols;
+    }
+
+    /**
+     * Starts the code of the new method
+     *
+     * @param function   the function
+     * @param method     the method visitor
+     * @param localKinds the kinds of local variables
+     * @since 1.1.0
+     */
+    public void beginFunction(final VMFunction function, final MethodVisitor method, final Kind[] localKinds) {
+        this.function = function;
+        this.method = method;
+        this.localKinds = localKinds;
+        this.temporariesStart = localKinds.length;
+        this.reachable = true;
+        labels.clear();
+        stack.clear();
+    }
+
+    public Label getLabel(final String name) {
+        return labels.computeIfAbsent(name, k -> new Label());
+    }
+
+    public void push(final Kind kind) {
+        stack.add(kind);
+    }
+
+    public Kind pop() {
+        if (stack.isEmpty()) {
+            throw new IllegalStateException(String.format("Function \"%s\": operand stack underflow", function.getName()));
+        }
+        return stack.remove(stack.size() - 1);
+    }
+
+    public Kind peek(final int depth) {
+        return stack.get(stack.size() - 1 - depth);
+    }
+
+    public void replace(final int depth, final Kind kind) {
+        stack.set(stack.size() - 1 - depth, kind);
+    }
+
+    /**
+     * Gets the local variable for the temporary value
+     *
+     * @param index the index of temporary, temporaries are reused by the commands
+     * @return the local variable
+     * @since 1.1.0
+     */
+    public int getTemporary(final int index) {
+        return temporariesStart + index;
+    }
+
+    /**
+     * Gets the index of external function without the static helper, registers it at first usage
+     *
+     * @param name the function name
+     * @return the index or -1 if there is no such external function
+     * @since 1.1.0
+     */
+    public int getExternalIndex(final String name) {
+        final ExternalFunction external = getExternal(name);
+        if (external == null) {
+            return -1;
+        }
+        return externalIndexes.computeIfAbsent(name, k -> {
+            externals.add(external);
+            return externals.size() - 1;
+        });
+    }
+
+    public ExternalFunction getExternal(final String name) {
+        final Symbol symbol = symbols.get(new FunctionPointer(name));
+        if (symbol == null || !(symbol.getValue() instanceof ExternalFunction)) {
+            return null;
+        }
+        return (ExternalFunction) symbol.getValue();
+    }
+}
@@ -0,0 +1,40 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.jvm;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Pointer;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Symbol;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+
+/**
+ * Evaluator of the virtual machine code compiled to the JVM bytecode
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class JVMEvaluator {
+    public void evaluate(final VMProgram vmProgram, final Map<Pointer, Symbol> symbols) {
+        final JVMProgram program = new JVMCompiler(symbols).compile(vmProgram);
+        evaluate(program);
+    }
+
+    public void evaluate(final JVMProgram program) {
+        final Class<?> programClass = new JVMClassLoader().define(program);
+        try {
+            programClass.getField(JVMProgram.EXTERNALS_FIELD).set(null, program.getExternals());
+            programClass.getMethod("main").invoke(null);
+        } catch (InvocationTargetException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (NoSuchFieldException | NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(String.format("Class \"%s\" is not the compiled program", program.getClassName()), e);
+        }
+    }
+}
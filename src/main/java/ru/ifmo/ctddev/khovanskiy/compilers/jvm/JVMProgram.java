@@ -0,0 +1,28 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.jvm;
+
+import lombok.Getter;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ExternalFunction;
+
+/**
+ * The class file generated from the virtual machine program
+ * <p>
+ * Every function of the program is the static method of the class, external functions without
+ * the static helper in {@link JVMBuiltins} are called through the {@link #EXTERNALS_FIELD} array.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Getter
+public class JVMProgram {
+    public static final String EXTERNALS_FIELD = "externals";
+
+    private final String className;
+    private final byte[] bytecode;
+    private final ExternalFunction[] externals;
+
+    public JVMProgram(final String className, final byte[] bytecode, final ExternalFunction[] externals) {
+        this.className = className;
+        this.bytecode = bytecode;
+        this.externals = externals;
+    }
+}
@@ -0,0 +1,127 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.profiler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Profiler of the compilation phases
+ * <p>
+ * Every phase records the wall time, the bytes allocated by the current thread and the count of produced
+ * nodes or instructions. The disabled profiler measures nothing, so the compilers may always call it.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class PhaseProfiler {
+    private static final PhaseProfiler DISABLED = new PhaseProfiler(false);
+
+    private final boolean enabled;
+
+    private final List<PhaseRecord> records = Collections.synchronizedList(new ArrayList<>());
+
+    private final com.sun.management.ThreadMXBean threadBean;
+
+    public PhaseProfiler() {
+        this(true);
+    }
+
+    private PhaseProfiler(final boolean enabled) {
+        this.enabled = enabled;
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (enabled && bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            this.threadBean = (com.sun.management.ThreadMXBean) bean;
+            this.threadBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            this.threadBean = null;
+        }
+    }
+
+    public static PhaseProfiler disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts the measurement of the whole phase
+     *
+     * @param phase the phase name
+     * @return the measurement to stop at the end of phase
+     * @since 1.1.0
+     */
+    public Measurement start(final String phase) {
+        return start(phase, null);
+    }
+
+    /**
+     * Starts the measurement of the function in the phase
+     *
+     * @param phase    the phase name
+     * @param function the function name
+     * @return the measurement to stop at the end of function
+     * @since 1.1.0
+     */
+    public Measurement start(final String phase, final String function) {
+        return new Measurement(phase, function);
+    }
+
+    /**
+     * Gets the records in the order the measurements were stopped
+     *
+     * @return the records
+     * @since 1.1.0
+     */
+    public List<PhaseRecord> getRecords() {
+        synchronized (records) {
+            return new ArrayList<>(records);
+        }
+    }
+
+    private long getAllocatedBytes() {
+        return threadBean != null ? threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    /**
+     * The started measurement
+     *
+     * @since 1.1.0
+     */
+    public class Measurement {
+        private final String phase;
+        private final String function;
+        private final long startNanos;
+        private final long startBytes;
+
+        private Measurement(final String phase, final String function) {
+            this.phase = phase;
+            this.function = function;
+            this.startNanos = enabled ? System.nanoTime() : 0;
+            this.startBytes = enabled ? getAllocatedBytes() : -1;
+        }
+
+        public void stop() {
+            stop(-1, null);
+        }
+
+        /**
+         * Stops the measurement
+         *
+         * @param count the count of produced nodes or instructions
+         * @param unit  the name of counted items
+         * @since 1.1.0
+         */
+        public void stop(final long count, final String unit) {
+            if (!enabled) {
+                return;
+            }
+            final long wallNanos = System.nanoTime() - startNanos;
+            final long allocatedBytes = startBytes >= 0 ? getAllocatedBytes() - startBytes : -1;
+            records.add(new PhaseRecord(phase, function, wallNanos, allocatedBytes, count, unit));
+        }
+    }
+}
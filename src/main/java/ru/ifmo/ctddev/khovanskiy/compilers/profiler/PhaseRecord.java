@@ -0,0 +1,37 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.profiler;
+
+import lombok.Getter;
+
+/**
+ * The measurement of one compilation phase or of one function in the phase
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Getter
+public class PhaseRecord {
+    private final String phase;
+    /**
+     * The function name or {@code null} for the whole phase
+     */
+    private final String function;
+    private final long wallNanos;
+    /**
+     * The bytes allocated by the thread or -1 if the JVM does not support the measurement
+     */
+    private final long allocatedBytes;
+    /**
+     * The count of produced nodes or instructions or -1 if the phase does not count them
+     */
+    private final long count;
+    private final String unit;
+
+    public PhaseRecord(final String phase, final String function, final long wallNanos, final long allocatedBytes, final long count, final String unit) {
+        this.phase = phase;
+        this.function = function;
+        this.wallNanos = wallNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.count = count;
+        this.unit = unit;
+    }
+}
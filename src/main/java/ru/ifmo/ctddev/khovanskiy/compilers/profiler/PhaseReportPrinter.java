@@ -0,0 +1,108 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.profiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Printer of the phase records as the human readable table or as JSON
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class PhaseReportPrinter {
+    public void printTable(final List<PhaseRecord> records, final Writer writer) throws IOException {
+        writer.write(String.format(Locale.ROOT, "%-24s %12s %14s %20s%n", "Phase", "Time, ms", "Allocated, KB", "Count"));
+        long totalNanos = 0;
+        long totalBytes = 0;
+        for (final Map.Entry<PhaseRecord, List<PhaseRecord>> entry : group(records).entrySet()) {
+            final PhaseRecord phase = entry.getKey();
+            totalNanos += phase.getWallNanos();
+            totalBytes += Math.max(phase.getAllocatedBytes(), 0);
+            printRow(phase.getPhase(), phase, writer);
+            for (final PhaseRecord function : entry.getValue()) {
+                printRow("  " + function.getFunction(), function, writer);
+            }
+        }
+        writer.write(String.format(Locale.ROOT, "%-24s %12.3f %14d%n", "Total", totalNanos / 1e6, totalBytes / 1024));
+        writer.flush();
+    }
+
+    public void printJson(final List<PhaseRecord> records, final Writer writer) throws IOException {
+        writer.write("{\"phases\":[");
+        boolean first = true;
+        for (final Map.Entry<PhaseRecord, List<PhaseRecord>> entry : group(records).entrySet()) {
+            if (!first) {
+                writer.write(",");
+            }
+            first = false;
+            writer.write("\n  ");
+            printJsonRecord(entry.getKey(), writer);
+            writer.write(",\"functions\":[");
+            for (int i = 0; i < entry.getValue().size(); ++i) {
+                writer.write(i > 0 ? ",\n    " : "\n    ");
+                printJsonRecord(entry.getValue().get(i), writer);
+                writer.write("}");
+            }
+            writer.write("]}");
+        }
+        writer.write("\n]}\n");
+        writer.flush();
+    }
+
+    /**
+     * Groups the records of functions by the record of their phase, the record of function precedes the record of phase
+     */
+    private static Map<PhaseRecord, List<PhaseRecord>> group(final List<PhaseRecord> records) {
+        final Map<PhaseRecord, List<PhaseRecord>> groups = new LinkedHashMap<>();
+        List<PhaseRecord> functions = new ArrayList<>();
+        for (final PhaseRecord record : records) {
+            if (record.getFunction() != null) {
+                functions.add(record);
+                continue;
+            }
+            final List<PhaseRecord> own = new ArrayList<>();
+            final List<PhaseRecord> others = new ArrayList<>();
+            for (final PhaseRecord function : functions) {
+                (function.getPhase().equals(record.getPhase()) ? own : others).add(function);
+            }
+            groups.put(record, own);
+            functions = others;
+        }
+        return groups;
+    }
+
+    private static void printRow(final String name, final PhaseRecord record, final Writer writer) throws IOException {
+        final String allocated = record.getAllocatedBytes() >= 0 ? String.valueOf(record.getAllocatedBytes() / 1024) : "-";
+        final String count = record.getCount() >= 0 ? record.getCount() + " " + record.getUnit() : "-";
+        writer.write(String.format(Locale.ROOT, "%-24s %12.3f %14s %20s%n", name, record.getWallNanos() / 1e6, allocated, count));
+    }
+
+    private static void printJsonRecord(final PhaseRecord record, final Writer writer) throws IOException {
+        writer.write("{\"name\":\"" + escape(record.getFunction() != null ? record.getFunction() : record.getPhase()) + "\"");
+        writer.write(",\"wallNanos\":" + record.getWallNanos());
+        writer.write(",\"allocatedBytes\":" + record.getAllocatedBytes());
+        writer.write(",\"count\":" + record.getCount());
+        if (record.getUnit() != null) {
+            writer.write(",\"unit\":\"" + escape(record.getUnit()) + "\"");
+        }
+    }
+
+    private static String escape(final String s) {
+        final StringBuilder builder = new StringBuilder();
+        for (final char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,60 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.VoidType;
+
+/**
+ * Effects of the commands on the operand stack
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public final class StackEffects {
+    private StackEffects() {
+    }
+
+    /**
+     * Gets the count of values popped by the command
+     *
+     * @param command the command
+     * @return the count of values
+     * @since 1.1.0
+     */
+    public static int getPops(final VM command) {
+        if (command instanceof VM.IStore || command instanceof VM.AStore || command instanceof VM.Dup
+                || command instanceof VM.IfTrue || command instanceof VM.IfFalse
+                || command instanceof VM.IReturn || command instanceof VM.AReturn || command instanceof VM.NewArray) {
+            return 1;
+        }
+        if (command instanceof VM.BinOp || command instanceof VM.IALoad || command instanceof VM.AALoad) {
+            return 2;
+        }
+        if (command instanceof VM.IAStore || command instanceof VM.AAStore) {
+            return 3;
+        }
+        if (command instanceof VM.InvokeStatic) {
+            return ((VM.InvokeStatic) command).getArgumentsCount();
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the count of values pushed by the command
+     *
+     * @param command the command
+     * @return the count of values
+     * @since 1.1.0
+     */
+    public static int getPushes(final VM command) {
+        if (command instanceof VM.Dup) {
+            return 2;
+        }
+        if (command instanceof VM.ILoad || command instanceof VM.ALoad || command instanceof VM.Const || command instanceof VM.BinOp
+                || command instanceof VM.IALoad || command instanceof VM.AALoad || command instanceof VM.NewArray) {
+            return 1;
+        }
+        if (command instanceof VM.InvokeStatic) {
+            return VoidType.INSTANCE.equals(((VM.InvokeStatic) command).getReturnType()) ? 0 : 1;
+        }
+        return 0;
+    }
+}
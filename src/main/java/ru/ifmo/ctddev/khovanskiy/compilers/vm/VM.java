@@ -4,6 +4,7 @@ import lombok.Getter;
 import lombok.ToString;
 import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.NullPointer;
 import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.ConcreteType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.Type;
 
 /**
  * Abstract virtual machine command
@@ -235,5 +236,10 @@ public abstract class VM {
     @Getter
     @ToString
     public static class NewArray extends VM {
+        private final Type elementType;
+
+        public NewArray(final Type elementType) {
+            this.elementType = elementType;
+        }
     }
 }
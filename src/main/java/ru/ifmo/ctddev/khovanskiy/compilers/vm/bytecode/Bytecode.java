@@ -0,0 +1,58 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.bytecode;
+
+/**
+ * Binary format of the virtual machine program
+ * <p>
+ * The file starts with the magic number and the version, followed by the constant pool of strings,
+ * the table of types and the functions. The names of functions, labels and operators are the indices
+ * in the constant pool, the types are the indices in the table of types increased by one, so zero is no type.
+ * All the numbers are unsigned varints, the integer constants are zigzag varints.
+ * <pre>
+ * file     = magic:u32 version:varint pool types functions
+ * pool     = count:varint (length:varint utf8)*
+ * types    = count:varint tag:u8*
+ * function = name:varint arguments:varint count:varint type:varint* returnType:varint size:varint command*
+ * command  = opcode:u8 operand*
+ * </pre>
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public final class Bytecode {
+    public static final int MAGIC = 0x564D4243;
+
+    public static final int VERSION = 1;
+
+    public static final int TYPE_INTEGER = 1;
+    public static final int TYPE_NUMBER = 2;
+    public static final int TYPE_CHARACTER = 3;
+    public static final int TYPE_VOID = 4;
+    public static final int TYPE_OBJECT = 5;
+    public static final int TYPE_ARRAY = 6;
+
+    public static final int COMMENT = 1;
+    public static final int DUP = 2;
+    public static final int I_STORE = 3;
+    public static final int A_STORE = 4;
+    public static final int I_A_STORE = 5;
+    public static final int A_A_STORE = 6;
+    public static final int I_LOAD = 7;
+    public static final int A_LOAD = 8;
+    public static final int I_A_LOAD = 9;
+    public static final int A_A_LOAD = 10;
+    public static final int A_CONST_NULL = 11;
+    public static final int I_CONST = 12;
+    public static final int BIN_OP = 13;
+    public static final int INVOKE_STATIC = 14;
+    public static final int RETURN = 15;
+    public static final int I_RETURN = 16;
+    public static final int A_RETURN = 17;
+    public static final int LABEL = 18;
+    public static final int GOTO = 19;
+    public static final int IF_TRUE = 20;
+    public static final int IF_FALSE = 21;
+    public static final int NEW_ARRAY = 22;
+
+    private Bytecode() {
+    }
+}
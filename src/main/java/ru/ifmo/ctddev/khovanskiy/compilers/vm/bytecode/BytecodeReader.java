@@ -0,0 +1,191 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.bytecode;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.ArrayType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.CharacterType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.ConcreteType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.IntegerType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.NumberType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.ObjectType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.VoidType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reader of the virtual machine program in the binary format
+ * <p>
+ * The file is mapped to memory and decoded without copying, the commands reuse the interned strings
+ * of the constant pool and the singleton types.
+ *
+ * @author Victor Khovanskiy
+ * @see Bytecode
+ * @since 1.1.0
+ */
+public class BytecodeReader {
+    /**
+     * Loads the program from the file
+     *
+     * @param path the file
+     * @return the program
+     * @throws IOException if the file can not be read
+     * @since 1.1.0
+     */
+    public VMProgram load(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Reads the program from the buffer
+     *
+     * @param buffer the buffer
+     * @return the program
+     * @throws IllegalStateException if the buffer is not a program of the supported version
+     * @since 1.1.0
+     */
+    public VMProgram read(final ByteBuffer buffer) {
+        if (buffer.remaining() < 4 || buffer.getInt() != Bytecode.MAGIC) {
+            throw new IllegalStateException("Bytecode has no magic number");
+        }
+        final int version = readVarint(buffer);
+        if (version != Bytecode.VERSION) {
+            throw new IllegalStateException(String.format("Bytecode version %d is not supported, expected %d", version, Bytecode.VERSION));
+        }
+        final String[] pool = new String[readVarint(buffer)];
+        for (int i = 0; i < pool.length; ++i) {
+            final byte[] bytes = new byte[readVarint(buffer)];
+            buffer.get(bytes);
+            pool[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        final ConcreteType[] types = new ConcreteType[readVarint(buffer) + 1];
+        for (int i = 1; i < types.length; ++i) {
+            types[i] = getType(buffer.get());
+        }
+        final int functionsCount = readVarint(buffer);
+        final List<VMFunction> functions = new ArrayList<>(functionsCount);
+        for (int i = 0; i < functionsCount; ++i) {
+            functions.add(readFunction(buffer, pool, types));
+        }
+        return new VMProgram(functions);
+    }
+
+    private VMFunction readFunction(final ByteBuffer buffer, final String[] pool, final ConcreteType[] types) {
+        final String name = pool[readVarint(buffer)];
+        final int argumentsCount = readVarint(buffer);
+        final int typesCount = readVarint(buffer);
+        final List<ConcreteType> variableTypes = new ArrayList<>(typesCount);
+        for (int i = 0; i < typesCount; ++i) {
+            variableTypes.add(types[readVarint(buffer)]);
+        }
+        final ConcreteType returnType = types[readVarint(buffer)];
+        final VMFunction function = new VMFunction(name, argumentsCount, variableTypes, returnType);
+        final int commandsCount = readVarint(buffer);
+        final List<VM> commands = function.getCommands();
+        for (int i = 0; i < commandsCount; ++i) {
+            commands.add(readCommand(buffer, pool, types));
+        }
+        return function;
+    }
+
+    private VM readCommand(final ByteBuffer buffer, final String[] pool, final ConcreteType[] types) {
+        final int opcode = buffer.get();
+        switch (opcode) {
+            case Bytecode.COMMENT:
+                return new VM.Comment(pool[readVarint(buffer)]);
+            case Bytecode.DUP:
+                return new VM.Dup();
+            case Bytecode.I_STORE:
+                return new VM.IStore(readVarint(buffer));
+            case Bytecode.A_STORE:
+                return new VM.AStore(readVarint(buffer));
+            case Bytecode.I_A_STORE:
+                return new VM.IAStore();
+            case Bytecode.A_A_STORE:
+                return new VM.AAStore();
+            case Bytecode.I_LOAD:
+                return new VM.ILoad(readVarint(buffer));
+            case Bytecode.A_LOAD:
+                return new VM.ALoad(readVarint(buffer));
+            case Bytecode.I_A_LOAD:
+                return new VM.IALoad();
+            case Bytecode.A_A_LOAD:
+                return new VM.AALoad();
+            case Bytecode.A_CONST_NULL:
+                return new VM.AConstNull();
+            case Bytecode.I_CONST: {
+                final int value = readVarint(buffer);
+                return new VM.IConst((value >>> 1) ^ -(value & 1));
+            }
+            case Bytecode.BIN_OP:
+                return new VM.BinOp(pool[readVarint(buffer)]);
+            case Bytecode.INVOKE_STATIC: {
+                final String name = pool[readVarint(buffer)];
+                final int argumentsCount = readVarint(buffer);
+                return new VM.InvokeStatic(name, argumentsCount, types[readVarint(buffer)]);
+            }
+            case Bytecode.RETURN:
+                return new VM.Return();
+            case Bytecode.I_RETURN:
+                return new VM.IReturn();
+            case Bytecode.A_RETURN:
+                return new VM.AReturn();
+            case Bytecode.LABEL:
+                return new VM.Label(pool[readVarint(buffer)]);
+            case Bytecode.GOTO:
+                return new VM.Goto(pool[readVarint(buffer)]);
+            case Bytecode.IF_TRUE:
+                return new VM.IfTrue(pool[readVarint(buffer)]);
+            case Bytecode.IF_FALSE:
+                return new VM.IfFalse(pool[readVarint(buffer)]);
+            case Bytecode.NEW_ARRAY:
+                return new VM.NewArray(types[readVarint(buffer)]);
+            default:
+                throw new IllegalStateException(String.format("Unknown opcode %d at offset %d", opcode, buffer.position() - 1));
+        }
+    }
+
+    private static ConcreteType getType(final int tag) {
+        switch (tag) {
+            case Bytecode.TYPE_INTEGER:
+                return IntegerType.INSTANCE;
+            case Bytecode.TYPE_NUMBER:
+                return NumberType.INSTANCE;
+            case Bytecode.TYPE_CHARACTER:
+                return CharacterType.INSTANCE;
+            case Bytecode.TYPE_VOID:
+                return VoidType.INSTANCE;
+            case Bytecode.TYPE_OBJECT:
+                return ObjectType.INSTANCE;
+            case Bytecode.TYPE_ARRAY:
+                return ArrayType.INSTANCE;
+            default:
+                throw new IllegalStateException(String.format("Unknown type tag %d", tag));
+        }
+    }
+
+    private static int readVarint(final ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            final int b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+            if (shift > 28) {
+                throw new IllegalStateException(String.format("Varint is too long at offset %d", buffer.position()));
+            }
+        }
+    }
+}
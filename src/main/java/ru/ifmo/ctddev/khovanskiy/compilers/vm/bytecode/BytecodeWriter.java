@@ -0,0 +1,182 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.bytecode;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.ConcreteType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.visitor.AbstractVMVisitor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writer of the virtual machine program in the binary format
+ *
+ * @author Victor Khovanskiy
+ * @see Bytecode
+ * @since 1.1.0
+ */
+public class BytecodeWriter extends AbstractVMVisitor<BytecodeWriterContext> {
+    /**
+     * Writes the program
+     *
+     * @param vmProgram    the program
+     * @param outputStream the output
+     * @throws IOException if the output fails
+     * @since 1.1.0
+     */
+    public void write(final VMProgram vmProgram, final OutputStream outputStream) throws IOException {
+        final BytecodeWriterContext context = new BytecodeWriterContext();
+        visitProgram(vmProgram, context);
+        context.writeTo(outputStream);
+    }
+
+    @Override
+    public void visitProgram(final VMProgram vmProgram, final BytecodeWriterContext context) {
+        context.writeVarint(vmProgram.getFunctions().size());
+        super.visitProgram(vmProgram, context);
+    }
+
+    @Override
+    public void visitFunction(final VMFunction function, final BytecodeWriterContext context) {
+        context.writeString(function.getName());
+        context.writeVarint(function.getArgumentsCount());
+        context.writeVarint(function.getTypes().size());
+        for (final ConcreteType type : function.getTypes()) {
+            context.writeType(type);
+        }
+        context.writeType(function.getReturnType());
+        context.writeVarint(function.getCommands().size());
+        super.visitFunction(function, context);
+    }
+
+    @Override
+    public void visitComment(final VM.Comment comment, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.COMMENT);
+        context.writeString(comment.getText());
+    }
+
+    @Override
+    public void visitDup(final VM.Dup command, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.DUP);
+    }
+
+    @Override
+    public void visitIStore(final VM.IStore command, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.I_STORE);
+        context.writeVarint(command.getName());
+    }
+
+    @Override
+    public void visitAStore(final VM.AStore command, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.A_STORE);
+        context.writeVarint(command.getName());
+    }
+
+    @Override
+    public void visitIAStore(final VM.IAStore command, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.I_A_STORE);
+    }
+
+    @Override
+    public void visitAAStore(final VM.AAStore command, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.A_A_STORE);
+    }
+
+    @Override
+    public void visitILoad(final VM.ILoad command, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.I_LOAD);
+        context.writeVarint(command.getName());
+    }
+
+    @Override
+    public void visitALoad(final VM.ALoad command, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.A_LOAD);
+        context.writeVarint(command.getName());
+    }
+
+    @Override
+    public void visitIALoad(final VM.IALoad command, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.I_A_LOAD);
+    }
+
+    @Override
+    public void visitAALoad(final VM.AALoad command, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.A_A_LOAD);
+    }
+
+    @Override
+    public void visitLabel(final VM.Label command, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.LABEL);
+        context.writeString(command.getName());
+    }
+
+    @Override
+    public void visitBinOp(final VM.BinOp command, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.BIN_OP);
+        context.writeString(command.getOperator());
+    }
+
+    @Override
+    public void visitAConstNull(final VM.AConstNull command, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.A_CONST_NULL);
+    }
+
+    @Override
+    public void visitIConst(final VM.IConst command, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.I_CONST);
+        context.writeSignedVarint(command.getValue());
+    }
+
+    @Override
+    public void visitInvokeStatic(final VM.InvokeStatic command, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.INVOKE_STATIC);
+        context.writeString(command.getName());
+        context.writeVarint(command.getArgumentsCount());
+        context.writeType(command.getReturnType());
+    }
+
+    @Override
+    public void visitReturn(final VM.Return command, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.RETURN);
+    }
+
+    @Override
+    public void visitIReturn(final VM.IReturn command, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.I_RETURN);
+    }
+
+    @Override
+    public void visitAReturn(final VM.AReturn command, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.A_RETURN);
+    }
+
+    @Override
+    public void visitGoto(final VM.Goto command, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.GOTO);
+        context.writeString(command.getLabel());
+    }
+
+    @Override
+    public void visitIfTrue(final VM.IfTrue command, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.IF_TRUE);
+        context.writeString(command.getLabel());
+    }
+
+    @Override
+    public void visitIfFalse(final VM.IfFalse command, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.IF_FALSE);
+        context.writeString(command.getLabel());
+    }
+
+    @Override
+    public void visitNewArray(final VM.NewArray command, final BytecodeWriterContext context) {
+        context.writeOpcode(Bytecode.NEW_ARRAY);
+        context.writeType(command.getElementType());
+    }
+
+    @Override
+    public void visitUnknown(final VM command, final BytecodeWriterContext context) {
+        throw new IllegalStateException(String.format("Command %s can not be written", command));
+    }
+}
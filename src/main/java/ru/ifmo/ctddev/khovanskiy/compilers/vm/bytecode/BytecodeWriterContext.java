@@ -0,0 +1,132 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.bytecode;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.ArrayType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.CharacterType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.IntegerType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.NumberType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.Type;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.VoidType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Context of the bytecode writer that interns the strings and the types
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class BytecodeWriterContext {
+    private final Map<String, Integer> constants = new HashMap<>();
+
+    private final List<String> pool = new ArrayList<>();
+
+    private final Map<Integer, Integer> typeIndices = new HashMap<>();
+
+    private final List<Integer> types = new ArrayList<>();
+
+    private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+
+    public void writeOpcode(final int opcode) {
+        code.write(opcode);
+    }
+
+    public void writeVarint(final int value) {
+        writeVarint(code, value);
+    }
+
+    public void writeSignedVarint(final int value) {
+        writeVarint(code, (value << 1) ^ (value >> 31));
+    }
+
+    public void writeString(final String value) {
+        writeVarint(constants.computeIfAbsent(value, key -> {
+            pool.add(key);
+            return pool.size() - 1;
+        }));
+    }
+
+    /**
+     * Writes the type as the index in the table of types
+     * <p>
+     * The type that is not concrete is written as the object type, the engines distinguish
+     * only the integer and character arrays from the other ones.
+     *
+     * @param type the type or {@code null}
+     * @since 1.1.0
+     */
+    public void writeType(final Type type) {
+        if (type == null) {
+            writeVarint(0);
+            return;
+        }
+        final int tag = getTag(type);
+        writeVarint(typeIndices.computeIfAbsent(tag, key -> {
+            types.add(key);
+            return types.size();
+        }));
+    }
+
+    /**
+     * Writes the header, the constant pool, the table of types and the written code
+     *
+     * @param outputStream the output
+     * @throws IOException if the output fails
+     * @since 1.1.0
+     */
+    public void writeTo(final OutputStream outputStream) throws IOException {
+        final ByteArrayOutputStream header = new ByteArrayOutputStream();
+        header.write(Bytecode.MAGIC >>> 24);
+        header.write(Bytecode.MAGIC >>> 16);
+        header.write(Bytecode.MAGIC >>> 8);
+        header.write(Bytecode.MAGIC);
+        writeVarint(header, Bytecode.VERSION);
+        writeVarint(header, pool.size());
+        for (final String constant : pool) {
+            final byte[] bytes = constant.getBytes(StandardCharsets.UTF_8);
+            writeVarint(header, bytes.length);
+            header.write(bytes);
+        }
+        writeVarint(header, types.size());
+        for (final int tag : types) {
+            header.write(tag);
+        }
+        header.writeTo(outputStream);
+        code.writeTo(outputStream);
+    }
+
+    private static int getTag(final Type type) {
+        // the subtypes are checked before their parents
+        if (type instanceof IntegerType) {
+            return Bytecode.TYPE_INTEGER;
+        }
+        if (type instanceof NumberType) {
+            return Bytecode.TYPE_NUMBER;
+        }
+        if (type instanceof CharacterType) {
+            return Bytecode.TYPE_CHARACTER;
+        }
+        if (type instanceof VoidType) {
+            return Bytecode.TYPE_VOID;
+        }
+        if (type instanceof ArrayType) {
+            return Bytecode.TYPE_ARRAY;
+        }
+        return Bytecode.TYPE_OBJECT;
+    }
+
+    private static void writeVarint(final ByteArrayOutputStream outputStream, final int value) {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            outputStream.write((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        outputStream.write(remaining);
+    }
+}
@@ -3,7 +3,9 @@ package ru.ifmo.ctddev.khovanskiy.compilers.vm.compiler;
 import lombok.extern.slf4j.Slf4j;
 import ru.ifmo.ctddev.khovanskiy.compilers.ast.AST;
 import ru.ifmo.ctddev.khovanskiy.compilers.ast.visitor.AbstractASTVisitor;
+import ru.ifmo.ctddev.khovanskiy.compilers.profiler.PhaseProfiler;
 import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
 import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
 import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.TypeContext;
 import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.*;
@@ -11,16 +13,47 @@ import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.*;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 
 /**
  * Abstract syntax tree compiler to the virtual machine code
+ * <p>
+ * The returned calls of the function itself are compiled to the assignment of its arguments
+ * and the jump to its entry, so the tail recursion runs in the constant stack.
  *
  * @author Victor Khovanskiy
  * @since 1.0.0
  */
 @Slf4j
 public class VMCompiler extends AbstractASTVisitor<VMCompilerContext> {
+    private final PhaseProfiler profiler;
+
+    private final ForkJoinPool pool;
+
+    public VMCompiler() {
+        this(PhaseProfiler.disabled());
+    }
+
+    /**
+     * @param profiler the profiler of compilation of every function
+     * @since 1.1.0
+     */
+    public VMCompiler(final PhaseProfiler profiler) {
+        this(profiler, null);
+    }
+
+    /**
+     * @param profiler the profiler of compilation of every function
+     * @param pool     the pool that compiles the functions in parallel or {@code null} to compile them serially
+     * @since 1.1.0
+     */
+    public VMCompiler(final PhaseProfiler profiler, final ForkJoinPool pool) {
+        this.profiler = profiler;
+        this.pool = pool;
+    }
+
     /**
      * Compiles the abstract syntax tree to the virtual machine code
      *
@@ -29,13 +62,49 @@ public class VMCompiler extends AbstractASTVisitor<VMCompilerContext> {
      * @since 1.0.0
      */
     public VMProgram compile(final AST.CompilationUnit ast, final TypeContext typeContext) {
+        if (pool != null) {
+            return compileInParallel(ast, typeContext);
+        }
         final VMCompilerContext program = new VMCompilerContext(typeContext);
         visitCompilationUnit(ast, program);
         return program.getVmProgram();
     }
 
+    /**
+     * Compiles every function in its own context, the functions are joined in the order of program,
+     * so the result is the same as the serial one
+     */
+    private VMProgram compileInParallel(final AST.CompilationUnit ast, final TypeContext typeContext) {
+        final List<ForkJoinTask<VMFunction>> tasks = new ArrayList<>();
+        for (final AST.FunctionDefinition f : getFunctions(ast)) {
+            tasks.add(pool.submit(() -> {
+                final VMCompilerContext context = new VMCompilerContext(typeContext);
+                visitFunctionDefinition(f, context);
+                return context.getVmProgram().getFunctions().get(0);
+            }));
+        }
+        final VMProgram vmProgram = new VMProgram();
+        for (final ForkJoinTask<VMFunction> task : tasks) {
+            vmProgram.getFunctions().add(task.join());
+        }
+        return vmProgram;
+    }
+
     @Override
     public void visitCompilationUnit(final AST.CompilationUnit compilationUnit, final VMCompilerContext context) {
+        for (final AST.FunctionDefinition f : getFunctions(compilationUnit)) {
+            visitFunctionDefinition(f, context);
+        }
+    }
+
+    /**
+     * Gets the functions of program, the statements outside the functions are the body of synthesized {@code main}
+     *
+     * @param compilationUnit the ast of program
+     * @return the functions with {@code main} at the end
+     * @since 1.1.0
+     */
+    public static List<AST.FunctionDefinition> getFunctions(final AST.CompilationUnit compilationUnit) {
         final List<AST.SingleStatement> statements = compilationUnit.getCompoundStatement().getStatements();
         final List<AST.FunctionDefinition> functions = statements.stream()
                 .filter(AST.FunctionDefinition.class::isInstance)
@@ -44,13 +113,12 @@ public class VMCompiler extends AbstractASTVisitor<VMCompilerContext> {
         final List<AST.SingleStatement> mainStatements = statements.stream().filter(s -> !AST.FunctionDefinition.class.isInstance(s))
                 .collect(Collectors.toList());
         functions.add(new AST.FunctionDefinition("main", Collections.emptyList(), new AST.CompoundStatement(mainStatements)));
-        for (final AST.FunctionDefinition f : functions) {
-            visitFunctionDefinition(f, context);
-        }
+        return functions;
     }
 
     @Override
     public void visitFunctionDefinition(final AST.FunctionDefinition functionDefinition, final VMCompilerContext context) {
+        final PhaseProfiler.Measurement measurement = profiler.start("vm", functionDefinition.getName());
         context.wrapFunction(functionDefinition.getName(), scope -> {
             final TypeContext.Scope typeScope = context.getTypeContext().getScopeByName(scope.getName());
             final List<ConcreteType> types = typeScope.getVariableTypes();
@@ -62,7 +130,13 @@ public class VMCompiler extends AbstractASTVisitor<VMCompilerContext> {
                 visitVariableDefinition(variableDefinition, context);
             }
             visitCompoundStatement(functionDefinition.getCompoundStatement(), context);
+            if (scope.getEntryLabel() != null) {
+                final List<VMFunction> functions = context.getVmProgram().getFunctions();
+                functions.get(functions.size() - 1).getCommands().add(0, new VM.Label(scope.getEntryLabel()));
+            }
         });
+        final List<VMFunction> functions = context.getVmProgram().getFunctions();
+        measurement.stop(functions.get(functions.size() - 1).getCommands().size(), "commands");
     }
 
     @Override
@@ -121,6 +195,38 @@ public class VMCompiler extends AbstractASTVisitor<VMCompilerContext> {
         throw new IllegalStateException();
     }
 
+    /**
+     * Gets the type of expression value, it is used to choose the kind of array storage
+     *
+     * @param expression the expression
+     * @param context    the context
+     * @return the type or {@link ObjectType} if the type is not known
+     * @since 1.1.0
+     */
+    private Type getExpressionType(final AST.Expression expression, final VMCompilerContext context) {
+        if (expression instanceof AST.IntegerLiteral || expression instanceof AST.BinaryExpression) {
+            return IntegerType.INSTANCE;
+        }
+        if (expression instanceof AST.CharacterLiteral) {
+            return CharacterType.INSTANCE;
+        }
+        if (expression instanceof AST.VariableAccessExpression) {
+            final String name = ((AST.VariableAccessExpression) expression).getName();
+            if ("true".equals(name) || "false".equals(name)) {
+                return IntegerType.INSTANCE;
+            }
+            final int id = context.getScope().rename(name);
+            return context.getTypeContext().getScopeByName(context.getScope().getName()).getVariableType(id);
+        }
+        if (expression instanceof AST.ArrayAccessExpression) {
+            return getArrayType(((AST.ArrayAccessExpression) expression).getPointer(), context).getRight();
+        }
+        if (expression instanceof AST.FunctionCall) {
+            return context.getTypeContext().getScopeByName(((AST.FunctionCall) expression).getName()).getReturnType();
+        }
+        return ObjectType.INSTANCE;
+    }
+
     @Override
     public void visitIfStatement(final AST.IfStatement ifStatement, final VMCompilerContext context) {
         final List<AST.IfCase> cases = ifStatement.getCases();
@@ -170,6 +276,10 @@ public class VMCompiler extends AbstractASTVisitor<VMCompilerContext> {
 
     @Override
     public void visitReturnStatement(final AST.ReturnStatement returnStatement, final VMCompilerContext context) {
+        if (isSelfTailCall(returnStatement.getExpression(), context)) {
+            visitSelfTailCall((AST.FunctionCall) returnStatement.getExpression(), context);
+            return;
+        }
         if (returnStatement.getExpression() != null) {
             visitExpression(returnStatement.getExpression(), context);
         }
@@ -185,6 +295,79 @@ public class VMCompiler extends AbstractASTVisitor<VMCompilerContext> {
         }
     }
 
+    /**
+     * Checks that the returned expression is the call of the current function
+     * <p>
+     * The x86 code passes the reference arguments as the holders of caller, so assigning them would change
+     * the variables of caller. The call is replaced only if every reference argument is passed unchanged.
+     *
+     * @param expression the returned expression
+     * @param context    the context
+     * @return {@code true} if the call can reuse the frame of function
+     * @since 1.1.0
+     */
+    private boolean isSelfTailCall(final AST.Expression expression, final VMCompilerContext context) {
+        if (!(expression instanceof AST.FunctionCall)) {
+            return false;
+        }
+        final AST.FunctionCall functionCall = (AST.FunctionCall) expression;
+        if (!functionCall.getName().equals(context.getScope().getName())) {
+            return false;
+        }
+        final TypeContext.Scope typeScope = context.getTypeContext().getScopeByName(functionCall.getName());
+        for (int i = 0; i < functionCall.getArguments().size(); ++i) {
+            final ConcreteType type = typeScope.getVariableType(i);
+            final boolean integral = type.equals(IntegerType.INSTANCE) || type.equals(CharacterType.INSTANCE);
+            if (!integral && !isUnchangedArgument(functionCall.getArguments().get(i), i, context)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isUnchangedArgument(final AST.Expression expression, final int id, final VMCompilerContext context) {
+        return expression instanceof AST.VariableAccessExpression
+                && ((AST.VariableAccessExpression) expression).getName().equals(context.getScope().getRenameHolder().getNameById(id));
+    }
+
+    /**
+     * Compiles the tail call of the current function to the assignment of its arguments and the jump to its entry,
+     * the arguments are computed before any of them is assigned
+     * <p>
+     * The entry follows the initialization of the frame, so the other variables are reset as in the new frame:
+     * the integers to zero and the references to null, which releases the referenced values.
+     *
+     * @param functionCall the call
+     * @param context      the context
+     * @since 1.1.0
+     */
+    private void visitSelfTailCall(final AST.FunctionCall functionCall, final VMCompilerContext context) {
+        final List<AST.Expression> arguments = functionCall.getArguments();
+        final List<Integer> changed = new ArrayList<>();
+        for (int i = 0; i < arguments.size(); ++i) {
+            if (!isUnchangedArgument(arguments.get(i), i, context)) {
+                visitExpression(arguments.get(i), context);
+                changed.add(i);
+            }
+        }
+        for (int i = changed.size() - 1; i >= 0; --i) {
+            // the reference arguments are always unchanged
+            context.addCommand(new VM.IStore(changed.get(i)));
+        }
+        final List<ConcreteType> types = context.getTypeContext().getScopeByName(functionCall.getName()).getVariableTypes();
+        for (int id = arguments.size(); id < types.size(); ++id) {
+            final ConcreteType type = types.get(id);
+            if (type.equals(IntegerType.INSTANCE) || type.equals(CharacterType.INSTANCE)) {
+                context.addCommand(new VM.IConst(0));
+                context.addCommand(new VM.IStore(id));
+            } else {
+                context.addCommand(new VM.AConstNull());
+                context.addCommand(new VM.AStore(id));
+            }
+        }
+        context.addCommand(new VM.Goto(context.getEntryLabel()));
+    }
+
     @Override
     public void visitSkipStatement(final AST.SkipStatement skipStatement, final VMCompilerContext context) {
         // do nothing
@@ -257,12 +440,14 @@ public class VMCompiler extends AbstractASTVisitor<VMCompilerContext> {
     public void visitArrayCreation(final AST.ArrayCreationExpression arrayCreationExpression, final VMCompilerContext context) {
         final List<AST.Expression> arguments = arrayCreationExpression.getArguments();
         final int length = arguments.size();
+        final Type elementType = length > 0 ? getExpressionType(arguments.get(0), context) : ObjectType.INSTANCE;
         context.addCommand(new VM.IConst(length));
-        context.addCommand(new VM.NewArray());
+        context.addCommand(new VM.NewArray(elementType));
         for (int i = 0; i < length; ++i) {
             context.addCommand(new VM.Dup());
             context.addCommand(new VM.IConst(i));
             visitExpression(arguments.get(i), context);
+            // the element is initialized, not assigned, so there is no holder to copy into
             context.addCommand(new VM.IAStore());
         }
     }
@@ -327,7 +512,7 @@ public class VMCompiler extends AbstractASTVisitor<VMCompilerContext> {
         final String string = stringLiteral.getValue();
         final int length = string.length();
         context.addCommand(new VM.IConst(length));
-        context.addCommand(new VM.NewArray());
+        context.addCommand(new VM.NewArray(CharacterType.INSTANCE));
         for (int i = 0; i < length; ++i) {
             context.addCommand(new VM.Dup());
             context.addCommand(new VM.IConst(i));
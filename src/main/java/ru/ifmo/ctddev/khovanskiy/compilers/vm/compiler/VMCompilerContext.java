@@ -25,8 +25,6 @@ public class VMCompilerContext {
 
     private final VMProgram vmProgram = new VMProgram();
 
-    private final AtomicInteger labelIds = new AtomicInteger(0);
-
     private final Stack<Scope> scopes = new Stack<>();
 
     private final Stack<Loop> loops = new Stack<>();
@@ -72,8 +70,32 @@ public class VMCompilerContext {
         vmProgram.getFunctions().add(new VMFunction(name, argumentsCount, types, returnType));
     }
 
+    /**
+     * Gets the new label of the current function
+     * <p>
+     * The labels are numbered in every function separately and prefixed by its name,
+     * so the code of function does not depend on the other functions.
+     *
+     * @return the label
+     * @since 1.0.0
+     */
     public String getNextLabel() {
-        return "l" + labelIds.getAndIncrement();
+        final Scope scope = getScope();
+        return scope.getName() + "_l" + scope.getLabelIds().getAndIncrement();
+    }
+
+    /**
+     * Gets the label of the current function entry, the label is created by the first request
+     *
+     * @return the label
+     * @since 1.1.0
+     */
+    public String getEntryLabel() {
+        final Scope scope = getScope();
+        if (scope.getEntryLabel() == null) {
+            scope.entryLabel = getNextLabel();
+        }
+        return scope.getEntryLabel();
     }
 
     public Scope getScope() {
@@ -88,8 +110,12 @@ public class VMCompilerContext {
     public static class Scope {
         private final RenameHolder renameHolder = new RenameHolder();
 
+        private final AtomicInteger labelIds = new AtomicInteger(0);
+
         private final String name;
 
+        private String entryLabel;
+
         public Scope(final String name) {
             this.name = name;
         }
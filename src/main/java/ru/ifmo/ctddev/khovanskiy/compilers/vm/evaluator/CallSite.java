@@ -0,0 +1,30 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.evaluator;
+
+import lombok.Getter;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ExternalFunction;
+
+/**
+ * The resolved target of {@link ru.ifmo.ctddev.khovanskiy.compilers.vm.VM.InvokeStatic}
+ * <p>
+ * The call is resolved once, then the external function or the position of user function
+ * and the number of its local slots are reused by every call.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Getter
+public class CallSite {
+    private final ExternalFunction externalFunction;
+    private final Position target;
+    private final int localsCount;
+
+    public CallSite(final ExternalFunction externalFunction, final Position target, final int localsCount) {
+        this.externalFunction = externalFunction;
+        this.target = target;
+        this.localsCount = localsCount;
+    }
+
+    public boolean isExternal() {
+        return externalFunction != null;
+    }
+}
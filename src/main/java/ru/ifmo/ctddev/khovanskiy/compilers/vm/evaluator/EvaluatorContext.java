@@ -1,9 +1,10 @@
 package ru.ifmo.ctddev.khovanskiy.compilers.vm.evaluator;
 
 import lombok.Getter;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ArrayValue;
 import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Pointer;
 import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Symbol;
-import ru.ifmo.ctddev.khovanskiy.compilers.vm.RenameHolder;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
 
 import java.util.*;
 
@@ -16,45 +17,45 @@ public class EvaluatorContext {
     private final Map<Pointer, Symbol> externals;
     private final List<Integer> heap = new ArrayList<>();
     private final Map<String, Position> labels = new HashMap<>();
-    private final Stack<Symbol> stack = new Stack<>();
-    private final Stack<Position> callStack = new Stack<>();
+    /**
+     * The integers are kept unboxed, the references are kept in the parallel lane
+     */
+    private final OperandStack stack = new OperandStack();
+    private final Deque<Position> callStack = new ArrayDeque<>();
     private Position position;
-    private final Stack<Scope> scopes = new Stack<>();
+    private final Deque<Scope> scopes = new ArrayDeque<>();
+    private final Map<VM.InvokeStatic, CallSite> callSites = new IdentityHashMap<>();
+    /**
+     * The lengths of arrays that do not escape their functions by the allocation commands
+     */
+    private final Map<VM, Integer> localArrays = new IdentityHashMap<>();
+    /**
+     * The numbers of local slots by the names of functions
+     */
+    private final Map<String, Integer> localsCounts = new HashMap<>();
 
     public EvaluatorContext(final Map<Pointer, Symbol> externals) {
         this.externals = externals;
-        this.scopes.push(new Scope());
     }
 
     public Scope getScope() {
         return this.scopes.peek();
     }
 
-    public void put(Pointer pointer, Symbol<?> symbol) {
-        if (externals.containsKey(pointer)) {
-            throw new IllegalStateException();
-        }
-        final Scope scope = getScope();
-        scope.getData().put(pointer, symbol);
-    }
-
+    /**
+     * Gets the external symbol, the variables are kept in the slots of scopes
+     *
+     * @param pointer the pointer of symbol
+     * @param clazz   the class of value
+     * @return the symbol or {@code null} if it is not defined
+     */
     @SuppressWarnings("unchecked")
     public <T> Symbol<T> get(final Pointer pointer, final Class<T> clazz) {
         final Symbol external = externals.get(pointer);
-        if (external != null) {
-            return external;
-        }
-        for (int i = scopes.size() - 1; i >= 0; --i) {
-            final Scope scope = scopes.get(i);
-            final Symbol symbol = scope.getData().get(pointer);
-            if (symbol != null) {
-                if (!clazz.isInstance(symbol.getValue())) {
-                    throw new IllegalStateException();
-                }
-                return symbol;
-            }
+        if (external != null && !clazz.isInstance(external.getValue())) {
+            throw new IllegalStateException();
         }
-        return null;
+        return external;
     }
 
     public void setLabels(final Map<String, Position> labels) {
@@ -63,11 +64,15 @@ public class EvaluatorContext {
     }
 
     public void gotoLabel(String name) {
+        this.position = getLabelPosition(name);
+    }
+
+    public Position getLabelPosition(String name) {
         Position position = labels.get(name);
         if (position == null) {
             throw new IllegalStateException(String.format("Unknown position of label \"%s\"", name));
         }
-        this.position = position;
+        return position;
     }
 
     public Position getPosition() {
@@ -83,25 +88,25 @@ public class EvaluatorContext {
         return position;
     }
 
+    /**
+     * The locals of function by the slot numbers assigned by {@link ru.ifmo.ctddev.khovanskiy.compilers.vm.RenameHolder},
+     * the arguments take the first slots
+     */
     @Getter
     public static class Scope {
-        private final RenameHolder renameHolder = new RenameHolder();
-        private final Map<Pointer, Symbol> data;
-
-        public Scope() {
-            this.data = new HashMap<>();
-        }
-
-        public Scope(Map<Pointer, Symbol> data) {
-            this.data = data;
-        }
-
-        public int rename(String name) {
-            return this.renameHolder.rename(name);
-        }
-
-        public int nextName() {
-            return this.renameHolder.nextName();
+        private final int[] ints;
+        /**
+         * The references by the same slots, the slot of integer keeps {@code null}
+         */
+        private final Object[] refs;
+        /**
+         * The arrays of frame, the allocation command reuses its array every time
+         */
+        private final Map<VM, ArrayValue> arrays = new IdentityHashMap<>();
+
+        public Scope(final int localsCount) {
+            this.ints = new int[localsCount];
+            this.refs = new Object[localsCount];
         }
     }
 }
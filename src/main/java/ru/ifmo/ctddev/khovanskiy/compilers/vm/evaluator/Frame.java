@@ -0,0 +1,28 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.evaluator;
+
+import lombok.Getter;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.linker.LinkedFunction;
+
+/**
+ * The activation record of the linked function
+ * <p>
+ * Locals are addressed by the slot numbers assigned by {@link ru.ifmo.ctddev.khovanskiy.compilers.vm.RenameHolder},
+ * integers live in {@link #ints}, references live in {@link #refs}.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Getter
+public class Frame {
+    private final LinkedFunction function;
+    private final int[] ints;
+    private final Object[] refs;
+    private final int returnAddress;
+
+    public Frame(final LinkedFunction function, final int returnAddress) {
+        this.function = function;
+        this.ints = new int[function.getLocalsCount()];
+        this.refs = new Object[function.getLocalsCount()];
+        this.returnAddress = returnAddress;
+    }
+}
@@ -0,0 +1,276 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.evaluator;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ArrayValue;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ExternalFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.IntArrayValue;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.NullPointer;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Pointer;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ReferenceArrayValue;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Symbol;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.linker.LinkedFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.linker.LinkedProgram;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.linker.Opcodes;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.linker.VMLinker;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Evaluator of the linked virtual machine code
+ * <p>
+ * Unlike {@link VMEvaluator} it does not resolve labels and functions by name and does not visit commands
+ * through the chain of {@code instanceof} checks, every instruction is dispatched by the opcode.
+ * Integers are never boxed on the {@link OperandStack} and in the {@link Frame} slots.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class LinkedVMEvaluator {
+    private static final NullPointer NULL = new NullPointer();
+
+    public void evaluate(final VMProgram vmProgram, final Map<Pointer, Symbol> symbols) {
+        final LinkedProgram program = new VMLinker().link(vmProgram, symbols);
+        evaluate(program);
+    }
+
+    public void evaluate(final LinkedProgram program) {
+        final LinkedFunction[] functions = program.getFunctions();
+        final ExternalFunction[] externals = program.getExternals();
+        final OperandStack stack = new OperandStack();
+        final Deque<Frame> frames = new ArrayDeque<>();
+
+        Frame frame = new Frame(program.getMain(), -1);
+        int[] ints = frame.getInts();
+        Object[] refs = frame.getRefs();
+        int[] code = frame.getFunction().getCode();
+        int pc = 0;
+        while (true) {
+            final int opcode = code[pc++];
+            switch (opcode) {
+                case Opcodes.DUP:
+                    stack.dup();
+                    break;
+                case Opcodes.ILOAD:
+                    stack.pushInt(ints[code[pc++]]);
+                    break;
+                case Opcodes.ALOAD:
+                    stack.pushSlot(ints, refs, code[pc++]);
+                    break;
+                case Opcodes.ISTORE:
+                    ints[code[pc]] = stack.popInt();
+                    refs[code[pc++]] = null;
+                    break;
+                case Opcodes.ASTORE:
+                    stack.popSlot(ints, refs, code[pc++]);
+                    break;
+                case Opcodes.IALOAD: {
+                    final int index = stack.popInt();
+                    final ArrayValue array = (ArrayValue) stack.popRef();
+                    if (array instanceof IntArrayValue) {
+                        stack.pushInt(((IntArrayValue) array).getInt(index));
+                    } else {
+                        stack.push(array.get(index));
+                    }
+                    break;
+                }
+                case Opcodes.AALOAD: {
+                    final int index = stack.popInt();
+                    final ArrayValue array = (ArrayValue) stack.popRef();
+                    stack.push(array.get(index));
+                    break;
+                }
+                case Opcodes.IASTORE:
+                case Opcodes.AASTORE: {
+                    if (!stack.isRef(0) && stack.peekRef(2) instanceof IntArrayValue) {
+                        final int value = stack.popInt();
+                        final int index = stack.popInt();
+                        ((IntArrayValue) stack.popRef()).setInt(index, value);
+                    } else {
+                        final Object value = stack.pop();
+                        final int index = stack.popInt();
+                        ((ArrayValue) stack.popRef()).set(index, value);
+                    }
+                    break;
+                }
+                case Opcodes.ICONST:
+                    stack.pushInt(code[pc++]);
+                    break;
+                case Opcodes.ACONST_NULL:
+                    stack.pushRef(NULL);
+                    break;
+                case Opcodes.IADD: {
+                    final int right = stack.popInt();
+                    final int left = stack.popInt();
+                    stack.pushInt(left + right);
+                    break;
+                }
+                case Opcodes.ISUB: {
+                    final int right = stack.popInt();
+                    final int left = stack.popInt();
+                    stack.pushInt(left - right);
+                    break;
+                }
+                case Opcodes.IMUL: {
+                    final int right = stack.popInt();
+                    final int left = stack.popInt();
+                    stack.pushInt(left * right);
+                    break;
+                }
+                case Opcodes.IDIV: {
+                    final int right = stack.popInt();
+                    final int left = stack.popInt();
+                    stack.pushInt(left / right);
+                    break;
+                }
+                case Opcodes.IREM: {
+                    final int right = stack.popInt();
+                    final int left = stack.popInt();
+                    stack.pushInt(left % right);
+                    break;
+                }
+                case Opcodes.IAND: {
+                    final int right = stack.popInt();
+                    final int left = stack.popInt();
+                    stack.pushInt(left & right);
+                    break;
+                }
+                case Opcodes.IXOR: {
+                    final int right = stack.popInt();
+                    final int left = stack.popInt();
+                    stack.pushInt(left ^ right);
+                    break;
+                }
+                case Opcodes.IOR: {
+                    final int right = stack.popInt();
+                    final int left = stack.popInt();
+                    stack.pushInt(left | right);
+                    break;
+                }
+                case Opcodes.LAND: {
+                    final int right = stack.popInt();
+                    final int left = stack.popInt();
+                    stack.pushInt(left != 0 && right != 0 ? 1 : 0);
+                    break;
+                }
+                case Opcodes.LOR: {
+                    final int right = stack.popInt();
+                    final int left = stack.popInt();
+                    stack.pushInt(left != 0 || right != 0 ? 1 : 0);
+                    break;
+                }
+                case Opcodes.CMPGT: {
+                    final int right = stack.popInt();
+                    final int left = stack.popInt();
+                    stack.pushInt(left > right ? 1 : 0);
+                    break;
+                }
+                case Opcodes.CMPGE: {
+                    final int right = stack.popInt();
+                    final int left = stack.popInt();
+                    stack.pushInt(left >= right ? 1 : 0);
+                    break;
+                }
+                case Opcodes.CMPLT: {
+                    final int right = stack.popInt();
+                    final int left = stack.popInt();
+                    stack.pushInt(left < right ? 1 : 0);
+                    break;
+                }
+                case Opcodes.CMPLE: {
+                    final int right = stack.popInt();
+                    final int left = stack.popInt();
+                    stack.pushInt(left <= right ? 1 : 0);
+                    break;
+                }
+                case Opcodes.CMPEQ:
+                    stack.pushInt(popEquals(stack) ? 1 : 0);
+                    break;
+                case Opcodes.CMPNE:
+                    stack.pushInt(popEquals(stack) ? 0 : 1);
+                    break;
+                case Opcodes.GOTO:
+                    pc = code[pc];
+                    break;
+                case Opcodes.IFTRUE:
+                    if (stack.popInt() != 0) {
+                        pc = code[pc];
+                    } else {
+                        ++pc;
+                    }
+                    break;
+                case Opcodes.IFFALSE:
+                    if (stack.popInt() == 0) {
+                        pc = code[pc];
+                    } else {
+                        ++pc;
+                    }
+                    break;
+                case Opcodes.INVOKE: {
+                    final LinkedFunction callee = functions[code[pc++]];
+                    frames.push(frame);
+                    frame = new Frame(callee, pc);
+                    ints = frame.getInts();
+                    refs = frame.getRefs();
+                    for (int i = callee.getArgumentsCount() - 1; i >= 0; --i) {
+                        stack.popSlot(ints, refs, i);
+                    }
+                    code = callee.getCode();
+                    pc = 0;
+                    break;
+                }
+                case Opcodes.INVOKE_EXTERNAL: {
+                    final ExternalFunction external = externals[code[pc++]];
+                    final Object[] args = new Object[code[pc++]];
+                    for (int i = args.length - 1; i >= 0; --i) {
+                        args[i] = stack.pop();
+                    }
+                    final Object value = external.evaluate(args);
+                    if (value != null) {
+                        stack.push(value);
+                    }
+                    break;
+                }
+                case Opcodes.RETURN:
+                case Opcodes.IRETURN:
+                case Opcodes.ARETURN: {
+                    if (frames.isEmpty()) {
+                        return;
+                    }
+                    pc = frame.getReturnAddress();
+                    frame = frames.pop();
+                    ints = frame.getInts();
+                    refs = frame.getRefs();
+                    code = frame.getFunction().getCode();
+                    break;
+                }
+                case Opcodes.NEWARRAY:
+                    stack.pushRef(new IntArrayValue(stack.popInt()));
+                    break;
+                case Opcodes.ANEWARRAY:
+                    stack.pushRef(new ReferenceArrayValue(stack.popInt()));
+                    break;
+                default:
+                    throw new IllegalStateException(String.format("Function \"%s\": unknown opcode %d at %d", frame.getFunction().getName(), opcode, pc - 1));
+            }
+        }
+    }
+
+    /**
+     * Pops two values and compares them, integers are compared without boxing
+     *
+     * @param stack the operand stack
+     * @return {@code true} if the values are equal
+     * @since 1.1.0
+     */
+    private static boolean popEquals(final OperandStack stack) {
+        if (!stack.isRef(0) && !stack.isRef(1)) {
+            return stack.popInt() == stack.popInt();
+        }
+        final Object right = stack.pop();
+        final Object left = stack.pop();
+        return Objects.equals(left, right);
+    }
+}
@@ -0,0 +1,110 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.evaluator;
+
+import java.util.Arrays;
+
+/**
+ * The operand stack of the evaluators of virtual machine code
+ * <p>
+ * Integers are kept unboxed in the primitive lane, references are kept in the parallel lane.
+ * The reference lane of an integer value is always {@code null}, so the value kind is known without any tag.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class OperandStack {
+    private int[] ints = new int[64];
+    private Object[] refs = new Object[64];
+    private int size;
+
+    public void pushInt(final int value) {
+        ensureCapacity();
+        ints[size] = value;
+        refs[size] = null;
+        ++size;
+    }
+
+    public void pushRef(final Object value) {
+        ensureCapacity();
+        refs[size] = value;
+        ++size;
+    }
+
+    /**
+     * Pushes the value of unknown kind, integers are unboxed
+     *
+     * @param value the value
+     * @since 1.1.0
+     */
+    public void push(final Object value) {
+        if (value instanceof Integer) {
+            pushInt((Integer) value);
+        } else {
+            pushRef(value);
+        }
+    }
+
+    public void pushSlot(final int[] intSlots, final Object[] refSlots, final int slot) {
+        ensureCapacity();
+        ints[size] = intSlots[slot];
+        refs[size] = refSlots[slot];
+        ++size;
+    }
+
+    public int popInt() {
+        return ints[--size];
+    }
+
+    public Object popRef() {
+        final Object value = refs[--size];
+        refs[size] = null;
+        return value;
+    }
+
+    /**
+     * Pops the value of unknown kind, integers are boxed
+     *
+     * @return the value
+     * @since 1.1.0
+     */
+    public Object pop() {
+        final Object value = refs[--size];
+        if (value == null) {
+            return ints[size];
+        }
+        refs[size] = null;
+        return value;
+    }
+
+    public void popSlot(final int[] intSlots, final Object[] refSlots, final int slot) {
+        --size;
+        intSlots[slot] = ints[size];
+        refSlots[slot] = refs[size];
+        refs[size] = null;
+    }
+
+    public void dup() {
+        ensureCapacity();
+        ints[size] = ints[size - 1];
+        refs[size] = refs[size - 1];
+        ++size;
+    }
+
+    public Object peekRef(final int depth) {
+        return refs[size - 1 - depth];
+    }
+
+    public boolean isRef(final int depth) {
+        return refs[size - 1 - depth] != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void ensureCapacity() {
+        if (size == ints.length) {
+            ints = Arrays.copyOf(ints, size * 2);
+            refs = Arrays.copyOf(refs, size * 2);
+        }
+    }
+}
@@ -4,6 +4,10 @@ import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.*;
 import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
 import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
 import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.CharacterType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.IntegerType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.Type;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.optimizer.EscapeAnalysis;
 import ru.ifmo.ctddev.khovanskiy.compilers.vm.visitor.AbstractVMVisitor;
 
 import java.util.*;
@@ -15,6 +19,8 @@ import java.util.stream.Collectors;
  * @since 1.0.0
  */
 public class VMEvaluator extends AbstractVMVisitor<EvaluatorContext> {
+    private static final NullPointer NULL = new NullPointer();
+
     public void evaluate(final VMProgram vmProgram, final Map<Pointer, Symbol> symbols) {
         final List<VMFunction> functions = vmProgram.getFunctions();
         final Map<String, Position> labels = new HashMap<>();
@@ -31,9 +37,33 @@ public class VMEvaluator extends AbstractVMVisitor<EvaluatorContext> {
         }
         final EvaluatorContext context = new EvaluatorContext(symbols);
         context.setLabels(labels);
+        for (final VMFunction function : functions) {
+            context.getLocalArrays().putAll(EscapeAnalysis.analyze(function).getLengths());
+            context.getLocalsCounts().put(function.getName(), getLocalsCount(function));
+        }
+        context.getScopes().push(new EvaluatorContext.Scope(context.getLocalsCounts().get("main")));
         visitProgram(vmProgram, context);
     }
 
+    /**
+     * Counts the local slots of function, the arguments take the first slots even if they are not used
+     */
+    private static int getLocalsCount(final VMFunction function) {
+        int maxSlot = function.getArgumentsCount() - 1;
+        for (final VM command : function.getCommands()) {
+            if (command instanceof VM.IStore) {
+                maxSlot = Math.max(maxSlot, ((VM.IStore) command).getName());
+            } else if (command instanceof VM.AStore) {
+                maxSlot = Math.max(maxSlot, ((VM.AStore) command).getName());
+            } else if (command instanceof VM.ILoad) {
+                maxSlot = Math.max(maxSlot, ((VM.ILoad) command).getName());
+            } else if (command instanceof VM.ALoad) {
+                maxSlot = Math.max(maxSlot, ((VM.ALoad) command).getName());
+            }
+        }
+        return maxSlot + 1;
+    }
+
     protected void registerLabel(final Map<String, Position> labels, VMFunction function, String name, int newLine) {
         labels.compute(name, (key, oldPosition) -> {
             final Position newPosition = new Position(function.getName(), newLine);
@@ -69,105 +99,80 @@ public class VMEvaluator extends AbstractVMVisitor<EvaluatorContext> {
 
     @Override
     public void visitDup(VM.Dup command, EvaluatorContext context) {
-        context.getStack().push(context.getStack().peek());
+        context.getStack().dup();
     }
 
     @Override
     public void visitIStore(VM.IStore command, EvaluatorContext context) {
-        final VariablePointer pointer = new VariablePointer(getVariableName(command.getName()));
-        final Symbol<Object> symbol = context.getStack().pop();
-        assert Integer.class.isInstance(symbol.getValue());
-        context.put(pointer, symbol);
+        final EvaluatorContext.Scope scope = context.getScope();
+        scope.getInts()[command.getName()] = context.getStack().popInt();
+        scope.getRefs()[command.getName()] = null;
     }
 
     @Override
     public void visitAStore(VM.AStore command, EvaluatorContext context) {
-        final VariablePointer pointer = new VariablePointer(getVariableName(command.getName()));
-        final Symbol<Object> symbol = context.getStack().pop();
-        assert List.class.isInstance(symbol.getValue());
-        context.put(pointer, symbol);
-    }
-
-    private String getVariableName(int index) {
-        return "v" + index;
+        // the variables of unresolved type are stored as references but may keep integers, so both lanes are copied
+        final EvaluatorContext.Scope scope = context.getScope();
+        context.getStack().popSlot(scope.getInts(), scope.getRefs(), command.getName());
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void visitIAStore(VM.IAStore command, EvaluatorContext context) {
-        final Symbol<Object> valueSymbol = context.getStack().pop();
-        final Symbol<Object> indexSymbol = context.getStack().pop();
-        final Symbol<Object> arraySymbol = context.getStack().pop();
-        assert List.class.isInstance(arraySymbol.getValue());
-        final List array = (List) arraySymbol.getValue();
-        assert Integer.class.isInstance(indexSymbol.getValue()) : "Array index class is not integer: " + indexSymbol.getValue().getClass();
-        final int index = (int) indexSymbol.getValue();
-        assert Integer.class.isInstance(valueSymbol.getValue());
-        array.set(index, valueSymbol.getValue());
+        visitArrayStore(context.getStack());
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void visitAAStore(VM.AAStore command, EvaluatorContext context) {
-        final Symbol<Object> valueSymbol = context.getStack().pop();
-        final Symbol<Object> indexSymbol = context.getStack().pop();
-        final Symbol<Object> arraySymbol = context.getStack().pop();
-        assert List.class.isInstance(arraySymbol.getValue());
-        final List array = (List) arraySymbol.getValue();
-        assert Integer.class.isInstance(indexSymbol.getValue()) : "Array index class is not integer: " + indexSymbol.getValue().getClass();
-        final int index = (int) indexSymbol.getValue();
-        assert List.class.isInstance(valueSymbol.getValue());
-        array.set(index, valueSymbol.getValue());
+        visitArrayStore(context.getStack());
+    }
+
+    /**
+     * Stores the element, the integer is not boxed if the array keeps the integers
+     */
+    private void visitArrayStore(final OperandStack stack) {
+        if (!stack.isRef(0) && stack.peekRef(2) instanceof IntArrayValue) {
+            final int value = stack.popInt();
+            final int index = stack.popInt();
+            ((IntArrayValue) stack.popRef()).setInt(index, value);
+        } else {
+            final Object value = stack.pop();
+            final int index = stack.popInt();
+            assert ArrayValue.class.isInstance(stack.peekRef(0));
+            ((ArrayValue) stack.popRef()).set(index, value);
+        }
     }
 
     @Override
     public void visitILoad(VM.ILoad command, EvaluatorContext context) {
-        final VariablePointer pointer = new VariablePointer(getVariableName(command.getName()));
-        final Symbol<Object> symbol = context.get(pointer, Object.class);
-        if (symbol == null) {
-            throw new IllegalStateException(String.format("Variable \"%s\" is not found", command.getName()));
-        }
-        assert Integer.class.isInstance(symbol.getValue());
-        context.getStack().add(symbol);
+        context.getStack().pushInt(context.getScope().getInts()[command.getName()]);
     }
 
     @Override
     public void visitALoad(VM.ALoad command, EvaluatorContext context) {
-        final VariablePointer pointer = new VariablePointer(getVariableName(command.getName()));
-        final Symbol<Object> symbol = context.get(pointer, Object.class);
-        if (symbol == null) {
-            throw new IllegalStateException(String.format("Variable \"%s\" is not found", command.getName()));
-        }
-        assert List.class.isInstance(symbol.getValue());
-        context.getStack().add(symbol);
+        final EvaluatorContext.Scope scope = context.getScope();
+        context.getStack().pushSlot(scope.getInts(), scope.getRefs(), command.getName());
     }
 
     @Override
     public void visitIALoad(VM.IALoad command, EvaluatorContext context) {
-        final Symbol<Object> indexSymbol = context.getStack().pop();
-        final Symbol<Object> arraySymbol = context.getStack().pop();
-        assert List.class.isInstance(arraySymbol.getValue());
-        final List array = (List) arraySymbol.getValue();
-        assert Integer.class.isInstance(indexSymbol.getValue()) : "Array index class is not integer: " + indexSymbol.getValue().getClass();
-        final int index = (int) indexSymbol.getValue();
-        Object value = array.get(index);
-        assert Integer.class.isInstance(value);
-        final Symbol<Object> valueSymbol = new Symbol<>(value);
-        context.getStack().push(valueSymbol);
+        final OperandStack stack = context.getStack();
+        final int index = stack.popInt();
+        final Object array = stack.popRef();
+        assert ArrayValue.class.isInstance(array);
+        if (array instanceof IntArrayValue) {
+            stack.pushInt(((IntArrayValue) array).getInt(index));
+        } else {
+            stack.push(((ArrayValue) array).get(index));
+        }
     }
 
     @Override
     public void visitAALoad(VM.AALoad command, EvaluatorContext context) {
-        final Symbol<Object> indexSymbol = context.getStack().pop();
-        final Symbol<Object> arraySymbol = context.getStack().pop();
-        assert List.class.isInstance(arraySymbol.getValue());
-        final List array = (List) arraySymbol.getValue();
-        assert Integer.class.isInstance(indexSymbol.getValue()) : "Array index class is not integer: " + indexSymbol.getValue().getClass();
-        final int index = (int) indexSymbol.getValue();
-        Object value = array.get(index);
-        assert List.class.isInstance(value);
-        final Symbol<Object> valueSymbol = new Symbol<>(value);
-        context.getStack().push(valueSymbol);
+        final OperandStack stack = context.getStack();
+        final int index = stack.popInt();
+        final Object array = stack.popRef();
+        assert ArrayValue.class.isInstance(array);
+        stack.push(((ArrayValue) array).get(index));
     }
 
     @Override
@@ -176,59 +181,81 @@ public class VMEvaluator extends AbstractVMVisitor<EvaluatorContext> {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void visitBinOp(VM.BinOp command, EvaluatorContext context) {
-        assert context.getStack().size() >= 2 : "Stack does not have 2 values at least: " + Objects.toString(context.getStack());
-        final Symbol<Object> second = context.getStack().pop();
-        final Symbol<Object> first = context.getStack().pop();
-        final Object value = ASTEvaluator.evaluateBinaryExpression(command.getOperator(), first.getValue(), second.getValue());
-        context.getStack().push(new Symbol<>(value));
+        final OperandStack stack = context.getStack();
+        assert stack.size() >= 2 : "Stack does not have 2 values at least: " + stack.size();
+        if (!stack.isRef(0) && !stack.isRef(1)) {
+            final int second = stack.popInt();
+            final int first = stack.popInt();
+            stack.pushInt(ASTEvaluator.evaluateBinaryExpression(command.getOperator(), first, second));
+        } else {
+            // the arrays are compared
+            final Object second = stack.pop();
+            final Object first = stack.pop();
+            stack.pushInt(ASTEvaluator.evaluateBinaryExpression(command.getOperator(), first, second));
+        }
     }
 
     @Override
     public void visitAConstNull(VM.AConstNull command, EvaluatorContext context) {
-        context.getStack().push(new Symbol<>(new NullPointer()));
+        context.getStack().pushRef(NULL);
     }
 
     @Override
     public void visitIConst(VM.IConst command, EvaluatorContext context) {
-        context.getStack().push(new Symbol<>(command.getValue()));
+        context.getStack().pushInt(command.getValue());
     }
 
     @Override
     public void visitInvokeStatic(VM.InvokeStatic command, EvaluatorContext context) {
-        final Symbol<ExternalFunction> function = context.get(new FunctionPointer(command.getName()), ExternalFunction.class);
-        if (function != null) {
+        if (context.getLocalArrays().containsKey(command)) {
+            // arrmake or strmake of the array that does not escape
+            final int value = context.getStack().popInt();
+            context.getStack().popInt();
+            final IntArrayValue array = getLocalArray(command, context);
+            Arrays.fill(array.getData(), value);
+            context.getStack().pushRef(array);
+            context.nextPosition();
+            return;
+        }
+        final CallSite callSite = context.getCallSites().computeIfAbsent(command, key -> resolve(key, context));
+        if (callSite.isExternal()) {
             final Object[] args = new Object[command.getArgumentsCount()];
             for (int i = command.getArgumentsCount() - 1; i >= 0; --i) {
-                if (context.getStack().isEmpty()) {
+                if (context.getStack().size() == 0) {
                     throw new IllegalStateException(String.format("Missing argument for function \"%s\" external invoke", command.getName()));
                 }
-                args[i] = context.getStack().pop().getValue();
+                args[i] = context.getStack().pop();
             }
-            final Object value = function.getValue().evaluate(args);
+            final Object value = callSite.getExternalFunction().evaluate(args);
             if (value != null) {
-                context.getStack().push(new Symbol<>(value));
+                context.getStack().push(value);
             }
             context.nextPosition();
         } else {
             final Position position = context.getPosition();
             final Position nextPosition = new Position(position.getFunctionName(), position.getLineNumber() + 1);
-            EvaluatorContext.Scope scope = new EvaluatorContext.Scope();
-            List<String> names = new ArrayList<>(command.getArgumentsCount());
-            for (int i = 0; i < command.getArgumentsCount(); ++i) {
-                names.add(getVariableName(scope.nextName()));
-            }
+            final EvaluatorContext.Scope scope = new EvaluatorContext.Scope(callSite.getLocalsCount());
             for (int i = command.getArgumentsCount() - 1; i >= 0; --i) {
-                final Symbol symbol = context.getStack().pop();
-                scope.getData().put(new VariablePointer(names.get(i)), symbol);
+                context.getStack().popSlot(scope.getInts(), scope.getRefs(), i);
             }
             context.getScopes().push(scope);
             context.getCallStack().push(nextPosition);
-            context.gotoLabel(command.getName());
+            context.setPosition(callSite.getTarget());
         }
     }
 
+    /**
+     * Resolves the call once, the external functions are never redefined while the program is evaluated
+     */
+    private CallSite resolve(final VM.InvokeStatic command, final EvaluatorContext context) {
+        final Symbol<ExternalFunction> function = context.get(new FunctionPointer(command.getName()), ExternalFunction.class);
+        if (function != null) {
+            return new CallSite(function.getValue(), null, 0);
+        }
+        return new CallSite(null, context.getLabelPosition(command.getName()), context.getLocalsCounts().get(command.getName()));
+    }
+
     @Override
     public void visitReturn(VM.Return command, EvaluatorContext context) {
         context.getScopes().pop();
@@ -237,23 +264,18 @@ public class VMEvaluator extends AbstractVMVisitor<EvaluatorContext> {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void visitIReturn(VM.IReturn command, EvaluatorContext context) {
+        // the value stays on the stack for the caller
         context.getScopes().pop();
-        Symbol<Integer> value = context.getStack().pop();
         final Position position = context.getCallStack().pop();
         context.setPosition(position);
-        context.getStack().push(value);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void visitAReturn(VM.AReturn command, EvaluatorContext context) {
         context.getScopes().pop();
-        Symbol<Object> value = context.getStack().pop();
         final Position position = context.getCallStack().pop();
         context.setPosition(position);
-        context.getStack().push(value);
     }
 
     @Override
@@ -263,28 +285,39 @@ public class VMEvaluator extends AbstractVMVisitor<EvaluatorContext> {
 
     @Override
     public void visitIfTrue(VM.IfTrue command, EvaluatorContext context) {
-        Symbol<Integer> value = context.getStack().pop();
-        if (value.getValue() != 0) {
+        if (context.getStack().popInt() != 0) {
             context.gotoLabel(command.getLabel());
         }
     }
 
     @Override
     public void visitIfFalse(VM.IfFalse command, EvaluatorContext context) {
-        Symbol<Integer> value = context.getStack().pop();
-        if (value.getValue() == 0) {
+        if (context.getStack().popInt() == 0) {
             context.gotoLabel(command.getLabel());
         }
     }
 
     @Override
     public void visitNewArray(VM.NewArray command, EvaluatorContext context) {
-        Symbol<Integer> size = context.getStack().pop();
-        List<Object> array = new ArrayList<>(size.getValue());
-        for (int i = 0; i < size.getValue(); ++i) {
-            array.add(null);
+        final int size = context.getStack().popInt();
+        final Type elementType = command.getElementType();
+        final ArrayValue array;
+        if (context.getLocalArrays().containsKey(command)) {
+            array = getLocalArray(command, context);
+        } else if (elementType.equals(IntegerType.INSTANCE) || elementType.equals(CharacterType.INSTANCE)) {
+            array = new IntArrayValue(size);
+        } else {
+            array = new ReferenceArrayValue(size);
         }
-        context.getStack().push(new Symbol<>(array));
+        context.getStack().pushRef(array);
+    }
+
+    /**
+     * Gets the array of frame, the previous array of the same command is not used any more
+     */
+    private IntArrayValue getLocalArray(final VM command, final EvaluatorContext context) {
+        final int length = context.getLocalArrays().get(command);
+        return (IntArrayValue) context.getScope().getArrays().computeIfAbsent(command, key -> new IntArrayValue(length));
     }
 
     @Override
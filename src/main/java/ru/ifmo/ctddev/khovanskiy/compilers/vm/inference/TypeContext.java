@@ -9,6 +9,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 
@@ -17,7 +18,8 @@ import java.util.stream.Collectors;
  * @since 1.0.0
  */
 public class TypeContext {
-    private final Map<String, Scope> scopes = new HashMap<>();
+    // the parallel compilers look up the scopes concurrently
+    private final Map<String, Scope> scopes = new ConcurrentHashMap<>();
 
     public Scope getScopeByName(final String name) {
         return scopes.computeIfAbsent(name, k -> new Scope(name));
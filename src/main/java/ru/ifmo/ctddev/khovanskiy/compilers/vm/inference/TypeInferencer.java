@@ -45,8 +45,14 @@ public class TypeInferencer extends AbstractASTVisitor<TypeInferenceContext> {
         for (final AST.FunctionDefinition f : functions) {
             visitFunctionDefinition(f, context);
         }
-        final TypeContext typeContext = new Evaluator(context, context.getRelations()).run();
-        context.setTypeContext(typeContext);
+        final TypeUnifier unifier = new TypeUnifier(context.getTypeVariableIds());
+        for (final TypeRelation relation : context.getRelations()) {
+            unifier.unify(relation.getLeft(), relation.getRight());
+        }
+        if (log.isInfoEnabled()) {
+            log.info("All types are inferenced");
+        }
+        context.setTypeContext(buildTypeContext(context, unifier));
     }
 
     @Override
@@ -221,8 +227,8 @@ public class TypeInferencer extends AbstractASTVisitor<TypeInferenceContext> {
             final Type argumentType = context.getScope().popType();
             if (elementType == null) {
                 elementType = argumentType;
-            } else if (!elementType.equals(argumentType)) {
-                throw new IllegalStateException();
+            } else {
+                context.addTypeRelation(elementType, argumentType);
             }
         }
         if (elementType == null) {
@@ -368,107 +374,22 @@ public class TypeInferencer extends AbstractASTVisitor<TypeInferenceContext> {
         });
     }
 
-    public class Evaluator {
-        private final TypeInferenceContext context;
-
-        private final Set<TypeRelation> relations = new HashSet<>();
-
-        private final Map<TypeVariable, ConcreteType> types = new HashMap<>();
-
-        public Evaluator(final TypeInferenceContext context, final List<TypeRelation> relations) {
-            this.context = context;
-            this.relations.addAll(relations);
-        }
-
-        public TypeContext run() {
-//            System.out.println("Relations");
-//            relations.forEach(rel -> {
-//                System.out.println(rel);
-//            });
-            final Set<TypeRelation> toAdd = new LinkedHashSet<>();
-            boolean updated;
-            do {
-                boolean updatedConcreteTypes = false;
-                for (final TypeRelation rel : relations) {
-                    if (rel.getLeft() instanceof TypeVariable && !((TypeVariable) rel.getLeft()).isIgnore()) {
-                        updatedConcreteTypes |= updateTransitiveRelations(toAdd, (TypeVariable) rel.getLeft(), rel.getRight());
-                    }
-                    if (rel.getRight() instanceof TypeVariable && !((TypeVariable) rel.getRight()).isIgnore()) {
-                        updatedConcreteTypes |= updateTransitiveRelations(toAdd, (TypeVariable) rel.getRight(), rel.getLeft());
-                    }
-                    if (rel.getLeft().isConcreteType() && rel.getRight().isConcreteType() && !rel.getLeft().equals(rel.getRight())) {
-                        throw new IllegalStateException(rel.getLeft() + " is not equal to " + rel.getRight());
-                    }
-                }
-                updated = relations.addAll(toAdd);
-                if (log.isTraceEnabled()) {
-                    log.trace("Added " + toAdd.size() + " new relations");
-                }
-                if (updatedConcreteTypes) {
-                    boolean foundAll = true;
-                    for (final Map.Entry<String, TypeInferenceContext.Scope> entry : context.getFunctionScopes().entrySet()) {
-                        final String functionName = entry.getKey();
-                        final TypeInferenceContext.Scope scope = entry.getValue();
-                        for (final TypeVariable t : scope.getVariables().values()) {
-                            if (types.get(t) == null) {
-                                if (log.isTraceEnabled()) {
-                                    log.trace("Unknown type for " + t);
-                                }
-                                foundAll = false;
-                            }
-                        }
-                    }
-                    if (foundAll) {
-                        if (log.isInfoEnabled()) {
-                            log.info("All types are inferenced");
-                        }
-                        break;
-                    }
+    private TypeContext buildTypeContext(final TypeInferenceContext context, final TypeUnifier unifier) {
+        final TypeContext typeContext = new TypeContext();
+        for (final TypeInferenceContext.Scope scope : context.getFunctionScopes().values()) {
+            for (final TypeVariable typeVariable : scope.getVariables().values()) {
+                final Type type = unifier.resolve(typeVariable);
+                if (!typeVariable.isIgnore() && type.isConcreteType()) {
+                    typeContext.getScopeByName(scope.getName()).setVariableType(typeVariable.getVariableId(), (ConcreteType) type);
+                } else if (log.isTraceEnabled()) {
+                    log.trace("Unknown type for " + typeVariable);
                 }
-                toAdd.clear();
-            } while (updated);
-//            System.out.println("=====\nNew Relations");
-//            relations.forEach(rel -> {
-//                System.out.println(rel);
-//            });
-            final TypeContext typeContext = new TypeContext();
-            types.forEach((tv, t) -> {
-                final TypeContext.Scope functionScope = typeContext.getScopeByName(tv.getFunctionName());
-                if (tv.getVariableId() >= 0) {
-                    functionScope.setVariableType(tv.getVariableId(), t);
-                } else {
-                    functionScope.setReturnType(t);
-                }
-                if (log.isTraceEnabled()) {
-                    log.trace("Type of " + tv + " is " + t);
-                }
-            });
-            return typeContext;
-        }
-
-        private void addRelation(final Set<TypeRelation> set, final TypeRelation rel) {
-            if (rel.getLeft().equals(rel.getRight())) {
-                return;
-            }
-            if (!relations.contains(rel)) {
-                set.add(rel);
             }
-        }
-
-        private boolean updateTransitiveRelations(final Set<TypeRelation> toAdd, final TypeVariable typeVariable, final Type type) {
-            for (final TypeRelation ab : relations) {
-                if (ab.getLeft().equals(typeVariable)) {
-                    addRelation(toAdd, new TypeRelation(type, ab.getRight()));
-                } else if (ab.getLeft().getTypeVariables().contains(typeVariable)) {
-                    addRelation(toAdd, new TypeRelation(ab.getLeft().substitute(typeVariable, type), ab.getRight()));
-                }
-                if (ab.getRight().equals(type)) {
-                    addRelation(toAdd, new TypeRelation(ab.getLeft(), type));
-                } else if (ab.getRight().getTypeVariables().contains(typeVariable)) {
-                    addRelation(toAdd, new TypeRelation(ab.getLeft(), ab.getRight().substitute(typeVariable, type)));
-                }
+            final Type returnType = unifier.resolve(scope.getReturnType());
+            if (returnType.isConcreteType()) {
+                typeContext.getScopeByName(scope.getName()).setReturnType((ConcreteType) returnType);
             }
-            return type.isConcreteType() && types.put(typeVariable, (ConcreteType) type) == null;
         }
+        return typeContext;
     }
 }
@@ -0,0 +1,204 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.inference;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.ApplicationType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.ArrayType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.ImplicationType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.Type;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.TypeVariable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unifier of the type relations
+ * <p>
+ * The type variables are kept in the disjoint sets with path compression and union by rank,
+ * the root of every set may be bound to the type that is not a variable. The variables marked as ignored
+ * are never bound, so the external functions like {@code write} accept the arguments of any type.
+ * The application of array type is replaced by the variable of its element type.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Slf4j
+public class TypeUnifier {
+    private final AtomicInteger typeVariableIds;
+
+    private final Map<TypeVariable, TypeVariable> parents = new HashMap<>();
+
+    private final Map<TypeVariable, Integer> ranks = new HashMap<>();
+
+    private final Map<TypeVariable, Type> bindings = new HashMap<>();
+
+    /**
+     * @param typeVariableIds the generator of ids for the new type variables
+     * @since 1.1.0
+     */
+    public TypeUnifier(final AtomicInteger typeVariableIds) {
+        this.typeVariableIds = typeVariableIds;
+    }
+
+    /**
+     * Unifies the types
+     *
+     * @param left  the left type
+     * @param right the right type
+     * @throws IllegalStateException if the types are different concrete types or the type is infinite
+     * @since 1.1.0
+     */
+    public void unify(final Type left, final Type right) {
+        final Type a = prune(left);
+        final Type b = prune(right);
+        if (a instanceof TypeVariable && b instanceof TypeVariable) {
+            union((TypeVariable) a, (TypeVariable) b);
+            return;
+        }
+        if (a instanceof TypeVariable) {
+            bind((TypeVariable) a, b);
+            return;
+        }
+        if (b instanceof TypeVariable) {
+            bind((TypeVariable) b, a);
+            return;
+        }
+        if (a instanceof ImplicationType && b instanceof ImplicationType) {
+            unify(((ImplicationType) a).getLeft(), ((ImplicationType) b).getLeft());
+            unify(((ImplicationType) a).getRight(), ((ImplicationType) b).getRight());
+            return;
+        }
+        if (a.equals(b)) {
+            return;
+        }
+        final Type resolvedA = resolve(a);
+        final Type resolvedB = resolve(b);
+        if (resolvedA.isConcreteType() && resolvedB.isConcreteType()) {
+            throw new IllegalStateException(resolvedA + " is not equal to " + resolvedB);
+        }
+        // the conflict of types that are not known completely is not checked
+        if (log.isDebugEnabled()) {
+            log.debug("Relation " + resolvedA + " == " + resolvedB + " is skipped");
+        }
+    }
+
+    /**
+     * Substitutes the bound types for all the type variables
+     *
+     * @param type the type
+     * @return the type with the unbound variables only
+     * @since 1.1.0
+     */
+    public Type resolve(final Type type) {
+        final Type pruned = prune(type);
+        if (pruned instanceof TypeVariable) {
+            return pruned;
+        }
+        if (pruned instanceof ImplicationType) {
+            final ImplicationType implication = (ImplicationType) pruned;
+            return ImplicationType.of(resolve(implication.getLeft()), resolve(implication.getRight()));
+        }
+        return pruned;
+    }
+
+    /**
+     * Finds the root of set of the type variable
+     *
+     * @param typeVariable the type variable
+     * @return the root type variable
+     * @since 1.1.0
+     */
+    public TypeVariable find(final TypeVariable typeVariable) {
+        TypeVariable root = typeVariable;
+        TypeVariable parent = parents.get(root);
+        while (parent != null) {
+            root = parent;
+            parent = parents.get(root);
+        }
+        TypeVariable current = typeVariable;
+        while (!current.equals(root)) {
+            final TypeVariable next = parents.get(current);
+            parents.put(current, root);
+            current = next;
+        }
+        return root;
+    }
+
+    /**
+     * Gets the type variable root or its bound type, the application of array type is replaced by its element type
+     */
+    private Type prune(final Type type) {
+        if (type instanceof TypeVariable) {
+            final TypeVariable typeVariable = (TypeVariable) type;
+            if (typeVariable.isIgnore()) {
+                return typeVariable;
+            }
+            final TypeVariable root = find(typeVariable);
+            final Type bound = bindings.get(root);
+            return bound != null ? bound : root;
+        }
+        if (type instanceof ApplicationType) {
+            final Type function = prune(((ApplicationType) type).getLeft());
+            if (function instanceof ImplicationType) {
+                return prune(((ImplicationType) function).getRight());
+            }
+            final TypeVariable elementType = new TypeVariable(typeVariableIds.getAndIncrement());
+            unify(function, ImplicationType.of(ArrayType.INSTANCE, elementType));
+            return prune(elementType);
+        }
+        return type;
+    }
+
+    private void union(final TypeVariable a, final TypeVariable b) {
+        if (a.isIgnore() || b.isIgnore() || a.equals(b)) {
+            return;
+        }
+        final int rankA = ranks.getOrDefault(a, 0);
+        final int rankB = ranks.getOrDefault(b, 0);
+        final TypeVariable root = rankA >= rankB ? a : b;
+        final TypeVariable child = root == a ? b : a;
+        parents.put(child, root);
+        if (rankA == rankB) {
+            ranks.put(root, rankA + 1);
+        }
+        final Type childBound = bindings.remove(child);
+        if (childBound != null) {
+            bind(root, childBound);
+        }
+    }
+
+    private void bind(final TypeVariable typeVariable, final Type type) {
+        if (typeVariable.isIgnore()) {
+            return;
+        }
+        final TypeVariable root = find(typeVariable);
+        final Type bound = bindings.get(root);
+        if (bound != null) {
+            unify(bound, type);
+            return;
+        }
+        if (occurs(root, type)) {
+            throw new IllegalStateException(String.format("Type variable %s occurs in %s", root, resolve(type)));
+        }
+        bindings.put(root, type);
+    }
+
+    private boolean occurs(final TypeVariable root, final Type type) {
+        final List<Type> stack = new ArrayList<>();
+        stack.add(type);
+        while (!stack.isEmpty()) {
+            final Type current = prune(stack.remove(stack.size() - 1));
+            if (current instanceof TypeVariable) {
+                if (current.equals(root)) {
+                    return true;
+                }
+            } else if (current instanceof ImplicationType) {
+                stack.add(((ImplicationType) current).getLeft());
+                stack.add(((ImplicationType) current).getRight());
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,24 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.linker;
+
+import lombok.Getter;
+
+/**
+ * The function with flat code, resolved labels and resolved calls
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Getter
+public class LinkedFunction {
+    private final String name;
+    private final int argumentsCount;
+    private final int localsCount;
+    private final int[] code;
+
+    public LinkedFunction(final String name, final int argumentsCount, final int localsCount, final int[] code) {
+        this.name = name;
+        this.argumentsCount = argumentsCount;
+        this.localsCount = localsCount;
+        this.code = code;
+    }
+}
@@ -0,0 +1,27 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.linker;
+
+import lombok.Getter;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ExternalFunction;
+
+/**
+ * The program ready for the execution by index
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Getter
+public class LinkedProgram {
+    private final LinkedFunction[] functions;
+    private final ExternalFunction[] externals;
+    private final int mainIndex;
+
+    public LinkedProgram(final LinkedFunction[] functions, final ExternalFunction[] externals, final int mainIndex) {
+        this.functions = functions;
+        this.externals = externals;
+        this.mainIndex = mainIndex;
+    }
+
+    public LinkedFunction getMain() {
+        return functions[mainIndex];
+    }
+}
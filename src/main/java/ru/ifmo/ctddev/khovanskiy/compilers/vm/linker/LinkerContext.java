@@ -0,0 +1,144 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.linker;
+
+import lombok.Getter;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ExternalFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.FunctionPointer;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Pointer;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Symbol;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The linker context
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Getter
+public class LinkerContext {
+    private final Map<String, Integer> functionIndexes = new HashMap<>();
+
+    private final Map<Pointer, Symbol> symbols;
+
+    private final Map<String, Integer> externalIndexes = new HashMap<>();
+
+    private final List<ExternalFunction> externals = new ArrayList<>();
+
+    private final List<LinkedFunction> functions = new ArrayList<>();
+
+    private final Map<String, Integer> labels = new HashMap<>();
+
+    private final List<Fixup> fixups = new ArrayList<>();
+
+    private int[] code = new int[64];
+
+    private int size;
+
+    private int maxSlot;
+
+    public LinkerContext(final Map<Pointer, Symbol> symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * Starts the code of the new function
+     *
+     * @param argumentsCount the count of arguments
+     * @since 1.1.0
+     */
+    public void beginFunction(final int argumentsCount) {
+        labels.clear();
+        fixups.clear();
+        code = new int[64];
+        size = 0;
+        maxSlot = argumentsCount - 1;
+    }
+
+    /**
+     * Finishes the code of the current function and resolves all jumps
+     *
+     * @param functionName the function name
+     * @return the trimmed code
+     * @since 1.1.0
+     */
+    public int[] endFunction(final String functionName) {
+        for (final Fixup fixup : fixups) {
+            final Integer target = labels.get(fixup.getLabel());
+            if (target == null) {
+                throw new IllegalStateException(String.format("Function \"%s\": unknown position of label \"%s\"", functionName, fixup.getLabel()));
+            }
+            code[fixup.getOffset()] = target;
+        }
+        return Arrays.copyOf(code, size);
+    }
+
+    public void emit(final int value) {
+        if (size == code.length) {
+            code = Arrays.copyOf(code, size * 2);
+        }
+        code[size++] = value;
+    }
+
+    public void emit(final int opcode, final int operand) {
+        emit(opcode);
+        emit(operand);
+    }
+
+    /**
+     * Emits the jump which target is resolved at the end of function
+     *
+     * @param opcode the jump opcode
+     * @param label  the target label
+     * @since 1.1.0
+     */
+    public void emitJump(final int opcode, final String label) {
+        emit(opcode);
+        fixups.add(new Fixup(size, label));
+        emit(-1);
+    }
+
+    public void emitSlot(final int opcode, final int slot) {
+        maxSlot = Math.max(maxSlot, slot);
+        emit(opcode, slot);
+    }
+
+    public void registerLabel(final String name) {
+        final Integer previous = labels.put(name, size);
+        if (previous != null) {
+            throw new IllegalStateException(String.format("Label \"%s\" is duplicated at offsets: %d and %d", name, previous, size));
+        }
+    }
+
+    /**
+     * Gets the index of external function, registers it at first usage
+     *
+     * @param name the function name
+     * @return the index or -1 if there is no such external function
+     * @since 1.1.0
+     */
+    public int getExternalIndex(final String name) {
+        final Symbol symbol = symbols.get(new FunctionPointer(name));
+        if (symbol == null || !(symbol.getValue() instanceof ExternalFunction)) {
+            return -1;
+        }
+        return externalIndexes.computeIfAbsent(name, k -> {
+            externals.add((ExternalFunction) symbol.getValue());
+            return externals.size() - 1;
+        });
+    }
+
+    @Getter
+    private static class Fixup {
+        private final int offset;
+        private final String label;
+
+        Fixup(final int offset, final String label) {
+            this.offset = offset;
+            this.label = label;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.linker;
+
+/**
+ * Opcodes of the linked virtual machine code
+ * <p>
+ * Every instruction is stored as the opcode followed by its inline operands.
+ * Jump targets are absolute offsets in the code array of the same function.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public final class Opcodes {
+    /**
+     * {@code DUP}
+     */
+    public static final int DUP = 0;
+    /**
+     * {@code ILOAD slot}
+     */
+    public static final int ILOAD = 1;
+    /**
+     * {@code ALOAD slot}
+     */
+    public static final int ALOAD = 2;
+    /**
+     * {@code ISTORE slot}
+     */
+    public static final int ISTORE = 3;
+    /**
+     * {@code ASTORE slot}
+     */
+    public static final int ASTORE = 4;
+    public static final int IALOAD = 5;
+    public static final int AALOAD = 6;
+    public static final int IASTORE = 7;
+    public static final int AASTORE = 8;
+    /**
+     * {@code ICONST value}
+     */
+    public static final int ICONST = 9;
+    public static final int ACONST_NULL = 10;
+    public static final int IADD = 11;
+    public static final int ISUB = 12;
+    public static final int IMUL = 13;
+    public static final int IDIV = 14;
+    public static final int IREM = 15;
+    public static final int IAND = 16;
+    public static final int IXOR = 17;
+    public static final int IOR = 18;
+    public static final int LAND = 19;
+    public static final int LOR = 20;
+    public static final int CMPGT = 21;
+    public static final int CMPGE = 22;
+    public static final int CMPLT = 23;
+    public static final int CMPLE = 24;
+    public static final int CMPEQ = 25;
+    public static final int CMPNE = 26;
+    /**
+     * {@code GOTO target}
+     */
+    public static final int GOTO = 27;
+    /**
+     * {@code IFTRUE target}
+     */
+    public static final int IFTRUE = 28;
+    /**
+     * {@code IFFALSE target}
+     */
+    public static final int IFFALSE = 29;
+    /**
+     * {@code INVOKE function}, where function is the index in {@link LinkedProgram#getFunctions()}
+     */
+    public static final int INVOKE = 30;
+    /**
+     * {@code INVOKE_EXTERNAL function arguments}, where function is the index in {@link LinkedProgram#getExternals()}
+     */
+    public static final int INVOKE_EXTERNAL = 31;
+    public static final int RETURN = 32;
+    public static final int IRETURN = 33;
+    public static final int ARETURN = 34;
+    /**
+     * Creates the array of integers
+     */
+    public static final int NEWARRAY = 35;
+    /**
+     * Creates the array of references
+     */
+    public static final int ANEWARRAY = 36;
+
+    private Opcodes() {
+    }
+
+    /**
+     * Gets the opcode of the binary operator
+     *
+     * @param operator the operator
+     * @return the opcode
+     * @since 1.1.0
+     */
+    public static int getBinaryOpcode(final String operator) {
+        switch (operator) {
+            case "+":
+                return IADD;
+            case "-":
+                return ISUB;
+            case "*":
+                return IMUL;
+            case "/":
+                return IDIV;
+            case "%":
+                return IREM;
+            case "&":
+                return IAND;
+            case "^":
+                return IXOR;
+            case "|":
+                return IOR;
+            case "&&":
+                return LAND;
+            case "!!":
+            case "||":
+                return LOR;
+            case ">":
+                return CMPGT;
+            case ">=":
+                return CMPGE;
+            case "<":
+                return CMPLT;
+            case "<=":
+                return CMPLE;
+            case "==":
+                return CMPEQ;
+            case "!=":
+                return CMPNE;
+            default:
+                throw new IllegalArgumentException("Unknown binary operator: " + operator);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.linker;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ExternalFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Pointer;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Symbol;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.CharacterType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.IntegerType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.Type;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.visitor.AbstractVMVisitor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Linker of the virtual machine code to the flat opcode arrays
+ * <p>
+ * Labels are resolved to offsets in the code of function, calls are resolved to indexes of functions,
+ * so the evaluator does not need any lookup by name during the execution.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class VMLinker extends AbstractVMVisitor<LinkerContext> {
+    /**
+     * Links the program
+     *
+     * @param vmProgram the program
+     * @param symbols   the external symbols
+     * @return the linked program
+     * @since 1.1.0
+     */
+    public LinkedProgram link(final VMProgram vmProgram, final Map<Pointer, Symbol> symbols) {
+        final LinkerContext context = new LinkerContext(symbols);
+        visitProgram(vmProgram, context);
+        final Integer mainIndex = context.getFunctionIndexes().get("main");
+        if (mainIndex == null) {
+            throw new IllegalStateException("Function \"main\" is not found");
+        }
+        final List<LinkedFunction> functions = context.getFunctions();
+        final List<ExternalFunction> externals = context.getExternals();
+        return new LinkedProgram(functions.toArray(new LinkedFunction[0]), externals.toArray(new ExternalFunction[0]), mainIndex);
+    }
+
+    @Override
+    public void visitProgram(final VMProgram vmProgram, final LinkerContext context) {
+        final List<VMFunction> functions = vmProgram.getFunctions();
+        for (int i = 0; i < functions.size(); ++i) {
+            final String name = functions.get(i).getName();
+            if (context.getFunctionIndexes().put(name, i) != null) {
+                throw new IllegalStateException(String.format("Function \"%s\" is duplicated", name));
+            }
+        }
+        super.visitProgram(vmProgram, context);
+    }
+
+    @Override
+    public void visitFunction(final VMFunction function, final LinkerContext context) {
+        context.beginFunction(function.getArgumentsCount());
+        super.visitFunction(function, context);
+        // falling off the end of function is the same as return without value
+        context.emit(Opcodes.RETURN);
+        final int[] code = context.endFunction(function.getName());
+        final int localsCount = context.getMaxSlot() + 1;
+        context.getFunctions().add(new LinkedFunction(function.getName(), function.getArgumentsCount(), localsCount, code));
+    }
+
+    @Override
+    public void visitDup(final VM.Dup command, final LinkerContext context) {
+        context.emit(Opcodes.DUP);
+    }
+
+    @Override
+    public void visitIStore(final VM.IStore command, final LinkerContext context) {
+        context.emitSlot(Opcodes.ISTORE, command.getName());
+    }
+
+    @Override
+    public void visitAStore(final VM.AStore command, final LinkerContext context) {
+        context.emitSlot(Opcodes.ASTORE, command.getName());
+    }
+
+    @Override
+    public void visitIAStore(final VM.IAStore command, final LinkerContext context) {
+        context.emit(Opcodes.IASTORE);
+    }
+
+    @Override
+    public void visitAAStore(final VM.AAStore command, final LinkerContext context) {
+        context.emit(Opcodes.AASTORE);
+    }
+
+    @Override
+    public void visitILoad(final VM.ILoad command, final LinkerContext context) {
+        context.emitSlot(Opcodes.ILOAD, command.getName());
+    }
+
+    @Override
+    public void visitALoad(final VM.ALoad command, final LinkerContext context) {
+        context.emitSlot(Opcodes.ALOAD, command.getName());
+    }
+
+    @Override
+    public void visitIALoad(final VM.IALoad command, final LinkerContext context) {
+        context.emit(Opcodes.IALOAD);
+    }
+
+    @Override
+    public void visitAALoad(final VM.AALoad command, final LinkerContext context) {
+        context.emit(Opcodes.AALOAD);
+    }
+
+    @Override
+    public void visitLabel(final VM.Label command, final LinkerContext context) {
+        context.registerLabel(command.getName());
+    }
+
+    @Override
+    public void visitBinOp(final VM.BinOp command, final LinkerContext context) {
+        context.emit(Opcodes.getBinaryOpcode(command.getOperator()));
+    }
+
+    @Override
+    public void visitAConstNull(final VM.AConstNull command, final LinkerContext context) {
+        context.emit(Opcodes.ACONST_NULL);
+    }
+
+    @Override
+    public void visitIConst(final VM.IConst command, final LinkerContext context) {
+        context.emit(Opcodes.ICONST, command.getValue());
+    }
+
+    @Override
+    public void visitInvokeStatic(final VM.InvokeStatic command, final LinkerContext context) {
+        final int externalIndex = context.getExternalIndex(command.getName());
+        if (externalIndex >= 0) {
+            context.emit(Opcodes.INVOKE_EXTERNAL, externalIndex);
+            context.emit(command.getArgumentsCount());
+            return;
+        }
+        final Integer functionIndex = context.getFunctionIndexes().get(command.getName());
+        if (functionIndex == null) {
+            throw new IllegalStateException(String.format("Function \"%s\" is not defined", command.getName()));
+        }
+        context.emit(Opcodes.INVOKE, functionIndex);
+    }
+
+    @Override
+    public void visitReturn(final VM.Return command, final LinkerContext context) {
+        context.emit(Opcodes.RETURN);
+    }
+
+    @Override
+    public void visitIReturn(final VM.IReturn command, final LinkerContext context) {
+        context.emit(Opcodes.IRETURN);
+    }
+
+    @Override
+    public void visitAReturn(final VM.AReturn command, final LinkerContext context) {
+        context.emit(Opcodes.ARETURN);
+    }
+
+    @Override
+    public void visitGoto(final VM.Goto command, final LinkerContext context) {
+        context.emitJump(Opcodes.GOTO, command.getLabel());
+    }
+
+    @Override
+    public void visitIfTrue(final VM.IfTrue command, final LinkerContext context) {
+        context.emitJump(Opcodes.IFTRUE, command.getLabel());
+    }
+
+    @Override
+    public void visitIfFalse(final VM.IfFalse command, final LinkerContext context) {
+        context.emitJump(Opcodes.IFFALSE, command.getLabel());
+    }
+
+    @Override
+    public void visitNewArray(final VM.NewArray command, final LinkerContext context) {
+        final Type elementType = command.getElementType();
+        if (elementType.equals(IntegerType.INSTANCE) || elementType.equals(CharacterType.INSTANCE)) {
+            context.emit(Opcodes.NEWARRAY);
+        } else {
+            context.emit(Opcodes.ANEWARRAY);
+        }
+    }
+
+    @Override
+    public void visitUnknown(final VM command, final LinkerContext context) {
+        throw new UnsupportedOperationException(command.toString());
+    }
+}
@@ -0,0 +1,107 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.optimizer;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Folds the binary operations on constants and the conditional jumps on constants
+ * <p>
+ * The folded constant can be folded again with the following command, so the nested expressions are folded in one pass.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class ConstantFoldingPass implements VMPass {
+    @Override
+    public String getName() {
+        return "constant-folding";
+    }
+
+    @Override
+    public boolean apply(final VMFunction function) {
+        final List<VM> commands = function.getCommands();
+        final List<VM> result = new ArrayList<>(commands.size());
+        boolean changed = false;
+        for (final VM command : commands) {
+            final int size = result.size();
+            if (command instanceof VM.BinOp && size >= 2 && result.get(size - 1) instanceof VM.IConst && result.get(size - 2) instanceof VM.IConst) {
+                final int right = ((VM.IConst) result.get(size - 1)).getValue();
+                final int left = ((VM.IConst) result.get(size - 2)).getValue();
+                final Integer value = fold(((VM.BinOp) command).getOperator(), left, right);
+                if (value != null) {
+                    result.remove(size - 1);
+                    result.remove(size - 2);
+                    result.add(new VM.IConst(value));
+                    changed = true;
+                    continue;
+                }
+            }
+            if ((command instanceof VM.IfTrue || command instanceof VM.IfFalse) && size >= 1 && result.get(size - 1) instanceof VM.IConst) {
+                final boolean condition = ((VM.IConst) result.get(size - 1)).getValue() != 0;
+                result.remove(size - 1);
+                if (condition == command instanceof VM.IfTrue) {
+                    result.add(new VM.Goto(Jumps.getTarget(command)));
+                }
+                changed = true;
+                continue;
+            }
+            result.add(command);
+        }
+        if (changed) {
+            commands.clear();
+            commands.addAll(result);
+        }
+        return changed;
+    }
+
+    /**
+     * Computes the binary operation like the evaluators do
+     *
+     * @return the value or {@code null} if the operation must be left for the run time
+     */
+    private static Integer fold(final String operator, final int left, final int right) {
+        switch (operator) {
+            case "+":
+                return left + right;
+            case "-":
+                return left - right;
+            case "*":
+                return left * right;
+            case "/":
+            case "%":
+                // the division by zero and the overflow trap on x86, so they are left for the run time
+                if (right == 0 || (left == Integer.MIN_VALUE && right == -1)) {
+                    return null;
+                }
+                return operator.equals("/") ? left / right : left % right;
+            case "&":
+                return left & right;
+            case "^":
+                return left ^ right;
+            case "|":
+                return left | right;
+            case "&&":
+                return left != 0 && right != 0 ? 1 : 0;
+            case "!!":
+            case "||":
+                return left != 0 || right != 0 ? 1 : 0;
+            case ">":
+                return left > right ? 1 : 0;
+            case ">=":
+                return left >= right ? 1 : 0;
+            case "<":
+                return left < right ? 1 : 0;
+            case "<=":
+                return left <= right ? 1 : 0;
+            case "==":
+                return left == right ? 1 : 0;
+            case "!=":
+                return left != right ? 1 : 0;
+            default:
+                return null;
+        }
+    }
+}
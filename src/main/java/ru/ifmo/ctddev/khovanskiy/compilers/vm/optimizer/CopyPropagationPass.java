@@ -0,0 +1,102 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.optimizer;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Propagates the copies and constants of integer variables and eliminates the redundant stores and loads
+ * <p>
+ * After {@code i_load a; i_store b} the loads of {@code b} are replaced by the loads of {@code a}
+ * until the next label or store to any of them, the same is done for {@code i_const c; i_store b}. Then {@code i_store n; i_load n} becomes {@code dup; i_store n},
+ * or nothing if there are no other loads of {@code n}, and the stores of constants and variables
+ * that are never loaded are removed. The stores of references are kept because of reference counting.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class CopyPropagationPass implements VMPass {
+    @Override
+    public String getName() {
+        return "copy-propagation";
+    }
+
+    @Override
+    public boolean apply(final VMFunction function) {
+        final List<VM> commands = function.getCommands();
+        boolean changed = propagateCopies(commands);
+
+        final Map<Integer, Integer> loads = new HashMap<>();
+        for (final VM command : commands) {
+            if (command instanceof VM.ILoad) {
+                loads.merge(((VM.ILoad) command).getName(), 1, Integer::sum);
+            } else if (command instanceof VM.ALoad) {
+                loads.merge(((VM.ALoad) command).getName(), 1, Integer::sum);
+            }
+        }
+        final List<VM> result = new ArrayList<>(commands.size());
+        for (int i = 0; i < commands.size(); ++i) {
+            final VM command = commands.get(i);
+            if (command instanceof VM.IStore) {
+                final int name = ((VM.IStore) command).getName();
+                final int count = loads.getOrDefault(name, 0);
+                final VM next = i + 1 < commands.size() ? commands.get(i + 1) : null;
+                if (next instanceof VM.ILoad && ((VM.ILoad) next).getName() == name) {
+                    if (count > 1) {
+                        result.add(new VM.Dup());
+                        result.add(command);
+                    }
+                    ++i;
+                    changed = true;
+                    continue;
+                }
+                final VM previous = result.isEmpty() ? null : result.get(result.size() - 1);
+                if (count == 0 && (previous instanceof VM.IConst || previous instanceof VM.ILoad)) {
+                    // the value has no side effects, so it is removed together with the dead store
+                    result.remove(result.size() - 1);
+                    changed = true;
+                    continue;
+                }
+            }
+            result.add(command);
+        }
+        if (changed) {
+            commands.clear();
+            commands.addAll(result);
+        }
+        return changed;
+    }
+
+    /**
+     * Replaces the loads of variables by the loads of their sources or by their constant values
+     */
+    private static boolean propagateCopies(final List<VM> commands) {
+        final Map<Integer, VM> values = new HashMap<>();
+        boolean changed = false;
+        for (int i = 0; i < commands.size(); ++i) {
+            final VM command = commands.get(i);
+            if (command instanceof VM.Label) {
+                values.clear();
+            } else if (command instanceof VM.ILoad) {
+                final VM value = values.get(((VM.ILoad) command).getName());
+                if (value != null) {
+                    commands.set(i, value);
+                    changed = true;
+                }
+            } else if (command instanceof VM.IStore) {
+                final int name = ((VM.IStore) command).getName();
+                values.remove(name);
+                values.values().removeIf(value -> value instanceof VM.ILoad && ((VM.ILoad) value).getName() == name);
+                final VM previous = i > 0 ? commands.get(i - 1) : null;
+                if (previous instanceof VM.IConst || previous instanceof VM.ILoad && ((VM.ILoad) previous).getName() != name) {
+                    values.put(name, previous);
+                }
+            }
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,73 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.optimizer;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Removes the unreachable commands after the unconditional jumps and returns,
+ * the jumps to the next command and the labels without jumps to them
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class DeadCodeEliminationPass implements VMPass {
+    @Override
+    public String getName() {
+        return "dead-code-elimination";
+    }
+
+    @Override
+    public boolean apply(final VMFunction function) {
+        final List<VM> commands = function.getCommands();
+        final List<VM> result = new ArrayList<>(commands.size());
+        boolean reachable = true;
+        for (final VM command : commands) {
+            if (command instanceof VM.Label) {
+                reachable = true;
+            }
+            if (reachable) {
+                result.add(command);
+            }
+            if (Jumps.isTerminal(command)) {
+                reachable = false;
+            }
+        }
+        removeJumpsToNext(result);
+
+        final Set<String> targets = new HashSet<>();
+        for (final VM command : result) {
+            final String target = Jumps.getTarget(command);
+            if (target != null) {
+                targets.add(target);
+            }
+        }
+        result.removeIf(command -> command instanceof VM.Label && !targets.contains(((VM.Label) command).getName()));
+
+        final boolean changed = result.size() != commands.size();
+        if (changed) {
+            commands.clear();
+            commands.addAll(result);
+        }
+        return changed;
+    }
+
+    private static void removeJumpsToNext(final List<VM> commands) {
+        for (int i = commands.size() - 1; i >= 0; --i) {
+            if (!(commands.get(i) instanceof VM.Goto)) {
+                continue;
+            }
+            final String target = ((VM.Goto) commands.get(i)).getLabel();
+            for (int j = i + 1; j < commands.size() && commands.get(j) instanceof VM.Label; ++j) {
+                if (((VM.Label) commands.get(j)).getName().equals(target)) {
+                    commands.remove(i);
+                    break;
+                }
+            }
+        }
+    }
+}
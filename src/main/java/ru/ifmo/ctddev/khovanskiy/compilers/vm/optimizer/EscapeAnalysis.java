@@ -0,0 +1,362 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.optimizer;
+
+import lombok.Getter;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.StackEffects;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.CharacterType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.IntegerType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the arrays that never leave the function, such arrays are allocated in the frame of function
+ * <p>
+ * The allocation sites are {@code new_array} of integers or characters and the calls of {@code arrmake} and {@code strmake},
+ * the length of array is the constant. The array escapes if it is stored into the other array, returned, passed
+ * to the function that is not a builtin of strings and arrays, or stored into the argument, which holder belongs to the caller.
+ * The variable of local arrays keeps nothing else, otherwise the arrays escape through it.
+ * <p>
+ * The site in the loop uses the same memory every time, so its array is either the temporary value or it is stored
+ * at once into its own variable while nothing else is on the stack.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public final class EscapeAnalysis {
+    /**
+     * The maximum length of local array, the longer arrays are allocated in the heap
+     */
+    public static final int MAX_LENGTH = 64;
+
+    private static final Set<String> BUILTINS = new HashSet<>(Arrays.asList("strlen", "strget", "strset", "strsub", "strdup", "strcat", "strcmp", "arrlen"));
+
+    /**
+     * The value that is not a local array: the heap array, the null or the integer
+     */
+    private static final Object UNKNOWN = new Object();
+
+    private static final Result EMPTY = new Result(Collections.emptyMap(), Collections.emptySet());
+
+    private EscapeAnalysis() {
+    }
+
+    /**
+     * Analyzes the function
+     *
+     * @param function the function
+     * @return the local arrays and variables
+     * @since 1.1.0
+     */
+    public static Result analyze(final VMFunction function) {
+        final List<VM> commands = function.getCommands();
+        final Map<VM, Integer> lengths = findSites(commands);
+        if (lengths.isEmpty()) {
+            return EMPTY;
+        }
+        final Map<String, Integer> labels = new HashMap<>();
+        for (int i = 0; i < commands.size(); ++i) {
+            if (commands.get(i) instanceof VM.Label) {
+                labels.put(((VM.Label) commands.get(i)).getName(), i);
+            }
+        }
+        final Set<Object> escaped = newSet();
+        final Map<Integer, Set<Object>> variables = new HashMap<>();
+        List<Set<Object>>[] stacks;
+        boolean changed;
+        do {
+            stacks = flow(function, lengths, labels, variables, escaped);
+            if (stacks == null) {
+                return EMPTY;
+            }
+            changed = false;
+            for (int i = 0; i < commands.size(); ++i) {
+                if (commands.get(i) instanceof VM.AStore && stacks[i] != null) {
+                    final Set<Object> value = stacks[i].get(stacks[i].size() - 1);
+                    changed |= variables.computeIfAbsent(((VM.AStore) commands.get(i)).getName(), key -> newSet()).addAll(value);
+                }
+            }
+        } while (changed);
+
+        for (boolean grown = true; grown; ) {
+            grown = false;
+            for (final Map.Entry<Integer, Set<Object>> entry : variables.entrySet()) {
+                final Set<Object> sites = entry.getValue();
+                final boolean mixed = entry.getKey() < function.getArgumentsCount() || sites.contains(UNKNOWN) || sites.stream().anyMatch(escaped::contains);
+                if (mixed) {
+                    grown |= escaped.addAll(sites);
+                }
+            }
+            for (int i = 0; i < commands.size(); ++i) {
+                final VM site = commands.get(i);
+                if (!lengths.containsKey(site) || escaped.contains(site) || !isReachable(commands, labels, i, i)) {
+                    continue;
+                }
+                if (!isReused(commands, i, stacks, variables)) {
+                    grown |= escaped.add(site);
+                }
+            }
+        }
+
+        final Map<VM, Integer> local = new IdentityHashMap<>();
+        for (final Map.Entry<VM, Integer> entry : lengths.entrySet()) {
+            if (!escaped.contains(entry.getKey())) {
+                local.put(entry.getKey(), entry.getValue());
+            }
+        }
+        final Set<Integer> localVariables = new HashSet<>();
+        for (final Map.Entry<Integer, Set<Object>> entry : variables.entrySet()) {
+            if (!entry.getValue().isEmpty() && entry.getValue().stream().allMatch(local::containsKey)) {
+                localVariables.add(entry.getKey());
+            }
+        }
+        return new Result(local, localVariables);
+    }
+
+    /**
+     * Finds the allocations of arrays of the constant length
+     */
+    private static Map<VM, Integer> findSites(final List<VM> commands) {
+        final Map<VM, Integer> lengths = new IdentityHashMap<>();
+        for (int i = 0; i < commands.size(); ++i) {
+            final VM command = commands.get(i);
+            if (command instanceof VM.NewArray && i > 0) {
+                final Object elementType = ((VM.NewArray) command).getElementType();
+                final boolean primitive = IntegerType.INSTANCE.equals(elementType) || CharacterType.INSTANCE.equals(elementType);
+                final Integer length = getConstant(commands.get(i - 1));
+                if (primitive && length != null && length >= 0 && length <= MAX_LENGTH) {
+                    lengths.put(command, length);
+                }
+            } else if (isArrayMake(command) && i > 1) {
+                // the value is the single command without side effects, so the length is the constant before it
+                final VM value = commands.get(i - 1);
+                final Integer length = getConstant(commands.get(i - 2));
+                if ((value instanceof VM.IConst || value instanceof VM.ILoad) && length != null && length >= 0 && length <= MAX_LENGTH) {
+                    lengths.put(command, length);
+                }
+            }
+        }
+        return lengths;
+    }
+
+    private static boolean isArrayMake(final VM command) {
+        if (!(command instanceof VM.InvokeStatic)) {
+            return false;
+        }
+        final VM.InvokeStatic invoke = (VM.InvokeStatic) command;
+        return invoke.getArgumentsCount() == 2 && ("arrmake".equals(invoke.getName()) || "strmake".equals(invoke.getName()));
+    }
+
+    private static Integer getConstant(final VM command) {
+        return command instanceof VM.IConst ? ((VM.IConst) command).getValue() : null;
+    }
+
+    /**
+     * Computes the sites of values on the stack before every command
+     *
+     * @return the stacks or {@code null} if the depths of stack differ where the paths join
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Set<Object>>[] flow(final VMFunction function, final Map<VM, Integer> lengths, final Map<String, Integer> labels,
+                                            final Map<Integer, Set<Object>> variables, final Set<Object> escaped) {
+        final List<VM> commands = function.getCommands();
+        final List<Set<Object>>[] stacks = new List[commands.size()];
+        final Deque<Integer> worklist = new ArrayDeque<>();
+        stacks[0] = new ArrayList<>();
+        worklist.add(0);
+        while (!worklist.isEmpty()) {
+            final int index = worklist.poll();
+            final VM command = commands.get(index);
+            final List<Set<Object>> stack = new ArrayList<>(stacks[index]);
+            if (!execute(function, command, stack, lengths, variables, escaped)) {
+                return null;
+            }
+            for (final int successor : getSuccessors(commands, labels, index)) {
+                if (stacks[successor] == null) {
+                    stacks[successor] = copy(stack);
+                    worklist.add(successor);
+                } else if (merge(stacks[successor], stack)) {
+                    worklist.add(successor);
+                } else if (stacks[successor].size() != stack.size()) {
+                    return null;
+                }
+            }
+        }
+        return stacks;
+    }
+
+    private static boolean execute(final VMFunction function, final VM command, final List<Set<Object>> stack, final Map<VM, Integer> lengths,
+                                   final Map<Integer, Set<Object>> variables, final Set<Object> escaped) {
+        final int pops = StackEffects.getPops(command);
+        if (stack.size() < pops) {
+            return false;
+        }
+        final List<Set<Object>> operands = new ArrayList<>(stack.subList(stack.size() - pops, stack.size()));
+        stack.subList(stack.size() - pops, stack.size()).clear();
+        if (command instanceof VM.Dup) {
+            stack.add(operands.get(0));
+            stack.add(operands.get(0));
+            return true;
+        }
+        if (command instanceof VM.ALoad) {
+            // the variable is null until it is assigned, the argument keeps the array of caller
+            final int name = ((VM.ALoad) command).getName();
+            final Set<Object> value = newSet(variables.getOrDefault(name, Collections.emptySet()));
+            if (name < function.getArgumentsCount()) {
+                value.add(UNKNOWN);
+            }
+            stack.add(value);
+            return true;
+        }
+        if (command instanceof VM.AStore || command instanceof VM.IALoad || command instanceof VM.AALoad) {
+            // the variables are collected after the flow, the array of element is not stored anywhere
+        } else if (command instanceof VM.IAStore || command instanceof VM.AAStore) {
+            // the literals initialize the elements of every type by IAStore, so the stored value escapes in both cases
+            escaped.addAll(operands.get(2));
+        } else if (command instanceof VM.InvokeStatic && BUILTINS.contains(((VM.InvokeStatic) command).getName())) {
+            // the builtins read the arrays and never keep them
+        } else if (!(command instanceof VM.NewArray) && !isArrayMake(command)) {
+            for (final Set<Object> operand : operands) {
+                escaped.addAll(operand);
+            }
+        }
+        for (int i = 0; i < StackEffects.getPushes(command); ++i) {
+            stack.add(lengths.containsKey(command) ? newSet(Collections.singleton(command)) : newSet(Collections.singleton(UNKNOWN)));
+        }
+        return true;
+    }
+
+    private static List<Integer> getSuccessors(final List<VM> commands, final Map<String, Integer> labels, final int index) {
+        final VM command = commands.get(index);
+        final List<Integer> successors = new ArrayList<>(2);
+        final String target = Jumps.getTarget(command);
+        if (target != null && labels.containsKey(target)) {
+            successors.add(labels.get(target));
+        }
+        if (!Jumps.isTerminal(command) && index + 1 < commands.size()) {
+            successors.add(index + 1);
+        }
+        return successors;
+    }
+
+    private static boolean merge(final List<Set<Object>> target, final List<Set<Object>> source) {
+        if (target.size() != source.size()) {
+            return false;
+        }
+        boolean changed = false;
+        for (int i = 0; i < target.size(); ++i) {
+            changed |= target.get(i).addAll(source.get(i));
+        }
+        return changed;
+    }
+
+    private static List<Set<Object>> copy(final List<Set<Object>> stack) {
+        final List<Set<Object>> copy = new ArrayList<>(stack.size());
+        for (final Set<Object> value : stack) {
+            copy.add(newSet(value));
+        }
+        return copy;
+    }
+
+    /**
+     * Checks that the command is reachable from the command after the start
+     */
+    private static boolean isReachable(final List<VM> commands, final Map<String, Integer> labels, final int start, final int command) {
+        final boolean[] visited = new boolean[commands.size()];
+        final Deque<Integer> worklist = new ArrayDeque<>(getSuccessors(commands, labels, start));
+        while (!worklist.isEmpty()) {
+            final int index = worklist.poll();
+            if (index == command) {
+                return true;
+            }
+            if (!visited[index]) {
+                visited[index] = true;
+                worklist.addAll(getSuccessors(commands, labels, index));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks that the memory of site in the loop may be used again: the previous array is temporary
+     * or it is kept only by the variable that is assigned at once
+     */
+    private static boolean isReused(final List<VM> commands, final int index, final List<Set<Object>>[] stacks, final Map<Integer, Set<Object>> variables) {
+        final VM site = commands.get(index);
+        final List<Integer> holders = new ArrayList<>();
+        for (final Map.Entry<Integer, Set<Object>> entry : variables.entrySet()) {
+            if (entry.getValue().contains(site)) {
+                holders.add(entry.getKey());
+            }
+        }
+        if (holders.isEmpty()) {
+            return true;
+        }
+        final int variable = holders.get(0);
+        if (holders.size() > 1 || variables.get(variable).size() > 1) {
+            return false;
+        }
+        final int start = site instanceof VM.NewArray ? index - 1 : index - 2;
+        if (stacks[start] == null || !stacks[start].isEmpty()) {
+            return false;
+        }
+        // the elements of literal are the constants, so the previous array is not read while the new one is initialized
+        int next = index + 1;
+        while (next + 3 < commands.size() && commands.get(next) instanceof VM.Dup && commands.get(next + 1) instanceof VM.IConst
+                && commands.get(next + 2) instanceof VM.IConst && commands.get(next + 3) instanceof VM.IAStore) {
+            next += 4;
+        }
+        return next < commands.size() && commands.get(next) instanceof VM.AStore && ((VM.AStore) commands.get(next)).getName() == variable;
+    }
+
+    private static Set<Object> newSet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    private static Set<Object> newSet(final Set<?> values) {
+        final Set<Object> set = newSet();
+        set.addAll(values);
+        return set;
+    }
+
+    /**
+     * The arrays that are allocated in the frame
+     *
+     * @since 1.1.0
+     */
+    @Getter
+    public static class Result {
+        /**
+         * The lengths of local arrays by their allocation commands, the equal commands are different sites,
+         * so the map compares them by identity and its order is not stable between runs
+         */
+        private final Map<VM, Integer> lengths;
+        /**
+         * The variables that keep only the local arrays
+         */
+        private final Set<Integer> variables;
+
+        public Result(final Map<VM, Integer> lengths, final Set<Integer> variables) {
+            this.lengths = lengths;
+            this.variables = variables;
+        }
+
+        public boolean isLocal(final VM command) {
+            return lengths.containsKey(command);
+        }
+
+        public boolean isLocalVariable(final int name) {
+            return variables.contains(name);
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.optimizer;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.StackEffects;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.CharacterType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.ConcreteType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.IntegerType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.VoidType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Splices the bodies of small functions into their callers
+ * <p>
+ * The callee is inlined if it is not {@code main}, has at most {@link #getMaxCalleeSize()} commands,
+ * calls the external functions only and works with the integers only. So the recursive functions are never inlined
+ * and the reference counting of arrays and strings is not changed. The function becomes the leaf after its callees
+ * are inlined, so the program is processed until no call is inlined.
+ * <p>
+ * The arguments are stored to the new variables of caller that are numbered after its own variables, the labels
+ * of callee are prefixed by the caller and the number of call site. The return is replaced by the jump
+ * to the end of inlined body with the value in the new variable, the only return at the end is just removed.
+ * The backends do not keep the operand stack at the labels and jumps, so the integers of caller under the arguments
+ * are kept in the new variables while the body with labels is evaluated.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Slf4j
+@Getter
+public class Inliner {
+    public static final int DEFAULT_MAX_CALLEE_SIZE = 32;
+
+    private final int maxCalleeSize;
+
+    public Inliner() {
+        this(DEFAULT_MAX_CALLEE_SIZE);
+    }
+
+    /**
+     * @param maxCalleeSize the maximum number of commands of inlined function
+     * @since 1.1.0
+     */
+    public Inliner(final int maxCalleeSize) {
+        this.maxCalleeSize = maxCalleeSize;
+    }
+
+    /**
+     * Inlines the calls of small functions in place
+     *
+     * @param program the program
+     * @return the changed callers with the functions inlined into them directly
+     * @since 1.1.0
+     */
+    public Map<VMFunction, Set<VMFunction>> inline(final VMProgram program) {
+        final Map<String, VMFunction> functions = new HashMap<>();
+        for (final VMFunction function : program.getFunctions()) {
+            functions.put(function.getName(), function);
+        }
+        final Map<VMFunction, Set<VMFunction>> inlined = new LinkedHashMap<>();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            final Map<String, VMFunction> callees = new HashMap<>();
+            for (final VMFunction function : program.getFunctions()) {
+                if (isInlinable(function, functions)) {
+                    callees.put(function.getName(), function);
+                }
+            }
+            if (callees.isEmpty()) {
+                break;
+            }
+            for (final VMFunction caller : program.getFunctions()) {
+                if (inlineCalls(caller, callees, inlined)) {
+                    changed = true;
+                }
+            }
+        }
+        return inlined;
+    }
+
+    private boolean inlineCalls(final VMFunction caller, final Map<String, VMFunction> callees, final Map<VMFunction, Set<VMFunction>> inlined) {
+        final List<VM> commands = caller.getCommands();
+        final Set<String> labels = new HashSet<>();
+        for (final VM command : commands) {
+            if (command instanceof VM.Label) {
+                labels.add(((VM.Label) command).getName());
+            }
+        }
+        final List<VM> result = new ArrayList<>(commands.size());
+        // whether the values on the stack of the current block are integers
+        final List<Boolean> stack = new ArrayList<>();
+        int site = 0;
+        boolean changed = false;
+        for (final VM command : commands) {
+            final VMFunction callee = command instanceof VM.InvokeStatic ? callees.get(((VM.InvokeStatic) command).getName()) : null;
+            if (callee != null && callee != caller && isCompatible((VM.InvokeStatic) command, callee)) {
+                final int below = Math.max(stack.size() - callee.getArgumentsCount(), 0);
+                final int spilled = hasBranches(callee) ? below : 0;
+                if (!stack.subList(0, spilled).contains(Boolean.FALSE)) {
+                    String prefix;
+                    do {
+                        prefix = caller.getName() + "_i" + site++ + "_";
+                    } while (hasPrefix(labels, prefix));
+                    splice(caller, (VM.InvokeStatic) command, callee, prefix, spilled, result);
+                    inlined.computeIfAbsent(caller, key -> new LinkedHashSet<>()).add(callee);
+                    log.info("Function \"{}\": call of \"{}\" is inlined", caller.getName(), callee.getName());
+                    changed = true;
+                    simulate(command, stack);
+                    continue;
+                }
+            }
+            result.add(command);
+            simulate(command, stack);
+        }
+        if (changed) {
+            commands.clear();
+            commands.addAll(result);
+        }
+        return changed;
+    }
+
+    /**
+     * Splices the body of callee instead of the call
+     * <p>
+     * The values of caller under the arguments are stored to the new variables before the body with labels
+     * and loaded after it, because the backends do not keep the operand stack at the labels and jumps.
+     */
+    private static void splice(final VMFunction caller, final VM.InvokeStatic call, final VMFunction callee, final String prefix,
+                               final int spilled, final List<VM> result) {
+        final int base = caller.getTypes().size();
+        final List<VM> body = callee.getCommands();
+        int returns = 0;
+        for (final VM command : body) {
+            if (command instanceof VM.AbstractReturn) {
+                ++returns;
+            }
+        }
+        final boolean direct = spilled == 0 && returns == 1 && body.get(body.size() - 1) instanceof VM.AbstractReturn;
+        final boolean value = !VoidType.INSTANCE.equals(call.getReturnType());
+        final int spillVariable = base + callee.getTypes().size();
+        final int resultVariable = spillVariable + spilled;
+        final String endLabel = prefix + "end";
+
+        caller.getTypes().addAll(callee.getTypes());
+        for (int i = 0; i < spilled; ++i) {
+            caller.getTypes().add(IntegerType.INSTANCE);
+        }
+        if (value && !direct) {
+            caller.getTypes().add(call.getReturnType());
+        }
+        for (int i = callee.getArgumentsCount() - 1; i >= 0; --i) {
+            result.add(new VM.IStore(base + i));
+        }
+        for (int i = spilled - 1; i >= 0; --i) {
+            result.add(new VM.IStore(spillVariable + i));
+        }
+        for (final VM command : body) {
+            if (command instanceof VM.AbstractReturn) {
+                if (direct) {
+                    continue;
+                }
+                if (value) {
+                    result.add(new VM.IStore(resultVariable));
+                }
+                result.add(new VM.Goto(endLabel));
+            } else if (command instanceof VM.ILoad) {
+                result.add(new VM.ILoad(base + ((VM.ILoad) command).getName()));
+            } else if (command instanceof VM.IStore) {
+                result.add(new VM.IStore(base + ((VM.IStore) command).getName()));
+            } else if (command instanceof VM.Label) {
+                result.add(new VM.Label(prefix + ((VM.Label) command).getName()));
+            } else if (Jumps.getTarget(command) != null) {
+                result.add(Jumps.retarget(command, prefix + Jumps.getTarget(command)));
+            } else {
+                result.add(command);
+            }
+        }
+        if (direct) {
+            return;
+        }
+        if (returns > 0) {
+            result.add(new VM.Label(endLabel));
+        }
+        for (int i = 0; i < spilled; ++i) {
+            result.add(new VM.ILoad(spillVariable + i));
+        }
+        if (value) {
+            result.add(new VM.ILoad(resultVariable));
+        }
+    }
+
+    /**
+     * Applies the command to the kinds of values on the stack, the stack is empty after the labels and jumps
+     */
+    private static void simulate(final VM command, final List<Boolean> stack) {
+        if (command instanceof VM.Label || Jumps.getTarget(command) != null || Jumps.isTerminal(command)) {
+            stack.clear();
+            return;
+        }
+        if (command instanceof VM.Dup) {
+            stack.add(!stack.isEmpty() && stack.get(stack.size() - 1));
+            return;
+        }
+        for (int i = StackEffects.getPops(command); i > 0 && !stack.isEmpty(); --i) {
+            stack.remove(stack.size() - 1);
+        }
+        if (StackEffects.getPushes(command) > 0) {
+            stack.add(command instanceof VM.ILoad || command instanceof VM.IConst || command instanceof VM.BinOp || command instanceof VM.IALoad
+                    || command instanceof VM.InvokeStatic && isIntegral(((VM.InvokeStatic) command).getReturnType()));
+        }
+    }
+
+    private static boolean hasBranches(final VMFunction function) {
+        final List<VM> commands = function.getCommands();
+        for (int i = 0; i < commands.size(); ++i) {
+            final VM command = commands.get(i);
+            if (command instanceof VM.Label || Jumps.getTarget(command) != null) {
+                return true;
+            }
+            if (command instanceof VM.AbstractReturn && i + 1 < commands.size()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasPrefix(final Set<String> labels, final String prefix) {
+        for (final String label : labels) {
+            if (label.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isCompatible(final VM.InvokeStatic call, final VMFunction callee) {
+        if (call.getArgumentsCount() != callee.getArgumentsCount()) {
+            return false;
+        }
+        final boolean value = !VoidType.INSTANCE.equals(call.getReturnType());
+        if (value && !isIntegral(call.getReturnType())) {
+            return false;
+        }
+        return hasBalancedStack(callee, value);
+    }
+
+    private boolean isInlinable(final VMFunction function, final Map<String, VMFunction> functions) {
+        if ("main".equals(function.getName()) || function.getCommands().size() > maxCalleeSize) {
+            return false;
+        }
+        if (function.getArgumentsCount() > function.getTypes().size()) {
+            return false;
+        }
+        for (final ConcreteType type : function.getTypes()) {
+            if (!isIntegral(type)) {
+                return false;
+            }
+        }
+        for (final VM command : function.getCommands()) {
+            if (command instanceof VM.InvokeStatic) {
+                final VM.InvokeStatic call = (VM.InvokeStatic) command;
+                if (functions.containsKey(call.getName())) {
+                    return false;
+                }
+                if (!VoidType.INSTANCE.equals(call.getReturnType()) && !isIntegral(call.getReturnType())) {
+                    return false;
+                }
+            } else if (command instanceof VM.ILoad) {
+                if (((VM.ILoad) command).getName() >= function.getTypes().size()) {
+                    return false;
+                }
+            } else if (command instanceof VM.IStore) {
+                if (((VM.IStore) command).getName() >= function.getTypes().size()) {
+                    return false;
+                }
+            } else if (!isScalar(command)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that every path leaves the value of call on the stack only
+     * <p>
+     * The depth of stack is the same on every path to the command, so the inlined body
+     * neither takes the values of caller nor leaves its own values.
+     */
+    private static boolean hasBalancedStack(final VMFunction function, final boolean value) {
+        final List<VM> commands = function.getCommands();
+        final Map<String, Integer> labels = new HashMap<>();
+        for (int i = 0; i < commands.size(); ++i) {
+            if (commands.get(i) instanceof VM.Label) {
+                labels.put(((VM.Label) commands.get(i)).getName(), i);
+            }
+        }
+        final int[] depths = new int[commands.size() + 1];
+        Arrays.fill(depths, -1);
+        final Deque<Integer> queue = new ArrayDeque<>();
+        depths[0] = 0;
+        queue.add(0);
+        while (!queue.isEmpty()) {
+            final int index = queue.poll();
+            final int depth = depths[index];
+            if (index == commands.size()) {
+                // the end of function is reached without return
+                if (value || depth != 0) {
+                    return false;
+                }
+                continue;
+            }
+            final VM command = commands.get(index);
+            if (command instanceof VM.AbstractReturn) {
+                if (value ? !(command instanceof VM.IReturn) || depth != 1 : !(command instanceof VM.Return) || depth != 0) {
+                    return false;
+                }
+                continue;
+            }
+            final int pops = StackEffects.getPops(command);
+            if (depth < pops) {
+                return false;
+            }
+            final int next = depth - pops + StackEffects.getPushes(command);
+            final List<Integer> successors = new ArrayList<>(2);
+            final String target = Jumps.getTarget(command);
+            if (target != null) {
+                final Integer destination = labels.get(target);
+                if (destination == null) {
+                    return false;
+                }
+                successors.add(destination);
+            }
+            if (!Jumps.isTerminal(command)) {
+                successors.add(index + 1);
+            }
+            for (final int successor : successors) {
+                if (depths[successor] == -1) {
+                    depths[successor] = next;
+                    queue.add(successor);
+                } else if (depths[successor] != next) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isScalar(final VM command) {
+        return command instanceof VM.Comment
+                || command instanceof VM.Dup
+                || command instanceof VM.IConst
+                || command instanceof VM.BinOp
+                || command instanceof VM.Label
+                || command instanceof VM.Goto
+                || command instanceof VM.IfTrue
+                || command instanceof VM.IfFalse
+                || command instanceof VM.Return
+                || command instanceof VM.IReturn;
+    }
+
+    private static boolean isIntegral(final ConcreteType type) {
+        return IntegerType.INSTANCE.equals(type) || CharacterType.INSTANCE.equals(type);
+    }
+}
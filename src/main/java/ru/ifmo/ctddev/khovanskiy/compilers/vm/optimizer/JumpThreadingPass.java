@@ -0,0 +1,90 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.optimizer;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Threads the jumps through the chains of labels followed by {@link VM.Goto},
+ * the unconditional jump to the return is replaced by the return itself
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class JumpThreadingPass implements VMPass {
+    @Override
+    public String getName() {
+        return "jump-threading";
+    }
+
+    @Override
+    public boolean apply(final VMFunction function) {
+        final List<VM> commands = function.getCommands();
+        final Map<String, Integer> labels = new HashMap<>();
+        for (int i = 0; i < commands.size(); ++i) {
+            if (commands.get(i) instanceof VM.Label) {
+                labels.put(((VM.Label) commands.get(i)).getName(), i);
+            }
+        }
+        boolean changed = false;
+        for (int i = 0; i < commands.size(); ++i) {
+            final VM command = commands.get(i);
+            final String target = Jumps.getTarget(command);
+            if (target == null) {
+                continue;
+            }
+            final String threaded = thread(target, commands, labels);
+            if (!threaded.equals(target)) {
+                commands.set(i, Jumps.retarget(command, threaded));
+                changed = true;
+            }
+            if (command instanceof VM.Goto) {
+                final VM destination = getDestination(labels.get(threaded), commands);
+                if (destination instanceof VM.Return || destination instanceof VM.IReturn || destination instanceof VM.AReturn) {
+                    // the stack is the same at the jump and at the label, so the return can be copied
+                    commands.set(i, destination);
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    private static String thread(final String label, final List<VM> commands, final Map<String, Integer> labels) {
+        final Set<String> visited = new HashSet<>();
+        String current = label;
+        while (visited.add(current)) {
+            final Integer position = labels.get(current);
+            if (position == null) {
+                break;
+            }
+            final VM destination = getDestination(position, commands);
+            if (!(destination instanceof VM.Goto)) {
+                break;
+            }
+            current = ((VM.Goto) destination).getLabel();
+        }
+        return current;
+    }
+
+    /**
+     * Gets the first command after the label which is not a label or a comment
+     */
+    private static VM getDestination(final Integer position, final List<VM> commands) {
+        if (position == null) {
+            return null;
+        }
+        for (int i = position + 1; i < commands.size(); ++i) {
+            final VM command = commands.get(i);
+            if (!(command instanceof VM.Label) && !(command instanceof VM.Comment)) {
+                return command;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,66 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.optimizer;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
+
+/**
+ * Helpers for the jump commands
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+final class Jumps {
+    private Jumps() {
+    }
+
+    /**
+     * Gets the target label of jump
+     *
+     * @param command the command
+     * @return the label or {@code null} if the command is not a jump
+     * @since 1.1.0
+     */
+    static String getTarget(final VM command) {
+        if (command instanceof VM.Goto) {
+            return ((VM.Goto) command).getLabel();
+        }
+        if (command instanceof VM.IfTrue) {
+            return ((VM.IfTrue) command).getLabel();
+        }
+        if (command instanceof VM.IfFalse) {
+            return ((VM.IfFalse) command).getLabel();
+        }
+        return null;
+    }
+
+    /**
+     * Creates the same jump to the other label
+     *
+     * @param command the jump
+     * @param label   the new target label
+     * @return the new jump
+     * @since 1.1.0
+     */
+    static VM retarget(final VM command, final String label) {
+        if (command instanceof VM.Goto) {
+            return new VM.Goto(label);
+        }
+        if (command instanceof VM.IfTrue) {
+            return new VM.IfTrue(label);
+        }
+        if (command instanceof VM.IfFalse) {
+            return new VM.IfFalse(label);
+        }
+        throw new IllegalArgumentException(String.format("Command %s is not a jump", command));
+    }
+
+    /**
+     * Checks if the execution never falls through the command
+     *
+     * @param command the command
+     * @return {@code true} for the unconditional jumps and returns
+     * @since 1.1.0
+     */
+    static boolean isTerminal(final VM command) {
+        return command instanceof VM.Goto || command instanceof VM.AbstractReturn;
+    }
+}
@@ -0,0 +1,116 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.optimizer;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The manager of optimization passes over the virtual machine code
+ * <p>
+ * The passes are applied to every function in turn until none of them changes the code,
+ * so the result of one pass is the input for the others. Then the small functions are inlined
+ * by the {@link Inliner} and the passes are applied to the changed callers again.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Slf4j
+@Getter
+public class VMOptimizer {
+    private static final int MAX_ITERATIONS = 16;
+
+    private final List<VMPass> passes;
+
+    private final Inliner inliner;
+
+    public VMOptimizer(final List<VMPass> passes) {
+        this(passes, null);
+    }
+
+    /**
+     * @param passes  the passes over every function
+     * @param inliner the inliner of small functions or {@code null}
+     * @since 1.1.0
+     */
+    public VMOptimizer(final List<VMPass> passes, final Inliner inliner) {
+        this.passes = passes;
+        this.inliner = inliner;
+    }
+
+    /**
+     * Creates the optimizer for the optimization level
+     *
+     * @param level the level: 0 is no optimization, 1 is constant folding, jump threading and dead code elimination,
+     *              2 is the level 1, copy propagation and inlining of small functions
+     * @return the optimizer
+     * @since 1.1.0
+     */
+    public static VMOptimizer forLevel(final int level) {
+        if (level < 0) {
+            throw new IllegalArgumentException(String.format("Unknown optimization level %d", level));
+        }
+        if (level == 0) {
+            return new VMOptimizer(Collections.emptyList());
+        }
+        final List<VMPass> passes = new ArrayList<>(Arrays.asList(new ConstantFoldingPass(), new JumpThreadingPass(), new DeadCodeEliminationPass()));
+        if (level >= 2) {
+            passes.add(new CopyPropagationPass());
+            return new VMOptimizer(passes, new Inliner());
+        }
+        return new VMOptimizer(passes);
+    }
+
+    /**
+     * Optimizes the functions of program in place
+     *
+     * @param program the program
+     * @return the same program
+     * @since 1.1.0
+     */
+    public VMProgram optimize(final VMProgram program) {
+        for (final VMFunction function : program.getFunctions()) {
+            optimize(function);
+        }
+        for (final VMFunction function : inline(program).keySet()) {
+            optimize(function);
+        }
+        return program;
+    }
+
+    /**
+     * Inlines the small functions of optimized program without optimization of the changed callers
+     *
+     * @param program the program
+     * @return the changed callers with the functions inlined into them directly
+     * @since 1.1.0
+     */
+    public Map<VMFunction, Set<VMFunction>> inline(final VMProgram program) {
+        if (inliner == null) {
+            return Collections.emptyMap();
+        }
+        return inliner.inline(program);
+    }
+
+    public void optimize(final VMFunction function) {
+        final int size = function.getCommands().size();
+        boolean changed = true;
+        for (int iteration = 0; changed && iteration < MAX_ITERATIONS; ++iteration) {
+            changed = false;
+            for (final VMPass pass : passes) {
+                if (pass.apply(function)) {
+                    log.info("Function \"{}\": pass \"{}\" changed the code", function.getName(), pass.getName());
+                    changed = true;
+                }
+            }
+        }
+        log.info("Function \"{}\": {} commands are optimized to {}", function.getName(), size, function.getCommands().size());
+    }
+}
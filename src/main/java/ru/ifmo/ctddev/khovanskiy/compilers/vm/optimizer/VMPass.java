@@ -0,0 +1,22 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.optimizer;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+
+/**
+ * The optimization pass over the commands of function
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public interface VMPass {
+    String getName();
+
+    /**
+     * Rewrites the commands of function
+     *
+     * @param function the function
+     * @return {@code true} if the commands are changed
+     * @since 1.1.0
+     */
+    boolean apply(VMFunction function);
+}
@@ -135,7 +135,7 @@ public class VMPrinter extends AbstractVMVisitor<PrinterContext> {
 
     @Override
     public void visitNewArray(VM.NewArray command, PrinterContext context) {
-        context.printLine("new_array");
+        context.printLine("new_array " + command.getElementType());
     }
 
     @Override
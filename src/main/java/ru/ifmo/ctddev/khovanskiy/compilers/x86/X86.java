@@ -5,6 +5,8 @@ import lombok.ToString;
 import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Register;
 import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Register8;
 
+import java.util.List;
+
 /**
  * @author Victor Khovanskiy
  * @since 1.0.0
@@ -23,9 +25,9 @@ public abstract class X86 {
     @Getter
     @ToString
     public static class PopL extends X86 {
-        private final Register destination;
+        private final MemoryAccess destination;
 
-        public PopL(Register destination) {
+        public PopL(MemoryAccess destination) {
             this.destination = destination;
         }
     }
@@ -62,6 +64,24 @@ public abstract class X86 {
         }
     }
 
+    /**
+     * The stack positions that keep the references while the call returns to the label,
+     * the collector looks the map up by the return address
+     *
+     * @since 1.1.0
+     */
+    @Getter
+    @ToString
+    public static class StackMap extends X86 {
+        private final String label;
+        private final List<Integer> positions;
+
+        public StackMap(String label, List<Integer> positions) {
+            this.label = label;
+            this.positions = positions;
+        }
+    }
+
     @Getter
     @ToString
     public static class Ret extends X86 {
@@ -98,6 +118,83 @@ public abstract class X86 {
         }
     }
 
+    /**
+     * The jump by the flags of comparison, the signed one except {@link Jae}
+     *
+     * @since 1.1.0
+     */
+    @Getter
+    @ToString
+    public abstract static class ConditionalJump extends X86 {
+        private final String label;
+
+        protected ConditionalJump(final String label) {
+            this.label = label;
+        }
+    }
+
+    @Getter
+    @ToString
+    public static class Jg extends ConditionalJump {
+        public Jg(final String label) {
+            super(label);
+        }
+    }
+
+    @Getter
+    @ToString
+    public static class Jge extends ConditionalJump {
+        public Jge(final String label) {
+            super(label);
+        }
+    }
+
+    @Getter
+    @ToString
+    public static class Jl extends ConditionalJump {
+        public Jl(final String label) {
+            super(label);
+        }
+    }
+
+    @Getter
+    @ToString
+    public static class Jle extends ConditionalJump {
+        public Jle(final String label) {
+            super(label);
+        }
+    }
+
+    @Getter
+    @ToString
+    public static class Je extends ConditionalJump {
+        public Je(final String label) {
+            super(label);
+        }
+    }
+
+    @Getter
+    @ToString
+    public static class Jne extends ConditionalJump {
+        public Jne(final String label) {
+            super(label);
+        }
+    }
+
+    /**
+     * The jump if the left operand of comparison is above or equal to the right one as unsigned,
+     * so the negative number is above any non-negative one
+     *
+     * @since 1.1.0
+     */
+    @Getter
+    @ToString
+    public static class Jae extends ConditionalJump {
+        public Jae(final String label) {
+            super(label);
+        }
+    }
+
     @Getter
     @ToString
     public static class AddL extends X86 {
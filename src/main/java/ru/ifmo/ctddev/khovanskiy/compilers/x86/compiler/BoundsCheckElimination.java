@@ -0,0 +1,501 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.StackEffects;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the accesses to the elements of arrays that never go out of the bounds, so they are compiled without the check
+ * <p>
+ * The facts about the variables hold on every path to the command: the variable is non-negative, the variable
+ * is less than the other one, the constant or the length of array, the variable is the length of array, the array has
+ * the constant length. The facts come from the constant assignments, {@code arrlen}, {@code arrmake} and the conditions
+ * of branches such as {@code while i < arrlen(a)}, the induction variable {@code i := i + 1} stays non-negative while
+ * it is less than the bound. The access {@code a[i]} is safe if {@code i} is non-negative and less than the length
+ * of {@code a}, the elements of literals are initialized at the constant indices.
+ * <p>
+ * The assignment of array kills its facts, the function that is not a builtin may assign its argument,
+ * which holder belongs to the caller, so the passed array loses its facts too.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public final class BoundsCheckElimination {
+    /**
+     * The functions that never assign the holders of their arguments
+     */
+    private static final Set<String> SAFE_CALLS = new HashSet<>(Arrays.asList("read", "write", "strlen", "strget", "strset", "strsub",
+            "strdup", "strcat", "strcmp", "strmake", "arrlen", "arrmake", "Arrmake"));
+
+    private BoundsCheckElimination() {
+    }
+
+    /**
+     * Finds the accesses that need no bounds check
+     *
+     * @param function the function
+     * @return the loads and stores of elements that are always in the bounds
+     * @since 1.1.0
+     */
+    public static Set<VM> findSafeAccesses(final VMFunction function) {
+        final List<VM> commands = function.getCommands();
+        final Set<VM> accesses = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (commands.isEmpty()) {
+            return accesses;
+        }
+        final Map<String, Integer> labels = new HashMap<>();
+        for (int i = 0; i < commands.size(); ++i) {
+            if (commands.get(i) instanceof VM.Label) {
+                labels.put(((VM.Label) commands.get(i)).getName(), i);
+            }
+        }
+        final State[] states = new State[commands.size()];
+        states[0] = new State(new ArrayList<>(), new HashSet<>());
+        final Deque<Integer> worklist = new ArrayDeque<>();
+        worklist.add(0);
+        while (!worklist.isEmpty()) {
+            final int index = worklist.poll();
+            final VM command = commands.get(index);
+            final State next = states[index].copy();
+            final State taken = execute(command, next);
+            if (taken == null) {
+                // the depths of stack are not known, so every access is checked
+                return accesses;
+            }
+            final String target = getTarget(command);
+            if (target != null && labels.containsKey(target) && !join(states, labels.get(target), taken, worklist)) {
+                return accesses;
+            }
+            final boolean terminal = command instanceof VM.Goto || command instanceof VM.AbstractReturn;
+            if (!terminal && index + 1 < commands.size() && !join(states, index + 1, next, worklist)) {
+                return accesses;
+            }
+        }
+        for (int i = 0; i < commands.size(); ++i) {
+            final VM command = commands.get(i);
+            if (states[i] != null && isAccess(command) && isSafe(command, states[i])) {
+                accesses.add(command);
+            }
+        }
+        return accesses;
+    }
+
+    private static boolean isAccess(final VM command) {
+        return command instanceof VM.IALoad || command instanceof VM.AALoad || command instanceof VM.IAStore || command instanceof VM.AAStore;
+    }
+
+    private static boolean isSafe(final VM command, final State state) {
+        final List<Operand> stack = state.getStack();
+        final int pops = StackEffects.getPops(command);
+        final Operand array = stack.get(stack.size() - pops);
+        final Operand index = stack.get(stack.size() - pops + 1);
+        final Set<Fact> facts = state.getFacts();
+        if (index.getKind() == Kind.CONSTANT) {
+            // the elements of literal and the constant indices of array of the constant length
+            final int length = array.getKind() == Kind.NEW_ARRAY ? array.getName() : getConstantLength(array, facts);
+            return index.getName() >= 0 && index.getName() < length;
+        }
+        if (array.getKind() != Kind.ARRAY || index.getKind() != Kind.VARIABLE
+                || !facts.contains(new Fact(Kind.NON_NEGATIVE, index.getName(), -1))) {
+            return false;
+        }
+        if (facts.contains(new Fact(Kind.BELOW_LENGTH, index.getName(), array.getName()))) {
+            return true;
+        }
+        final int length = getConstantLength(array, facts);
+        return facts.stream().anyMatch(fact -> fact.getKind() == Kind.BELOW_CONSTANT && fact.getLeft() == index.getName() && fact.getRight() <= length);
+    }
+
+    private static int getConstantLength(final Operand array, final Set<Fact> facts) {
+        if (array.getKind() != Kind.ARRAY) {
+            return 0;
+        }
+        for (final Fact fact : facts) {
+            if (fact.getKind() == Kind.CONSTANT_LENGTH && fact.getLeft() == array.getName()) {
+                return fact.getRight();
+            }
+        }
+        return 0;
+    }
+
+    private static String getTarget(final VM command) {
+        if (command instanceof VM.Goto) {
+            return ((VM.Goto) command).getLabel();
+        }
+        if (command instanceof VM.IfTrue) {
+            return ((VM.IfTrue) command).getLabel();
+        }
+        if (command instanceof VM.IfFalse) {
+            return ((VM.IfFalse) command).getLabel();
+        }
+        return null;
+    }
+
+    /**
+     * Merges the state into the state before the command, only the facts of both states hold
+     *
+     * @return {@code false} if the depths of stack differ
+     */
+    private static boolean join(final State[] states, final int index, final State state, final Deque<Integer> worklist) {
+        if (states[index] == null) {
+            states[index] = state.copy();
+            worklist.add(index);
+            return true;
+        }
+        final State current = states[index];
+        if (current.getStack().size() != state.getStack().size()) {
+            return false;
+        }
+        boolean changed = current.getFacts().retainAll(state.getFacts());
+        for (int i = 0; i < current.getStack().size(); ++i) {
+            if (!current.getStack().get(i).equals(state.getStack().get(i)) && current.getStack().get(i).getKind() != Kind.OTHER) {
+                current.getStack().set(i, Operand.OTHER);
+                changed = true;
+            }
+        }
+        if (changed) {
+            worklist.add(index);
+        }
+        return true;
+    }
+
+    /**
+     * Executes the command on the state
+     *
+     * @return the state at the target of jump or {@code null} if the stack is too small
+     */
+    private static State execute(final VM command, final State state) {
+        final List<Operand> stack = state.getStack();
+        final Set<Fact> facts = state.getFacts();
+        final int pops = StackEffects.getPops(command);
+        if (stack.size() < pops) {
+            return null;
+        }
+        final List<Operand> operands = new ArrayList<>(stack.subList(stack.size() - pops, stack.size()));
+        stack.subList(stack.size() - pops, stack.size()).clear();
+        if (command instanceof VM.Dup) {
+            stack.add(operands.get(0));
+            stack.add(operands.get(0));
+            return state;
+        }
+        Operand result = Operand.OTHER;
+        State taken = state;
+        if (command instanceof VM.IConst) {
+            result = Operand.of(Kind.CONSTANT, ((VM.IConst) command).getValue());
+        } else if (command instanceof VM.ILoad) {
+            result = Operand.of(Kind.VARIABLE, ((VM.ILoad) command).getName());
+        } else if (command instanceof VM.ALoad) {
+            result = Operand.of(Kind.ARRAY, ((VM.ALoad) command).getName());
+        } else if (command instanceof VM.NewArray && operands.get(0).getKind() == Kind.CONSTANT) {
+            result = Operand.of(Kind.NEW_ARRAY, operands.get(0).getName());
+        } else if (command instanceof VM.BinOp) {
+            result = evaluate(((VM.BinOp) command).getOperator(), operands.get(0), operands.get(1));
+        } else if (command instanceof VM.InvokeStatic) {
+            result = invoke((VM.InvokeStatic) command, operands, state);
+        } else if (command instanceof VM.IStore) {
+            final int name = ((VM.IStore) command).getName();
+            final Set<Fact> assigned = assign(name, operands.get(0), facts);
+            killVariable(state, name);
+            facts.addAll(assigned);
+        } else if (command instanceof VM.AStore) {
+            final int name = ((VM.AStore) command).getName();
+            killArray(state, name);
+            final Operand value = operands.get(0);
+            if (value.getKind() == Kind.ALLOCATION) {
+                facts.add(new Fact(Kind.LENGTH, value.getName(), name));
+            } else if (value.getKind() == Kind.NEW_ARRAY) {
+                facts.add(new Fact(Kind.CONSTANT_LENGTH, name, value.getName()));
+            }
+        } else if (command instanceof VM.IfTrue) {
+            taken = state.copy();
+            taken.getFacts().addAll(getConditionFacts(operands.get(0), facts));
+        } else if (command instanceof VM.IfFalse) {
+            taken = state.copy();
+            facts.addAll(getConditionFacts(operands.get(0), facts));
+        }
+        if (StackEffects.getPushes(command) > 0) {
+            stack.add(result);
+        }
+        return taken;
+    }
+
+    private static Operand invoke(final VM.InvokeStatic command, final List<Operand> operands, final State state) {
+        final String name = command.getName();
+        if (operands.isEmpty()) {
+            return Operand.OTHER;
+        }
+        if ("arrlen".equals(name) && operands.get(0).getKind() == Kind.ARRAY) {
+            return Operand.of(Kind.LENGTH, operands.get(0).getName());
+        }
+        if ("arrmake".equals(name) || "strmake".equals(name) || "Arrmake".equals(name)) {
+            final Operand length = operands.get(0);
+            if (length.getKind() == Kind.VARIABLE) {
+                return Operand.of(Kind.ALLOCATION, length.getName());
+            }
+            if (length.getKind() == Kind.CONSTANT) {
+                return Operand.of(Kind.NEW_ARRAY, length.getName());
+            }
+        }
+        if (!SAFE_CALLS.contains(name)) {
+            for (final Operand operand : operands) {
+                if (operand.getKind() == Kind.ARRAY) {
+                    killArray(state, operand.getName());
+                }
+            }
+        }
+        return Operand.OTHER;
+    }
+
+    private static Operand evaluate(final String operator, final Operand left, final Operand right) {
+        switch (operator) {
+            case "<":
+            case ">":
+            case "<=":
+            case ">=":
+                return new Operand(Kind.COMPARISON, 0, 0, operator, left, right);
+            case "+":
+                if (left.getKind() == Kind.VARIABLE && right.getKind() == Kind.CONSTANT) {
+                    return new Operand(Kind.INCREMENT, left.getName(), right.getName(), null, null, null);
+                }
+                if (left.getKind() == Kind.CONSTANT && right.getKind() == Kind.VARIABLE) {
+                    return new Operand(Kind.INCREMENT, right.getName(), left.getName(), null, null, null);
+                }
+                return Operand.OTHER;
+            default:
+                return Operand.OTHER;
+        }
+    }
+
+    /**
+     * Gets the facts about the variable after the assignment
+     */
+    private static Set<Fact> assign(final int name, final Operand value, final Set<Fact> facts) {
+        final Set<Fact> assigned = new HashSet<>();
+        switch (value.getKind()) {
+            case CONSTANT:
+                if (value.getName() >= 0) {
+                    assigned.add(new Fact(Kind.NON_NEGATIVE, name, -1));
+                }
+                break;
+            case LENGTH:
+                assigned.add(new Fact(Kind.NON_NEGATIVE, name, -1));
+                assigned.add(new Fact(Kind.LENGTH, name, value.getName()));
+                break;
+            case VARIABLE:
+                for (final Fact fact : facts) {
+                    if (fact.getKind() != Kind.CONSTANT_LENGTH && fact.getLeft() == value.getName() && fact.getRight() != name) {
+                        assigned.add(new Fact(fact.getKind(), name, fact.getRight()));
+                    }
+                }
+                break;
+            case INCREMENT:
+                // the variable is less than the bound, so the small step does not overflow
+                final int source = value.getName();
+                final int step = value.getStep();
+                final boolean bounded = facts.stream().anyMatch(fact -> fact.getLeft() == source
+                        && (fact.getKind() == Kind.BELOW_LENGTH || fact.getKind() == Kind.BELOW_CONSTANT || (fact.getKind() == Kind.BELOW && step == 1)));
+                if (step >= 0 && step <= 1 << 16 && bounded && facts.contains(new Fact(Kind.NON_NEGATIVE, source, -1))) {
+                    assigned.add(new Fact(Kind.NON_NEGATIVE, name, -1));
+                }
+                break;
+            default:
+                break;
+        }
+        return assigned;
+    }
+
+    /**
+     * Gets the facts that hold if the condition is true
+     */
+    private static Set<Fact> getConditionFacts(final Operand condition, final Set<Fact> facts) {
+        final Set<Fact> result = new HashSet<>();
+        if (condition.getKind() != Kind.COMPARISON) {
+            return result;
+        }
+        final Operand left = condition.getLeft();
+        final Operand right = condition.getRight();
+        switch (condition.getOperator()) {
+            case "<":
+                addBelow(left, right, facts, result);
+                break;
+            case ">":
+                addBelow(right, left, facts, result);
+                addNonNegative(left, right, -1, result);
+                break;
+            case ">=":
+                addNonNegative(left, right, 0, result);
+                break;
+            case "<=":
+                addNonNegative(right, left, 0, result);
+                break;
+            default:
+                break;
+        }
+        return result;
+    }
+
+    private static void addBelow(final Operand left, final Operand right, final Set<Fact> facts, final Set<Fact> result) {
+        if (left.getKind() != Kind.VARIABLE) {
+            return;
+        }
+        if (right.getKind() == Kind.LENGTH) {
+            result.add(new Fact(Kind.BELOW_LENGTH, left.getName(), right.getName()));
+        } else if (right.getKind() == Kind.CONSTANT) {
+            result.add(new Fact(Kind.BELOW_CONSTANT, left.getName(), right.getName()));
+        } else if (right.getKind() == Kind.VARIABLE) {
+            result.add(new Fact(Kind.BELOW, left.getName(), right.getName()));
+            for (final Fact fact : facts) {
+                if (fact.getKind() == Kind.LENGTH && fact.getLeft() == right.getName()) {
+                    result.add(new Fact(Kind.BELOW_LENGTH, left.getName(), fact.getRight()));
+                }
+            }
+        }
+    }
+
+    private static void addNonNegative(final Operand variable, final Operand bound, final int minimum, final Set<Fact> result) {
+        if (variable.getKind() == Kind.VARIABLE && bound.getKind() == Kind.CONSTANT && bound.getName() >= minimum) {
+            result.add(new Fact(Kind.NON_NEGATIVE, variable.getName(), -1));
+        }
+    }
+
+    /**
+     * Removes the facts about the old value of variable, the loaded old value is not known any more
+     */
+    private static void killVariable(final State state, final int name) {
+        state.getFacts().removeIf(fact -> (fact.getKind() != Kind.CONSTANT_LENGTH && fact.getLeft() == name)
+                || (fact.getKind() == Kind.BELOW && fact.getRight() == name));
+        state.getStack().replaceAll(operand -> operand.usesVariable(name) ? Operand.OTHER : operand);
+    }
+
+    /**
+     * Removes the facts about the old array of variable
+     */
+    private static void killArray(final State state, final int name) {
+        state.getFacts().removeIf(fact -> ((fact.getKind() == Kind.BELOW_LENGTH || fact.getKind() == Kind.LENGTH) && fact.getRight() == name)
+                || (fact.getKind() == Kind.CONSTANT_LENGTH && fact.getLeft() == name));
+        state.getStack().replaceAll(operand -> operand.usesArray(name) ? Operand.OTHER : operand);
+    }
+
+    private enum Kind {
+        /**
+         * The value that is not known
+         */
+        OTHER,
+        CONSTANT,
+        VARIABLE,
+        ARRAY,
+        LENGTH,
+        /**
+         * The array of the length that is kept by the variable
+         */
+        ALLOCATION,
+        /**
+         * The array of the constant length
+         */
+        NEW_ARRAY,
+        INCREMENT,
+        COMPARISON,
+        NON_NEGATIVE,
+        BELOW,
+        BELOW_CONSTANT,
+        BELOW_LENGTH,
+        CONSTANT_LENGTH
+    }
+
+    /**
+     * The value on the stack: the constant, the loaded variable or array, the length of array, the new arrays,
+     * the sum of variable and constant or the comparison
+     */
+    @Getter
+    @EqualsAndHashCode
+    private static class Operand {
+        private static final Operand OTHER = of(Kind.OTHER, 0);
+
+        private final Kind kind;
+        /**
+         * The variable or the constant
+         */
+        private final int name;
+        /**
+         * The step of increment
+         */
+        private final int step;
+        private final String operator;
+        private final Operand left;
+        private final Operand right;
+
+        Operand(final Kind kind, final int name, final int step, final String operator, final Operand left, final Operand right) {
+            this.kind = kind;
+            this.name = name;
+            this.step = step;
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        static Operand of(final Kind kind, final int name) {
+            return new Operand(kind, name, 0, null, null, null);
+        }
+
+        boolean usesVariable(final int variable) {
+            if (kind == Kind.COMPARISON) {
+                return left.usesVariable(variable) || right.usesVariable(variable);
+            }
+            return (kind == Kind.VARIABLE || kind == Kind.INCREMENT || kind == Kind.ALLOCATION) && name == variable;
+        }
+
+        boolean usesArray(final int array) {
+            if (kind == Kind.COMPARISON) {
+                return left.usesArray(array) || right.usesArray(array);
+            }
+            return (kind == Kind.ARRAY || kind == Kind.LENGTH) && name == array;
+        }
+    }
+
+    /**
+     * The fact about the variable: it is non-negative, it is less than the other variable, the constant or the length of array,
+     * or it is the length of array, or the array has the constant length
+     */
+    @Getter
+    @EqualsAndHashCode
+    private static class Fact {
+        private final Kind kind;
+        private final int left;
+        private final int right;
+
+        Fact(final Kind kind, final int left, final int right) {
+            this.kind = kind;
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    @Getter
+    private static class State {
+        private final List<Operand> stack;
+        private final Set<Fact> facts;
+
+        State(final List<Operand> stack, final Set<Fact> facts) {
+            this.stack = stack;
+            this.facts = facts;
+        }
+
+        State copy() {
+            return new State(new ArrayList<>(stack), new HashSet<>(facts));
+        }
+    }
+}
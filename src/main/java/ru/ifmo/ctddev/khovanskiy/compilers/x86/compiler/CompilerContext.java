@@ -2,10 +2,13 @@ package ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler;
 
 import lombok.Getter;
 import lombok.Setter;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.ArrayType;
 import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.ConcreteType;
 import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.ImplicationType;
 import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.IntegerType;
 import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.ObjectType;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.optimizer.EscapeAnalysis;
 import ru.ifmo.ctddev.khovanskiy.compilers.x86.Immediate;
 import ru.ifmo.ctddev.khovanskiy.compilers.x86.MemoryAccess;
 import ru.ifmo.ctddev.khovanskiy.compilers.x86.StackPosition;
@@ -27,10 +30,10 @@ public class CompilerContext {
     private final Stack<MemoryAccess> stack = new Stack<>();
 
     public CompilerContext() {
-        registers.add(new RegisterEntry(Ebx.INSTANCE));
-        registers.add(new RegisterEntry(Ecx.INSTANCE));
-        registers.add(new RegisterEntry(Edi.INSTANCE));
-        registers.add(new RegisterEntry(Esi.INSTANCE));
+        registers.add(new RegisterEntry(Ebx.INSTANCE, true));
+        registers.add(new RegisterEntry(Ecx.INSTANCE, false));
+        registers.add(new RegisterEntry(Edi.INSTANCE, true));
+        registers.add(new RegisterEntry(Esi.INSTANCE, true));
     }
 
     public void enterScope(String name) {
@@ -38,9 +41,28 @@ public class CompilerContext {
     }
 
     public Scope leaveScope() {
+        for (final RegisterEntry entry : registers) {
+            entry.setReserved(false);
+        }
         return scopes.pop();
     }
 
+    /**
+     * Gets the registers which values are preserved by the called functions
+     *
+     * @return the callee-saved registers
+     * @since 1.1.0
+     */
+    public List<Register> getCalleeSavedRegisters() {
+        final List<Register> calleeSaved = new ArrayList<>();
+        for (final RegisterEntry entry : registers) {
+            if (entry.isCalleeSaved()) {
+                calleeSaved.add(entry.getRegister());
+            }
+        }
+        return calleeSaved;
+    }
+
     public Scope getScope() {
         return scopes.peek();
     }
@@ -91,6 +113,23 @@ public class CompilerContext {
         return stackPosition;
     }
 
+    /**
+     * Registers the local variable kept in the register during the whole function,
+     * the register is not used for temporary variables any more
+     *
+     * @param id       the variable ID
+     * @param type     the variable type
+     * @param register the register
+     * @since 1.1.0
+     */
+    public void registerVariable(int id, final ConcreteType type, final Register register) {
+        final Scope scope = getScope();
+        final Variable variable = scope.getVariables().computeIfAbsent(id, (k) -> new Variable(type));
+        variable.setRegister(register);
+        getEntry(register).setReserved(true);
+        scope.getUsedRegisters().add(register);
+    }
+
     /**
      * Wraps the compilation of function invoke
      *
@@ -101,7 +140,8 @@ public class CompilerContext {
         final Scope scope = getScope();
         final List<Register> stored = new ArrayList<>();
         for (final RegisterEntry entry : registers) {
-            if (entry.getUsageCount() > 0) {
+            // the called functions preserve the callee-saved registers
+            if (!entry.isCalleeSaved() && (entry.getUsageCount() > 0 || entry.isReserved())) {
                 scope.addCommand(new X86.PushL(entry.getRegister()));
                 stored.add(entry.getRegister());
             }
@@ -121,11 +161,13 @@ public class CompilerContext {
      */
     public MemoryAccess allocate(ConcreteType type) {
         for (final RegisterEntry entry : registers) {
-            if (entry.getUsageCount() > 0) {
+            if (entry.getUsageCount() > 0 || entry.isReserved()) {
                 continue;
             }
             if (stack.isEmpty() || stack.peek() instanceof Register) {
                 entry.setUsageCount(entry.getUsageCount() + 1);
+                entry.setType(type);
+                getScope().getUsedRegisters().add(entry.getRegister());
                 stack.push(entry.getRegister());
                 return stack.peek();
             }
@@ -137,16 +179,24 @@ public class CompilerContext {
         return stack.peek();
     }
 
+    /**
+     * Pushes the register of variable as the operand without copying
+     *
+     * @param register the register reserved by the variable
+     * @since 1.1.0
+     */
+    public void borrow(final Register register) {
+        assert getEntry(register).isReserved();
+        stack.push(register);
+    }
+
     public MemoryAccess pop() {
         final MemoryAccess memoryAccess = stack.pop();
         if (memoryAccess instanceof Register) {
-            Register register = (Register) memoryAccess;
-            for (final RegisterEntry entry : registers) {
-                if (register.equals(entry.getRegister())) {
-                    entry.setUsageCount(entry.getUsageCount() - 1);
-                    assert entry.getUsageCount() >= 0;
-                    break;
-                }
+            final RegisterEntry entry = getEntry((Register) memoryAccess);
+            if (entry != null && !entry.isReserved()) {
+                entry.setUsageCount(entry.getUsageCount() - 1);
+                assert entry.getUsageCount() >= 0;
             }
         }
         if (memoryAccess instanceof StackPosition) {
@@ -173,18 +223,41 @@ public class CompilerContext {
     public void dup() {
         MemoryAccess memoryAccess = stack.peek();
         if (memoryAccess instanceof Register) {
-            Register register = (Register) memoryAccess;
-            for (final RegisterEntry entry : registers) {
-                if (register.equals(entry.getRegister())) {
-                    entry.setUsageCount(entry.getUsageCount() + 1);
-                    assert entry.getUsageCount() >= 0;
-                    break;
-                }
+            final RegisterEntry entry = getEntry((Register) memoryAccess);
+            if (entry != null && !entry.isReserved()) {
+                entry.setUsageCount(entry.getUsageCount() + 1);
             }
         }
         stack.push(memoryAccess);
     }
 
+    private RegisterEntry getEntry(final Register register) {
+        for (final RegisterEntry entry : registers) {
+            if (register.equals(entry.getRegister())) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the type of operand
+     *
+     * @param memoryAccess the operand on the stack
+     * @return the type of temporary variable, the variables kept in the registers are integral
+     * @since 1.1.0
+     */
+    public ConcreteType getType(final MemoryAccess memoryAccess) {
+        if (memoryAccess instanceof StackPosition) {
+            return ((StackPosition) memoryAccess).getType();
+        }
+        final RegisterEntry entry = memoryAccess instanceof Register ? getEntry((Register) memoryAccess) : null;
+        if (entry == null || entry.isReserved()) {
+            return IntegerType.INSTANCE;
+        }
+        return entry.getType();
+    }
+
     public StackPosition get(int id) {
         final Scope scope = getScope();
         final Variable variable = scope.getVariables().get(id);
@@ -195,6 +268,25 @@ public class CompilerContext {
         return variable.getStackPosition();
     }
 
+    /**
+     * Gets the current location of variable
+     *
+     * @param id the variable ID
+     * @return the register of variable if it is allocated, otherwise the stack position
+     * @since 1.1.0
+     */
+    public MemoryAccess getLocation(int id) {
+        final Variable variable = getScope().getVariables().get(id);
+        if (variable == null) {
+            throw new IllegalStateException(String.format("Function \"%s\": unknown variable \"%d\"", getScope().getName(), id));
+        }
+        if (variable.getRegister() != null) {
+            return variable.getRegister();
+        }
+        assert variable.getStackPosition() != null;
+        return variable.getStackPosition();
+    }
+
     /**
      * Gets size in bytes by type
      *
@@ -207,6 +299,8 @@ public class CompilerContext {
             return 4;
         } else if (type instanceof ImplicationType) {
             return 4;
+        } else if (type instanceof ArrayType) {
+            return 4;
         } else if (type instanceof ObjectType) {
             return 4;
         } else {
@@ -218,10 +312,17 @@ public class CompilerContext {
     @Setter
     public static class RegisterEntry {
         private final Register register;
+        private final boolean calleeSaved;
         private int usageCount;
+        private boolean reserved;
+        /**
+         * The type of temporary variable that occupies the register
+         */
+        private ConcreteType type;
 
-        public RegisterEntry(Register register) {
+        public RegisterEntry(Register register, boolean calleeSaved) {
             this.register = register;
+            this.calleeSaved = calleeSaved;
         }
     }
 
@@ -230,6 +331,27 @@ public class CompilerContext {
     public static class Scope {
         private final List<X86> commands = new ArrayList<>();
         private final Map<Integer, Variable> variables = new HashMap<>();
+        private final Set<Register> usedRegisters = new LinkedHashSet<>();
+        /**
+         * The loads of the register variables that are copied instead of borrowing the register
+         */
+        private final Set<VM> copiedLoads = Collections.newSetFromMap(new IdentityHashMap<>());
+        /**
+         * The positions of frame blocks of the arrays that do not escape the function by their allocation commands
+         */
+        private final Map<VM, Integer> localArrays = new IdentityHashMap<>();
+        /**
+         * The arrays and variables that do not escape the function
+         */
+        private EscapeAnalysis.Result escapes;
+        /**
+         * The accesses to the elements that are always in the bounds of array
+         */
+        private final Set<VM> safeAccesses = Collections.newSetFromMap(new IdentityHashMap<>());
+        /**
+         * The function has the bounds checks, so it ends with the report of error
+         */
+        private boolean boundsChecked;
         private final String name;
         private int allocated;
         private int maxAllocated;
@@ -255,6 +377,9 @@ public class CompilerContext {
         }
 
         public void move(MemoryAccess source, MemoryAccess destination) {
+            if (source.equals(destination)) {
+                return;
+            }
             if (Register.class.isInstance(source) || Register.class.isInstance(destination)) {
                 addCommand(new X86.MovL(source, destination));
             } else if (Immediate.class.isInstance(source)) {
@@ -271,6 +396,7 @@ public class CompilerContext {
     public static class Variable {
         private final ConcreteType type;
         private StackPosition stackPosition;
+        private Register register;
 
         public Variable(ConcreteType type) {
             this.type = type;
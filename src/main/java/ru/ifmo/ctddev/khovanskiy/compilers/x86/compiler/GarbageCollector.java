@@ -0,0 +1,55 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * The memory management of references in the compiled code, the runtime supports every mode
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Getter
+public enum GarbageCollector {
+    /**
+     * Every store of reference is counted and the array is freed as soon as its count is zero
+     */
+    REFERENCE_COUNTING("rc"),
+    /**
+     * Only the stores into arrays are counted, the arrays without counted references are put
+     * to the zero count table, which is checked against the stack at allocation, and the cycles
+     * of arrays are collected by trial deletion
+     */
+    DEFERRED_REFERENCE_COUNTING("deferred"),
+    /**
+     * The stores of references are not tracked at all, the collector marks the arrays reachable from the stack maps
+     * of call sites and sweeps the rest when the allocated memory is doubled
+     */
+    MARK_SWEEP("mark-sweep");
+
+    private final String option;
+
+    GarbageCollector(final String option) {
+        this.option = option;
+    }
+
+    /**
+     * Gets the collector by the command line option
+     *
+     * @param option the option
+     * @return the collector
+     * @throws IllegalArgumentException if there is no collector with such option
+     * @since 1.1.0
+     */
+    public static GarbageCollector forOption(final String option) {
+        for (final GarbageCollector collector : values()) {
+            if (collector.getOption().equals(option)) {
+                return collector;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown garbage collector \"%s\", the collectors are %s", option,
+                Arrays.stream(values()).map(GarbageCollector::getOption).collect(Collectors.toList())));
+    }
+}
@@ -0,0 +1,233 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.StackEffects;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Register;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Linear scan allocator of registers for the local variables
+ * <p>
+ * The live interval of variable spans from its first to its last occurrence in the commands of function,
+ * the loaded integer is the register of variable itself, so its occurrence lasts until the value is popped.
+ * The interval is extended over every loop it intersects, so the variable keeps the same location during the whole interval.
+ * When there are more live variables than registers, the variable with the least weight stays in memory,
+ * the weight is the count of usages where every usage in the loop counts tenfold.
+ *
+ * @author Victor Khovanskiy
+ * @see <a href="https://dl.acm.org/citation.cfm?id=330250">Linear scan register allocation</a>
+ * @since 1.1.0
+ */
+@Slf4j
+public class LinearScanAllocator {
+    private static final int MAX_LOOP_DEPTH = 6;
+
+    private final List<Register> registers;
+
+    public LinearScanAllocator(final List<Register> registers) {
+        this.registers = registers;
+    }
+
+    /**
+     * Allocates registers for the variables of function
+     *
+     * @param function   the function
+     * @param candidates the variables that are allowed to be kept in registers
+     * @return the registers of variables, the variables without register are kept in memory
+     * @since 1.1.0
+     */
+    public Map<Integer, Register> allocate(final VMFunction function, final Set<Integer> candidates) {
+        final List<VM> commands = function.getCommands();
+        final List<Loop> loops = findLoops(commands);
+        final Map<Integer, Interval> intervals = new LinkedHashMap<>();
+        for (int i = 0; i < commands.size(); ++i) {
+            final int id = getVariable(commands.get(i));
+            if (id < 0 || !candidates.contains(id)) {
+                continue;
+            }
+            // arguments are defined at the entry of function
+            final int start = id < function.getArgumentsCount() ? -1 : i;
+            final Interval interval = intervals.computeIfAbsent(id, k -> new Interval(k, start, start));
+            interval.setEnd(Math.max(interval.getEnd(), commands.get(i) instanceof VM.ILoad ? getConsumer(commands, i) : i));
+            interval.setWeight(interval.getWeight() + getUsageWeight(i, loops));
+        }
+        extendOverLoops(intervals.values(), loops);
+
+        final List<Interval> sorted = new ArrayList<>(intervals.values());
+        sorted.sort(Comparator.comparingInt(Interval::getStart).thenComparingInt(Interval::getId));
+        final List<Interval> active = new ArrayList<>();
+        final List<Register> free = new ArrayList<>(registers);
+        final Map<Integer, Register> allocation = new HashMap<>();
+        for (final Interval current : sorted) {
+            active.removeIf(interval -> {
+                if (interval.getEnd() < current.getStart()) {
+                    free.add(allocation.get(interval.getId()));
+                    return true;
+                }
+                return false;
+            });
+            if (!free.isEmpty()) {
+                allocation.put(current.getId(), free.remove(0));
+                active.add(current);
+                continue;
+            }
+            final Interval spilled = active.stream().min(Comparator.comparingLong(Interval::getWeight)).orElseThrow(IllegalStateException::new);
+            if (spilled.getWeight() < current.getWeight()) {
+                allocation.put(current.getId(), allocation.remove(spilled.getId()));
+                active.remove(spilled);
+                active.add(current);
+                log.info("Function \"{}\": variable {} is spilled", function.getName(), spilled.getId());
+            } else {
+                log.info("Function \"{}\": variable {} is spilled", function.getName(), current.getId());
+            }
+        }
+        for (final Map.Entry<Integer, Register> entry : allocation.entrySet()) {
+            log.info("Function \"{}\": variable {} is allocated to {}", function.getName(), entry.getKey(), entry.getValue());
+        }
+        return allocation;
+    }
+
+    private static int getVariable(final VM command) {
+        if (command instanceof VM.IStore) {
+            return ((VM.IStore) command).getName();
+        }
+        if (command instanceof VM.AStore) {
+            return ((VM.AStore) command).getName();
+        }
+        if (command instanceof VM.ILoad) {
+            return ((VM.ILoad) command).getName();
+        }
+        if (command instanceof VM.ALoad) {
+            return ((VM.ALoad) command).getName();
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the command that pops the loaded value, the values are not kept on the stack at the labels and jumps
+     */
+    static int getConsumer(final List<VM> commands, final int load) {
+        int depth = 1;
+        for (int i = load + 1; i < commands.size(); ++i) {
+            final VM command = commands.get(i);
+            if (command instanceof VM.Label || command instanceof VM.Goto) {
+                return i;
+            }
+            if (command instanceof VM.Dup) {
+                ++depth;
+                continue;
+            }
+            depth -= StackEffects.getPops(command);
+            if (depth <= 0) {
+                return i;
+            }
+            depth += StackEffects.getPushes(command);
+        }
+        return commands.size() - 1;
+    }
+
+    /**
+     * Finds the loops as the ranges between the label and the backward jump to it
+     */
+    private static List<Loop> findLoops(final List<VM> commands) {
+        final Map<String, Integer> labels = new HashMap<>();
+        for (int i = 0; i < commands.size(); ++i) {
+            if (commands.get(i) instanceof VM.Label) {
+                labels.put(((VM.Label) commands.get(i)).getName(), i);
+            }
+        }
+        final List<Loop> loops = new ArrayList<>();
+        for (int i = 0; i < commands.size(); ++i) {
+            final VM command = commands.get(i);
+            final String label;
+            if (command instanceof VM.Goto) {
+                label = ((VM.Goto) command).getLabel();
+            } else if (command instanceof VM.IfTrue) {
+                label = ((VM.IfTrue) command).getLabel();
+            } else if (command instanceof VM.IfFalse) {
+                label = ((VM.IfFalse) command).getLabel();
+            } else {
+                continue;
+            }
+            final Integer target = labels.get(label);
+            if (target != null && target <= i) {
+                loops.add(new Loop(target, i));
+            }
+        }
+        return loops;
+    }
+
+    private static long getUsageWeight(final int index, final List<Loop> loops) {
+        int depth = 0;
+        for (final Loop loop : loops) {
+            if (loop.getStart() <= index && index <= loop.getEnd()) {
+                ++depth;
+            }
+        }
+        long weight = 1;
+        for (int i = 0; i < Math.min(depth, MAX_LOOP_DEPTH); ++i) {
+            weight *= 10;
+        }
+        return weight;
+    }
+
+    private static void extendOverLoops(final Iterable<Interval> intervals, final List<Loop> loops) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (final Interval interval : intervals) {
+                for (final Loop loop : loops) {
+                    final boolean intersects = interval.getStart() <= loop.getEnd() && loop.getStart() <= interval.getEnd();
+                    if (!intersects) {
+                        continue;
+                    }
+                    if (loop.getStart() < interval.getStart()) {
+                        interval.setStart(loop.getStart());
+                        changed = true;
+                    }
+                    if (loop.getEnd() > interval.getEnd()) {
+                        interval.setEnd(loop.getEnd());
+                        changed = true;
+                    }
+                }
+            }
+        }
+    }
+
+    @Getter
+    @Setter
+    private static class Interval {
+        private final int id;
+        private int start;
+        private int end;
+        private long weight;
+
+        Interval(final int id, final int start, final int end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    @Getter
+    private static class Loop {
+        private final int start;
+        private final int end;
+
+        Loop(final int start, final int end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
@@ -2,34 +2,117 @@ package ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler;
 
 import lombok.extern.slf4j.Slf4j;
 import ru.ifmo.ctddev.khovanskiy.compilers.Compiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.profiler.PhaseProfiler;
 import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
 import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
 import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
 import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.*;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.optimizer.EscapeAnalysis;
 import ru.ifmo.ctddev.khovanskiy.compilers.vm.visitor.AbstractVMVisitor;
 import ru.ifmo.ctddev.khovanskiy.compilers.x86.*;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.optimizer.PeepholeOptimizer;
 import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
 /**
  * @author Victor Khovanskiy
  * @since 1.0.0
  */
 @Slf4j
 public class X86Compiler extends AbstractVMVisitor<CompilerContext> implements Compiler<VMProgram, X86Program> {
+    private final PhaseProfiler profiler;
+
+    private final ForkJoinPool pool;
+
+    private final PeepholeOptimizer optimizer;
+
+    private final GarbageCollector collector;
+
+    private final boolean boundsChecked;
+
+    public X86Compiler() {
+        this(new X86CompilerOptions());
+    }
+
+    /**
+     * @param options the options of compilation
+     * @since 1.1.0
+     */
+    public X86Compiler(final X86CompilerOptions options) {
+        this.profiler = options.getProfiler();
+        this.pool = options.getPool();
+        this.optimizer = options.getOptimizer();
+        this.collector = options.getCollector();
+        this.boundsChecked = options.isBoundsChecked();
+    }
+
     @Override
     public X86Program compile(VMProgram vmProgram) {
+        if (pool != null) {
+            return compileInParallel(vmProgram);
+        }
         final CompilerContext compilerContext = new CompilerContext();
         visitProgram(vmProgram, compilerContext);
         return new X86Program(compilerContext.getCommands());
     }
 
+    /**
+     * Compiles every function to its own list of commands, the lists are joined in the order of program,
+     * so the result is the same as the serial one
+     */
+    private X86Program compileInParallel(final VMProgram vmProgram) {
+        final List<ForkJoinTask<List<X86>>> tasks = new ArrayList<>();
+        for (final VMFunction function : vmProgram.getFunctions()) {
+            tasks.add(pool.submit(() -> compileFunction(function)));
+        }
+        final List<X86> commands = new ArrayList<>();
+        for (final ForkJoinTask<List<X86>> task : tasks) {
+            commands.addAll(task.join());
+        }
+        return new X86Program(commands);
+    }
+
+    /**
+     * Compiles the function in its own context
+     *
+     * @param function the function
+     * @return the commands of function
+     * @since 1.1.0
+     */
+    public List<X86> compileFunction(final VMFunction function) {
+        final CompilerContext compilerContext = new CompilerContext();
+        visitProgram(new VMProgram(Collections.singletonList(function)), compilerContext);
+        return compilerContext.getCommands();
+    }
+
+    @Override
+    public void visitProgram(final VMProgram vmProgram, final CompilerContext compilerContext) {
+        for (final VMFunction function : vmProgram.getFunctions()) {
+            final PhaseProfiler.Measurement measurement = profiler.start("x86", function.getName());
+            final int before = compilerContext.getCommands().size();
+            visitFunction(function, compilerContext);
+            if (optimizer != null) {
+                optimizer.optimize(compilerContext.getCommands().subList(before, compilerContext.getCommands().size()));
+            }
+            measurement.stop(compilerContext.getCommands().size() - before, "instructions");
+        }
+    }
+
     private static final int REFERENCE_COUNT_OFFSET = 0;
     private static final int REFERENCE_DATA_OFFSET = REFERENCE_COUNT_OFFSET + 4;
 
     private static final int ARRAY_OFFSET = 4;
 
-    private static final boolean GC = true;
-
     @Override
     public void visitFunction(final VMFunction function, final CompilerContext compilerContext) {
         int maxVariableId = -1;
@@ -51,20 +134,57 @@ public class X86Compiler extends AbstractVMVisitor<CompilerContext> implements C
         int argumentsCount = function.getArgumentsCount();
         int localVariablesCount = maxVariableId - argumentsCount + 1;
         log.info("Function \"{}\" has {} arguments and {} local variables", function.getName(), argumentsCount, localVariablesCount);
+        final Set<Integer> candidates = new HashSet<>();
+        for (int id = 0; id < argumentsCount + Math.max(localVariablesCount, 0); ++id) {
+            if (isIntegralType(function.getTypes().get(id))) {
+                candidates.add(id);
+            }
+        }
+        final List<Register> calleeSaved = compilerContext.getCalleeSavedRegisters();
+        final Map<Integer, Register> allocation = new LinearScanAllocator(calleeSaved).allocate(function, candidates);
         compilerContext.addCommand(new X86.Label(function.getName()));
         compilerContext.addCommand(new X86.PushL(Ebp.INSTANCE));
         compilerContext.addCommand(new X86.MovL(Esp.INSTANCE, Ebp.INSTANCE));
 
         compilerContext.enterScope(function.getName());
+        compilerContext.getScope().getCopiedLoads().addAll(findOverwrittenLoads(function.getCommands()));
+        if (collector != GarbageCollector.REFERENCE_COUNTING && function.getName().equals("main")) {
+            // the stack is scanned for the references up to the frame of main
+            final String init = collector == GarbageCollector.MARK_SWEEP ? "gc_init_mark_sweep" : "gc_init";
+            compilerContext.wrapInvoke(scope -> {
+                scope.addCommand(new X86.PushL(Ebp.INSTANCE));
+                scope.addCommand(new X86.Call(init));
+                scope.addCommand(new X86.AddL(new Immediate(4), Esp.INSTANCE));
+            });
+        }
         for (int i = 0; i < argumentsCount; ++i) {
             final ConcreteType type = function.getTypes().get(i);
-            compilerContext.registerArgument(i, type);
+            final StackPosition argument = compilerContext.registerArgument(i, type);
+            final Register register = allocation.get(i);
+            if (register != null) {
+                compilerContext.registerVariable(i, type, register);
+                compilerContext.getScope().addCommand(new X86.MovL(argument, register));
+            }
+        }
+        final EscapeAnalysis.Result escapes = EscapeAnalysis.analyze(function);
+        compilerContext.getScope().setEscapes(escapes);
+        if (boundsChecked) {
+            compilerContext.getScope().getSafeAccesses().addAll(BoundsCheckElimination.findSafeAccesses(function));
         }
         for (int i = 0; i < localVariablesCount; ++i) {
             final int id = i + argumentsCount;
             final ConcreteType type = function.getTypes().get(id);
+            final Register register = allocation.get(id);
+            if (register != null) {
+                compilerContext.registerVariable(id, type, register);
+                continue;
+            }
             final StackPosition variable = compilerContext.registerVariable(id, type);
-            if (isReferenceType(type)) {
+            if (isReferenceType(type) && (collector == GarbageCollector.MARK_SWEEP || escapes.isLocalVariable(id))) {
+                // the collector reads every reference variable of the stack map and the arrays of frame need no holder,
+                // so the variable is null until it is assigned
+                compilerContext.getScope().addCommand(new X86.MovL(new Immediate(0), variable));
+            } else if (isReferenceType(type)) {
                 // init local variable with reference holder by default
                 compilerContext.wrapInvoke(scope -> {
                     scope.addCommand(new X86.Call("init_reference"));
@@ -72,17 +192,37 @@ public class X86Compiler extends AbstractVMVisitor<CompilerContext> implements C
                 });
             }
         }
-        super.visitFunction(function, compilerContext);
+        final List<VM> commands = function.getCommands();
+        // the blocks follow the order of commands, the lengths are kept by identity and have no stable order
+        for (final VM command : commands) {
+            if (!escapes.isLocal(command)) {
+                continue;
+            }
+            // the block of array is the holder, the length and the elements
+            final CompilerContext.Scope scope = compilerContext.getScope();
+            final int size = 2 * compilerContext.getSizeByType(ObjectType.INSTANCE) + compilerContext.getSizeByType(IntegerType.INSTANCE) * (escapes.getLengths().get(command) + 1);
+            scope.getLocalArrays().put(command, -scope.getAllocated() - size);
+            scope.setAllocated(scope.getAllocated() + size);
+        }
+        for (int i = 0; i < commands.size(); ++i) {
+            final VM command = commands.get(i);
+            if (i + 1 < commands.size() && isComparison(command) && isBranch(commands.get(i + 1))) {
+                // the result of comparison is consumed by the branch only, so it is never materialized
+                visitCompareAndBranch((VM.BinOp) command, commands.get(++i), compilerContext);
+                continue;
+            }
+            visitCommand(command, compilerContext);
+        }
 
 //        compilerContext.addCommand(new X86.XorL(Eax.INSTANCE, Eax.INSTANCE));
         compilerContext.getScope().addCommand(new X86.Label(getFunctionEndLabel(function.getName())));
 
-        if (GC) {
+        if (collector == GarbageCollector.REFERENCE_COUNTING) {
             compilerContext.getScope().addCommand(new X86.PushL(Eax.INSTANCE));
             for (int i = 0; i < localVariablesCount; ++i) {
                 final int id = i + argumentsCount;
                 final ConcreteType type = function.getTypes().get(id);
-                if (isReferenceType(type)) {
+                if (isReferenceType(type) && !escapes.isLocalVariable(id)) {
                     compilerContext.wrapInvoke(scope -> {
                         final StackPosition variable = compilerContext.get(id);
                         scope.addCommand(new X86.PushL(variable));
@@ -96,27 +236,77 @@ public class X86Compiler extends AbstractVMVisitor<CompilerContext> implements C
 
         final CompilerContext.Scope scope = compilerContext.leaveScope();
         compilerContext.addCommand(new X86.SubL(new Immediate(scope.getMaxAllocated()), Esp.INSTANCE));
+        // the function preserves the callee-saved registers it uses, so the callers do not save them around the calls
+        final List<Register> saved = new ArrayList<>(calleeSaved);
+        saved.retainAll(scope.getUsedRegisters());
+        for (final Register register : saved) {
+            compilerContext.addCommand(new X86.PushL(register));
+        }
         for (final X86 command : scope.getCommands()) {
             compilerContext.addCommand(command);
         }
+        for (int i = saved.size() - 1; i >= 0; --i) {
+            compilerContext.addCommand(new X86.PopL(saved.get(i)));
+        }
 
         compilerContext.addCommand(new X86.MovL(Ebp.INSTANCE, Esp.INSTANCE));
         compilerContext.addCommand(new X86.PopL(Ebp.INSTANCE));
         compilerContext.addCommand(new X86.Ret());
+
+        if (scope.isBoundsChecked()) {
+            // the failed check jumps here with the index in eax and the data of array in edx, the error never returns
+            compilerContext.addCommand(new X86.Label(getBoundsErrorLabel(function.getName())));
+            compilerContext.addCommand(new X86.PushL(new StackPosition(0, Edx.INSTANCE, IntegerType.INSTANCE)));
+            compilerContext.addCommand(new X86.PushL(Eax.INSTANCE));
+            compilerContext.addCommand(new X86.Call("bounds_error"));
+        }
+    }
+
+    /**
+     * Finds the loads of variables that are assigned before the loaded values are popped, such as the swapped
+     * arguments of the self tail call, the borrowed register would be overwritten under the value
+     */
+    private static Set<VM> findOverwrittenLoads(final List<VM> commands) {
+        final Set<VM> loads = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < commands.size(); ++i) {
+            if (!(commands.get(i) instanceof VM.ILoad)) {
+                continue;
+            }
+            final int name = ((VM.ILoad) commands.get(i)).getName();
+            final int consumer = LinearScanAllocator.getConsumer(commands, i);
+            for (int j = i + 1; j < consumer; ++j) {
+                if (commands.get(j) instanceof VM.IStore && ((VM.IStore) commands.get(j)).getName() == name) {
+                    loads.add(commands.get(i));
+                    break;
+                }
+            }
+        }
+        return loads;
     }
 
     protected String getFunctionEndLabel(final String functionName) {
         return functionName + "_end";
     }
 
+    protected String getBoundsErrorLabel(final String functionName) {
+        return functionName + "_bounds";
+    }
+
     protected boolean isReferenceType(ConcreteType type) {
         return ImplicationType.class.isInstance(type);
     }
 
+    protected boolean isIntegralType(ConcreteType type) {
+        return IntegerType.class.isInstance(type) || CharacterType.class.isInstance(type);
+    }
+
     @Override
     public void visitIStore(VM.IStore command, CompilerContext compilerContext) {
         final MemoryAccess temporary = compilerContext.pop();
-        final MemoryAccess variable = compilerContext.get(command.getName());
+        final MemoryAccess variable = compilerContext.getLocation(command.getName());
+        if (variable instanceof Register && !variable.equals(temporary) && compilerContext.getStack().contains(variable)) {
+            throw new IllegalStateException(String.format("Function \"%s\": variable \"%d\" is overwritten while its value is on the stack", compilerContext.getScope().getName(), command.getName()));
+        }
         compilerContext.getScope().move(temporary, variable);
     }
 
@@ -125,7 +315,13 @@ public class X86Compiler extends AbstractVMVisitor<CompilerContext> implements C
         MemoryAccess temporary = compilerContext.pop();
         final StackPosition variable = compilerContext.get(command.getName());
 
-        if (GC) {
+        if (compilerContext.getScope().getEscapes().isLocalVariable(command.getName())) {
+            // the arrays of frame are not counted
+        } else if (collector == GarbageCollector.DEFERRED_REFERENCE_COUNTING) {
+            // the arguments above the frame are the holders of caller, which may be the elements of array, so they are counted
+            final String function = variable.getPosition() > 0 ? "gc_store" : "gc_store_root";
+            temporary = gcAssign(function, temporary, variable, compilerContext);
+        } else if (collector == GarbageCollector.REFERENCE_COUNTING) {
             temporary = gcAssign(temporary, variable, compilerContext);
         }
 
@@ -133,10 +329,14 @@ public class X86Compiler extends AbstractVMVisitor<CompilerContext> implements C
     }
 
     public MemoryAccess gcAssign(final MemoryAccess newValue, final StackPosition oldValue, final CompilerContext compilerContext) {
+        return gcAssign("gc_assign", newValue, oldValue, compilerContext);
+    }
+
+    private MemoryAccess gcAssign(final String function, final MemoryAccess newValue, final StackPosition oldValue, final CompilerContext compilerContext) {
         compilerContext.wrapInvoke(scope -> {
             scope.addCommand(new X86.PushL(oldValue));
             scope.addCommand(new X86.PushL(newValue));
-            scope.addCommand(new X86.Call("gc_assign"));
+            scope.addCommand(new X86.Call(function));
             scope.addCommand(new X86.AddL(new Immediate(8), Esp.INSTANCE));
         });
         return Eax.INSTANCE;
@@ -154,7 +354,7 @@ public class X86Compiler extends AbstractVMVisitor<CompilerContext> implements C
         final MemoryAccess array = compilerContext.pop();
 
         // reference
-        final MemoryAccess element = computeElementMemory(array, index, IntegerType.INSTANCE, compilerContext);
+        final MemoryAccess element = computeElementMemory(command, array, index, IntegerType.INSTANCE, compilerContext);
         compilerContext.getScope().move(value, element);
     }
 
@@ -164,11 +364,11 @@ public class X86Compiler extends AbstractVMVisitor<CompilerContext> implements C
         final MemoryAccess index = compilerContext.pop();
         final MemoryAccess array = compilerContext.pop();
 
-        final StackPosition element = computeElementMemory(array, index, ObjectType.INSTANCE, compilerContext);
+        final StackPosition element = computeElementMemory(command, array, index, ObjectType.INSTANCE, compilerContext);
 
-        if (GC) {
+        if (collector != GarbageCollector.MARK_SWEEP) {
             compilerContext.getScope().addCommand(new X86.PushL(element.getRegister()));
-            value = gcAssign(value, element, compilerContext);
+            value = gcAssign(collector == GarbageCollector.DEFERRED_REFERENCE_COUNTING ? "gc_store" : "gc_assign", value, element, compilerContext);
             compilerContext.getScope().addCommand(new X86.PopL(element.getRegister()));
         }
 
@@ -177,7 +377,12 @@ public class X86Compiler extends AbstractVMVisitor<CompilerContext> implements C
 
     @Override
     public void visitILoad(VM.ILoad command, CompilerContext compilerContext) {
-        final MemoryAccess variable = compilerContext.get(command.getName());
+        final MemoryAccess variable = compilerContext.getLocation(command.getName());
+        if (variable instanceof Register && !compilerContext.getScope().getCopiedLoads().contains(command)) {
+            // the operand is read from the register of variable directly
+            compilerContext.borrow((Register) variable);
+            return;
+        }
         final MemoryAccess temporary = compilerContext.allocate(IntegerType.INSTANCE);
         compilerContext.getScope().move(variable, temporary);
     }
@@ -185,7 +390,7 @@ public class X86Compiler extends AbstractVMVisitor<CompilerContext> implements C
     @Override
     public void visitALoad(VM.ALoad command, CompilerContext compilerContext) {
         final MemoryAccess variable = compilerContext.get(command.getName());
-        final MemoryAccess temporary = compilerContext.allocate(ObjectType.INSTANCE);
+        final MemoryAccess temporary = compilerContext.allocate(ArrayType.INSTANCE);
         compilerContext.getScope().move(variable, temporary);
     }
 
@@ -194,15 +399,17 @@ public class X86Compiler extends AbstractVMVisitor<CompilerContext> implements C
         final MemoryAccess index = compilerContext.pop();
         final MemoryAccess array = compilerContext.pop();
 
-        final MemoryAccess element = computeElementMemory(array, index, IntegerType.INSTANCE, compilerContext);
+        final MemoryAccess element = computeElementMemory(command, array, index, IntegerType.INSTANCE, compilerContext);
 
         final MemoryAccess temporary = compilerContext.allocate(IntegerType.INSTANCE);
         compilerContext.getScope().move(element, temporary);
     }
 
     /**
-     * Gets the element memory pointer and produces instruction to take it
+     * Gets the element memory pointer and produces instruction to take it, the index is checked against
+     * the length of array unless the access is always in the bounds
      *
+     * @param command         the load or store of element
      * @param array           the reference to array
      * @param index           the index of element
      * @param elementType     the type of element
@@ -210,8 +417,9 @@ public class X86Compiler extends AbstractVMVisitor<CompilerContext> implements C
      * @return the element memory pointer
      * @since 1.0.0
      */
-    protected StackPosition computeElementMemory(MemoryAccess array, MemoryAccess index, ConcreteType elementType, CompilerContext compilerContext) {
+    protected StackPosition computeElementMemory(VM command, MemoryAccess array, MemoryAccess index, ConcreteType elementType, CompilerContext compilerContext) {
         final int bytes = compilerContext.getSizeByType(elementType);
+        final CompilerContext.Scope scope = compilerContext.getScope();
 
         // reference
         compilerContext.getScope().addCommand(new X86.MovL(array, Edx.INSTANCE));
@@ -220,6 +428,12 @@ public class X86Compiler extends AbstractVMVisitor<CompilerContext> implements C
 
         // index
         compilerContext.getScope().addCommand(new X86.MovL(index, Eax.INSTANCE));
+        if (boundsChecked && !scope.getSafeAccesses().contains(command)) {
+            // the negative index is above the length as unsigned
+            scope.addCommand(new X86.Cmp(new StackPosition(0, Edx.INSTANCE, IntegerType.INSTANCE), Eax.INSTANCE));
+            scope.addCommand(new X86.Jae(getBoundsErrorLabel(scope.getName())));
+            scope.setBoundsChecked(true);
+        }
         compilerContext.getScope().addCommand(new X86.ImulL(new Immediate(bytes), Eax.INSTANCE));
 
         // reference->data[index]
@@ -236,9 +450,9 @@ public class X86Compiler extends AbstractVMVisitor<CompilerContext> implements C
         final MemoryAccess index = compilerContext.pop();
         final MemoryAccess array = compilerContext.pop();
 
-        final MemoryAccess element = computeElementMemory(array, index, ObjectType.INSTANCE, compilerContext);
+        final MemoryAccess element = computeElementMemory(command, array, index, ObjectType.INSTANCE, compilerContext);
 
-        final MemoryAccess temporary = compilerContext.allocate(ObjectType.INSTANCE);
+        final MemoryAccess temporary = compilerContext.allocate(ArrayType.INSTANCE);
         compilerContext.getScope().move(element, temporary);
     }
 
@@ -364,6 +578,89 @@ public class X86Compiler extends AbstractVMVisitor<CompilerContext> implements C
         compilerContext.getScope().move(Edx.INSTANCE, result);
     }
 
+    private static boolean isComparison(final VM command) {
+        if (!(command instanceof VM.BinOp)) {
+            return false;
+        }
+        switch (((VM.BinOp) command).getOperator()) {
+            case ">":
+            case ">=":
+            case "<":
+            case "<=":
+            case "==":
+            case "!=":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isBranch(final VM command) {
+        return command instanceof VM.IfTrue || command instanceof VM.IfFalse;
+    }
+
+    /**
+     * Visits the comparing followed by the branch, the flags of comparing are used by the conditional jump directly
+     *
+     * @param command         the comparing
+     * @param branch          the branch
+     * @param compilerContext the compiler context
+     * @since 1.1.0
+     */
+    private void visitCompareAndBranch(VM.BinOp command, VM branch, CompilerContext compilerContext) {
+        MemoryAccess rhs = compilerContext.pop();
+        MemoryAccess lhs = compilerContext.pop();
+        // the left operand is compared in place unless there is no such comparison
+        if (lhs instanceof Immediate || (lhs instanceof StackPosition && rhs instanceof StackPosition)) {
+            compilerContext.getScope().move(lhs, Eax.INSTANCE);
+            lhs = Eax.INSTANCE;
+        }
+        compilerContext.getScope().addCommand(new X86.Cmp(rhs, lhs));
+        if (branch instanceof VM.IfTrue) {
+            compilerContext.getScope().addCommand(createJump(command.getOperator(), ((VM.IfTrue) branch).getLabel()));
+        } else {
+            compilerContext.getScope().addCommand(createJump(negate(command.getOperator()), ((VM.IfFalse) branch).getLabel()));
+        }
+    }
+
+    private static String negate(final String operator) {
+        switch (operator) {
+            case ">":
+                return "<=";
+            case ">=":
+                return "<";
+            case "<":
+                return ">=";
+            case "<=":
+                return ">";
+            case "==":
+                return "!=";
+            case "!=":
+                return "==";
+            default:
+                throw new UnsupportedOperationException(operator);
+        }
+    }
+
+    private static X86.ConditionalJump createJump(final String operator, final String label) {
+        switch (operator) {
+            case ">":
+                return new X86.Jg(label);
+            case ">=":
+                return new X86.Jge(label);
+            case "<":
+                return new X86.Jl(label);
+            case "<=":
+                return new X86.Jle(label);
+            case "==":
+                return new X86.Je(label);
+            case "!=":
+                return new X86.Jne(label);
+            default:
+                throw new UnsupportedOperationException(operator);
+        }
+    }
+
     private void visitG(CompilerContext compilerContext) {
         compilerContext.getScope().addCommand(new X86.SetG(Dl.INSTANCE));
     }
@@ -421,7 +718,7 @@ public class X86Compiler extends AbstractVMVisitor<CompilerContext> implements C
 
     @Override
     public void visitAConstNull(VM.AConstNull command, CompilerContext compilerContext) {
-        final MemoryAccess temporary = compilerContext.allocate(ObjectType.INSTANCE);
+        final MemoryAccess temporary = compilerContext.allocate(ArrayType.INSTANCE);
         compilerContext.getScope().move(new Immediate(0), temporary);
     }
 
@@ -435,12 +732,20 @@ public class X86Compiler extends AbstractVMVisitor<CompilerContext> implements C
     public void visitInvokeStatic(VM.InvokeStatic command, CompilerContext compilerContext) {
         assert command.getArgumentsCount() <= compilerContext.getStack().size();
 
+        if (compilerContext.getScope().getLocalArrays().containsKey(command)) {
+            // arrmake or strmake of the array that does not escape
+            final MemoryAccess value = compilerContext.pop();
+            compilerContext.pop();
+            visitLocalArray(command, value, compilerContext);
+            return;
+        }
+
         compilerContext.wrapInvoke(scope -> {
             for (int i = 0; i < command.getArgumentsCount(); ++i) {
                 MemoryAccess memoryAccess = compilerContext.pop();
                 scope.addCommand(new X86.PushL(memoryAccess));
             }
-            scope.addCommand(new X86.Call(command.getName()));
+            addCall(command.getName(), compilerContext);
             scope.addCommand(new X86.AddL(new Immediate(4 * command.getArgumentsCount()), Esp.INSTANCE));
         });
 
@@ -451,6 +756,60 @@ public class X86Compiler extends AbstractVMVisitor<CompilerContext> implements C
         }
     }
 
+    /**
+     * Calls the function that may allocate the memory. The collector of {@link GarbageCollector#MARK_SWEEP} mode
+     * runs inside such calls, so the call site gets the stack map of variables and temporary variables that keep
+     * the references, the references in the registers are copied to the stack for the time of call.
+     *
+     * @param function        the name of function
+     * @param compilerContext the compiler context
+     * @since 1.1.0
+     */
+    protected void addCall(final String function, final CompilerContext compilerContext) {
+        final CompilerContext.Scope scope = compilerContext.getScope();
+        if (collector != GarbageCollector.MARK_SWEEP) {
+            scope.addCommand(new X86.Call(function));
+            return;
+        }
+        final Set<Integer> positions = new TreeSet<>();
+        for (final Map.Entry<Integer, CompilerContext.Variable> entry : scope.getVariables().entrySet()) {
+            final CompilerContext.Variable variable = entry.getValue();
+            if (variable.getRegister() == null && isReferenceType(variable.getType()) && !scope.getEscapes().isLocalVariable(entry.getKey())) {
+                positions.add(variable.getStackPosition().getPosition());
+            }
+        }
+        final Set<MemoryAccess> spilled = new HashSet<>();
+        final int allocated = scope.getAllocated();
+        for (final MemoryAccess operand : compilerContext.getStack()) {
+            if (!isHeapType(compilerContext.getType(operand))) {
+                continue;
+            }
+            if (operand instanceof StackPosition) {
+                positions.add(((StackPosition) operand).getPosition());
+            } else if (spilled.add(operand)) {
+                final StackPosition slot = new StackPosition(-compilerContext.getSizeByType(IntegerType.INSTANCE) - scope.getAllocated(), ArrayType.INSTANCE);
+                scope.setAllocated(scope.getAllocated() + compilerContext.getSizeByType(ArrayType.INSTANCE));
+                scope.addCommand(new X86.MovL(operand, slot));
+                positions.add(slot.getPosition());
+            }
+        }
+        // the label is unique in the function because the commands are only appended
+        final String label = scope.getName() + "_call_" + scope.getCommands().size();
+        scope.addCommand(new X86.Call(function));
+        scope.addCommand(new X86.Label(label));
+        scope.addCommand(new X86.StackMap(label, new ArrayList<>(positions)));
+        // the collector does not move the arrays, so the registers are still valid
+        scope.setAllocated(allocated);
+    }
+
+    /**
+     * The temporary variables of references are typed as {@link ArrayType}, the integers and the characters are
+     * {@link ObjectType} too, so they are not checked by it
+     */
+    private boolean isHeapType(final ConcreteType type) {
+        return type instanceof ArrayType || isReferenceType(type);
+    }
+
     @Override
     public void visitAbstractReturn(VM.AbstractReturn command, CompilerContext compilerContext) {
         super.visitAbstractReturn(command, compilerContext);
@@ -472,7 +831,9 @@ public class X86Compiler extends AbstractVMVisitor<CompilerContext> implements C
     public void visitAReturn(VM.AReturn command, CompilerContext compilerContext) {
         final MemoryAccess temporary = compilerContext.pop();
         compilerContext.getScope().move(temporary, Eax.INSTANCE);
-        gcReturn(Eax.INSTANCE, compilerContext);
+        if (collector == GarbageCollector.REFERENCE_COUNTING) {
+            gcReturn(Eax.INSTANCE, compilerContext);
+        }
     }
 
     protected void gcReturn(MemoryAccess temporary, CompilerContext compilerContext) {
@@ -507,13 +868,18 @@ public class X86Compiler extends AbstractVMVisitor<CompilerContext> implements C
 //        compilerContext.dup();
         MemoryAccess sizeMemory = compilerContext.pop();
 
+        if (compilerContext.getScope().getLocalArrays().containsKey(command)) {
+            visitLocalArray(command, null, compilerContext);
+            return;
+        }
+
         compilerContext.getScope().move(sizeMemory, Eax.INSTANCE);
         compilerContext.getScope().addCommand(new X86.ImulL(new Immediate(4), Eax.INSTANCE));
         compilerContext.getScope().addCommand(new X86.AddL(new Immediate(ARRAY_OFFSET), Eax.INSTANCE));
 
         compilerContext.wrapInvoke(scope -> {
             scope.addCommand(new X86.PushL(Eax.INSTANCE));
-            scope.addCommand(new X86.Call("new_reference"));
+            addCall("new_reference", compilerContext);
             scope.addCommand(new X86.AddL(new Immediate(4), Esp.INSTANCE));
         });
 
@@ -522,10 +888,48 @@ public class X86Compiler extends AbstractVMVisitor<CompilerContext> implements C
 //        compilerContext.getScope().addCommand(new X86.MovL(new StackPosition(REFERENCE_DATA_OFFSET, Edx.INSTANCE), Edx.INSTANCE));
 //        compilerContext.getScope().move(Edx.INSTANCE, new StackPosition(0, Edx.INSTANCE));
 
-        final MemoryAccess result = compilerContext.allocate(ObjectType.INSTANCE);
+        final MemoryAccess result = compilerContext.allocate(ArrayType.INSTANCE);
         compilerContext.getScope().move(Eax.INSTANCE, result);
     }
 
+    /**
+     * Creates the array in its block of frame instead of the heap, the holder of block has no meta, so the collectors
+     * ignore it. The array is not cleared, the elements are assigned by the literal or by the default value.
+     *
+     * @param command         the allocation command
+     * @param value           the default value of elements or {@code null}
+     * @param compilerContext the compiler context
+     * @since 1.1.0
+     */
+    protected void visitLocalArray(final VM command, final MemoryAccess value, final CompilerContext compilerContext) {
+        final CompilerContext.Scope scope = compilerContext.getScope();
+        final int block = scope.getLocalArrays().get(command);
+        final int length = scope.getEscapes().getLengths().get(command);
+        final int data = block + REFERENCE_DATA_OFFSET + compilerContext.getSizeByType(ObjectType.INSTANCE);
+        // reference->meta
+        scope.addCommand(new X86.MovL(new Immediate(0), new StackPosition(block + REFERENCE_COUNT_OFFSET, ObjectType.INSTANCE)));
+        // reference->data
+        scope.addCommand(new X86.MovL(Ebp.INSTANCE, Eax.INSTANCE));
+        scope.addCommand(new X86.AddL(new Immediate(data), Eax.INSTANCE));
+        scope.addCommand(new X86.MovL(Eax.INSTANCE, new StackPosition(block + REFERENCE_DATA_OFFSET, ObjectType.INSTANCE)));
+        // reference->data[0]
+        scope.addCommand(new X86.MovL(new Immediate(length), new StackPosition(data, IntegerType.INSTANCE)));
+        if (value != null) {
+            MemoryAccess source = value;
+            if (value instanceof StackPosition) {
+                scope.move(value, Edx.INSTANCE);
+                source = Edx.INSTANCE;
+            }
+            for (int i = 0; i < length; ++i) {
+                scope.addCommand(new X86.MovL(source, new StackPosition(data + ARRAY_OFFSET + i * compilerContext.getSizeByType(IntegerType.INSTANCE), IntegerType.INSTANCE)));
+            }
+        }
+        scope.addCommand(new X86.MovL(Ebp.INSTANCE, Eax.INSTANCE));
+        scope.addCommand(new X86.AddL(new Immediate(block), Eax.INSTANCE));
+        final MemoryAccess result = compilerContext.allocate(ArrayType.INSTANCE);
+        scope.move(Eax.INSTANCE, result);
+    }
+
     @Override
     public void visitUnknown(VM command, CompilerContext compilerContext) {
         throw new UnsupportedOperationException();
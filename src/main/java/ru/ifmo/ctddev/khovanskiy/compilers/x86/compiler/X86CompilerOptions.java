@@ -0,0 +1,76 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler;
+
+import lombok.Getter;
+import ru.ifmo.ctddev.khovanskiy.compilers.profiler.PhaseProfiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.optimizer.PeepholeOptimizer;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The options of {@link X86Compiler}, every option that is not set keeps its default value
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Getter
+public class X86CompilerOptions {
+    private PhaseProfiler profiler = PhaseProfiler.disabled();
+
+    private ForkJoinPool pool;
+
+    private PeepholeOptimizer optimizer;
+
+    private GarbageCollector collector = GarbageCollector.REFERENCE_COUNTING;
+
+    private boolean boundsChecked = true;
+
+    /**
+     * @param profiler the profiler of compilation of every function
+     * @return these options
+     * @since 1.1.0
+     */
+    public X86CompilerOptions profiler(final PhaseProfiler profiler) {
+        this.profiler = profiler;
+        return this;
+    }
+
+    /**
+     * @param pool the pool that compiles the functions in parallel or {@code null} to compile them serially
+     * @return these options
+     * @since 1.1.0
+     */
+    public X86CompilerOptions pool(final ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * @param optimizer the peephole optimizer of every function or {@code null} to keep the commands as they are
+     * @return these options
+     * @since 1.1.0
+     */
+    public X86CompilerOptions optimizer(final PeepholeOptimizer optimizer) {
+        this.optimizer = optimizer;
+        return this;
+    }
+
+    /**
+     * @param collector the memory management of references
+     * @return these options
+     * @since 1.1.0
+     */
+    public X86CompilerOptions collector(final GarbageCollector collector) {
+        this.collector = collector;
+        return this;
+    }
+
+    /**
+     * @param boundsChecked whether the indices of elements are checked against the lengths of arrays
+     * @return these options
+     * @since 1.1.0
+     */
+    public X86CompilerOptions boundsChecked(final boolean boundsChecked) {
+        this.boundsChecked = boundsChecked;
+        return this;
+    }
+}
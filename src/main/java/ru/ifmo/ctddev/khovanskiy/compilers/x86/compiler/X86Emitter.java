@@ -0,0 +1,88 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.printer.X86Printer;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.printer.X86PrinterContext;
+
+import java.io.BufferedWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Emitter of the assembly that prints every function as soon as it is compiled
+ * <p>
+ * The commands of function are kept only until its frame size is known and the function is printed,
+ * so the memory is proportional to the largest function rather than the whole program. The parallel emitter
+ * compiles at most as many functions ahead as there are threads in the pool.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class X86Emitter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final X86Compiler compiler;
+
+    private final ForkJoinPool pool;
+
+    public X86Emitter(final X86Compiler compiler) {
+        this(compiler, null);
+    }
+
+    /**
+     * @param compiler the compiler of functions
+     * @param pool     the pool that compiles the functions in parallel or {@code null} to compile them serially
+     * @since 1.1.0
+     */
+    public X86Emitter(final X86Compiler compiler, final ForkJoinPool pool) {
+        this.compiler = compiler;
+        this.pool = pool;
+    }
+
+    /**
+     * Compiles the program and writes its assembly to the channel, the channel is not closed
+     *
+     * @param vmProgram the program
+     * @param channel   the output channel
+     * @throws Exception if the output fails
+     * @since 1.1.0
+     */
+    public void emit(final VMProgram vmProgram, final WritableByteChannel channel) throws Exception {
+        final Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+        final X86Printer printer = new X86Printer();
+        final X86PrinterContext context = new X86PrinterContext(writer);
+        printer.printHeader(context);
+        if (pool == null) {
+            for (final VMFunction function : vmProgram.getFunctions()) {
+                print(printer, compiler.compileFunction(function), context);
+            }
+        } else {
+            final Deque<ForkJoinTask<List<X86>>> tasks = new ArrayDeque<>();
+            for (final VMFunction function : vmProgram.getFunctions()) {
+                tasks.addLast(pool.submit(() -> compiler.compileFunction(function)));
+                if (tasks.size() > pool.getParallelism()) {
+                    print(printer, tasks.removeFirst().join(), context);
+                }
+            }
+            while (!tasks.isEmpty()) {
+                print(printer, tasks.removeFirst().join(), context);
+            }
+        }
+        context.flush();
+    }
+
+    private static void print(final X86Printer printer, final List<X86> commands, final X86PrinterContext context) throws Exception {
+        for (final X86 command : commands) {
+            printer.visitCommand(command, context);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.optimizer;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Register;
+
+import java.util.List;
+
+/**
+ * Moves the value directly to the final location: {@code movl A, R; movl R, B} is replaced by {@code movl A, B}
+ * if the register {@code R} is overwritten before it is read again
+ * <p>
+ * The rule is not applied if both {@code A} and {@code B} are in memory, because there is no such move.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class CopyForwardRule implements X86Rule {
+    @Override
+    public String getName() {
+        return "copy-forward";
+    }
+
+    @Override
+    public boolean apply(final List<X86> commands, final int index) {
+        if (index + 1 >= commands.size() || !(commands.get(index) instanceof X86.MovL) || !(commands.get(index + 1) instanceof X86.MovL)) {
+            return false;
+        }
+        final X86.MovL first = (X86.MovL) commands.get(index);
+        final X86.MovL second = (X86.MovL) commands.get(index + 1);
+        if (!(first.getDestination() instanceof Register) || !first.getDestination().equals(second.getSource())) {
+            return false;
+        }
+        final Register register = (Register) first.getDestination();
+        if (Effects.uses(first.getSource(), register) || Effects.uses(second.getDestination(), register)) {
+            return false;
+        }
+        if (Effects.isMemory(first.getSource()) && Effects.isMemory(second.getDestination())) {
+            return false;
+        }
+        if (!Effects.isDead(commands, index + 2, register, PeepholeOptimizer.WINDOW)) {
+            return false;
+        }
+        commands.remove(index + 1);
+        commands.set(index, new X86.MovL(first.getSource(), second.getDestination()));
+        return true;
+    }
+}
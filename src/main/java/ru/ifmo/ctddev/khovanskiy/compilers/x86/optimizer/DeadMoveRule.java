@@ -0,0 +1,32 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.optimizer;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Register;
+
+import java.util.List;
+
+/**
+ * Removes the move to the register that is overwritten before it is read: {@code movl X, R}
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class DeadMoveRule implements X86Rule {
+    @Override
+    public String getName() {
+        return "dead-move";
+    }
+
+    @Override
+    public boolean apply(final List<X86> commands, final int index) {
+        if (!(commands.get(index) instanceof X86.MovL)) {
+            return false;
+        }
+        final X86.MovL mov = (X86.MovL) commands.get(index);
+        if (!(mov.getDestination() instanceof Register) || !Effects.isDead(commands, index + 1, (Register) mov.getDestination(), PeepholeOptimizer.WINDOW)) {
+            return false;
+        }
+        commands.remove(index);
+        return true;
+    }
+}
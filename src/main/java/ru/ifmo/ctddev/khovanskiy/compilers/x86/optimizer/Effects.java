@@ -0,0 +1,288 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.optimizer;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.Immediate;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.MemoryAccess;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.StackPosition;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Al;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Dl;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Eax;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Ecx;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Edx;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Esp;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Register;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Register8;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The registers and flags that are read and written by the commands
+ * <p>
+ * The labels, jumps and returns are the barriers for the rules that look at the commands between two places,
+ * because the other paths join at the labels. The liveness of register follows all the paths instead.
+ * The call clobbers the caller-saved registers and keeps the callee-saved ones.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+final class Effects {
+    private Effects() {
+    }
+
+    static boolean isBarrier(final X86 command) {
+        return command instanceof X86.Label
+                || command instanceof X86.Jmp
+                || command instanceof X86.Jz
+                || command instanceof X86.Jnz
+                || command instanceof X86.ConditionalJump
+                || command instanceof X86.Ret;
+    }
+
+    /**
+     * Checks that the locations are the same register, stack slot or immediate
+     */
+    static boolean same(final MemoryAccess a, final MemoryAccess b) {
+        if (a instanceof StackPosition && b instanceof StackPosition) {
+            final StackPosition left = (StackPosition) a;
+            final StackPosition right = (StackPosition) b;
+            return left.getPosition() == right.getPosition() && left.getRegister().equals(right.getRegister());
+        }
+        return a.equals(b);
+    }
+
+    static boolean isMemory(final MemoryAccess memoryAccess) {
+        return memoryAccess instanceof StackPosition;
+    }
+
+    static boolean isImmediate(final MemoryAccess memoryAccess, final int value) {
+        return memoryAccess instanceof Immediate && ((Immediate) memoryAccess).getValue() == value;
+    }
+
+    /**
+     * Checks that the value of register is needed to compute the operand
+     */
+    static boolean uses(final MemoryAccess memoryAccess, final Register register) {
+        if (memoryAccess instanceof Register) {
+            return memoryAccess.equals(register);
+        }
+        if (memoryAccess instanceof StackPosition) {
+            return ((StackPosition) memoryAccess).getRegister().equals(register);
+        }
+        if (memoryAccess instanceof Register8) {
+            return toRegister((Register8) memoryAccess).equals(register);
+        }
+        return false;
+    }
+
+    static boolean reads(final X86 command, final Register register) {
+        if (command instanceof X86.Label || command instanceof X86.StackMap || getJumpTarget(command) != null) {
+            return false;
+        }
+        if (command instanceof X86.Ret) {
+            // the result is returned in eax, the other registers that are not clobbered by calls belong to the caller
+            return !register.equals(Ecx.INSTANCE) && !register.equals(Edx.INSTANCE);
+        }
+        if (command instanceof X86.MovL) {
+            final X86.MovL mov = (X86.MovL) command;
+            return uses(mov.getSource(), register) || (isMemory(mov.getDestination()) && uses(mov.getDestination(), register));
+        }
+        if (command instanceof X86.PushL) {
+            return uses(((X86.PushL) command).getSource(), register) || register.equals(Esp.INSTANCE);
+        }
+        if (command instanceof X86.PopL) {
+            final MemoryAccess destination = ((X86.PopL) command).getDestination();
+            return register.equals(Esp.INSTANCE) || (isMemory(destination) && uses(destination, register));
+        }
+        if (command instanceof X86.Call) {
+            // the arguments are passed on the stack
+            return register.equals(Esp.INSTANCE);
+        }
+        if (command instanceof X86.AddL) {
+            return uses(((X86.AddL) command).getSource(), register) || uses(((X86.AddL) command).getDestination(), register);
+        }
+        if (command instanceof X86.SubL) {
+            return uses(((X86.SubL) command).getSource(), register) || uses(((X86.SubL) command).getDestination(), register);
+        }
+        if (command instanceof X86.ImulL) {
+            return uses(((X86.ImulL) command).getSource(), register) || uses(((X86.ImulL) command).getDestination(), register);
+        }
+        if (command instanceof X86.IDivL) {
+            return uses(((X86.IDivL) command).getDivider(), register) || register.equals(Eax.INSTANCE) || register.equals(Edx.INSTANCE);
+        }
+        if (command instanceof X86.Cltd) {
+            return register.equals(Eax.INSTANCE);
+        }
+        if (command instanceof X86.Cmp) {
+            return uses(((X86.Cmp) command).getLeft(), register) || uses(((X86.Cmp) command).getRight(), register);
+        }
+        if (command instanceof X86.XorL && ((X86.XorL) command).getLeft().equals(((X86.XorL) command).getRight())) {
+            // the register is cleared regardless of its value
+            return false;
+        }
+        if (command instanceof X86.Logical) {
+            return uses(((X86.Logical) command).getLeft(), register) || uses(((X86.Logical) command).getRight(), register);
+        }
+        if (command instanceof X86.Set) {
+            // only the low byte is written, so the rest of register is kept
+            return uses(((X86.Set) command).getRegister(), register);
+        }
+        return true;
+    }
+
+    static boolean writes(final X86 command, final Register register) {
+        if (command instanceof X86.MovL) {
+            return ((X86.MovL) command).getDestination().equals(register);
+        }
+        if (command instanceof X86.PushL) {
+            return register.equals(Esp.INSTANCE);
+        }
+        if (command instanceof X86.PopL) {
+            return ((X86.PopL) command).getDestination().equals(register) || register.equals(Esp.INSTANCE);
+        }
+        if (command instanceof X86.Call) {
+            return register.equals(Eax.INSTANCE) || register.equals(Ecx.INSTANCE) || register.equals(Edx.INSTANCE) || register.equals(Esp.INSTANCE);
+        }
+        if (command instanceof X86.AddL) {
+            return ((X86.AddL) command).getDestination().equals(register);
+        }
+        if (command instanceof X86.SubL) {
+            return ((X86.SubL) command).getDestination().equals(register);
+        }
+        if (command instanceof X86.ImulL) {
+            return ((X86.ImulL) command).getDestination().equals(register);
+        }
+        if (command instanceof X86.IDivL) {
+            return register.equals(Eax.INSTANCE) || register.equals(Edx.INSTANCE);
+        }
+        if (command instanceof X86.Cltd) {
+            return register.equals(Edx.INSTANCE);
+        }
+        if (command instanceof X86.Logical) {
+            return ((X86.Logical) command).getRight().equals(register);
+        }
+        if (command instanceof X86.Set) {
+            return uses(((X86.Set) command).getRegister(), register);
+        }
+        return false;
+    }
+
+    static boolean readsFlags(final X86 command) {
+        return command instanceof X86.Jz || command instanceof X86.Jnz || command instanceof X86.ConditionalJump || command instanceof X86.Set;
+    }
+
+    static boolean writesFlags(final X86 command) {
+        return command instanceof X86.AddL
+                || command instanceof X86.SubL
+                || command instanceof X86.ImulL
+                || command instanceof X86.IDivL
+                || command instanceof X86.Cmp
+                || command instanceof X86.Logical
+                || command instanceof X86.Call
+                || command instanceof X86.Ret;
+    }
+
+    /**
+     * Checks that the value of register is overwritten after the index before it is read on every path
+     * <p>
+     * The paths go through the labels and follow the jumps within the function, the conditional jump continues
+     * both at its label and at the next command. The path that comes back to the visited command does not read
+     * the register.
+     *
+     * @param commands the commands of function
+     * @param index    the index of the first command to check
+     * @param register the register
+     * @param window   the maximum count of checked commands on every path
+     * @return {@code true} if the register is dead, {@code false} if it is not known
+     */
+    static boolean isDead(final List<X86> commands, final int index, final Register register, final int window) {
+        return isDead(commands, index, register, new int[] {window * 4}, new HashSet<>());
+    }
+
+    private static boolean isDead(final List<X86> commands, final int index, final Register register, final int[] budget, final Set<Integer> visited) {
+        int i = index;
+        while (i < commands.size()) {
+            if (!visited.add(i)) {
+                return true;
+            }
+            if (--budget[0] < 0) {
+                return false;
+            }
+            final X86 command = commands.get(i);
+            if (reads(command, register)) {
+                return false;
+            }
+            if (writes(command, register) || command instanceof X86.Ret) {
+                return true;
+            }
+            final String target = getJumpTarget(command);
+            if (target != null) {
+                final int label = indexOfLabel(commands, target);
+                if (label < 0) {
+                    return false;
+                }
+                if (command instanceof X86.Jmp) {
+                    i = label;
+                    continue;
+                }
+                if (!isDead(commands, label, register, budget, visited)) {
+                    return false;
+                }
+            }
+            ++i;
+        }
+        return false;
+    }
+
+    static String getJumpTarget(final X86 command) {
+        if (command instanceof X86.Jmp) {
+            return ((X86.Jmp) command).getLabel();
+        }
+        if (command instanceof X86.Jz) {
+            return ((X86.Jz) command).getLabel();
+        }
+        if (command instanceof X86.Jnz) {
+            return ((X86.Jnz) command).getLabel();
+        }
+        if (command instanceof X86.ConditionalJump) {
+            return ((X86.ConditionalJump) command).getLabel();
+        }
+        return null;
+    }
+
+    private static int indexOfLabel(final List<X86> commands, final String name) {
+        for (int i = 0; i < commands.size(); ++i) {
+            if (commands.get(i) instanceof X86.Label && name.equals(((X86.Label) commands.get(i)).getName())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks that the flags are written after the index before they are read
+     */
+    static boolean areFlagsDead(final List<X86> commands, final int index, final int window) {
+        for (int i = index; i < commands.size() && i < index + window; ++i) {
+            final X86 command = commands.get(i);
+            if (writesFlags(command)) {
+                return true;
+            }
+            if (readsFlags(command) || isBarrier(command)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static Register toRegister(final Register8 register) {
+        if (register instanceof Al) {
+            return Eax.INSTANCE;
+        }
+        if (register instanceof Dl) {
+            return Edx.INSTANCE;
+        }
+        throw new IllegalStateException(String.format("Unknown register %s", register));
+    }
+}
@@ -0,0 +1,107 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.optimizer;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.Immediate;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.MemoryAccess;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Register;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the register loaded with the constant by the immediate operand: {@code movl $C, R; ...; addl R, X}
+ * is replaced by {@code ...; addl $C, X} if the register {@code R} is dead after its last use
+ * <p>
+ * The register is replaced only in the source operands of the moves, the pushes, the arithmetic and the comparisons,
+ * because the other commands do not accept the immediate.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class ImmediateOperandRule implements X86Rule {
+    @Override
+    public String getName() {
+        return "immediate-operand";
+    }
+
+    @Override
+    public boolean apply(final List<X86> commands, final int index) {
+        if (!(commands.get(index) instanceof X86.MovL)) {
+            return false;
+        }
+        final X86.MovL mov = (X86.MovL) commands.get(index);
+        if (!(mov.getSource() instanceof Immediate) || !(mov.getDestination() instanceof Register)) {
+            return false;
+        }
+        final Immediate immediate = (Immediate) mov.getSource();
+        final Register register = (Register) mov.getDestination();
+        final List<Integer> uses = new ArrayList<>();
+        final List<X86> replacements = new ArrayList<>();
+        int i = index + 1;
+        for (; i < commands.size() && i < index + PeepholeOptimizer.WINDOW; ++i) {
+            final X86 command = commands.get(i);
+            if (Effects.isBarrier(command)) {
+                break;
+            }
+            if (!Effects.reads(command, register)) {
+                if (Effects.writes(command, register)) {
+                    break;
+                }
+                continue;
+            }
+            final X86 replacement = replace(command, register, immediate);
+            if (replacement == null) {
+                return false;
+            }
+            uses.add(i);
+            replacements.add(replacement);
+        }
+        if (uses.isEmpty() || !Effects.isDead(commands, i, register, PeepholeOptimizer.WINDOW)) {
+            return false;
+        }
+        for (int j = 0; j < uses.size(); ++j) {
+            commands.set(uses.get(j), replacements.get(j));
+        }
+        commands.remove(index);
+        return true;
+    }
+
+    /**
+     * Creates the command that reads the immediate instead of register
+     *
+     * @return the command or {@code null} if the register can not be replaced
+     */
+    private static X86 replace(final X86 command, final Register register, final Immediate immediate) {
+        if (command instanceof X86.MovL) {
+            final X86.MovL mov = (X86.MovL) command;
+            return isSource(mov.getSource(), mov.getDestination(), register) ? new X86.MovL(immediate, mov.getDestination()) : null;
+        }
+        if (command instanceof X86.PushL) {
+            return register.equals(((X86.PushL) command).getSource()) ? new X86.PushL(immediate) : null;
+        }
+        if (command instanceof X86.AddL) {
+            final X86.AddL add = (X86.AddL) command;
+            return isSource(add.getSource(), add.getDestination(), register) ? new X86.AddL(immediate, add.getDestination()) : null;
+        }
+        if (command instanceof X86.SubL) {
+            final X86.SubL sub = (X86.SubL) command;
+            return isSource(sub.getSource(), sub.getDestination(), register) ? new X86.SubL(immediate, sub.getDestination()) : null;
+        }
+        if (command instanceof X86.ImulL) {
+            final X86.ImulL mul = (X86.ImulL) command;
+            return isSource(mul.getSource(), mul.getDestination(), register) ? new X86.ImulL(immediate, mul.getDestination()) : null;
+        }
+        if (command instanceof X86.Cmp) {
+            final X86.Cmp cmp = (X86.Cmp) command;
+            return isSource(cmp.getLeft(), cmp.getRight(), register) ? new X86.Cmp(immediate, cmp.getRight()) : null;
+        }
+        return null;
+    }
+
+    /**
+     * Checks that the register is the source operand only
+     */
+    private static boolean isSource(final MemoryAccess source, final MemoryAccess destination, final Register register) {
+        return register.equals(source) && !Effects.uses(destination, register) && !(destination instanceof Immediate);
+    }
+}
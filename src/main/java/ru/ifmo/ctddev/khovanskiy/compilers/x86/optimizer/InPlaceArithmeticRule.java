@@ -0,0 +1,67 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.optimizer;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.MemoryAccess;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Register;
+
+import java.util.List;
+
+/**
+ * Computes the arithmetic in the register of variable: {@code movl X, R; addl S, R; movl R, X}
+ * is replaced by {@code addl S, X} if the register {@code X} is not used by {@code S}
+ * and the temporary register {@code R} is overwritten before it is read again
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class InPlaceArithmeticRule implements X86Rule {
+    @Override
+    public String getName() {
+        return "in-place-arithmetic";
+    }
+
+    @Override
+    public boolean apply(final List<X86> commands, final int index) {
+        if (index + 2 >= commands.size() || !(commands.get(index) instanceof X86.MovL) || !(commands.get(index + 2) instanceof X86.MovL)) {
+            return false;
+        }
+        final X86.MovL load = (X86.MovL) commands.get(index);
+        final X86.MovL store = (X86.MovL) commands.get(index + 2);
+        if (!(load.getSource() instanceof Register) || !(load.getDestination() instanceof Register)) {
+            return false;
+        }
+        final Register variable = (Register) load.getSource();
+        final Register temporary = (Register) load.getDestination();
+        if (!temporary.equals(store.getSource()) || !variable.equals(store.getDestination())) {
+            return false;
+        }
+        final X86 replacement = replace(commands.get(index + 1), temporary, variable);
+        if (replacement == null || !Effects.isDead(commands, index + 3, temporary, PeepholeOptimizer.WINDOW)) {
+            return false;
+        }
+        commands.remove(index + 2);
+        commands.remove(index + 1);
+        commands.set(index, replacement);
+        return true;
+    }
+
+    private static X86 replace(final X86 command, final Register temporary, final Register variable) {
+        if (command instanceof X86.AddL) {
+            final X86.AddL add = (X86.AddL) command;
+            return isOperand(add.getSource(), add.getDestination(), temporary, variable) ? new X86.AddL(add.getSource(), variable) : null;
+        }
+        if (command instanceof X86.SubL) {
+            final X86.SubL sub = (X86.SubL) command;
+            return isOperand(sub.getSource(), sub.getDestination(), temporary, variable) ? new X86.SubL(sub.getSource(), variable) : null;
+        }
+        if (command instanceof X86.ImulL) {
+            final X86.ImulL mul = (X86.ImulL) command;
+            return isOperand(mul.getSource(), mul.getDestination(), temporary, variable) ? new X86.ImulL(mul.getSource(), variable) : null;
+        }
+        return null;
+    }
+
+    private static boolean isOperand(final MemoryAccess source, final Register destination, final Register temporary, final Register variable) {
+        return destination.equals(temporary) && !Effects.uses(source, temporary) && !Effects.uses(source, variable);
+    }
+}
@@ -0,0 +1,33 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.optimizer;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86;
+
+import java.util.List;
+
+/**
+ * Removes the jump to the label that follows it: {@code jmp L; L:}, the conditional jumps are removed too
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class JumpToNextRule implements X86Rule {
+    @Override
+    public String getName() {
+        return "jump-to-next";
+    }
+
+    @Override
+    public boolean apply(final List<X86> commands, final int index) {
+        final String target = Effects.getJumpTarget(commands.get(index));
+        if (target == null) {
+            return false;
+        }
+        for (int i = index + 1; i < commands.size() && commands.get(i) instanceof X86.Label; ++i) {
+            if (target.equals(((X86.Label) commands.get(i)).getName())) {
+                commands.remove(index);
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,178 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.optimizer;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86Program;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The peephole optimizer of the assembly
+ * <p>
+ * The window slides over the commands and every enabled rule is tried at its start. When a rule rewrites the commands,
+ * the window steps back, so the patterns produced by the rewrite are matched too. The rules look at no more than
+ * {@link #WINDOW} commands and never through the labels, jumps and calls, so the optimizer is applied to every function
+ * separately and may be shared by the threads that compile the functions in parallel.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+@Slf4j
+public class PeepholeOptimizer {
+    public static final int WINDOW = 8;
+
+    @Getter
+    private final List<X86Rule> rules;
+
+    @Getter
+    private final Set<String> disabledRules = Collections.synchronizedSet(new HashSet<>());
+
+    private final Map<String, AtomicLong> hits = new LinkedHashMap<>();
+
+    public PeepholeOptimizer(final List<X86Rule> rules) {
+        this.rules = rules;
+        for (final X86Rule rule : rules) {
+            hits.put(rule.getName(), new AtomicLong());
+        }
+    }
+
+    /**
+     * Creates the optimizer with all the rules
+     *
+     * @return the optimizer
+     * @since 1.1.0
+     */
+    public static PeepholeOptimizer withDefaultRules() {
+        return new PeepholeOptimizer(Arrays.asList(
+                new SelfMoveRule(),
+                new RoundTripMoveRule(),
+                new PushPopRule(),
+                new ZeroArithmeticRule(),
+                new ImmediateOperandRule(),
+                new InPlaceArithmeticRule(),
+                new CopyForwardRule(),
+                new DeadMoveRule(),
+                new JumpToNextRule(),
+                new UnreachableCodeRule()
+        ));
+    }
+
+    /**
+     * Disables the rules, for example to find the rule that breaks the program
+     *
+     * @param names the names of rules
+     * @return the same optimizer
+     * @throws IllegalArgumentException if there is no rule with such name
+     * @since 1.1.0
+     */
+    public PeepholeOptimizer disable(final Collection<String> names) {
+        for (final String name : names) {
+            if (!hits.containsKey(name)) {
+                throw new IllegalArgumentException(String.format("Unknown peephole rule \"%s\", the rules are %s", name, hits.keySet()));
+            }
+            disabledRules.add(name);
+        }
+        return this;
+    }
+
+    /**
+     * Gets the names of rules that are not disabled
+     *
+     * @return the names in the order of application
+     * @since 1.1.0
+     */
+    public List<String> getEnabledRules() {
+        final List<String> names = new ArrayList<>();
+        for (final X86Rule rule : rules) {
+            if (!disabledRules.contains(rule.getName())) {
+                names.add(rule.getName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Optimizes the commands of every function of program in place
+     *
+     * @param program the program
+     * @return the same program
+     * @since 1.1.0
+     */
+    public X86Program optimize(final X86Program program) {
+        final List<X86> commands = program.getCommands();
+        int end = commands.size();
+        // the functions are optimized from the last one, so the bounds of the previous ones are kept
+        for (int start = end - 1; start >= 0; --start) {
+            if (start == 0 || commands.get(start - 1) instanceof X86.Ret) {
+                optimize(commands.subList(start, end));
+                end = start;
+            }
+        }
+        return program;
+    }
+
+    /**
+     * Optimizes the commands of function in place
+     *
+     * @param commands the commands of function
+     * @return the count of rewrites
+     * @since 1.1.0
+     */
+    public int optimize(final List<X86> commands) {
+        final List<X86Rule> enabled = new ArrayList<>();
+        for (final X86Rule rule : rules) {
+            if (!disabledRules.contains(rule.getName())) {
+                enabled.add(rule);
+            }
+        }
+        int rewrites = 0;
+        int index = 0;
+        while (index < commands.size()) {
+            boolean changed = false;
+            for (final X86Rule rule : enabled) {
+                if (index < commands.size() && rule.apply(commands, index)) {
+                    hits.get(rule.getName()).incrementAndGet();
+                    ++rewrites;
+                    changed = true;
+                }
+            }
+            index = changed ? Math.max(0, index - WINDOW + 1) : index + 1;
+        }
+        return rewrites;
+    }
+
+    /**
+     * Gets the count of rewrites made by every rule
+     *
+     * @return the counts by the names of rules
+     * @since 1.1.0
+     */
+    public Map<String, Long> getHitCounts() {
+        final Map<String, Long> counts = new LinkedHashMap<>();
+        for (final Map.Entry<String, AtomicLong> entry : hits.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+
+    /**
+     * Logs the count of rewrites made by every rule
+     *
+     * @since 1.1.0
+     */
+    public void logHitCounts() {
+        for (final Map.Entry<String, Long> entry : getHitCounts().entrySet()) {
+            log.info("Peephole rule \"{}\"{} is applied {} times", entry.getKey(), disabledRules.contains(entry.getKey()) ? " (disabled)" : "", entry.getValue());
+        }
+    }
+}
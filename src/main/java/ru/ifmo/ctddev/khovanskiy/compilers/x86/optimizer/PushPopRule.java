@@ -0,0 +1,44 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.optimizer;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Esp;
+
+import java.util.List;
+
+/**
+ * Removes the adjacent push and pop: {@code pushl R; popl R} is removed
+ * and {@code pushl X; popl Y} is replaced by {@code movl X, Y} unless both X and Y are in memory,
+ * since the move has at most one memory operand
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class PushPopRule implements X86Rule {
+    @Override
+    public String getName() {
+        return "push-pop";
+    }
+
+    @Override
+    public boolean apply(final List<X86> commands, final int index) {
+        if (index + 1 >= commands.size() || !(commands.get(index) instanceof X86.PushL) || !(commands.get(index + 1) instanceof X86.PopL)) {
+            return false;
+        }
+        final X86.PushL push = (X86.PushL) commands.get(index);
+        final X86.PopL pop = (X86.PopL) commands.get(index + 1);
+        if (Effects.uses(push.getSource(), Esp.INSTANCE) || Effects.uses(pop.getDestination(), Esp.INSTANCE)) {
+            return false;
+        }
+        if (Effects.same(push.getSource(), pop.getDestination())) {
+            commands.remove(index + 1);
+            commands.remove(index);
+            return true;
+        }
+        if (Effects.isMemory(push.getSource()) && Effects.isMemory(pop.getDestination())) {
+            return false;
+        }
+        commands.remove(index + 1);
+        commands.set(index, new X86.MovL(push.getSource(), pop.getDestination()));
+        return true;
+    }
+}
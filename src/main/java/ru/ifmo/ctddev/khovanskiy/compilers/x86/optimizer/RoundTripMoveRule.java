@@ -0,0 +1,53 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.optimizer;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.StackPosition;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Register;
+
+import java.util.List;
+
+/**
+ * Removes the move back of the just moved value: {@code movl X, Y; movl Y, X} is replaced by {@code movl X, Y}
+ * <p>
+ * The rule is not applied if the address of {@code X} is computed from the register {@code Y},
+ * because the first move changes it. If both locations are registers, the commands between the moves
+ * that write neither of them are skipped.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class RoundTripMoveRule implements X86Rule {
+    @Override
+    public String getName() {
+        return "round-trip-move";
+    }
+
+    @Override
+    public boolean apply(final List<X86> commands, final int index) {
+        if (!(commands.get(index) instanceof X86.MovL)) {
+            return false;
+        }
+        final X86.MovL first = (X86.MovL) commands.get(index);
+        final boolean registers = first.getSource() instanceof Register && first.getDestination() instanceof Register;
+        for (int i = index + 1; i < commands.size() && i < index + PeepholeOptimizer.WINDOW; ++i) {
+            final X86 command = commands.get(i);
+            if (command instanceof X86.MovL && isBack(first, (X86.MovL) command)) {
+                commands.remove(i);
+                return true;
+            }
+            if (!registers || Effects.isBarrier(command)
+                    || Effects.writes(command, (Register) first.getSource())
+                    || Effects.writes(command, (Register) first.getDestination())) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBack(final X86.MovL first, final X86.MovL second) {
+        if (!Effects.same(first.getSource(), second.getDestination()) || !Effects.same(first.getDestination(), second.getSource())) {
+            return false;
+        }
+        return !(first.getSource() instanceof StackPosition && ((StackPosition) first.getSource()).getRegister().equals(first.getDestination()));
+    }
+}
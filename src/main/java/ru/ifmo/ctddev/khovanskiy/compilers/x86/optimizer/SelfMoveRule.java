@@ -0,0 +1,31 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.optimizer;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86;
+
+import java.util.List;
+
+/**
+ * Removes the move of location to itself: {@code movl X, X}
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class SelfMoveRule implements X86Rule {
+    @Override
+    public String getName() {
+        return "self-move";
+    }
+
+    @Override
+    public boolean apply(final List<X86> commands, final int index) {
+        if (!(commands.get(index) instanceof X86.MovL)) {
+            return false;
+        }
+        final X86.MovL mov = (X86.MovL) commands.get(index);
+        if (!Effects.same(mov.getSource(), mov.getDestination())) {
+            return false;
+        }
+        commands.remove(index);
+        return true;
+    }
+}
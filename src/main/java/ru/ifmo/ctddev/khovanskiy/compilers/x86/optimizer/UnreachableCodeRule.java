@@ -0,0 +1,32 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.optimizer;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86;
+
+import java.util.List;
+
+/**
+ * Removes the commands after the unconditional jump or the return up to the next label
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class UnreachableCodeRule implements X86Rule {
+    @Override
+    public String getName() {
+        return "unreachable-code";
+    }
+
+    @Override
+    public boolean apply(final List<X86> commands, final int index) {
+        final X86 command = commands.get(index);
+        if (!(command instanceof X86.Jmp) && !(command instanceof X86.Ret)) {
+            return false;
+        }
+        boolean changed = false;
+        while (index + 1 < commands.size() && !(commands.get(index + 1) instanceof X86.Label)) {
+            commands.remove(index + 1);
+            changed = true;
+        }
+        return changed;
+    }
+}
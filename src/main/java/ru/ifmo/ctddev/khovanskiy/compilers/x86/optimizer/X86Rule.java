@@ -0,0 +1,25 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.optimizer;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86;
+
+import java.util.List;
+
+/**
+ * The peephole rule that rewrites the short sequence of commands
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public interface X86Rule {
+    String getName();
+
+    /**
+     * Rewrites the commands that start at the index
+     *
+     * @param commands the commands of function
+     * @param index    the index of the first command of pattern
+     * @return {@code true} if the commands are changed
+     * @since 1.1.0
+     */
+    boolean apply(List<X86> commands, int index);
+}
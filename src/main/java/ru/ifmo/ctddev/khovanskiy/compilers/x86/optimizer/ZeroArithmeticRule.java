@@ -0,0 +1,34 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.optimizer;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86;
+
+import java.util.List;
+
+/**
+ * Removes the arithmetic that does not change the register: {@code addl $0, R}, {@code subl $0, R}
+ * and {@code imull $1, R}
+ * <p>
+ * The command sets the flags, so it is removed only if the flags are written again before they are read.
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class ZeroArithmeticRule implements X86Rule {
+    @Override
+    public String getName() {
+        return "zero-arithmetic";
+    }
+
+    @Override
+    public boolean apply(final List<X86> commands, final int index) {
+        final X86 command = commands.get(index);
+        final boolean identity = (command instanceof X86.AddL && Effects.isImmediate(((X86.AddL) command).getSource(), 0))
+                || (command instanceof X86.SubL && Effects.isImmediate(((X86.SubL) command).getSource(), 0))
+                || (command instanceof X86.ImulL && Effects.isImmediate(((X86.ImulL) command).getSource(), 1));
+        if (!identity || !Effects.areFlagsDead(commands, index + 1, PeepholeOptimizer.WINDOW)) {
+            return false;
+        }
+        commands.remove(index);
+        return true;
+    }
+}
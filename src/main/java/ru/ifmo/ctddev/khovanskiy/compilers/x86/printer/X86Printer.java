@@ -17,11 +17,21 @@ import java.io.IOException;
 public class X86Printer extends AbstractX86Visitor<X86PrinterContext> {
     @Override
     public void visitProgram(X86Program program, X86PrinterContext context) throws Exception {
+        printHeader(context);
+        super.visitProgram(program, context);
+        context.flush();
+    }
+
+    /**
+     * Prints the sections and the entry point that precede the commands of program
+     *
+     * @param context the printer context
+     * @since 1.1.0
+     */
+    public void printHeader(X86PrinterContext context) throws IOException {
         context.printLine("\t.data");
         context.printLine("\t.text");
         context.printLine("\t.globl\tmain");
-        super.visitProgram(program, context);
-        context.flush();
     }
 
     @Override
@@ -84,6 +94,18 @@ public class X86Printer extends AbstractX86Visitor<X86PrinterContext> {
         context.printLine("\tret");
     }
 
+    @Override
+    public void visitStackMap(X86.StackMap stackMap, X86PrinterContext context) throws IOException {
+        // the linker joins the maps of every function into one section between __start_gc_maps and __stop_gc_maps
+        context.printLine("\t.section gc_maps,\"aw\"");
+        context.printLine("\t.long " + stackMap.getLabel());
+        context.printLine("\t.long " + stackMap.getPositions().size());
+        for (final int position : stackMap.getPositions()) {
+            context.printLine("\t.long " + position);
+        }
+        context.printLine("\t.text");
+    }
+
     @Override
     public void visitJmp(X86.Jmp jmp, X86PrinterContext context) throws IOException {
         context.printLine("\tjmp " + jmp.getLabel());
@@ -99,6 +121,48 @@ public class X86Printer extends AbstractX86Visitor<X86PrinterContext> {
         context.printLine("\tjz " + jz.getLabel());
     }
 
+    @Override
+    public void visitConditionalJump(X86.ConditionalJump jump, X86PrinterContext context) throws Exception {
+        context.append("\tj");
+        super.visitConditionalJump(jump, context);
+        context.append(" " + jump.getLabel() + "\n");
+    }
+
+    @Override
+    public void visitJg(X86.Jg jg, X86PrinterContext context) throws IOException {
+        context.append("g");
+    }
+
+    @Override
+    public void visitJge(X86.Jge jge, X86PrinterContext context) throws IOException {
+        context.append("ge");
+    }
+
+    @Override
+    public void visitJl(X86.Jl jl, X86PrinterContext context) throws IOException {
+        context.append("l");
+    }
+
+    @Override
+    public void visitJle(X86.Jle jle, X86PrinterContext context) throws IOException {
+        context.append("le");
+    }
+
+    @Override
+    public void visitJe(X86.Je je, X86PrinterContext context) throws IOException {
+        context.append("e");
+    }
+
+    @Override
+    public void visitJne(X86.Jne jne, X86PrinterContext context) throws IOException {
+        context.append("ne");
+    }
+
+    @Override
+    public void visitJae(X86.Jae jae, X86PrinterContext context) throws IOException {
+        context.append("ae");
+    }
+
     @Override
     public void visitAdd(X86.AddL addL, X86PrinterContext context) throws Exception {
         context.append("\taddl ");
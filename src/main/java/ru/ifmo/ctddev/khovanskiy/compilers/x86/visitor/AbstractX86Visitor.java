@@ -42,6 +42,10 @@ public abstract class AbstractX86Visitor<C> implements X86Visitor<C> {
             visitRet((X86.Ret) command, c);
             return;
         }
+        if (command instanceof X86.StackMap) {
+            visitStackMap((X86.StackMap) command, c);
+            return;
+        }
         if (command instanceof X86.Jmp) {
             visitJmp((X86.Jmp) command, c);
             return;
@@ -54,6 +58,10 @@ public abstract class AbstractX86Visitor<C> implements X86Visitor<C> {
             visitJz((X86.Jz) command, c);
             return;
         }
+        if (command instanceof X86.ConditionalJump) {
+            visitConditionalJump((X86.ConditionalJump) command, c);
+            return;
+        }
         if (command instanceof X86.AddL) {
             visitAdd((X86.AddL) command, c);
             return;
@@ -127,6 +135,39 @@ public abstract class AbstractX86Visitor<C> implements X86Visitor<C> {
         throw new IllegalStateException("Unknown logical instruction");
     }
 
+    @Override
+    public void visitConditionalJump(X86.ConditionalJump command, C c) throws Exception {
+        if (command instanceof X86.Jg) {
+            visitJg((X86.Jg) command, c);
+            return;
+        }
+        if (command instanceof X86.Jge) {
+            visitJge((X86.Jge) command, c);
+            return;
+        }
+        if (command instanceof X86.Jl) {
+            visitJl((X86.Jl) command, c);
+            return;
+        }
+        if (command instanceof X86.Jle) {
+            visitJle((X86.Jle) command, c);
+            return;
+        }
+        if (command instanceof X86.Je) {
+            visitJe((X86.Je) command, c);
+            return;
+        }
+        if (command instanceof X86.Jne) {
+            visitJne((X86.Jne) command, c);
+            return;
+        }
+        if (command instanceof X86.Jae) {
+            visitJae((X86.Jae) command, c);
+            return;
+        }
+        throw new IllegalStateException("Unknown conditional jump instruction");
+    }
+
     @Override
     public void visitSet(X86.Set command, C c) throws Exception {
         if (command instanceof X86.SetG) {
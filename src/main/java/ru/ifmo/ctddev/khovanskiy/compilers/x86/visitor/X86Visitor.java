@@ -35,12 +35,30 @@ public interface X86Visitor<C> {
 
     void visitRet(X86.Ret ret, C c) throws Exception;
 
+    void visitStackMap(X86.StackMap stackMap, C c) throws Exception;
+
     void visitJmp(X86.Jmp jmp, C c) throws Exception;
 
     void visitJnz(X86.Jnz jnz, C c) throws Exception;
 
     void visitJz(X86.Jz jz, C c) throws Exception;
 
+    void visitConditionalJump(X86.ConditionalJump jump, C c) throws Exception;
+
+    void visitJg(X86.Jg jg, C c) throws Exception;
+
+    void visitJge(X86.Jge jge, C c) throws Exception;
+
+    void visitJl(X86.Jl jl, C c) throws Exception;
+
+    void visitJle(X86.Jle jle, C c) throws Exception;
+
+    void visitJe(X86.Je je, C c) throws Exception;
+
+    void visitJne(X86.Jne jne, C c) throws Exception;
+
+    void visitJae(X86.Jae jae, C c) throws Exception;
+
     void visitAdd(X86.AddL addL, C c) throws Exception;
 
     void visitSub(X86.SubL subL, C c) throws Exception;
@@ -7,16 +7,29 @@ import org.junit.Assert;
 import ru.ifmo.ctddev.khovanskiy.compilers.ast.AST;
 import ru.ifmo.ctddev.khovanskiy.compilers.ast.parser.LanguageLexer;
 import ru.ifmo.ctddev.khovanskiy.compilers.ast.parser.LanguageParser;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.compiler.VMCompiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.TypeInferencer;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler.X86Compiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.printer.X86Printer;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.printer.X86PrinterContext;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Slf4j
@@ -100,6 +113,88 @@ public abstract class BaseTest {
         return parser.compilationUnit().ast;
     }
 
+    /**
+     * Parses the source of program
+     *
+     * @param source the source
+     * @return the syntax tree
+     */
+    public static AST.CompilationUnit parse(final String source) {
+        return new LanguageParser(new CommonTokenStream(new LanguageLexer(new ANTLRInputStream(source)))).compilationUnit().ast;
+    }
+
+    /**
+     * Compiles the source of program to the virtual machine code
+     *
+     * @param source the source
+     * @return the program
+     */
+    public static VMProgram compileVM(final String source) {
+        final AST.CompilationUnit ast = parse(source);
+        return new VMCompiler().compile(ast, new TypeInferencer().inference(ast));
+    }
+
+    /**
+     * Compiles the program by the compiler and prints its assembly
+     *
+     * @param compiler  the compiler
+     * @param vmProgram the program
+     * @return the assembly
+     */
+    public static String printX86(final X86Compiler compiler, final VMProgram vmProgram) throws Exception {
+        final StringWriter writer = new StringWriter();
+        new X86Printer().visitProgram(compiler.compile(vmProgram), new X86PrinterContext(writer));
+        return writer.toString();
+    }
+
+    /**
+     * Finds the function of program by its name
+     *
+     * @param program the program
+     * @param name    the name of function
+     * @return the function
+     */
+    public static VMFunction getFunction(final VMProgram program, final String name) {
+        return program.getFunctions().stream().filter(function -> function.getName().equals(name)).findFirst().orElseThrow(IllegalStateException::new);
+    }
+
+    /**
+     * Links the assembly with the runtime and runs it
+     *
+     * @param assembly    the assembly
+     * @param name        the name of temporary files
+     * @param input       the input of program
+     * @param memoryLimit the limit of virtual memory of program in kilobytes or 0 if it is not limited
+     * @return the output of program
+     */
+    public static String runX86(final String assembly, final String name, final String input, final int memoryLimit) throws Exception {
+        final File directory = new File("./target/temp");
+        Assert.assertTrue(directory.isDirectory() || directory.mkdirs());
+        final File asmFile = new File(directory, name + ".s");
+        final File inputFile = new File(directory, name + ".input");
+        Files.write(asmFile.toPath(), assembly.getBytes(StandardCharsets.UTF_8));
+        Files.write(inputFile.toPath(), input.getBytes(StandardCharsets.UTF_8));
+        final SystemService systemService = new SystemService();
+        try {
+            Assert.assertTrue(systemService.execute("./runtime/compile.sh ./runtime ./target/temp/" + name));
+            final String run = "./runtime/run.sh ./target/temp/" + name + " " + inputFile;
+            final String[] command = memoryLimit > 0
+                    ? new String[] {"bash", "-c", "ulimit -v " + memoryLimit + " && " + run}
+                    : run.split(" ");
+            return systemService.executeForRead(command, inputStream -> {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
+                    return reader.lines().collect(Collectors.joining("\n"));
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } finally {
+            for (final String suffix : new String[] {".s", ".o", ".input", ""}) {
+                Files.deleteIfExists(new File(directory, name + suffix).toPath());
+            }
+        }
+    }
+
     protected Stream<Path> getTests(final File directory) {
         try {
             return Files.list(directory.toPath())
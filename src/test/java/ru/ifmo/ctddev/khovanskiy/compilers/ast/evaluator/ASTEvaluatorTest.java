@@ -1,20 +1,36 @@
 package ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator;
 
 import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 import ru.ifmo.ctddev.khovanskiy.compilers.BaseTest;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.AST;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.closure.ClosureEvaluator;
 import ru.ifmo.ctddev.khovanskiy.compilers.ast.printer.ASTPrinter;
 import ru.ifmo.ctddev.khovanskiy.compilers.ast.printer.ASTPrinterContext;
 
 import java.io.PrintWriter;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.io.Writer;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Map;
 
 @Slf4j
+@RunWith(Parameterized.class)
 public class ASTEvaluatorTest extends BaseTest {
+    @Parameterized.Parameter
+    public String engine;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> engines() {
+        return Arrays.asList(new Object[][]{{"tree"}, {"closure"}});
+    }
 
     @Test
     public void testCore() {
@@ -37,6 +53,28 @@ public class ASTEvaluatorTest extends BaseTest {
         evaluate("./compiler-tests/performance");
     }
 
+    /**
+     * Arrays are compared by their elements, the nested arrays too
+     */
+    @Test
+    public void testArrayEquality() {
+        final String source = "a := [1, 2]; b := [1, 2]; c := [1, 3]; d := [[1], [2]]; e := [[1], [2]];\n"
+                + "write(a == b); write(a != b); write(a == c); write(a != c); write(d == e); write(a == a)";
+        Assert.assertEquals("1\n0\n0\n1\n1\n1\n", evaluateSource(source));
+    }
+
+    private String evaluateSource(final String source) {
+        final AST.CompilationUnit ast = BaseTest.parse(source);
+        final StringWriter writer = new StringWriter();
+        final Map<Pointer, Symbol> externals = defineExternalFunctions(new StringReader(""), writer);
+        if ("closure".equals(engine)) {
+            new ClosureEvaluator().evaluate(ast, externals);
+        } else {
+            new ASTEvaluator().visitCompilationUnit(ast, new EvaluatorContext(externals));
+        }
+        return writer.toString();
+    }
+
     protected void evaluate(String s) {
         runTests(s, "./target/temp", (testCase) -> {
             final ASTPrinter printer = new ASTPrinter();
@@ -44,6 +82,11 @@ public class ASTEvaluatorTest extends BaseTest {
             printer.visitCompilationUnit(testCase.getAst(), new ASTPrinterContext(consoleWriter));
 
             final Map<Pointer, Symbol> externals = defineExternalFunctions(testCase.getReader(), testCase.getWriter());
+            if ("closure".equals(engine)) {
+                final ClosureEvaluator evaluator = new ClosureEvaluator();
+                evaluator.evaluate(testCase.getAst(), externals);
+                return;
+            }
             final EvaluatorContext context = new EvaluatorContext(externals);
             final ASTEvaluator evaluator = new ASTEvaluator();
             evaluator.visitCompilationUnit(testCase.getAst(), context);
@@ -51,26 +94,6 @@ public class ASTEvaluatorTest extends BaseTest {
     }
 
     public static Map<Pointer, Symbol> defineExternalFunctions(final Reader reader, final Writer writer) {
-        final Map<Pointer, Symbol> externals = new HashMap<>();
-        // base aliases
-        externals.put(new VariablePointer("true"), new Symbol<>(1));
-        externals.put(new VariablePointer("false"), new Symbol<>(0));
-        // io
-        externals.put(new FunctionPointer("read"), new Symbol<>(new ReadExternalFunction(reader, writer)));
-        externals.put(new FunctionPointer("write"), new Symbol<>(new WriteExternalFunction(writer)));
-        // strings
-        externals.put(new FunctionPointer("strlen"), new Symbol<>(new StrlenExternalFunction()));
-        externals.put(new FunctionPointer("strget"), new Symbol<>(new StrgetExternalFunction()));
-        externals.put(new FunctionPointer("strset"), new Symbol<>(new StrsetExternalFunction()));
-        externals.put(new FunctionPointer("strsub"), new Symbol<>(new StrsubExternalFunction()));
-        externals.put(new FunctionPointer("strdup"), new Symbol<>(new StrdupExternalFunction()));
-        externals.put(new FunctionPointer("strcat"), new Symbol<>(new StrcatExternalFunction()));
-        externals.put(new FunctionPointer("strcmp"), new Symbol<>(new StrcmpExternalFunction()));
-        externals.put(new FunctionPointer("strmake"), new Symbol<>(new StrmakeExternalFunction()));
-        // arrays
-        externals.put(new FunctionPointer("arrlen"), new Symbol<>(new ArrlenExternalFunction()));
-        externals.put(new FunctionPointer("arrmake"), new Symbol<>(new ArrmakeExternalFunction()));
-        externals.put(new FunctionPointer("Arrmake"), new Symbol<>(new DynamicArrmakeExternalFunction()));
-        return externals;
+        return ExternalFunctions.define(reader, writer);
     }
 }
@@ -0,0 +1,77 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.cache;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class ArtifactCacheTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testKey() {
+        Assert.assertEquals(ArtifactCache.key("write(1)", "1.1.0", "-O2"), ArtifactCache.key("write(1)", "1.1.0", "-O2"));
+        Assert.assertNotEquals(ArtifactCache.key("write(1)", "1.1.0", "-O2"), ArtifactCache.key("write(1)", "1.1.0", "-O0"));
+        Assert.assertNotEquals(ArtifactCache.key("ab", "c"), ArtifactCache.key("a", "bc"));
+    }
+
+    @Test
+    public void testGetAndPut() throws Exception {
+        final ArtifactCache cache = new ArtifactCache(folder.getRoot().toPath(), ArtifactCache.DEFAULT_MAX_SIZE);
+        final String key = ArtifactCache.key("write(1)");
+        Assert.assertNull(cache.get(key, "program.s"));
+        cache.put(key, "program.s", "main:".getBytes(StandardCharsets.UTF_8));
+        final Path path = cache.get(key, "program.s");
+        Assert.assertNotNull(path);
+        Assert.assertEquals("main:", new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+
+        final Path target = folder.getRoot().toPath().resolve("copy.s");
+        Assert.assertTrue(cache.copy(key, "program.s", target));
+        Assert.assertEquals("main:", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+        Assert.assertFalse(cache.copy(key, "program", target));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws Exception {
+        final ArtifactCache cache = new ArtifactCache(folder.newFolder("cache").toPath(), 20);
+        final byte[] content = new byte[8];
+        cache.put("a", "program", content);
+        cache.put("b", "program", content);
+        Assert.assertNotNull(cache.get("a", "program"));
+        cache.put("c", "program", content);
+
+        Assert.assertNotNull(cache.get("a", "program"));
+        Assert.assertNull(cache.get("b", "program"));
+        Assert.assertNotNull(cache.get("c", "program"));
+        Assert.assertEquals(16, cache.size());
+    }
+
+    @Test
+    public void testEvictionOfExistingEntries() throws Exception {
+        final Path directory = folder.newFolder("cache").toPath();
+        final byte[] content = new byte[8];
+        final ArtifactCache previous = new ArtifactCache(directory, 20);
+        previous.put("a", "program", content);
+        previous.put("b", "program", content);
+        previous.get("a", "program");
+
+        final ArtifactCache cache = new ArtifactCache(directory, 20);
+        cache.put("b", "program", new byte[4]);
+        Assert.assertNotNull(cache.get("a", "program"));
+        cache.put("c", "program", new byte[9]);
+
+        Assert.assertNotNull(cache.get("a", "program"));
+        Assert.assertNull(cache.get("b", "program"));
+        Assert.assertNotNull(cache.get("c", "program"));
+        Assert.assertEquals(17, cache.size());
+    }
+}
@@ -0,0 +1,66 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.incremental;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.ifmo.ctddev.khovanskiy.compilers.BaseTest;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.AST;
+import ru.ifmo.ctddev.khovanskiy.compilers.cache.ArtifactCache;
+import ru.ifmo.ctddev.khovanskiy.compilers.profiler.PhaseProfiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.TypeInferencer;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.optimizer.VMOptimizer;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler.X86Compiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler.X86CompilerOptions;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.optimizer.PeepholeOptimizer;
+
+import java.io.StringWriter;
+
+/**
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class IncrementalCompilerTest {
+    private static final String SOURCE = "fun inc(x) begin return x + 1 end\n"
+            + "fun twice(x) begin return inc(inc(x)) end\n"
+            + "n := read();\n"
+            + "while n > 0 do write(twice(n)); n := n - 1 od";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReuse() throws Exception {
+        final ArtifactCache cache = new ArtifactCache(folder.getRoot().toPath(), ArtifactCache.DEFAULT_MAX_SIZE);
+
+        final IncrementalCompiler first = new IncrementalCompiler(cache, 2, PhaseProfiler.disabled());
+        Assert.assertEquals(printFull(SOURCE), print(first, SOURCE));
+        Assert.assertEquals(3, first.getCompiledFunctions());
+        Assert.assertEquals(0, first.getReusedFunctions());
+
+        final IncrementalCompiler second = new IncrementalCompiler(cache, 2, PhaseProfiler.disabled());
+        Assert.assertEquals(printFull(SOURCE), print(second, SOURCE));
+        Assert.assertEquals(0, second.getCompiledFunctions());
+        Assert.assertEquals(3, second.getReusedFunctions());
+
+        final String changed = SOURCE.replace("x + 1", "x + 2");
+        final IncrementalCompiler third = new IncrementalCompiler(cache, 2, PhaseProfiler.disabled());
+        Assert.assertEquals(printFull(changed), print(third, changed));
+        Assert.assertEquals(1, third.getCompiledFunctions());
+        Assert.assertEquals(2, third.getReusedFunctions());
+    }
+
+    private static String print(final IncrementalCompiler compiler, final String source) throws Exception {
+        final AST.CompilationUnit ast = BaseTest.parse(source);
+        final VMProgram vmProgram = compiler.compile(ast, new TypeInferencer().inference(ast));
+        final StringWriter writer = new StringWriter();
+        compiler.print(vmProgram, writer);
+        return writer.toString();
+    }
+
+    private static String printFull(final String source) throws Exception {
+        final X86Compiler compiler = new X86Compiler(new X86CompilerOptions().optimizer(PeepholeOptimizer.withDefaultRules()));
+        return BaseTest.printX86(compiler, VMOptimizer.forLevel(2).optimize(BaseTest.compileVM(source)));
+    }
+}
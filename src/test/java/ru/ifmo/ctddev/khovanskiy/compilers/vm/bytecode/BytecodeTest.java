@@ -0,0 +1,77 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.bytecode;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+import ru.ifmo.ctddev.khovanskiy.compilers.BaseTest;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ASTEvaluatorTest;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Pointer;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.Symbol;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.compiler.VMCompiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.evaluator.VMEvaluator;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.TypeContext;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.TypeInferencer;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.printer.PrinterContext;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.printer.VMPrinter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.Map;
+
+/**
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class BytecodeTest extends BaseTest {
+    @Test
+    public void testCore() {
+        evaluate("./compiler-tests/core");
+    }
+
+    @Test
+    public void testDeepExpressions() {
+        evaluate("./compiler-tests/deep-expressions");
+    }
+
+    @Test
+    public void testExpressions() {
+        evaluate("./compiler-tests/expressions");
+    }
+
+    @Test
+    @Ignore
+    public void testPerformance() {
+        evaluate("./compiler-tests/performance");
+    }
+
+    protected void evaluate(String s) {
+        runTests(s, "./target/temp", (testCase) -> {
+            final TypeInferencer typeInferencer = new TypeInferencer();
+            final TypeContext typeContext = typeInferencer.inference(testCase.getAst());
+
+            final VMCompiler compiler = new VMCompiler();
+            final VMProgram vmProgram = compiler.compile(testCase.getAst(), typeContext);
+
+            final File bytecodeFile = new File("./target/temp", testCase.getTestName() + ".vmb");
+            testCase.getTemporaryFiles().add(bytecodeFile);
+            try (OutputStream outputStream = new FileOutputStream(bytecodeFile)) {
+                new BytecodeWriter().write(vmProgram, outputStream);
+            }
+            final VMProgram loaded = new BytecodeReader().load(bytecodeFile.toPath());
+            Assert.assertEquals(print(vmProgram), print(loaded));
+
+            final VMEvaluator evaluator = new VMEvaluator();
+            final Map<Pointer, Symbol> externals = ASTEvaluatorTest.defineExternalFunctions(testCase.getReader(), testCase.getWriter());
+            evaluator.evaluate(loaded, externals);
+        });
+    }
+
+    private static String print(final VMProgram vmProgram) {
+        final StringWriter writer = new StringWriter();
+        new VMPrinter().visitProgram(vmProgram, new PrinterContext(writer));
+        return writer.toString();
+    }
+}
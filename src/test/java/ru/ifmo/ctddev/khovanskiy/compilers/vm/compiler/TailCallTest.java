@@ -0,0 +1,98 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.compiler;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.ctddev.khovanskiy.compilers.BaseTest;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.evaluator.ExternalFunctions;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.evaluator.LinkedVMEvaluator;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.evaluator.VMEvaluator;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler.X86Compiler;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+/**
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class TailCallTest {
+    private static final String GCD = "fun gcd(a, b) begin if b == 0 then return a fi; return gcd(b, a % b) end\n"
+            + "write(gcd(read(), 36))";
+
+    @Test
+    public void testSelfTailCall() {
+        final List<VM> commands = BaseTest.getFunction(BaseTest.compileVM(GCD), "gcd").getCommands();
+        Assert.assertEquals("gcd_l2", ((VM.Label) commands.get(0)).getName());
+        Assert.assertTrue(commands.stream().anyMatch(command -> command instanceof VM.Goto && ((VM.Goto) command).getLabel().equals("gcd_l2")));
+        Assert.assertFalse(calls(commands, "gcd"));
+    }
+
+    @Test
+    public void testUnchangedReference() {
+        final VMProgram program = BaseTest.compileVM("fun sum(a, i, n, s) begin if i == n then return s fi; return sum(a, i + 1, n, s + a[i]) end\n"
+                + "write(sum([1, 2, 3], 0, 3, 0))");
+        Assert.assertFalse(calls(BaseTest.getFunction(program, "sum").getCommands(), "sum"));
+    }
+
+    @Test
+    public void testChangedReference() {
+        final VMProgram program = BaseTest.compileVM("fun swap(a, b, n) begin if n == 0 then return a[0] fi; return swap(b, a, n - 1) end\n"
+                + "write(swap([1], [2], 3))");
+        Assert.assertTrue(calls(BaseTest.getFunction(program, "swap").getCommands(), "swap"));
+    }
+
+    @Test
+    public void testFrameIsReused() throws Exception {
+        final String assembly = BaseTest.printX86(new X86Compiler(), BaseTest.compileVM(GCD));
+        Assert.assertTrue(assembly, assembly.contains("\tjmp gcd_l2\n"));
+        // only main calls the function
+        Assert.assertEquals(assembly, assembly.indexOf("call gcd"), assembly.lastIndexOf("call gcd"));
+    }
+
+    /**
+     * The variable t is read before it is assigned, so every call starts with t equal to zero as the new frame does
+     */
+    @Test
+    public void testLocalsAreReset() {
+        final VMProgram program = BaseTest.compileVM("fun f(n, s) begin if n == 0 then return s fi; if n == 3 then t := 5 fi; return f(n - 1, s + t) end\n"
+                + "write(f(5, 0))");
+        Assert.assertFalse(calls(BaseTest.getFunction(program, "f").getCommands(), "f"));
+
+        final StringWriter writer = new StringWriter();
+        new VMEvaluator().evaluate(program, ExternalFunctions.define(new StringReader(""), writer));
+        new LinkedVMEvaluator().evaluate(program, ExternalFunctions.define(new StringReader(""), writer));
+        Assert.assertEquals("5\n5\n", writer.toString());
+    }
+
+    /**
+     * The reference variable is assigned null before the jump, so the array of the previous call is released
+     */
+    @Test
+    public void testReferenceLocalIsReleased() throws Exception {
+        final String source = "fun g(n, a) begin if n == 0 then return a[0] fi; b := [n]; return g(n - 1, a) end\n"
+                + "write(g(3, [7]))";
+        final List<VM> commands = BaseTest.getFunction(BaseTest.compileVM(source), "g").getCommands();
+        final int jump = indexOfGoto(commands, ((VM.Label) commands.get(0)).getName());
+        Assert.assertTrue(commands.get(jump - 2) instanceof VM.AConstNull);
+        Assert.assertEquals(2, ((VM.AStore) commands.get(jump - 1)).getName());
+
+        final String assembly = BaseTest.printX86(new X86Compiler(), BaseTest.compileVM(source));
+        Assert.assertTrue(assembly, assembly.contains("\tcall gc_assign\n\taddl $8, %esp\n\tmovl %eax, -4(%ebp)\n\tjmp g_l2\n"));
+    }
+
+    private static int indexOfGoto(final List<VM> commands, final String label) {
+        for (int i = 0; i < commands.size(); ++i) {
+            if (commands.get(i) instanceof VM.Goto && ((VM.Goto) commands.get(i)).getLabel().equals(label)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private static boolean calls(final List<VM> commands, final String name) {
+        return commands.stream().anyMatch(command -> command instanceof VM.InvokeStatic && ((VM.InvokeStatic) command).getName().equals(name));
+    }
+}
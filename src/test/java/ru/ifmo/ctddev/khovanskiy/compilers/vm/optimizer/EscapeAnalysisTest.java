@@ -0,0 +1,50 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.optimizer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.ctddev.khovanskiy.compilers.BaseTest;
+
+/**
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class EscapeAnalysisTest {
+    @Test
+    public void testLocalArray() {
+        final EscapeAnalysis.Result result = analyze("a := [1, 2, 3]; s := strmake(2, 'x'); write(a[0] + arrlen(a) + strlen(s))", "main");
+        Assert.assertEquals(2, result.getLengths().size());
+        Assert.assertTrue(result.getLengths().containsValue(3));
+        Assert.assertTrue(result.getLengths().containsValue(2));
+        Assert.assertEquals(2, result.getVariables().size());
+    }
+
+    @Test
+    public void testLoop() {
+        final EscapeAnalysis.Result result = analyze("i := 0; while i < 3 do a := [1, 2]; write(a[1] + strlen(\"abc\")); i := i + 1 od", "main");
+        Assert.assertEquals(2, result.getLengths().size());
+        Assert.assertEquals(1, result.getVariables().size());
+    }
+
+    @Test
+    public void testEscapingArrays() {
+        // the literal of b is stored into the other array, the literal of argument is passed to the function
+        final String source = "fun first(a) begin return a[0] end\n"
+                + "fun make() begin return [1, 2] end\n"
+                + "b := [read()]; c := [b]; d := c[0];\n"
+                + "write(first([read()]) + arrlen(make()) + d[0])";
+        final EscapeAnalysis.Result main = analyze(source, "main");
+        Assert.assertTrue(main.getLengths().isEmpty());
+        Assert.assertTrue(main.getVariables().isEmpty());
+        // the returned literal
+        Assert.assertTrue(analyze(source, "make").getLengths().isEmpty());
+    }
+
+    @Test
+    public void testUnknownLength() {
+        Assert.assertTrue(analyze("n := read(); a := arrmake(n, 0); write(arrlen(a))", "main").getLengths().isEmpty());
+    }
+
+    private static EscapeAnalysis.Result analyze(final String source, final String name) {
+        return EscapeAnalysis.analyze(BaseTest.getFunction(BaseTest.compileVM(source), name));
+    }
+}
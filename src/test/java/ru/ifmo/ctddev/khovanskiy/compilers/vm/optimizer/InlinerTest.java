@@ -0,0 +1,50 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.vm.optimizer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.ctddev.khovanskiy.compilers.BaseTest;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VM;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class InlinerTest {
+    @Test
+    public void testLeafFunctions() {
+        final VMProgram program = BaseTest.compileVM("fun sq(x) begin return x * x end\n"
+                + "fun max(a, b) begin if a > b then return a else return b fi end\n"
+                + "fun sum(a, b) begin return sq(a) + sq(b) end\n"
+                + "write(max(sum(read(), 2), 3))");
+        final Map<VMFunction, Set<VMFunction>> inlined = new Inliner().inline(program);
+        Assert.assertEquals(2, inlined.size());
+        Assert.assertFalse(calls(BaseTest.getFunction(program, "sum"), "sq"));
+        Assert.assertFalse(calls(BaseTest.getFunction(program, "main"), "sum"));
+        Assert.assertFalse(calls(BaseTest.getFunction(program, "main"), "max"));
+        Assert.assertTrue(calls(BaseTest.getFunction(program, "main"), "read"));
+    }
+
+    @Test
+    public void testRecursiveFunction() {
+        final VMProgram program = BaseTest.compileVM("fun fact(n) begin if n < 2 then return 1 fi; return n * fact(n - 1) end\n"
+                + "write(fact(read()))");
+        Assert.assertTrue(new Inliner().inline(program).isEmpty());
+        Assert.assertTrue(calls(BaseTest.getFunction(program, "main"), "fact"));
+    }
+
+    @Test
+    public void testArrayFunction() {
+        final VMProgram program = BaseTest.compileVM("fun first(a) begin return a[0] end\n"
+                + "write(first([read()]))");
+        Assert.assertTrue(new Inliner().inline(program).isEmpty());
+    }
+
+    private static boolean calls(final VMFunction function, final String name) {
+        return function.getCommands().stream().anyMatch(command -> command instanceof VM.InvokeStatic && ((VM.InvokeStatic) command).getName().equals(name));
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.Ignore;
 import org.junit.Test;
 import ru.ifmo.ctddev.khovanskiy.compilers.BaseTest;
 import ru.ifmo.ctddev.khovanskiy.compilers.SystemService;
+import ru.ifmo.ctddev.khovanskiy.compilers.cache.ArtifactCache;
 import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
 import ru.ifmo.ctddev.khovanskiy.compilers.vm.compiler.VMCompiler;
 import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.TypeContext;
@@ -13,6 +14,9 @@ import ru.ifmo.ctddev.khovanskiy.compilers.x86.printer.X86Printer;
 import ru.ifmo.ctddev.khovanskiy.compilers.x86.printer.X86PrinterContext;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 
 /**
@@ -22,6 +26,8 @@ import java.io.*;
 public class X86EvaluatorTest extends BaseTest {
     private final SystemService systemService = new SystemService();
 
+    private final ArtifactCache cache = new ArtifactCache(Paths.get("./target/cache"), ArtifactCache.DEFAULT_MAX_SIZE);
+
     @Test
     public void testCore() {
         evaluate("./compiler-tests/core");
@@ -43,6 +49,10 @@ public class X86EvaluatorTest extends BaseTest {
         evaluate("./compiler-tests/performance");
     }
 
+    protected X86Compiler createCompiler() {
+        return new X86Compiler();
+    }
+
     protected void evaluate(final String s) {
         runTests(s, "./target/temp", (testCase) -> {
             final TypeInferencer typeInferencer = new TypeInferencer();
@@ -56,7 +66,7 @@ public class X86EvaluatorTest extends BaseTest {
             final File asmFile = new File("./target/temp", testCase.getTestName() + ".s");
             testCase.getTemporaryFiles().add(asmFile);
             try (FileWriter asmWriter = new FileWriter(asmFile)) {
-                final X86Compiler x86Compiler = new X86Compiler();
+                final X86Compiler x86Compiler = createCompiler();
                 final X86Program x86Program = x86Compiler.compile(newProgram);
 
                 final X86Printer x86Printer = new X86Printer();
@@ -65,19 +75,27 @@ public class X86EvaluatorTest extends BaseTest {
 
             final File objectFile = new File("./target/temp", testCase.getTestName() + ".o");
             testCase.getTemporaryFiles().add(objectFile);
-            systemService.executeForRead(new String[] {"./runtime/compile.sh", "./runtime", "./target/temp/" + testCase.getTestName()}, (inputStream -> {
-                try (BufferedReader compilationReader = new BufferedReader(new InputStreamReader(inputStream))) {
-                    while (compilationReader.ready()) {
-                        System.out.println(compilationReader.readLine());
+            final File executableFile = new File("./target/temp", testCase.getTestName());
+            testCase.getTemporaryFiles().add(executableFile);
+            // the executable is linked again only if the assembly or the runtime is changed
+            final String key = ArtifactCache.key(new String(Files.readAllBytes(asmFile.toPath()), StandardCharsets.UTF_8),
+                    new String(Files.readAllBytes(Paths.get("./runtime/runtime.c")), StandardCharsets.UTF_8));
+            if (!cache.copy(key, "program", executableFile.toPath())) {
+                systemService.executeForRead(new String[] {"./runtime/compile.sh", "./runtime", "./target/temp/" + testCase.getTestName()}, (inputStream -> {
+                    try (BufferedReader compilationReader = new BufferedReader(new InputStreamReader(inputStream))) {
+                        while (compilationReader.ready()) {
+                            System.out.println(compilationReader.readLine());
+                        }
+                    } catch (final IOException e) {
+                        e.printStackTrace();
                     }
-                } catch (final IOException e) {
-                    e.printStackTrace();
+                    return "";
+                }));
+                if (executableFile.exists()) {
+                    cache.put(key, "program", executableFile.toPath());
                 }
-                return "";
-            }));
+            }
 
-            final File executableFile = new File("./target/temp", testCase.getTestName());
-            testCase.getTemporaryFiles().add(executableFile);
             systemService.executeForRead(new String[] {"./runtime/run.sh", "./target/temp/" + testCase.getTestName(), testCase.getInputFile().toString()}, (inputStream -> {
                 try (BufferedReader compilationReader = new BufferedReader(new InputStreamReader(inputStream))) {
                     while (compilationReader.ready()) {
@@ -0,0 +1,46 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.ctddev.khovanskiy.compilers.BaseTest;
+
+/**
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class BoundsCheckTest {
+    private static final String UNKNOWN_INDEX = "a := [1, 2, 3]; write(a[read()])";
+
+    @Test
+    public void testUnknownIndex() throws Exception {
+        final String assembly = compile(UNKNOWN_INDEX, true);
+        Assert.assertTrue(assembly, assembly.contains("\tjae main_bounds\n"));
+        Assert.assertTrue(assembly, assembly.contains("\tcall bounds_error\n"));
+    }
+
+    @Test
+    public void testUnchecked() throws Exception {
+        final String assembly = compile(UNKNOWN_INDEX, false);
+        Assert.assertFalse(assembly, assembly.contains("jae"));
+        Assert.assertFalse(assembly, assembly.contains("bounds_error"));
+    }
+
+    @Test
+    public void testLoopOverLength() throws Exception {
+        final String assembly = compile("fun sum(a) begin s := 0; i := 0; while i < arrlen(a) do s := s + a[i]; i := i + 1 od; return s end\n"
+                + "n := read(); b := arrmake(n, 1); for k := 0, k < n, k := k + 1 do b[k] := k od; write(sum(b) + sum([1, 2, 3]))", true);
+        Assert.assertFalse(assembly, assembly.contains("jae"));
+    }
+
+    @Test
+    public void testUnknownBound() throws Exception {
+        final String assembly = compile("fun sum(a, n) begin s := 0; i := 0; while i < n do s := s + a[i]; i := i + 1 od; return s end\n"
+                + "write(sum([1, 2, 3], 3))", true);
+        Assert.assertTrue(assembly, assembly.contains("\tjae sum_bounds\n"));
+        Assert.assertFalse(assembly, assembly.contains("main_bounds"));
+    }
+
+    private static String compile(final String source, final boolean boundsChecked) throws Exception {
+        return BaseTest.printX86(new X86Compiler(new X86CompilerOptions().boundsChecked(boundsChecked)), BaseTest.compileVM(source));
+    }
+}
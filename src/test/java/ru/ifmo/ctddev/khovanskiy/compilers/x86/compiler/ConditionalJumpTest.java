@@ -0,0 +1,30 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.ctddev.khovanskiy.compilers.BaseTest;
+
+/**
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class ConditionalJumpTest {
+    @Test
+    public void testLoopHeader() throws Exception {
+        final String assembly = compile("n := read(); i := 0; while i < n do i := i + 1 od; write(i)");
+        Assert.assertTrue(assembly, assembly.contains("\tjge main_l1\n"));
+        Assert.assertTrue(assembly, assembly.contains("\tjl main_l0\n"));
+        Assert.assertFalse(assembly, assembly.contains("setl"));
+    }
+
+    @Test
+    public void testValueOfComparison() throws Exception {
+        final String assembly = compile("n := read(); b := n == 1; if n != 2 then write(b) fi");
+        Assert.assertTrue(assembly, assembly.contains("\tsete %dl\n"));
+        Assert.assertTrue(assembly, assembly.contains("\tje main_l"));
+    }
+
+    private static String compile(final String source) throws Exception {
+        return BaseTest.printX86(new X86Compiler(), BaseTest.compileVM(source));
+    }
+}
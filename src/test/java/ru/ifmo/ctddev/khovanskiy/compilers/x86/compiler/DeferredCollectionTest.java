@@ -0,0 +1,32 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.ctddev.khovanskiy.compilers.BaseTest;
+
+/**
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class DeferredCollectionTest {
+    /**
+     * Every call of keep takes the holders of variables a and b and the holder of array made by arrmake,
+     * the array escapes make, so it is allocated in the heap
+     */
+    private static final String SOURCE = "fun make(n) begin a := arrmake(n, n); return a end\n"
+            + "fun keep(n) begin b := make(n); return b[0] end\n"
+            + "n := read(); s := 0; i := 0; while i < 2000000 do s := s + keep(n); i := i + 1 od;\n"
+            + "write(s)";
+
+    /**
+     * The holders that are not released by the compiled code would take 48 MB, so the program fails within 32 MB
+     */
+    @Test
+    public void testHoldersAreReclaimed() throws Exception {
+        final String assembly = BaseTest.printX86(new X86Compiler(new X86CompilerOptions().collector(GarbageCollector.DEFERRED_REFERENCE_COUNTING)), BaseTest.compileVM(SOURCE));
+        Assert.assertTrue(assembly, assembly.contains("\tcall init_reference\n"));
+        Assert.assertFalse(assembly, assembly.contains("gc_release"));
+
+        Assert.assertEquals("> 4000000", BaseTest.runX86(assembly, "deferred-holders", "2", 32768));
+    }
+}
@@ -0,0 +1,101 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.ctddev.khovanskiy.compilers.BaseTest;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMFunction;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Ebx;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Edi;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Esi;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Register;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The variables are numbered in the order of their first occurrence in the source
+ *
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class LinearScanAllocatorTest {
+    /**
+     * The callee-saved registers in the order of {@link CompilerContext}
+     */
+    private static final List<Register> CALLEE_SAVED = Arrays.asList(Ebx.INSTANCE, Edi.INSTANCE, Esi.INSTANCE);
+
+    @Test
+    public void testDisjointIntervalsShareRegister() {
+        final Map<Integer, Register> allocation = allocate("a := read(); write(a); b := read(); write(b)", "main", Arrays.asList(Ebx.INSTANCE));
+        Assert.assertEquals(Ebx.INSTANCE, allocation.get(0));
+        Assert.assertEquals(Ebx.INSTANCE, allocation.get(1));
+    }
+
+    @Test
+    public void testOverlappingIntervals() {
+        final Map<Integer, Register> allocation = allocate("a := read(); b := read(); write(a + b)", "main", CALLEE_SAVED);
+        Assert.assertEquals(Ebx.INSTANCE, allocation.get(0));
+        Assert.assertEquals(Edi.INSTANCE, allocation.get(1));
+    }
+
+    /**
+     * The last occurrence of x precedes the definition of y, but x is read again on the next iteration
+     */
+    @Test
+    public void testIntervalIsExtendedOverLoop() {
+        final Map<Integer, Register> allocation = allocate("x := read(); i := 0; while i < 10 do write(x); y := i; write(y); i := i + 1 od",
+                "main", Arrays.asList(Ebx.INSTANCE, Esi.INSTANCE));
+        Assert.assertEquals(2, allocation.size());
+        Assert.assertEquals(2, new HashSet<>(allocation.values()).size());
+    }
+
+    /**
+     * Five variables are live in the loop: d is not used in the loop, so it stays in memory,
+     * then i is used in the loop more than b, so it takes the register of b
+     */
+    @Test
+    public void testSpillWhenRegistersAreLive() {
+        final Map<Integer, Register> allocation = allocate("a := read(); b := read(); c := read(); d := read();\n"
+                + "i := 0; while i < 10 do a := a + b + c; i := i + 1 od;\n"
+                + "write(a + d)", "main", CALLEE_SAVED);
+        final Map<Integer, Register> expected = new HashMap<>();
+        expected.put(0, Ebx.INSTANCE);
+        expected.put(2, Esi.INSTANCE);
+        expected.put(4, Edi.INSTANCE);
+        Assert.assertEquals(expected, allocation);
+    }
+
+    /**
+     * The variables live across the calls are kept in the callee-saved registers,
+     * so the caller does not save them around the calls and the callee saves only the registers it uses
+     */
+    @Test
+    public void testValuesLiveAcrossCalls() throws Exception {
+        final String source = "fun f(x) begin return x + 1 end\n"
+                + "n := read(); s := 0; i := 0; while i < n do s := s + f(i); i := i + 1 od; write(s)";
+        final Map<Integer, Register> allocation = allocate(source, "main", CALLEE_SAVED);
+        Assert.assertEquals(3, allocation.size());
+        Assert.assertEquals(new HashSet<>(CALLEE_SAVED), new HashSet<>(allocation.values()));
+
+        final String assembly = BaseTest.printX86(new X86Compiler(), BaseTest.compileVM(source));
+        Assert.assertTrue(assembly, assembly.contains("main_l0:\n\tpushl " + allocation.get(2) + "\n\tcall f\n\taddl $4, %esp\n"));
+        final String f = assembly.substring(assembly.indexOf("f:\n"), assembly.indexOf("main:\n"));
+        Assert.assertTrue(f, f.contains("\tpushl %ebx\n"));
+        Assert.assertTrue(f, f.contains("\tpopl %ebx\n"));
+        Assert.assertFalse(f, f.contains("%esi"));
+        Assert.assertFalse(f, f.contains("%edi"));
+    }
+
+    private static Map<Integer, Register> allocate(final String source, final String name, final List<Register> registers) {
+        final VMFunction function = BaseTest.getFunction(BaseTest.compileVM(source), name);
+        final Set<Integer> candidates = new HashSet<>();
+        for (int id = 0; id < function.getTypes().size(); ++id) {
+            candidates.add(id);
+        }
+        return new LinearScanAllocator(registers).allocate(function, candidates);
+    }
+}
@@ -0,0 +1,14 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86EvaluatorTest;
+
+/**
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class MarkSweepX86EvaluatorTest extends X86EvaluatorTest {
+    @Override
+    protected X86Compiler createCompiler() {
+        return new X86Compiler(new X86CompilerOptions().collector(GarbageCollector.MARK_SWEEP));
+    }
+}
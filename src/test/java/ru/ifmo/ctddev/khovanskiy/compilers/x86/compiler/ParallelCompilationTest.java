@@ -0,0 +1,82 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.ctddev.khovanskiy.compilers.BaseTest;
+import ru.ifmo.ctddev.khovanskiy.compilers.ast.AST;
+import ru.ifmo.ctddev.khovanskiy.compilers.profiler.PhaseProfiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.compiler.VMCompiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.TypeContext;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.TypeInferencer;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.printer.PrinterContext;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.printer.VMPrinter;
+
+import java.io.StringWriter;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class ParallelCompilationTest {
+    @Test
+    public void testSameAsSerial() throws Exception {
+        final StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 32; ++i) {
+            source.append("fun f").append(i).append("(a, s) begin\n")
+                    .append("  x := [a, ").append(i).append("];\n")
+                    .append("  while a > 0 do if a % 2 == 0 then a := a / 2 else a := a - 1 fi od;\n")
+                    .append("  return x[1] + strlen(s)\n")
+                    .append("end\n");
+        }
+        source.append("write(f0(read(), \"abc\"))");
+        final AST.CompilationUnit ast = BaseTest.parse(source.toString());
+        final TypeContext typeContext = new TypeInferencer().inference(ast);
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final VMProgram serial = new VMCompiler().compile(ast, typeContext);
+            final VMProgram parallel = new VMCompiler(PhaseProfiler.disabled(), pool).compile(ast, typeContext);
+            Assert.assertEquals(printVM(serial), printVM(parallel));
+            Assert.assertEquals(BaseTest.printX86(new X86Compiler(), serial), BaseTest.printX86(new X86Compiler(new X86CompilerOptions().pool(pool)), parallel));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testLocalArraysSameAsSerial() throws Exception {
+        final StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 8; ++i) {
+            source.append("fun f").append(i).append("(n) begin\n")
+                    .append("  s := 0;\n")
+                    .append("  for i := 0, i < n, i := i + 1 do\n")
+                    .append("    a := [i, ").append(i).append(", 2]; b := arrmake(").append(i + 1).append(", i); c := strmake(3, 'x');\n")
+                    .append("    s := s + a[0] + b[0] + arrlen(b) + strlen(c) + strlen(\"abc\")\n")
+                    .append("  od;\n")
+                    .append("  return s\n")
+                    .append("end\n");
+        }
+        source.append("write(f0(read()))");
+        final AST.CompilationUnit ast = BaseTest.parse(source.toString());
+        final TypeContext typeContext = new TypeInferencer().inference(ast);
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            // the frame blocks of arrays are laid out in the order of commands, which are different objects in every compilation
+            final String expected = BaseTest.printX86(new X86Compiler(), new VMCompiler().compile(ast, typeContext));
+            Assert.assertEquals(expected, BaseTest.printX86(new X86Compiler(), new VMCompiler().compile(ast, typeContext)));
+            Assert.assertEquals(expected, BaseTest.printX86(new X86Compiler(new X86CompilerOptions().pool(pool)),
+                    new VMCompiler(PhaseProfiler.disabled(), pool).compile(ast, typeContext)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static String printVM(final VMProgram vmProgram) {
+        final StringWriter writer = new StringWriter();
+        new VMPrinter().visitProgram(vmProgram, new PrinterContext(writer));
+        return writer.toString();
+    }
+}
@@ -0,0 +1,97 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.ctddev.khovanskiy.compilers.BaseTest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class StackMapTest {
+    /**
+     * The arrays of unknown length are kept alive across the calls that allocate enough garbage for several collections
+     */
+    private static final String SOURCE = "fun fill(n) begin a := arrmake(n, n); return a end\n"
+            + "n := read(); a := arrmake(n, 7); s := strmake(n, 'x');\n"
+            + "i := 0; while i < 10000 do t := fill(n); i := i + 1 od;\n"
+            + "write(a[0] + arrlen(a) + strlen(s) + t[0])";
+
+    @Test
+    public void testMarkSweep() throws Exception {
+        final String assembly = compile(SOURCE, GarbageCollector.MARK_SWEEP);
+        Assert.assertTrue(assembly, assembly.contains("\tcall gc_init_mark_sweep\n"));
+        Assert.assertFalse(assembly, assembly.contains("gc_assign"));
+        Assert.assertFalse(assembly, assembly.contains("gc_release"));
+        Assert.assertFalse(assembly, assembly.contains("init_reference"));
+
+        // every call site of main keeps the variables a, s and t, the call site of fill keeps its variable a
+        final List<Set<Integer>> main = getStackMaps(assembly, "main");
+        Assert.assertFalse(assembly, main.isEmpty());
+        Assert.assertEquals(assembly, 3, intersect(main).size());
+        // the integers n and i and the sums that are live across the calls of arrlen and strlen are not kept
+        Assert.assertEquals(assembly, intersect(main), union(main));
+        final List<Set<Integer>> fill = getStackMaps(assembly, "fill");
+        Assert.assertEquals(assembly, 1, fill.size());
+        Assert.assertEquals(assembly, 1, fill.get(0).size());
+
+        Assert.assertEquals("> 307", BaseTest.runX86(assembly, "stack-map", "100", 0));
+    }
+
+    @Test
+    public void testReferenceCounting() throws Exception {
+        final String assembly = compile(SOURCE, GarbageCollector.REFERENCE_COUNTING);
+        Assert.assertTrue(assembly, assembly.contains("\tcall gc_assign\n"));
+        Assert.assertTrue(assembly, assembly.contains("\tcall gc_release\n"));
+        Assert.assertFalse(assembly, assembly.contains("gc_maps"));
+    }
+
+    private static String compile(final String source, final GarbageCollector collector) throws Exception {
+        return BaseTest.printX86(new X86Compiler(new X86CompilerOptions().collector(collector)), BaseTest.compileVM(source));
+    }
+
+    /**
+     * Reads the stack maps of call sites of function: the label, the count and the offsets of references
+     */
+    private static List<Set<Integer>> getStackMaps(final String assembly, final String function) {
+        final String[] lines = assembly.split("\n");
+        final List<Set<Integer>> maps = new ArrayList<>();
+        for (int i = 0; i + 1 < lines.length; ++i) {
+            if (!lines[i].startsWith("\t.long " + function + "_call_")) {
+                continue;
+            }
+            final int count = getLong(lines[i + 1]);
+            final Set<Integer> positions = new HashSet<>();
+            for (int j = 0; j < count; ++j) {
+                positions.add(getLong(lines[i + 2 + j]));
+            }
+            maps.add(positions);
+        }
+        return maps;
+    }
+
+    private static int getLong(final String line) {
+        return Integer.parseInt(line.substring("\t.long ".length()));
+    }
+
+    private static Set<Integer> intersect(final List<Set<Integer>> maps) {
+        final Set<Integer> common = new HashSet<>(maps.get(0));
+        for (final Set<Integer> map : maps) {
+            common.retainAll(map);
+        }
+        return common;
+    }
+
+    private static Set<Integer> union(final List<Set<Integer>> maps) {
+        final Set<Integer> all = new HashSet<>();
+        for (final Set<Integer> map : maps) {
+            all.addAll(map);
+        }
+        return all;
+    }
+}
@@ -0,0 +1,46 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.ctddev.khovanskiy.compilers.BaseTest;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.VMProgram;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class X86EmitterTest {
+    @Test
+    public void testSameAsPrinter() throws Exception {
+        final StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 16; ++i) {
+            source.append("fun f").append(i).append("(a) begin\n")
+                    .append("  x := [a, ").append(i).append("];\n")
+                    .append("  for i := 0, i < a, i := i + 1 do x[0] := x[0] + i od;\n")
+                    .append("  return x[0] + strlen(\"s").append(i).append("\")\n")
+                    .append("end\n");
+        }
+        source.append("write(f0(read()))");
+        final VMProgram vmProgram = BaseTest.compileVM(source.toString());
+        final String expected = BaseTest.printX86(new X86Compiler(), vmProgram);
+
+        Assert.assertEquals(expected, emit(new X86Emitter(new X86Compiler()), vmProgram));
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Assert.assertEquals(expected, emit(new X86Emitter(new X86Compiler(), pool), vmProgram));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static String emit(final X86Emitter emitter, final VMProgram vmProgram) throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        emitter.emit(vmProgram, Channels.newChannel(output));
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
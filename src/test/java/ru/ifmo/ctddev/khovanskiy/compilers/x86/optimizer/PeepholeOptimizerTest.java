@@ -0,0 +1,139 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.optimizer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ru.ifmo.ctddev.khovanskiy.compilers.vm.inference.type.IntegerType;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.Immediate;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.StackPosition;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.printer.X86Printer;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.printer.X86PrinterContext;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Dl;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Eax;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Ebx;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Ecx;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.register.Edx;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class PeepholeOptimizerTest {
+    private static final StackPosition SLOT = new StackPosition(-4, IntegerType.INSTANCE);
+
+    @Test
+    public void testRoundTripMove() throws Exception {
+        final PeepholeOptimizer optimizer = PeepholeOptimizer.withDefaultRules();
+        final List<X86> commands = optimize(optimizer,
+                new X86.MovL(Eax.INSTANCE, SLOT),
+                new X86.MovL(SLOT, Eax.INSTANCE),
+                new X86.Ret());
+        Assert.assertEquals("\tmovl %eax, -4(%ebp)\n\tret\n", print(commands));
+        Assert.assertEquals(Long.valueOf(1), optimizer.getHitCounts().get("round-trip-move"));
+    }
+
+    @Test
+    public void testImmediateOperand() throws Exception {
+        final List<X86> commands = optimize(PeepholeOptimizer.withDefaultRules(),
+                new X86.MovL(new Immediate(1), Ecx.INSTANCE),
+                new X86.MovL(Ebx.INSTANCE, Eax.INSTANCE),
+                new X86.AddL(Ecx.INSTANCE, Eax.INSTANCE),
+                new X86.MovL(Eax.INSTANCE, Ebx.INSTANCE),
+                new X86.MovL(SLOT, Ecx.INSTANCE),
+                new X86.MovL(SLOT, Eax.INSTANCE),
+                new X86.Ret());
+        Assert.assertEquals("\taddl $1, %ebx\n\tmovl -4(%ebp), %eax\n\tret\n", print(commands));
+    }
+
+    @Test
+    public void testRegisterIsKeptBeforeJump() throws Exception {
+        final List<X86> commands = optimize(PeepholeOptimizer.withDefaultRules(),
+                new X86.MovL(Edx.INSTANCE, Ecx.INSTANCE),
+                new X86.Cmp(new Immediate(0), Ecx.INSTANCE),
+                new X86.Jz("f_l0"),
+                new X86.Label("f_l0"),
+                new X86.Ret());
+        Assert.assertEquals("\tmovl %edx, %ecx\n\tcmp $0, %ecx\nf_l0:\n\tret\n", print(commands));
+    }
+
+    @Test
+    public void testRegisterIsDeadOnBothPaths() throws Exception {
+        final List<X86> commands = optimize(PeepholeOptimizer.withDefaultRules(),
+                new X86.MovL(new Immediate(3), Ecx.INSTANCE),
+                new X86.AddL(Ecx.INSTANCE, Ebx.INSTANCE),
+                new X86.Cmp(Eax.INSTANCE, Ebx.INSTANCE),
+                new X86.Jl("f_l0"),
+                new X86.MovL(SLOT, Ecx.INSTANCE),
+                new X86.PushL(Ecx.INSTANCE),
+                new X86.Label("f_l0"),
+                new X86.MovL(SLOT, Ecx.INSTANCE),
+                new X86.PushL(Ecx.INSTANCE),
+                new X86.Ret());
+        Assert.assertEquals("\taddl $3, %ebx\n\tcmp %eax, %ebx\n\tjl f_l0\n\tmovl -4(%ebp), %ecx\n\tpushl %ecx\nf_l0:\n\tmovl -4(%ebp), %ecx\n\tpushl %ecx\n\tret\n", print(commands));
+    }
+
+    @Test
+    public void testFlagsAreKept() throws Exception {
+        final List<X86> commands = optimize(PeepholeOptimizer.withDefaultRules(),
+                new X86.AddL(new Immediate(0), Eax.INSTANCE),
+                new X86.SetE(Dl.INSTANCE),
+                new X86.Ret());
+        Assert.assertEquals(3, commands.size());
+    }
+
+    @Test
+    public void testDisable() throws Exception {
+        final PeepholeOptimizer optimizer = PeepholeOptimizer.withDefaultRules().disable(Collections.singletonList("push-pop"));
+        final List<X86> commands = optimize(optimizer,
+                new X86.PushL(Eax.INSTANCE),
+                new X86.PopL(Eax.INSTANCE),
+                new X86.Ret());
+        Assert.assertEquals(3, commands.size());
+        Assert.assertFalse(optimizer.getEnabledRules().contains("push-pop"));
+        Assert.assertEquals(Long.valueOf(0), optimizer.getHitCounts().get("push-pop"));
+        Assert.assertEquals(1, optimize(PeepholeOptimizer.withDefaultRules(), commands.toArray(new X86[0])).size());
+    }
+
+    @Test
+    public void testPushPopBetweenMemory() throws Exception {
+        final PeepholeOptimizer optimizer = PeepholeOptimizer.withDefaultRules();
+        final List<X86> commands = optimize(optimizer,
+                new X86.PushL(SLOT),
+                new X86.PopL(new StackPosition(-8, IntegerType.INSTANCE)),
+                new X86.PushL(new Immediate(1)),
+                new X86.PopL(SLOT),
+                new X86.PushL(SLOT),
+                new X86.PopL(Eax.INSTANCE),
+                new X86.Ret());
+        Assert.assertEquals("\tpushl -4(%ebp)\n\tpopl -8(%ebp)\n\tmovl $1, -4(%ebp)\n\tmovl -4(%ebp), %eax\n\tret\n", print(commands));
+        Assert.assertEquals(Long.valueOf(2), optimizer.getHitCounts().get("push-pop"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownRule() {
+        PeepholeOptimizer.withDefaultRules().disable(Collections.singletonList("unknown"));
+    }
+
+    private static List<X86> optimize(final PeepholeOptimizer optimizer, final X86... commands) {
+        final List<X86> list = new ArrayList<>(Arrays.asList(commands));
+        optimizer.optimize(list);
+        return list;
+    }
+
+    private static String print(final List<X86> commands) throws Exception {
+        final StringWriter writer = new StringWriter();
+        final X86Printer printer = new X86Printer();
+        final X86PrinterContext context = new X86PrinterContext(writer);
+        for (final X86 command : commands) {
+            printer.visitCommand(command, context);
+        }
+        context.flush();
+        return writer.toString();
+    }
+}
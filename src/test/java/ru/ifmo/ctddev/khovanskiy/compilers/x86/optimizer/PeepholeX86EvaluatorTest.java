@@ -0,0 +1,16 @@
+package ru.ifmo.ctddev.khovanskiy.compilers.x86.optimizer;
+
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.X86EvaluatorTest;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler.X86Compiler;
+import ru.ifmo.ctddev.khovanskiy.compilers.x86.compiler.X86CompilerOptions;
+
+/**
+ * @author Victor Khovanskiy
+ * @since 1.1.0
+ */
+public class PeepholeX86EvaluatorTest extends X86EvaluatorTest {
+    @Override
+    protected X86Compiler createCompiler() {
+        return new X86Compiler(new X86CompilerOptions().optimizer(PeepholeOptimizer.withDefaultRules()));
+    }
+}